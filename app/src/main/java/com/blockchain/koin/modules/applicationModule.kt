@@ -283,7 +283,8 @@ val applicationModule = module {
                 prefs = get(),
                 appUtil = get(),
                 pinRepository = get(),
-                assetCatalogue = get()
+                assetCatalogue = get(),
+                sentTransactions = get()
             )
         }.bind(CoinsWebSocketInterface::class)
 
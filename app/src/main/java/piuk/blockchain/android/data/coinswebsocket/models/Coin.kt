@@ -10,5 +10,18 @@ enum class Coin {
     @SerializedName("bch")
     BCH,
     @SerializedName("none")
-    None
+    None;
+
+    companion object {
+        // Read from the annotations, so the names are only declared once
+        private val bySerializedName = values().associateBy { coin ->
+            Coin::class.java.getField(coin.name).getAnnotation(SerializedName::class.java).value
+        }
+
+        /**
+         * @return the coin serialized as [name], or [None] when no coin is
+         */
+        fun fromSerializedName(name: String?): Coin =
+            bySerializedName[name] ?: None
+    }
 }
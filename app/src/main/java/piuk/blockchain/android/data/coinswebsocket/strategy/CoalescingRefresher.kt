@@ -0,0 +1,51 @@
+package piuk.blockchain.android.data.coinswebsocket.strategy
+
+import io.reactivex.rxjava3.core.BackpressureStrategy
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.subjects.PublishSubject
+import java.util.concurrent.TimeUnit
+import timber.log.Timber
+
+/**
+ * Collapses bursts of refresh requests for one coin into as few refreshes as possible. Requests are
+ * debounced over [window], and only one [refresh] runs at a time: any requests arriving while a refresh
+ * is in flight are merged into a single follow-up refresh.
+ */
+internal class CoalescingRefresher(
+    private val window: Long,
+    private val unit: TimeUnit,
+    private val refresh: () -> Completable
+) {
+    private val invalidations = PublishSubject.create<Unit>()
+
+    fun invalidate() {
+        invalidations.onNext(Unit)
+    }
+
+    fun start(): Disposable =
+        invalidations.debounce(window, unit)
+            .toFlowable(BackpressureStrategy.LATEST)
+            .flatMapCompletable(
+                { refresh().doOnError(Timber::e).onErrorComplete() },
+                false,
+                1
+            ).subscribe()
+}
+
+/**
+ * The hashes of the most recent transactions seen on the socket, so that a transaction reported more
+ * than once - for instance to both an xpub and an imported address subscription - is only counted once.
+ */
+internal class RecentTransactions(private val capacity: Int = 500) {
+    private val hashes = object : LinkedHashMap<String, Unit>(capacity, 0.75f, false) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Unit>?): Boolean =
+            size > capacity
+    }
+
+    @Synchronized
+    fun add(hash: String): Boolean = hashes.put(hash, Unit) == null
+
+    @Synchronized
+    fun clear() = hashes.clear()
+}
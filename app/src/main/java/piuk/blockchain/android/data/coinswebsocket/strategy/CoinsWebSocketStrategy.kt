@@ -4,6 +4,7 @@ import com.blockchain.core.chains.bitcoincash.BchDataManager
 import com.blockchain.core.chains.erc20.Erc20DataManager
 import com.blockchain.network.websocket.ConnectionEvent
 import com.blockchain.network.websocket.WebSocket
+import com.blockchain.network.websocket.peekRoutingFields
 import com.blockchain.websocket.CoinsWebSocketInterface
 import com.blockchain.websocket.MessagesSocketHandler
 import com.google.gson.Gson
@@ -21,10 +22,13 @@ import io.reactivex.rxjava3.kotlin.plusAssign
 import io.reactivex.rxjava3.kotlin.subscribeBy
 import io.reactivex.rxjava3.schedulers.Schedulers
 import java.math.BigDecimal
+import java.math.BigInteger
 import java.util.Locale
+import java.util.concurrent.TimeUnit
 import org.web3j.utils.Convert
 import piuk.blockchain.android.R
 import piuk.blockchain.android.data.coinswebsocket.models.BtcBchResponse
+import piuk.blockchain.android.data.coinswebsocket.models.BtcTransaction
 import piuk.blockchain.android.data.coinswebsocket.models.Coin
 import piuk.blockchain.android.data.coinswebsocket.models.Entity
 import piuk.blockchain.android.data.coinswebsocket.models.EthResponse
@@ -44,6 +48,7 @@ import piuk.blockchain.androidcore.data.events.ActionEvent
 import piuk.blockchain.androidcore.data.events.TransactionsUpdatedEvent
 import piuk.blockchain.androidcore.data.events.WalletAndTransactionsUpdatedEvent
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
+import piuk.blockchain.androidcore.data.payments.SentTransactions
 import piuk.blockchain.androidcore.data.rxjava.RxBus
 import piuk.blockchain.androidcore.utils.PersistentPrefs
 import timber.log.Timber
@@ -75,13 +80,29 @@ class CoinsWebSocketStrategy(
     private val pinRepository: PinRepository,
     private val appUtil: AppUtil,
     private val payloadDataManager: PayloadDataManager,
-    private val assetCatalogue: AssetCatalogue
+    private val assetCatalogue: AssetCatalogue,
+    private val sentTransactions: SentTransactions
 ) : CoinsWebSocketInterface {
 
     private var coinWebSocketInput: CoinWebSocketInput? = null
     private val compositeDisposable = CompositeDisposable()
     private var messagesSocketHandler: MessagesSocketHandler? = null
 
+    private val btcRefresher = CoalescingRefresher(REFRESH_WINDOW_MS, TimeUnit.MILLISECONDS) {
+        payloadDataManager.updateAllBalances()
+            .andThen(payloadDataManager.updateAllTransactions())
+            .doOnComplete { rxBus.emitEvent(ActionEvent::class.java, WalletAndTransactionsUpdatedEvent()) }
+    }
+
+    private val bchRefresher = CoalescingRefresher(REFRESH_WINDOW_MS, TimeUnit.MILLISECONDS) {
+        bchDataManager.updateAllBalances()
+            .andThen(bchDataManager.getWalletTransactions(50, 0).ignoreElements())
+            .doOnComplete { rxBus.emitEvent(ActionEvent::class.java, WalletAndTransactionsUpdatedEvent()) }
+    }
+
+    private val seenBtcTransactions = RecentTransactions()
+    private val seenBchTransactions = RecentTransactions()
+
     fun setMessagesHandler(messagesSocketHandler: MessagesSocketHandler) {
         this.messagesSocketHandler = messagesSocketHandler
     }
@@ -93,6 +114,9 @@ class CoinsWebSocketStrategy(
     }
 
     private fun subscribeToEvents() {
+        compositeDisposable += btcRefresher.start()
+        compositeDisposable += bchRefresher.start()
+
         compositeDisposable += coinsWebSocket.connectionEvents
             .subscribe { evt ->
                 if (evt is ConnectionEvent.Connected) {
@@ -103,14 +127,15 @@ class CoinsWebSocketStrategy(
 
         compositeDisposable += coinsWebSocket.responses.distinctUntilChanged()
             .subscribe { response ->
-                val socketResponse = gson.fromJson(response, SocketResponse::class.java)
-                if (socketResponse.op == "on_change")
-                    checkForWalletChange(socketResponse.checksum)
-                when (socketResponse.coin) {
+                // Only the routing fields are read here, the full message is decoded once by its handler
+                val routing = response.peekRoutingFields()
+                if (routing.op == "on_change")
+                    checkForWalletChange(gson.fromJson(response, SocketResponse::class.java).checksum)
+                when (Coin.fromSerializedName(routing.coin)) {
                     Coin.ETH -> handleEthTransaction(response)
                     Coin.BTC -> handleBtcTransaction(response)
                     Coin.BCH -> handleBchTransaction(response)
-                    else -> {
+                    Coin.None -> {
                     }
                 }
             }
@@ -143,7 +168,7 @@ class CoinsWebSocketStrategy(
             payloadDataManager.tempPassword!!
         ).subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread())
-            .doOnComplete { this.updateBtcBalancesAndTransactions() }
+            .doOnComplete { btcRefresher.invalidate() }
             .doOnError { throwable ->
                 Timber.e(throwable)
                 if (throwable is DecryptionException) {
@@ -214,7 +239,14 @@ class CoinsWebSocketStrategy(
             payloadDataManager.wallet?.containsImportedAddress(x)
         }
 
-        updateBtcBalancesAndTransactions()
+        applyBalanceDeltas(
+            transaction,
+            seenBtcTransactions,
+            isImported = { x -> payloadDataManager.wallet?.containsImportedAddress(x) == true }
+        ) { address, delta ->
+            payloadDataManager.subtractAmountFromAddressBalance(address, delta.negate().toLong())
+        }
+        btcRefresher.invalidate()
     }
 
     private fun handleBchTransaction(response: String) {
@@ -230,7 +262,14 @@ class CoinsWebSocketStrategy(
                 bchDataManager.getImportedAddressStringList().contains(x)
             }
 
-        updateBchBalancesAndTransactions()
+        applyBalanceDeltas(
+            transaction,
+            seenBchTransactions,
+            isImported = { x -> bchDataManager.getImportedAddressStringList().contains(x) }
+        ) { address, delta ->
+            bchDataManager.subtractAmountFromAddressBalance(address, delta.negate())
+        }
+        bchRefresher.invalidate()
 
         val title = stringUtils.getString(R.string.app_name)
 
@@ -247,20 +286,44 @@ class CoinsWebSocketStrategy(
         }
     }
 
-    private fun updateBtcBalancesAndTransactions() {
-        compositeDisposable += payloadDataManager.updateAllBalances()
-            .andThen(payloadDataManager.updateAllTransactions())
-            .subscribe {
-                rxBus.emitEvent(ActionEvent::class.java, WalletAndTransactionsUpdatedEvent())
-            }
-    }
+    /**
+     * Moves the locally held balances by what this transaction pays to or spends from each of our
+     * xpubs and imported addresses, so they are current while the coalesced refresh is pending. The
+     * refresh replaces them with the server's figures. Balances that haven't been loaded yet are left
+     * for the refresh to fill in, and transactions sent from this device were taken off when they were sent.
+     */
+    private fun applyBalanceDeltas(
+        transaction: BtcTransaction,
+        seen: RecentTransactions,
+        isImported: (address: String) -> Boolean,
+        applyDelta: (address: String, delta: BigInteger) -> Unit
+    ) {
+        val hash = transaction.hash ?: return
+        if (!seen.add(hash)) return
+        // Sent from here, and already taken off the balance it was sent from
+        if (hash in sentTransactions) return
+
+        val deltas = mutableMapOf<String, BigInteger>()
+        fun Output.ownedBy(): String? = xpub ?: addr?.takeIf { isImported(it) }
+
+        transaction.inputs.mapNotNull { it.prevOut }.forEach { output ->
+            val owner = output.ownedBy() ?: return@forEach
+            val value = output.value?.toBigInteger() ?: return@forEach
+            deltas[owner] = (deltas[owner] ?: BigInteger.ZERO) - value
+        }
+        transaction.outputs.forEach { output ->
+            val owner = output.ownedBy() ?: return@forEach
+            val value = output.value?.toBigInteger() ?: return@forEach
+            deltas[owner] = (deltas[owner] ?: BigInteger.ZERO) + value
+        }
 
-    private fun updateBchBalancesAndTransactions() {
-        compositeDisposable += bchDataManager.updateAllBalances()
-            .andThen(bchDataManager.getWalletTransactions(50, 0))
-            .subscribe {
-                rxBus.emitEvent(ActionEvent::class.java, WalletAndTransactionsUpdatedEvent())
+        deltas.filterValues { it.signum() != 0 }.forEach { (address, delta) ->
+            try {
+                applyDelta(address, delta)
+            } catch (e: Exception) {
+                Timber.d("No local balance for $address, waiting for refresh")
             }
+        }
     }
 
     private fun handleEthTransaction(response: String) {
@@ -356,6 +419,8 @@ class CoinsWebSocketStrategy(
         unsubscribeFromAddresses()
         coinsWebSocket.close()
         compositeDisposable.clear()
+        seenBtcTransactions.clear()
+        seenBchTransactions.clear()
     }
 
     private fun unsubscribeFromAddresses() {
@@ -604,3 +669,5 @@ class CoinsWebSocketStrategy(
                 param?.tokenAddress.equals(it.l2identifier, true)
             } ?: throw IllegalStateException("Unknown asset")
 }
+
+private const val REFRESH_WINDOW_MS = 1500L
@@ -11,6 +11,8 @@ import com.blockchain.notifications.analytics.AnalyticsEvent
 import com.blockchain.notifications.analytics.AnalyticsNames
 import com.blockchain.preferences.DashboardPrefs
 import com.blockchain.preferences.WalletStatus
+import com.blockchain.sunriver.XlmDataManager
+import info.blockchain.wallet.crypto.AESUtil
 import java.io.Serializable
 import org.koin.android.ext.android.inject
 import piuk.blockchain.android.data.coinswebsocket.service.CoinsWebSocketService
@@ -24,6 +26,7 @@ class LogoutActivity : AppCompatActivity() {
 
     private val ethDataManager: EthDataManager by scopedInject()
     private val bchDataManager: BchDataManager by scopedInject()
+    private val xlmDataManager: XlmDataManager by scopedInject()
     private val walletOptionsState: WalletOptionsState by scopedInject()
     private val nabuDataManager: NabuDataManager by scopedInject()
     private val assetActivityRepository: AssetActivityRepository by scopedInject()
@@ -55,8 +58,10 @@ class LogoutActivity : AppCompatActivity() {
     private fun clearData() {
         ethDataManager.clearAccountDetails()
         bchDataManager.clearAccountDetails()
+        xlmDataManager.clearAccountDetails()
         assetActivityRepository.clear()
         nabuDataManager.clearAccessToken()
+        AESUtil.clearDerivedKeyCache()
 
         walletOptionsState.wipe()
 
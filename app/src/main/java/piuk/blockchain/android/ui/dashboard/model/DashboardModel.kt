@@ -53,7 +53,13 @@ class DashboardModel(
             }
             is DashboardIntent.GetUserCanBuy -> interactor.userCanBuy(this)
             is DashboardIntent.RefreshPrices -> interactor.refreshPrices(this, intent.asset)
-            is DashboardIntent.AssetPriceUpdate -> interactor.refreshPriceHistory(this, intent.asset)
+            is DashboardIntent.AssetPriceUpdate ->
+                // Only the portfolio draws a trend, so assets that are only on the prices list need no history
+                if (previousState.activeAssets.contains(intent.asset)) {
+                    interactor.refreshPriceHistory(this, intent.asset)
+                } else {
+                    null
+                }
             is DashboardIntent.CheckBackupStatus -> checkBackupStatus(intent.account, intent.action)
             is DashboardIntent.CancelSimpleBuyOrder -> interactor.cancelSimpleBuyOrder(intent.orderId)
             is DashboardIntent.LaunchBankTransferFlow -> processBankTransferFlow(intent)
@@ -10,6 +10,7 @@ import com.google.gson.Gson
 import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
 import com.nhaarman.mockitokotlin2.verify
 import info.blockchain.balance.AssetCatalogue
 import info.blockchain.balance.AssetCategory
@@ -20,7 +21,10 @@ import info.blockchain.wallet.ethereum.data.EthAddressResponseMap
 import info.blockchain.wallet.payload.data.Wallet
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.schedulers.TestScheduler
 import io.reactivex.rxjava3.subjects.PublishSubject
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
 import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
@@ -29,7 +33,9 @@ import piuk.blockchain.android.data.coinswebsocket.strategy.CoinsWebSocketStrate
 import piuk.blockchain.android.util.StringUtils
 import piuk.blockchain.androidcore.data.ethereum.EthDataManager
 import piuk.blockchain.androidcore.data.ethereum.models.CombinedEthModel
+import piuk.blockchain.androidcore.data.events.WalletAndTransactionsUpdatedEvent
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
+import piuk.blockchain.androidcore.data.payments.SentTransactions
 import piuk.blockchain.androidcore.data.rxjava.RxBus
 import piuk.blockchain.androidcore.utils.PersistentPrefs
 
@@ -48,6 +54,10 @@ private object DUMMY_ERC20_1 : CryptoCurrency(
     colour = "#123456"
 )
 
+private const val XPUB = "xpub6CUGRUonZSQ4TWtTMmzXdrXDtypWKiKrhko4egpiMZbpiaQL2jkwSB1icqYh2cfDfVxdx4df189oLKnC5fSwqPfgyP3hooxujYzAu3fDVmz"
+
+private const val XPUB_BCH_TRANSACTION_HASH = "9a0f3c1e4b8e0f7d2c6a5b4e3d2c1b0a9f8e7d6c5b4a39281706f5e4d3c2b1a0"
+
 private const val DUMMY_ERC20_2_TICKER = "FAKE"
 @Suppress("ClassName")
 private object DUMMY_ERC20_2 : CryptoCurrency(
@@ -64,10 +74,13 @@ private object DUMMY_ERC20_2 : CryptoCurrency(
 
 class CoinsWebSocketStrategyTest {
 
+    private val testScheduler = TestScheduler()
+
     @get:Rule
     val rxSchedulers = rxInit {
         mainTrampoline()
         ioTrampoline()
+        computation(testScheduler)
     }
 
     private val messagesSocketHandler: MessagesSocketHandler = mock()
@@ -140,6 +153,8 @@ class CoinsWebSocketStrategyTest {
         )
     }
 
+    private val sentTransactions = SentTransactions()
+
     private val mockWebSocket: WebSocket<String, String> = mock()
     private val webSocket = FakeWebSocket(mockWebSocket)
 
@@ -155,7 +170,8 @@ class CoinsWebSocketStrategyTest {
         appUtil = mock(),
         prefs = prefs,
         rxBus = rxBus,
-        assetCatalogue = assetCatalogue
+        assetCatalogue = assetCatalogue,
+        sentTransactions = sentTransactions
     )
 
     @Before
@@ -213,6 +229,9 @@ class CoinsWebSocketStrategyTest {
     fun `btc transaction should be update btc balance and transactions`() {
         webSocket.send(btcTransaction)
         verify(mockWebSocket).open()
+        verify(payloadDataManager, never()).updateAllBalances()
+
+        testScheduler.advanceTimeBy(2, TimeUnit.SECONDS)
         verify(payloadDataManager).updateAllBalances()
         verify(payloadDataManager).updateAllTransactions()
     }
@@ -221,14 +240,59 @@ class CoinsWebSocketStrategyTest {
     fun `bch transaction should be update bch balance and transactions`() {
         webSocket.send(bchTransaction)
         verify(mockWebSocket).open()
+
+        testScheduler.advanceTimeBy(2, TimeUnit.SECONDS)
         verify(bchDataManager).updateAllBalances()
         verify(bchDataManager).getWalletTransactions(50, 0)
     }
 
+    @Test
+    fun `burst of btc transactions is coalesced into a single refresh`() {
+        webSocket.send(btcTransaction)
+        testScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS)
+        webSocket.send(xpubBtcTransaction)
+        testScheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS)
+        webSocket.send(btcTransaction)
+
+        testScheduler.advanceTimeBy(2, TimeUnit.SECONDS)
+        verify(payloadDataManager, times(1)).updateAllBalances()
+        verify(payloadDataManager, times(1)).updateAllTransactions()
+        verify(bchDataManager, never()).updateAllBalances()
+        verify(rxBus, times(1)).emitEvent(any(), any<WalletAndTransactionsUpdatedEvent>())
+    }
+
+    @Test
+    fun `btc transaction moves the local xpub balance once per hash`() {
+        webSocket.send(xpubBtcTransaction)
+        webSocket.send(btcTransaction)
+        webSocket.send(xpubBtcTransaction)
+
+        verify(payloadDataManager, times(1)).subtractAmountFromAddressBalance(XPUB, -27577L)
+    }
+
+    @Test
+    fun `bch transaction moves the local xpub balance`() {
+        webSocket.send(xpubBchTransaction)
+
+        verify(bchDataManager).subtractAmountFromAddressBalance(XPUB, BigInteger.valueOf(12000L))
+    }
+
+    @Test
+    fun `a transaction sent from here does not move the local balance again`() {
+        sentTransactions.add(XPUB_BCH_TRANSACTION_HASH)
+
+        webSocket.send(xpubBchTransaction)
+
+        verify(bchDataManager, never()).subtractAmountFromAddressBalance(any(), any())
+        testScheduler.advanceTimeBy(2, TimeUnit.SECONDS)
+        verify(bchDataManager).updateAllBalances()
+    }
+
     @Test
     fun `test changed payload`() {
         webSocket.send(changedPayloadMessage)
         verify(mockWebSocket).open()
+        testScheduler.advanceTimeBy(2, TimeUnit.SECONDS)
         verify(payloadDataManager).updateAllBalances()
         verify(payloadDataManager).updateAllTransactions()
         verify(rxBus).emitEvent(any(), any())
@@ -317,4 +381,19 @@ class CoinsWebSocketStrategyTest {
         "2MZvxdVx2oGdiM6faCAm\",\"value\":34445,\"n\":1,\"script\":\"76a91471429e8ea47c8d179f80ad55716657bad7ab" +
         "822388ac\"},{\"spent\":false,\"tx_index\":0,\"type\":0,\"addr\":\"1di8urMQChm4JWp8ht5DLBEqnhAEMdv" +
         "UD\",\"value\":296948,\"n\":2,\"script\":\"76a91406f150459c0bb0ab8b1c9f54f119bc02c769619988ac\"}]}}"
+
+    private val xpubBtcTransaction = "{\"coin\":\"btc\",\"entity\":\"xpub\",\"transaction\":" +
+        "{\"hash\":\"4d6ad7a9c8d0cfbd4b5e55b13d3a1ce9c4cb5b4d7bb9a8b1a1a1ba3e1ff0e1a2\",\"inputs\":" +
+        "[{\"address\":\"1Cox48WAm4NKTYbSjQ8DEswpaBNCfFwo9x\",\"value\":66456,\"prev_out\":{\"spent\":true," +
+        "\"addr\":\"1Cox48WAm4NKTYbSjQ8DEswpaBNCfFwo9x\",\"value\":66456}}],\"out\":[{\"spent\":false," +
+        "\"addr\":\"1At9jiwzVsRJAtN9hkqpgHsaCTJZSfgWAm\",\"xpub\":\"$XPUB\",\"value\":27577}," +
+        "{\"spent\":false,\"addr\":\"1F9HAVJWKS86z4VmoAJpRfRJR2wd4b2NAV\",\"value\":33340}]}}"
+
+    private val xpubBchTransaction = "{\"coin\":\"bch\",\"entity\":\"xpub\",\"transaction\":" +
+        "{\"hash\":\"$XPUB_BCH_TRANSACTION_HASH\",\"inputs\":" +
+        "[{\"address\":\"1PTPmqXXaQBe1K4PTTHngbSCHuj1N1L1sz\",\"value\":20000,\"prev_out\":{\"spent\":true," +
+        "\"addr\":\"1PTPmqXXaQBe1K4PTTHngbSCHuj1N1L1sz\",\"xpub\":\"$XPUB\",\"value\":20000}}]," +
+        "\"out\":[{\"spent\":false,\"addr\":\"1He3iJEfNyo5GaU1ntQkXHybryRZ6BZYbD\",\"value\":12000}," +
+        "{\"spent\":false,\"addr\":\"1BKsAULno4DuWK2MZvxdVx2oGdiM6faCAm\",\"xpub\":\"$XPUB\"," +
+        "\"value\":8000}]}}"
 }
@@ -0,0 +1,22 @@
+package piuk.blockchain.android.data.coinswebsocket.models
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class CoinTest {
+
+    @Test
+    fun `coins are found by their serialized names`() {
+        assertEquals(Coin.ETH, Coin.fromSerializedName("eth"))
+        assertEquals(Coin.BTC, Coin.fromSerializedName("btc"))
+        assertEquals(Coin.BCH, Coin.fromSerializedName("bch"))
+        assertEquals(Coin.None, Coin.fromSerializedName("none"))
+    }
+
+    @Test
+    fun `unknown and missing names are no coin`() {
+        assertEquals(Coin.None, Coin.fromSerializedName("xlm"))
+        assertEquals(Coin.None, Coin.fromSerializedName("BTC"))
+        assertEquals(Coin.None, Coin.fromSerializedName(null))
+    }
+}
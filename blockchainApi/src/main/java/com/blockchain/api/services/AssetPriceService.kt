@@ -5,6 +5,7 @@ import com.blockchain.api.assetprice.AssetPriceApiInterface
 import com.blockchain.api.assetprice.data.AssetPriceDto
 import com.blockchain.api.assetprice.data.PriceRequestPairDto
 import com.blockchain.api.assetprice.data.PriceSymbolDto
+import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
 
 enum class PriceTimescale(val intervalSeconds: Int) {
@@ -114,6 +115,28 @@ class AssetPriceService internal constructor(
             list.filterNot { it.price == null }.map { it.toAssetPrice(base, quote) }
         }
 
+    /**
+     * Get the series for several assets, all over the same range and scale. The price api only serves
+     * series one base at a time, so this fans out to one request per base on the client, with at most
+     * [MAX_CONCURRENT_SERIES_REQUESTS] (4) of them in flight at once. A base whose series cannot be
+     * fetched is left out of the result.
+     */
+    fun getHistoricPriceSeriesSince(
+        baseTickers: Set<String>,
+        quote: String,
+        start: Long, // Epoch seconds
+        scale: PriceTimescale
+    ): Single<Map<String, List<AssetPrice>>> =
+        Observable.fromIterable(baseTickers)
+            .flatMap({ base ->
+                getHistoricPriceSeriesSince(base, quote, start, scale)
+                    .map { base to it }
+                    .toObservable()
+                    .onErrorResumeNext { Observable.empty() }
+            }, MAX_CONCURRENT_SERIES_REQUESTS)
+            .toMap({ it.first }, { it.second })
+            .map { it.toMap() }
+
     private fun unavailablePrice(pair: String): AssetPrice =
         AssetPrice(
             base = pair.extractBase(),
@@ -121,6 +144,10 @@ class AssetPriceService internal constructor(
             price = Double.NaN,
             timestamp = System.currentTimeMillis()
         )
+
+    companion object {
+        private const val MAX_CONCURRENT_SERIES_REQUESTS = 4
+    }
 }
 
 private fun PriceSymbolDto.toAssetSymbol(): AssetSymbol =
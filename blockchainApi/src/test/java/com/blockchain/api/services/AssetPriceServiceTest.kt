@@ -338,6 +338,85 @@ class AssetPriceServiceTest {
         verifyNoMoreInteractions(mockApi)
     }
 
+    @Test
+    fun `getHistoricPriceSeriesSince() for several bases returns the series of each`() {
+        val start = 1000001L
+        val btcPrice = AssetPriceDto(timestamp = start, price = 2000.0, volume24h = null)
+        val ethPrice = AssetPriceDto(timestamp = start, price = 300.0, volume24h = null)
+
+        whenever(
+            mockApi.getHistoricPriceSince(
+                base = TEST_CRYPTO_BTC,
+                quote = TEST_FIAT,
+                start = start,
+                scale = PriceTimescale.FIFTEEN_MINUTES.intervalSeconds,
+                apiKey = API_CODE
+            )
+        ).thenReturn(Single.just(listOf(btcPrice)))
+
+        whenever(
+            mockApi.getHistoricPriceSince(
+                base = TEST_CRYPTO_ETH,
+                quote = TEST_FIAT,
+                start = start,
+                scale = PriceTimescale.FIFTEEN_MINUTES.intervalSeconds,
+                apiKey = API_CODE
+            )
+        ).thenReturn(Single.just(listOf(ethPrice)))
+
+        subject.getHistoricPriceSeriesSince(
+            baseTickers = setOf(TEST_CRYPTO_BTC, TEST_CRYPTO_ETH),
+            quote = TEST_FIAT,
+            start = start,
+            scale = PriceTimescale.FIFTEEN_MINUTES
+        ).test()
+            .assertComplete()
+            .assertNoErrors()
+            .assertValue {
+                it.size == 2 &&
+                    it.getValue(TEST_CRYPTO_BTC).single().price == 2000.0 &&
+                    it.getValue(TEST_CRYPTO_ETH).single().price == 300.0
+            }
+    }
+
+    @Test
+    fun `getHistoricPriceSeriesSince() for several bases leaves out those that fail`() {
+        val start = 1000001L
+        val btcPrice = AssetPriceDto(timestamp = start, price = 2000.0, volume24h = null)
+
+        whenever(
+            mockApi.getHistoricPriceSince(
+                base = TEST_CRYPTO_BTC,
+                quote = TEST_FIAT,
+                start = start,
+                scale = PriceTimescale.FIFTEEN_MINUTES.intervalSeconds,
+                apiKey = API_CODE
+            )
+        ).thenReturn(Single.just(listOf(btcPrice)))
+
+        whenever(
+            mockApi.getHistoricPriceSince(
+                base = TEST_CRYPTO_ETH,
+                quote = TEST_FIAT,
+                start = start,
+                scale = PriceTimescale.FIFTEEN_MINUTES.intervalSeconds,
+                apiKey = API_CODE
+            )
+        ).thenReturn(Single.error(Throwable()))
+
+        subject.getHistoricPriceSeriesSince(
+            baseTickers = setOf(TEST_CRYPTO_BTC, TEST_CRYPTO_ETH),
+            quote = TEST_FIAT,
+            start = start,
+            scale = PriceTimescale.FIFTEEN_MINUTES
+        ).test()
+            .assertComplete()
+            .assertNoErrors()
+            .assertValue {
+                it.keys == setOf(TEST_CRYPTO_BTC)
+            }
+    }
+
     @Test
     fun `Check tickers lists are expanded correctly`() {
         val sourceList = setOf("ONE", "TWO", "THREE")
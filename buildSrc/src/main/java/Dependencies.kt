@@ -144,6 +144,9 @@ object Versions {
     const val json = "20140107"
     const val espresso = "3.2.0"
     const val androidxTesting = "1.3.0"
+
+    // Benchmarking
+    const val jmh = "1.33"
 }
 
 object Libraries {
@@ -319,4 +322,8 @@ object Libraries {
     const val espresso = "androidx.test.espresso:espresso-core:${Versions.espresso}"
     const val retrofitMock = "com.squareup.retrofit2:retrofit-mock:${Versions.retrofit}"
     const val okHttpMock = "com.squareup.okhttp3:mockwebserver:${Versions.okHttp}"
+
+    // Benchmarking
+    const val jmhCore = "org.openjdk.jmh:jmh-core:${Versions.jmh}"
+    const val jmhAnnotationProcessor = "org.openjdk.jmh:jmh-generator-annprocess:${Versions.jmh}"
 }
@@ -1,7 +1,10 @@
 package com.blockchain.coincore
 
+import com.blockchain.coincore.impl.AccountAddressIndex
 import com.blockchain.coincore.impl.AllWalletsAccount
 import com.blockchain.coincore.impl.TxProcessorFactory
+import com.blockchain.coincore.impl.VersionedAccountCache
+import com.blockchain.coincore.impl.VersionedAccounts
 import com.blockchain.coincore.loader.AssetCatalogueImpl
 import com.blockchain.coincore.loader.AssetLoader
 import com.blockchain.core.payments.PaymentsDataManager
@@ -14,7 +17,9 @@ import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
+import timber.log.Timber
 
 internal class CoincoreInitFailure(msg: String, e: Throwable) : Exception(msg, e)
 
@@ -36,6 +41,12 @@ class Coincore internal constructor(
     private val paymentsDataManager: PaymentsDataManager
 ) {
 
+    private val addressIndex = AccountAddressIndex()
+
+    private val allWalletsCache = VersionedAccountCache<List<Pair<Asset, Long>>, SingleAccountList>(
+        maxAgeMillis = ALL_WALLETS_MAX_AGE_MILLIS
+    )
+
     fun getWithdrawalLocks(localCurrency: String): Single<FundsLocks> {
         return paymentsDataManager.getWithdrawalLocks(localCurrency)
     }
@@ -43,14 +54,39 @@ class Coincore internal constructor(
     operator fun get(asset: AssetInfo): CryptoAsset =
         assetLoader[asset]
 
-    fun init(): Completable =
-        assetLoader.initAndPreload()
+    @Volatile
+    private var catalogueUpdates: Disposable? = null
+
+    fun init(): Completable {
+        val loaded = assetLoader.initAndPreload()
             .doOnComplete {
+                allWalletsCache.invalidate()
                 crashLogger.logEvent("Coincore init complete")
             }
             .doOnError {
                 crashLogger.logEvent("Coincore initialisation failed! $it")
-            }
+            }.cache()
+        watchCatalogueChanges(loaded)
+        return loaded
+    }
+
+    // The catalogue may be revalidated while the assets are still loading, so changes are only applied once
+    // the init is over
+    private fun watchCatalogueChanges(loaded: Completable) {
+        catalogueUpdates?.dispose()
+        catalogueUpdates = assetCatalogue.catalogueChanges
+            .concatMapCompletable { diff ->
+                loaded.onErrorComplete()
+                    .andThen(assetLoader.loadCatalogueChanges(diff))
+                    .doOnComplete { allWalletsCache.invalidate() }
+                    .doOnError { Timber.e(it, "Failed to load asset catalogue changes") }
+                    .onErrorComplete()
+            }.subscribe()
+    }
+
+    internal fun dispose() {
+        catalogueUpdates?.dispose()
+    }
 
     fun initialiseAssetCatalogue() = assetCatalogue.initialise()
 
@@ -62,20 +98,34 @@ class Coincore internal constructor(
 
     private fun allLoadedAssets() = assetLoader.loadedAssets + fiatAsset
 
+    // The loaded assets, and how far each of their accounts has moved on. This changes whenever an account
+    // is added, archived or restored, and whenever the asset catalogue causes assets to be loaded.
+    private fun walletVersion(): List<Pair<Asset, Long>> =
+        allLoadedAssets().map { it to ((it as? VersionedAccounts)?.accountsVersion ?: 0L) }
+
+    // Fetch the accounts of every asset concurrently, but keep them in asset order
+    private fun loadAllAccounts(): Single<SingleAccountList> =
+        Observable.fromIterable(allLoadedAssets())
+            .concatMapEager(
+                { asset ->
+                    asset.accountGroup()
+                        .map { grp -> grp.accounts }
+                        .toObservable()
+                },
+                MAX_CONCURRENT_ASSET_LOADS,
+                1
+            ).toList()
+            .map { it.flatten() }
+
     fun allWallets(includeArchived: Boolean = false): Single<AccountGroup> =
-        Maybe.concat(
-            allLoadedAssets().map {
-                it.accountGroup().map { grp -> grp.accounts }
-                    .map { list ->
-                        list.filter { account ->
-                            (includeArchived || account !is CryptoAccount) || !account.isArchived
-                        }
-                    }
-            }
-        ).reduce { a, l -> a + l }
+        allWalletsCache.get(walletVersion(), ::loadAllAccounts)
             .map { list ->
+                list.filter { account ->
+                    (includeArchived || account !is CryptoAccount) || !account.isArchived
+                }
+            }.map { list ->
                 AllWalletsAccount(list, defaultLabels) as AccountGroup
-            }.toSingle()
+            }
 
     fun allWalletsWithActions(
         actions: Set<AssetAction>,
@@ -161,38 +211,18 @@ class Coincore internal constructor(
     fun findAccountByAddress(
         asset: AssetInfo,
         address: String
-    ): Maybe<SingleAccount> =
-        filterAccountsByAddress(
-            this[asset].accountGroup(AssetFilter.All),
-            address
-        )
-
-    private fun filterAccountsByAddress(
-        accountGroup: Maybe<AccountGroup>,
-        address: String
-    ): Maybe<SingleAccount> =
-        accountGroup.map {
-            it.accounts
-        }.flattenAsObservable { it }
-            .flatMapSingle { account ->
-                account.receiveAddress
-                    .map { it as CryptoAddress }
-                    .onErrorReturn { NullCryptoAddress }
-                    .map { cryptoAccount ->
-                        when {
-                            cryptoAccount.address.equals(address, true) -> account
-                            account.doesAddressBelongToWallet(address) -> account
-                            else -> NullCryptoAccount()
-                        }
-                    }
-            }.filter { it != NullCryptoAccount() }
-            .toList()
-            .flatMapMaybe {
-                if (it.isEmpty())
-                    Maybe.empty()
-                else
-                    Maybe.just(it.first())
-            }
+    ): Maybe<SingleAccount> {
+        val cryptoAsset = this[asset]
+        return addressIndex.findAccount(
+            asset = asset,
+            version = (cryptoAsset as? VersionedAccounts)?.accountsVersion ?: 0L,
+            address = address
+        ) {
+            cryptoAsset.accountGroup(AssetFilter.All)
+                .map { it.accounts }
+                .defaultIfEmpty(emptyList())
+        }
+    }
 
     fun createTransactionProcessor(
         source: BlockchainAccount,
@@ -230,3 +260,6 @@ class Coincore internal constructor(
 
     fun supportedFiatAssets(): List<String> = assetCatalogue.supportedFiatAssets
 }
+
+private const val MAX_CONCURRENT_ASSET_LOADS = 8
+private const val ALL_WALLETS_MAX_AGE_MILLIS = 60_000L
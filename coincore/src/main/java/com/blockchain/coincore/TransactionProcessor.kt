@@ -333,6 +333,9 @@ class TransactionProcessor(
     val canTransactFiat: Boolean
         get() = engine.canTransactFiat
 
+    // Time from an amount edit to its updated PendingTx being emitted
+    val amountUpdateLatency = UpdateLatency()
+
     private val txObservable: BehaviorSubject<PendingTx> = BehaviorSubject.create()
 
     private fun updatePendingTx(pendingTx: PendingTx) =
@@ -375,6 +378,7 @@ class TransactionProcessor(
         if (!canTransactFiat && amount is FiatValue)
             throw IllegalArgumentException("The processor does not support fiat values")
 
+        val startTime = System.nanoTime()
         return engine.doUpdateAmount(amount, pendingTx)
             .flatMap {
                 val isFreshTx = it.validationState == ValidationState.UNINITIALISED
@@ -390,6 +394,7 @@ class TransactionProcessor(
             }
             .doOnSuccess {
                 updatePendingTx(it)
+                amountUpdateLatency.record(System.nanoTime() - startTime)
             }
             .ignoreElement()
     }
@@ -496,6 +501,14 @@ class TransactionProcessor(
     }
 
     fun reset() {
+        if (amountUpdateLatency.samples > 0) {
+            Timber.d(
+                "!TRANSACTION!> %d amount updates took avg %.1fms, max %.1fms",
+                amountUpdateLatency.samples,
+                amountUpdateLatency.averageMillis,
+                amountUpdateLatency.maxMillis
+            )
+        }
         // if initialise tx fails then getPendingTx will crash
         try {
             engine.stop(getPendingTx())
@@ -0,0 +1,32 @@
+package com.blockchain.coincore
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Running latency figures for one step of a transaction flow, such as an amount edit through to the
+ * updated [PendingTx] being emitted.
+ */
+class UpdateLatency {
+    private var count = 0
+    private var totalNanos = 0L
+    private var maxNanos = 0L
+
+    @Synchronized
+    fun record(nanos: Long) {
+        count++
+        totalNanos += nanos
+        maxNanos = maxOf(maxNanos, nanos)
+    }
+
+    val samples: Int
+        @Synchronized get() = count
+
+    val maxMillis: Double
+        @Synchronized get() = maxNanos.toMillis()
+
+    val averageMillis: Double
+        @Synchronized get() = if (count > 0) (totalNanos / count).toMillis() else 0.0
+
+    private fun Long.toMillis(): Double =
+        this.toDouble() / TimeUnit.MILLISECONDS.toNanos(1)
+}
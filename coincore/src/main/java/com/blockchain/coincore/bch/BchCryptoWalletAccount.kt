@@ -7,6 +7,7 @@ import com.blockchain.coincore.ReceiveAddress
 import com.blockchain.coincore.TxEngine
 import com.blockchain.coincore.impl.AccountRefreshTrigger
 import com.blockchain.coincore.impl.CryptoNonCustodialAccount
+import com.blockchain.coincore.impl.MultiAddressAccount
 import com.blockchain.coincore.impl.transactionFetchCount
 import com.blockchain.coincore.impl.transactionFetchOffset
 import com.blockchain.core.chains.bitcoincash.BchDataManager
@@ -44,7 +45,8 @@ import piuk.blockchain.androidcore.utils.extensions.then
     private val custodialWalletManager: CustodialWalletManager,
     private val refreshTrigger: AccountRefreshTrigger,
     identity: UserIdentity
-) : CryptoNonCustodialAccount(payloadManager, CryptoCurrency.BCH, custodialWalletManager, identity) {
+) : CryptoNonCustodialAccount(payloadManager, CryptoCurrency.BCH, custodialWalletManager, identity),
+    MultiAddressAccount {
 
     override val baseActions: Set<AssetAction> = defaultActions
 
@@ -163,6 +165,12 @@ import piuk.blockchain.androidcore.utils.extensions.then
     override fun doesAddressBelongToWallet(address: String): Boolean =
         payloadDataManager.isOwnHDAddress(address)
 
+    override val ownedXpubs: List<String>
+        get() = internalAccount.xpubs().allAddresses()
+
+    override fun xpubForAddress(address: String): String? =
+        bchManager.getXpubFromAddress(address)
+
     override val hasStaticAddress: Boolean = false
 
     companion object {
@@ -14,6 +14,7 @@ import com.blockchain.coincore.TxValidationFailure
 import com.blockchain.coincore.ValidationState
 import com.blockchain.coincore.copyAndPut
 import com.blockchain.coincore.impl.txEngine.OnChainTxEngineBase
+import com.blockchain.coincore.impl.txEngine.SessionSnapshot
 import com.blockchain.coincore.updateTxValidity
 import com.blockchain.core.chains.bitcoincash.BchDataManager
 import com.blockchain.core.price.ExchangeRate
@@ -36,10 +37,12 @@ import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.kotlin.Singles
 import java.math.BigInteger
 import org.bitcoinj.core.Transaction
+import org.koin.core.component.inject
 import org.spongycastle.util.encoders.Hex
 import piuk.blockchain.androidcore.data.fees.FeeDataManager
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
 import piuk.blockchain.androidcore.data.payments.SendDataManager
+import piuk.blockchain.androidcore.data.rxjava.RxBus
 import piuk.blockchain.androidcore.utils.extensions.then
 import piuk.blockchain.androidcore.utils.helperfunctions.unsafeLazy
 import timber.log.Timber
@@ -49,6 +52,12 @@ private const val STATE_UTXO = "bch_utxo"
 private val PendingTx.unspentOutputBundle: SpendableUnspentOutputs
     get() = (this.engineState[STATE_UTXO] as SpendableUnspentOutputs)
 
+private class BchSpendSnapshot(
+    val balance: CryptoValue,
+    val feePerKb: CryptoValue,
+    val coins: List<Utxo>
+)
+
 class BchOnChainTxEngine(
     private val bchDataManager: BchDataManager,
     private val payloadDataManager: PayloadDataManager,
@@ -75,6 +84,12 @@ class BchOnChainTxEngine(
         check(sourceAsset == CryptoCurrency.BCH)
     }
 
+    private val rxBus: RxBus by inject()
+
+    private val spendSnapshot: SessionSnapshot<BchSpendSnapshot> by unsafeLazy {
+        SessionSnapshot(rxBus) { fetchSpendSnapshot() }
+    }
+
     override fun doInitialiseTx(): Single<PendingTx> =
         Single.just(
             PendingTx(
@@ -90,24 +105,36 @@ class BchOnChainTxEngine(
                 ),
                 selectedFiat = userFiat
             )
-        )
+        ).doOnSuccess {
+            spendSnapshot.start()
+        }
+
+    override fun stop(pendingTx: PendingTx) {
+        spendSnapshot.stop()
+    }
 
     override fun doUpdateAmount(amount: Money, pendingTx: PendingTx): Single<PendingTx> {
         require(amount is CryptoValue)
         require(amount.currency == sourceAsset)
 
-        return Singles.zip(
+        return spendSnapshot.value
+            .map { snapshot ->
+                updatePendingTx(amount, snapshot.balance, pendingTx, snapshot.feePerKb, snapshot.coins)
+            }.onErrorReturn {
+                pendingTx.copy(
+                    validationState = ValidationState.INSUFFICIENT_FUNDS
+                )
+            }
+    }
+
+    private fun fetchSpendSnapshot(): Single<BchSpendSnapshot> =
+        Singles.zip(
             sourceAccount.accountBalance.map { it as CryptoValue },
             getUnspentApiResponse(bchSource.xpubAddress),
             getDynamicFeePerKb()
         ) { balance, coins, feePerKb ->
-            updatePendingTx(amount, balance, pendingTx, feePerKb, coins)
-        }.onErrorReturn {
-            pendingTx.copy(
-                validationState = ValidationState.INSUFFICIENT_FUNDS
-            )
+            BchSpendSnapshot(balance, feePerKb, coins)
         }
-    }
 
     private fun getUnspentApiResponse(address: String): Single<List<Utxo>> =
         if (bchDataManager.getAddressBalance(address) > CryptoValue.zero(sourceAsset)) {
@@ -8,6 +8,7 @@ import com.blockchain.coincore.ReceiveAddress
 import com.blockchain.coincore.TxEngine
 import com.blockchain.coincore.impl.AccountRefreshTrigger
 import com.blockchain.coincore.impl.CryptoNonCustodialAccount
+import com.blockchain.coincore.impl.MultiAddressAccount
 import com.blockchain.coincore.impl.transactionFetchCount
 import com.blockchain.coincore.impl.transactionFetchOffset
 import com.blockchain.core.price.ExchangeRatesDataManager
@@ -45,7 +46,8 @@ import piuk.blockchain.androidcore.utils.extensions.then
     private val custodialWalletManager: CustodialWalletManager,
     private val refreshTrigger: AccountRefreshTrigger,
     identity: UserIdentity
-) : CryptoNonCustodialAccount(payloadManager, CryptoCurrency.BTC, custodialWalletManager, identity) {
+) : CryptoNonCustodialAccount(payloadManager, CryptoCurrency.BTC, custodialWalletManager, identity),
+    MultiAddressAccount {
     override val baseActions: Set<AssetAction> = defaultActions
     private val hasFunds = AtomicBoolean(false)
 
@@ -211,11 +213,9 @@ import piuk.blockchain.androidcore.utils.extensions.then
         } else {
             val password = if (payloadDataManager.isDoubleEncrypted) secondPassword else null
             return Single.just(
-                listOf(
-                    payloadDataManager.getAddressSigningKey(
-                        importedAddress = internalAccount as ImportedAddress,
-                        secondPassword = password
-                    ) ?: throw IllegalStateException("Private key not found for legacy BTC address")
+                payloadDataManager.getAddressSigningKeys(
+                    importedAddresses = listOf(internalAccount as ImportedAddress),
+                    secondPassword = password
                 )
             )
         }
@@ -253,6 +253,12 @@ import piuk.blockchain.androidcore.utils.extensions.then
     override fun doesAddressBelongToWallet(address: String): Boolean =
         payloadDataManager.isOwnHDAddress(address)
 
+    override val ownedXpubs: List<String>
+        get() = xpubs.allAddresses()
+
+    override fun xpubForAddress(address: String): String? =
+        payloadDataManager.getXpubFromAddress(address)
+
     companion object {
         fun createHdAccount(
             jsonAccount: Account,
@@ -16,6 +16,7 @@ import com.blockchain.coincore.TxValidationFailure
 import com.blockchain.coincore.ValidationState
 import com.blockchain.coincore.copyAndPut
 import com.blockchain.coincore.impl.txEngine.OnChainTxEngineBase
+import com.blockchain.coincore.impl.txEngine.SessionSnapshot
 import com.blockchain.coincore.toFiat
 import com.blockchain.coincore.toUserFiat
 import com.blockchain.coincore.updateTxValidity
@@ -44,6 +45,7 @@ import org.spongycastle.util.encoders.Hex
 import piuk.blockchain.androidcore.data.fees.FeeDataManager
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
 import piuk.blockchain.androidcore.data.payments.SendDataManager
+import piuk.blockchain.androidcore.data.rxjava.RxBus
 import piuk.blockchain.androidcore.utils.extensions.then
 import piuk.blockchain.androidcore.utils.helperfunctions.unsafeLazy
 import timber.log.Timber
@@ -57,6 +59,12 @@ private val PendingTx.utxoBundle: SpendableUnspentOutputs
 private val PendingTx.feeOptions: FeeOptions
     get() = (this.engineState[FEE_OPTIONS] as? FeeOptions) ?: FeeOptions()
 
+private class BtcSpendSnapshot(
+    val balance: CryptoValue,
+    val feeOptions: FeeOptions,
+    val coins: List<Utxo>
+)
+
 private class BtcPreparedTx(
     val btcTx: Transaction
 ) : EngineTransaction {
@@ -93,6 +101,12 @@ class BtcOnChainTxEngine(
         sourceAccount as BtcCryptoWalletAccount
     }
 
+    private val rxBus: RxBus by inject()
+
+    private val spendSnapshot: SessionSnapshot<BtcSpendSnapshot> by unsafeLazy {
+        SessionSnapshot(rxBus) { fetchSpendSnapshot() }
+    }
+
     override fun doInitialiseTx(): Single<PendingTx> =
         Single.just(
             PendingTx(
@@ -108,27 +122,39 @@ class BtcOnChainTxEngine(
                 ),
                 selectedFiat = userFiat
             )
-        )
+        ).doOnSuccess {
+            spendSnapshot.start()
+        }
+
+    override fun stop(pendingTx: PendingTx) {
+        spendSnapshot.stop()
+    }
 
     override fun doUpdateAmount(amount: Money, pendingTx: PendingTx): Single<PendingTx> =
+        spendSnapshot.value
+            .map { snapshot ->
+                updatePendingTxFromAmount(
+                    amount as CryptoValue,
+                    snapshot.balance,
+                    pendingTx,
+                    snapshot.feeOptions.feesPerKb(pendingTx),
+                    snapshot.feeOptions,
+                    snapshot.coins
+                )
+            }.onErrorReturnItem(
+                pendingTx.copy(
+                    validationState = ValidationState.INSUFFICIENT_FUNDS
+                )
+            )
+
+    private fun fetchSpendSnapshot(): Single<BtcSpendSnapshot> =
         Single.zip(
             sourceAccount.accountBalance.map { it as CryptoValue },
-            getDynamicFeesPerKb(pendingTx),
+            feeManager.btcFeeOptions.singleOrError(),
             getUnspentApiResponse(btcSource.xpubs)
-        ) { total, optionsAndFeesPerKb, coins ->
-            updatePendingTxFromAmount(
-                amount as CryptoValue,
-                total,
-                pendingTx,
-                optionsAndFeesPerKb.second,
-                optionsAndFeesPerKb.first,
-                coins
-            )
-        }.onErrorReturnItem(
-            pendingTx.copy(
-                validationState = ValidationState.INSUFFICIENT_FUNDS
-            )
-        )
+        ) { balance, feeOptions, coins ->
+            BtcSpendSnapshot(balance, feeOptions, coins)
+        }
 
     private fun getUnspentApiResponse(xpubs: XPubs): Single<List<Utxo>> {
         val balance = btcDataManager.getAddressBalance(xpubs)
@@ -148,19 +174,13 @@ class BtcOnChainTxEngine(
         }
     }
 
-    private fun getDynamicFeesPerKb(pendingTx: PendingTx): Single<Pair<FeeOptions, Map<FeeLevel, CryptoValue>>> =
-        feeManager.btcFeeOptions
-            .map { feeOptions ->
-                Pair(
-                    feeOptions,
-                    mapOf(
-                        FeeLevel.None to CryptoValue.zero(sourceAsset),
-                        FeeLevel.Regular to feeToCrypto(feeOptions.regularFee),
-                        FeeLevel.Priority to feeToCrypto(feeOptions.priorityFee),
-                        FeeLevel.Custom to feeToCrypto(pendingTx.feeSelection.customAmount)
-                    )
-                )
-            }.singleOrError()
+    private fun FeeOptions.feesPerKb(pendingTx: PendingTx): Map<FeeLevel, CryptoValue> =
+        mapOf(
+            FeeLevel.None to CryptoValue.zero(sourceAsset),
+            FeeLevel.Regular to feeToCrypto(regularFee),
+            FeeLevel.Priority to feeToCrypto(priorityFee),
+            FeeLevel.Custom to feeToCrypto(pendingTx.feeSelection.customAmount)
+        )
 
     private fun feeToCrypto(feePerKb: Long): CryptoValue =
         CryptoValue.fromMinor(sourceAsset, (feePerKb * 1000).toBigInteger())
@@ -185,46 +205,23 @@ class BtcOnChainTxEngine(
 
         val feeForLevel = feesPerKb[selectedFeeLevel] ?: CryptoValue.zero(sourceAsset)
 
-        val available = sendDataManager.getMaximumAvailable(
-            asset = sourceAsset,
-            targetOutputType = targetOutputType,
-            unspentCoins = coins,
-            feePerKb = feeForLevel
-        ) // This is total balance, with fees deducted
-
-        val coinsSelectedForRegularFee = sendDataManager.getSpendableCoins(
+        // One pass over the coins gives the selection for the chosen level and both fee previews
+        val (forSelectedLevel, forRegularFee, forPriorityFee) = sendDataManager.getSpendableCoinsForFees(
             unspentCoins = coins,
             targetOutputType = targetOutputType,
             changeOutputType = changeOutputType,
             paymentAmount = amount,
-            feePerKb = regularFee
+            feesPerKb = listOf(feeForLevel, regularFee, priorityFee)
         )
 
-        val coinsSelectedForPriorityFee = sendDataManager.getSpendableCoins(
-            unspentCoins = coins,
-            targetOutputType = targetOutputType,
-            changeOutputType = changeOutputType,
-            paymentAmount = amount,
-            feePerKb = priorityFee
-        )
-
-        val utxoBundle = when (selectedFeeLevel) {
-            FeeLevel.Priority -> coinsSelectedForPriorityFee
-            FeeLevel.Regular -> coinsSelectedForRegularFee
-            else -> sendDataManager.getSpendableCoins(
-                unspentCoins = coins,
-                targetOutputType = targetOutputType,
-                changeOutputType = changeOutputType,
-                paymentAmount = amount,
-                feePerKb = feeForLevel
-            )
-        }
+        val available = forSelectedLevel.maxAvailable // This is total balance, with fees deducted
+        val utxoBundle = forSelectedLevel.spendableCoins
 
         val updatedFees = feesPerKb.mapValues {
             when (it.key) {
                 FeeLevel.None -> it.value
-                FeeLevel.Regular -> CryptoValue.fromMinor(sourceAsset, coinsSelectedForRegularFee.absoluteFee)
-                FeeLevel.Priority -> CryptoValue.fromMinor(sourceAsset, coinsSelectedForPriorityFee.absoluteFee)
+                FeeLevel.Regular -> CryptoValue.fromMinor(sourceAsset, forRegularFee.spendableCoins.absoluteFee)
+                FeeLevel.Priority -> CryptoValue.fromMinor(sourceAsset, forPriorityFee.spendableCoins.absoluteFee)
                 FeeLevel.Custom -> it.value
             }
         }
@@ -0,0 +1,136 @@
+package com.blockchain.coincore.impl
+
+import com.blockchain.coincore.CryptoAddress
+import com.blockchain.coincore.SingleAccount
+import com.blockchain.coincore.SingleAccountList
+import info.blockchain.balance.AssetInfo
+import io.reactivex.rxjava3.core.Maybe
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+
+internal interface MultiAddressAccount {
+    // The xpubs - or, for imported addresses, the address itself - that this account holds addresses under
+    val ownedXpubs: List<String>
+
+    // The xpub that a previously used address of this wallet was seen under, if any
+    fun xpubForAddress(address: String): String?
+}
+
+/**
+ * Reverse index from address to the account that owns it, across all assets, so that looking up the
+ * account behind a scanned or linked address does not fetch the receive address of every account.
+ *
+ * Each asset is indexed against the version of its accounts, and re-indexed only when that moves on.
+ * Within a version the index only grows: receive addresses are added as they are derived, and used
+ * addresses are resolved through the xpub that the multiaddress responses saw them under.
+ */
+internal class AccountAddressIndex {
+
+    private class AssetIndex(
+        val version: Long,
+        val accounts: SingleAccountList,
+        val byAddress: Map<String, SingleAccount>,
+        val byXpub: Map<String, SingleAccount>
+    )
+
+    private val assets = ConcurrentHashMap<AssetInfo, AssetIndex>()
+
+    fun findAccount(
+        asset: AssetInfo,
+        version: Long,
+        address: String,
+        loadAccounts: () -> Single<SingleAccountList>
+    ): Maybe<SingleAccount> =
+        Maybe.defer {
+            val key = address.normalisedAddress()
+            val current = assets[asset]?.takeIf { it.version == version }
+            current?.let { lookup(asset, it, key, address) }?.let { Maybe.just(it) }
+                ?: indexAccounts(asset, version, current, loadAccounts)
+                    .flatMapMaybe { updated ->
+                        lookup(asset, updated, key, address)?.let { Maybe.just(it) } ?: Maybe.empty()
+                    }
+        }
+
+    private fun lookup(asset: AssetInfo, index: AssetIndex, key: String, address: String): SingleAccount? =
+        index.byAddress[key]
+            ?: resolveUsedAddress(index, address)?.also { remember(asset, index.version, key, it) }
+
+    private fun resolveUsedAddress(index: AssetIndex, address: String): SingleAccount? =
+        index.accounts.asSequence()
+            .filterIsInstance<MultiAddressAccount>()
+            .firstOrNull()
+            ?.xpubForAddress(address)
+            ?.let { index.byXpub[it] }
+            ?: index.accounts.firstOrNull { it.doesAddressBelongToWallet(address) }
+
+    // Only derived receive addresses move on within a version, so once an asset is indexed only those
+    // are fetched again. They are not in the multiaddress responses until they have been used.
+    private fun indexAccounts(
+        asset: AssetInfo,
+        version: Long,
+        current: AssetIndex?,
+        loadAccounts: () -> Single<SingleAccountList>
+    ): Single<AssetIndex> =
+        if (current != null) {
+            indexReceiveAddresses(
+                asset = asset,
+                version = version,
+                accounts = current.accounts,
+                toFetch = current.accounts.filter { it is MultiAddressAccount }
+            )
+        } else {
+            loadAccounts().flatMap { accounts -> indexReceiveAddresses(asset, version, accounts, accounts) }
+        }
+
+    private fun indexReceiveAddresses(
+        asset: AssetInfo,
+        version: Long,
+        accounts: SingleAccountList,
+        toFetch: SingleAccountList
+    ): Single<AssetIndex> =
+        Observable.fromIterable(toFetch)
+            .flatMapMaybe { account ->
+                account.receiveAddress
+                    .filter { it is CryptoAddress }
+                    .map { (it as CryptoAddress).address.normalisedAddress() to account }
+                    .onErrorComplete()
+            }.toList()
+            .map { addresses ->
+                assets.compute(asset) { _, current ->
+                    val base = current?.takeIf { it.version == version }
+                    AssetIndex(
+                        version = version,
+                        accounts = accounts,
+                        byAddress = base?.byAddress.orEmpty() + addresses,
+                        byXpub = base?.byXpub ?: accounts.indexByXpub()
+                    )
+                }
+            }
+
+    private fun remember(asset: AssetInfo, version: Long, key: String, account: SingleAccount) {
+        assets.computeIfPresent(asset) { _, current ->
+            if (current.version == version) {
+                AssetIndex(
+                    version = current.version,
+                    accounts = current.accounts,
+                    byAddress = current.byAddress + (key to account),
+                    byXpub = current.byXpub
+                )
+            } else {
+                current
+            }
+        }
+    }
+
+    private fun SingleAccountList.indexByXpub(): Map<String, SingleAccount> =
+        flatMap { account ->
+            (account as? MultiAddressAccount)?.ownedXpubs.orEmpty().map { it to account }
+        }.toMap()
+}
+
+// Addresses are matched ignoring case, and without any uri scheme or query so that a scanned payment uri
+// finds the account it pays to
+internal fun String.normalisedAddress(): String =
+    trim().substringBefore('?').substringAfter(':').lowercase(Locale.ROOT)
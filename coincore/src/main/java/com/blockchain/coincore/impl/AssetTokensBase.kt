@@ -31,6 +31,7 @@ import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.kotlin.Singles
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
 import piuk.blockchain.androidcore.utils.helperfunctions.unsafeLazy
 import thepit.PitLinking
@@ -40,6 +41,11 @@ interface AccountRefreshTrigger {
     fun forceAccountsRefresh()
 }
 
+internal interface VersionedAccounts {
+    // Moves on whenever the accounts of the asset are changed, so cached account lists can tell they are stale
+    val accountsVersion: Long
+}
+
 /*internal*/ abstract class CryptoAssetBase internal constructor(
     protected val payloadManager: PayloadDataManager,
     protected val exchangeRates: ExchangeRatesDataManager,
@@ -52,7 +58,7 @@ interface AccountRefreshTrigger {
     protected val crashLogger: CrashLogger,
     protected val identity: UserIdentity,
     protected val features: InternalFeatureFlagApi
-) : CryptoAsset, AccountRefreshTrigger {
+) : CryptoAsset, AccountRefreshTrigger, VersionedAccounts {
 
     private val activeAccounts: ActiveAccountList by unsafeLazy {
         ActiveAccountList(asset, custodialManager)
@@ -105,6 +111,9 @@ interface AccountRefreshTrigger {
         activeAccounts.setForceRefresh()
     }
 
+    final override val accountsVersion: Long
+        get() = activeAccounts.version
+
     abstract fun loadCustodialAccounts(): Single<SingleAccountList>
     abstract fun loadNonCustodialAccounts(labels: DefaultLabels): Single<SingleAccountList>
 
@@ -261,8 +270,13 @@ internal class ActiveAccountList(
 
     private var interestEnabled = false
     private val forceRefreshOnNext = AtomicBoolean(true)
+    private val refreshCount = AtomicLong(0)
+
+    val version: Long
+        get() = refreshCount.get()
 
     fun setForceRefresh() {
+        refreshCount.incrementAndGet()
         forceRefreshOnNext.set(true)
     }
 
@@ -0,0 +1,50 @@
+package com.blockchain.coincore.impl
+
+import io.reactivex.rxjava3.core.Single
+
+/**
+ * Holds the last build of an account list along with the version of the wallet it was built from, so
+ * everything asking for the same version shares one build. A build is dropped when the version moves
+ * on, when it fails, or once it is older than maxAgeMillis - which catches changes, such as interest
+ * becoming available, that do not bump the version.
+ */
+internal class VersionedAccountCache<K : Any, V : Any>(
+    private val maxAgeMillis: Long,
+    private val now: () -> Long = System::currentTimeMillis
+) {
+    private class Entry<K, V : Any>(
+        val version: K,
+        val builtAt: Long,
+        val value: Single<V>
+    )
+
+    private var entry: Entry<K, V>? = null
+
+    fun get(version: K, build: () -> Single<V>): Single<V> =
+        Single.defer { entryFor(version, build).value }
+
+    @Synchronized
+    fun invalidate() {
+        entry = null
+    }
+
+    @Synchronized
+    private fun entryFor(version: K, build: () -> Single<V>): Entry<K, V> {
+        val time = now()
+        entry?.takeIf { it.version == version && time - it.builtAt < maxAgeMillis }?.let { return it }
+
+        lateinit var fresh: Entry<K, V>
+        fresh = Entry(
+            version = version,
+            builtAt = time,
+            value = build().doOnError { dropIfCurrent(fresh) }.cache()
+        )
+        entry = fresh
+        return fresh
+    }
+
+    @Synchronized
+    private fun dropIfCurrent(failed: Entry<K, V>) {
+        if (entry === failed) entry = null
+    }
+}
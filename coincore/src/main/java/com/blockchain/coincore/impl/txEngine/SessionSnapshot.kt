@@ -0,0 +1,85 @@
+package com.blockchain.coincore.impl.txEngine
+
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
+import piuk.blockchain.androidcore.data.events.ActionEvent
+import piuk.blockchain.androidcore.data.events.WalletAndTransactionsUpdatedEvent
+import piuk.blockchain.androidcore.data.rxjava.RxBus
+import piuk.blockchain.androidcore.utils.extensions.emptySubscribe
+
+/**
+ * Holds the data an on-chain send works from - balance, fee options and unspent outputs - for the
+ * lifetime of a transaction session, so that amount and fee level updates only have to run the coin
+ * selection instead of going back to the network on every keystroke.
+ *
+ * The snapshot is fetched when the session starts and fetched again whenever the websocket reports
+ * that the wallet balances were updated. A failed fetch is not kept, so the next read retries it.
+ */
+class SessionSnapshot<T : Any>(
+    private val rxBus: RxBus,
+    private val fetch: () -> Single<T>
+) {
+    private val lock = Any()
+    private var snapshot: Single<T>? = null
+
+    private var walletEvents: Observable<ActionEvent>? = null
+    private var walletEventsSub: Disposable? = null
+
+    val value: Single<T>
+        get() = Single.defer {
+            synchronized(lock) { snapshot ?: load() }
+        }
+
+    fun start() {
+        synchronized(lock) {
+            if (walletEvents == null) {
+                val events = rxBus.register(ActionEvent::class.java)
+                walletEvents = events
+                walletEventsSub = events.filter { it is WalletAndTransactionsUpdatedEvent }
+                    .subscribe { refresh() }
+            }
+        }
+        prefetch(value)
+    }
+
+    fun refresh() {
+        synchronized(lock) {
+            if (snapshot != null) {
+                load()
+            } else null
+        }?.let { prefetch(it) }
+    }
+
+    fun stop() {
+        synchronized(lock) {
+            walletEventsSub?.dispose()
+            walletEvents?.let { rxBus.unregister(ActionEvent::class.java, it) }
+            walletEventsSub = null
+            walletEvents = null
+            snapshot = null
+        }
+    }
+
+    // Errors are picked up again by the next read of the value
+    private fun prefetch(single: Single<T>) {
+        single.ignoreElement()
+            .onErrorComplete()
+            .emptySubscribe()
+    }
+
+    // Must be called holding the lock
+    private fun load(): Single<T> {
+        lateinit var loading: Single<T>
+        loading = fetch()
+            .doOnError {
+                synchronized(lock) {
+                    if (snapshot === loading) {
+                        snapshot = null
+                    }
+                }
+            }.cache()
+        snapshot = loading
+        return loading
+    }
+}
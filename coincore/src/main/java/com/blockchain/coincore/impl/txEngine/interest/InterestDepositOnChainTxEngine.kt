@@ -71,6 +71,10 @@ class InterestDepositOnChainTxEngine(
                     }
             }
 
+    override fun stop(pendingTx: PendingTx) {
+        onChainEngine.stop(pendingTx)
+    }
+
     override fun doUpdateAmount(amount: Money, pendingTx: PendingTx): Single<PendingTx> =
         onChainEngine.doUpdateAmount(amount, pendingTx)
 
@@ -117,6 +117,11 @@ class OnChainSellTxEngine(
                 }
             }.updateTxValidity(pendingTx)
 
+    override fun stop(pendingTx: PendingTx) {
+        super.stop(pendingTx)
+        engine.stop(pendingTx)
+    }
+
     override fun doUpdateAmount(amount: Money, pendingTx: PendingTx): Single<PendingTx> =
         engine.doUpdateAmount(amount, pendingTx)
             .updateQuotePrice()
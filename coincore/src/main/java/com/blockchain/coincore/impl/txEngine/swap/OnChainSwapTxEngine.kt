@@ -99,6 +99,11 @@ class OnChainSwapTxEngine(
             else -> throw Exception("Not supported")
         }
 
+    override fun stop(pendingTx: PendingTx) {
+        super.stop(pendingTx)
+        engine.stop(pendingTx)
+    }
+
     override fun doUpdateAmount(amount: Money, pendingTx: PendingTx): Single<PendingTx> {
         return engine.doUpdateAmount(amount, pendingTx)
             .updateQuotePrice()
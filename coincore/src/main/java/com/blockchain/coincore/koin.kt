@@ -19,6 +19,7 @@ import info.blockchain.balance.AssetCatalogue
 import info.blockchain.balance.CryptoCurrency
 import org.koin.dsl.bind
 import org.koin.dsl.module
+import org.koin.dsl.onClose
 
 val coincoreModule = module {
 
@@ -129,7 +130,7 @@ val coincoreModule = module {
                 crashLogger = get(),
                 paymentsDataManager = get()
             )
-        }
+        }.onClose { it?.dispose() }
 
         scoped {
             val ncAssets: List<CryptoAsset> = payloadScope.getAll()
@@ -1,42 +1,112 @@
 package com.blockchain.coincore.loader
 
+import com.blockchain.core.dynamicassets.CryptoAssetList
 import com.blockchain.core.dynamicassets.DynamicAssetsDataManager
 import info.blockchain.balance.AssetCatalogue
 import info.blockchain.balance.AssetInfo
 import info.blockchain.balance.isCustodial
 import info.blockchain.balance.l1chain
+import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.kotlin.subscribeBy
+import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.subjects.PublishSubject
 import java.util.Locale
 import java.util.concurrent.atomic.AtomicReference
+import timber.log.Timber
+
+/**
+ * The changes made to the catalogue when it is revalidated against the network after being served from
+ * the stored copy. Changed assets are those whose details differ while their identity does not.
+ */
+data class AssetCatalogueDiff(
+    val added: Set<AssetInfo>,
+    val removed: Set<AssetInfo>,
+    val changed: Set<AssetInfo>
+) {
+    val isEmpty: Boolean
+        get() = added.isEmpty() && removed.isEmpty() && changed.isEmpty()
+}
 
 class AssetCatalogueImpl internal constructor(
     private val fixedAssets: Set<AssetInfo>,
     private val assetsDataManager: DynamicAssetsDataManager
 ) : AssetCatalogue {
 
-    private val fullAssetLookup: AtomicReference<Map<String, AssetInfo>> = AtomicReference(emptyMap())
+    private class Catalogue(val lookup: Map<String, AssetInfo>) {
+        val assets: List<AssetInfo> = lookup.values.toList()
+        val custodialAssets: List<AssetInfo> = assets.filter { it.isCustodial }
+    }
+
+    private val catalogue: AtomicReference<Catalogue> = AtomicReference(Catalogue(emptyMap()))
+    private val fullAssetLookup: Map<String, AssetInfo>
+        get() = catalogue.get().lookup
+
+    private val diffs = PublishSubject.create<AssetCatalogueDiff>()
+    private var revalidation: Disposable? = null
+
+    /**
+     * Emits the changes found when a catalogue served from the stored copy is revalidated.
+     */
+    val catalogueChanges: Observable<AssetCatalogueDiff>
+        get() = diffs
 
     fun initialise(): Single<Set<AssetInfo>> =
-        if (fullAssetLookup.get().isNotEmpty()) {
-            Single.just(fullAssetLookup.get().values.toSet())
+        if (fullAssetLookup.isNotEmpty()) {
+            Single.just(fullAssetLookup.values.toSet())
         } else {
-            assetsDataManager.availableCryptoAssets()
-                .map { list ->
-                    // Remove any fixed assets that also appear in the dynamic set
-                    list.filterNot { fixedAssets.contains(it) }
-                }.doOnSuccess { enabledAssets ->
-                    val allEnabledAssets = fixedAssets + enabledAssets
-                    fullAssetLookup.set(
-                        allEnabledAssets.associateBy { it.networkTicker.uppercase(Locale.ROOT) }
-                    )
-                }.map {
-                    fullAssetLookup.get().values.toSet()
+            // Serve the stored catalogue straight away when there is one, and check it against the
+            // network in the background. Otherwise wait for the network.
+            assetsDataManager.cachedCryptoAssets()
+                .doOnSuccess { stored ->
+                    update(stored)
+                    revalidate()
+                }
+                .switchIfEmpty(
+                    assetsDataManager.availableCryptoAssets()
+                        .doOnSuccess { update(it) }
+                ).map {
+                    fullAssetLookup.values.toSet()
                 }
         }
 
+    private fun revalidate() {
+        revalidation?.dispose()
+        revalidation = assetsDataManager.availableCryptoAssets()
+            .subscribeOn(Schedulers.io())
+            .subscribeBy(
+                onSuccess = { fetched ->
+                    val diff = update(fetched)
+                    if (!diff.isEmpty) {
+                        Timber.d("Asset catalogue updated: $diff")
+                        diffs.onNext(diff)
+                    }
+                },
+                onError = { Timber.e(it, "Asset catalogue revalidation failed") }
+            )
+    }
+
+    @Synchronized
+    private fun update(list: CryptoAssetList): AssetCatalogueDiff {
+        // Remove any fixed assets that also appear in the dynamic set
+        val allEnabledAssets = fixedAssets + list.filterNot { fixedAssets.contains(it) }
+        val previous = catalogue.get().lookup
+        val updated = allEnabledAssets.associateBy { it.networkTicker.uppercase(Locale.ROOT) }
+        catalogue.set(Catalogue(updated))
+
+        return AssetCatalogueDiff(
+            added = updated.filterKeys { it !in previous }.values.toSet(),
+            removed = previous.filterKeys { it !in updated }.values.toSet(),
+            changed = updated.filter { (ticker, asset) ->
+                previous[ticker]?.let { !it.hasSameDetails(asset) } ?: false
+            }.values.toSet()
+        )
+    }
+
     // Brute force impl for now, but this will operate from a downloaded cache ultimately
     override fun fromNetworkTicker(symbol: String): AssetInfo? =
-        fullAssetLookup.get()[symbol.uppercase()]
+        fullAssetLookup[symbol.uppercase()]
 
     override fun fromNetworkTickerWithL2Id(
         symbol: String,
@@ -53,13 +123,11 @@ class AssetCatalogueImpl internal constructor(
     override fun isFiatTicker(symbol: String): Boolean =
         supportedFiatAssets.contains(symbol)
 
-    override val supportedCryptoAssets: List<AssetInfo> by lazy {
-        fullAssetLookup.get().values.toList()
-    }
+    override val supportedCryptoAssets: List<AssetInfo>
+        get() = catalogue.get().assets
 
-    override val supportedCustodialAssets: List<AssetInfo> by lazy {
-        fullAssetLookup.get().values.filter { it.isCustodial }
-    }
+    override val supportedCustodialAssets: List<AssetInfo>
+        get() = catalogue.get().custodialAssets
 
     // TEMP: This will come from the /fiat BE supported assets call
     override val supportedFiatAssets: List<String> = listOf("EUR", "USD", "GBP")
@@ -67,3 +135,16 @@ class AssetCatalogueImpl internal constructor(
     override fun supportedL2Assets(chain: AssetInfo): List<AssetInfo> =
         supportedCryptoAssets.filter { it.l1chainTicker == chain.networkTicker }
 }
+
+private fun AssetInfo.hasSameDetails(other: AssetInfo): Boolean =
+    displayTicker == other.displayTicker &&
+        name == other.name &&
+        categories == other.categories &&
+        precisionDp == other.precisionDp &&
+        startDate == other.startDate &&
+        requiredConfirmations == other.requiredConfirmations &&
+        l1chainTicker == other.l1chainTicker &&
+        l2identifier == other.l2identifier &&
+        colour == other.colour &&
+        logo == other.logo &&
+        txExplorerUrlBase == other.txExplorerUrlBase
@@ -0,0 +1,81 @@
+package com.blockchain.coincore.loader
+
+import info.blockchain.balance.AssetInfo
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.schedulers.Schedulers
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+data class AssetInitTiming(
+    val asset: AssetInfo,
+    val millis: Long,
+    val succeeded: Boolean
+)
+
+/**
+ * Runs the init of each asset as soon as the assets it depends on are ready, so that independent
+ * assets initialise concurrently rather than one after the other. A failed init fails only the
+ * assets that depend on it; everything else runs to completion.
+ */
+internal class AssetInitScheduler(
+    private val inits: Map<AssetInfo, () -> Completable>,
+    private val dependencies: Map<AssetInfo, Set<AssetInfo>> = emptyMap(),
+    private val scheduler: Scheduler = Schedulers.io(),
+    private val onTimed: (AssetInitTiming) -> Unit = {}
+) {
+    private val ready = mutableMapOf<AssetInfo, Completable>()
+    private val timings = ConcurrentHashMap<AssetInfo, AssetInitTiming>()
+
+    init {
+        inits.keys.forEach { readyFor(it, emptySet()) }
+    }
+
+    /**
+     * Completes once the asset, and everything it depends on, has been initialised. Assets with no
+     * init are always ready.
+     */
+    fun whenReady(asset: AssetInfo): Completable =
+        ready[asset] ?: Completable.complete()
+
+    /**
+     * Initialises every asset, completing once they all have and failing, after they all have,
+     * if any of them failed.
+     */
+    fun start(): Completable =
+        Completable.mergeDelayError(ready.values)
+
+    val initTimings: List<AssetInitTiming>
+        get() = timings.values.sortedByDescending { it.millis }
+
+    private fun readyFor(asset: AssetInfo, visiting: Set<AssetInfo>): Completable {
+        ready[asset]?.let { return it }
+        check(asset !in visiting) { "Circular init dependency on ${asset.networkTicker}" }
+
+        val prerequisites = dependencies[asset].orEmpty().map { readyFor(it, visiting + asset) }
+        val init = inits[asset]?.let { timed(asset, it) } ?: Completable.complete()
+
+        return Completable.merge(prerequisites)
+            .andThen(init)
+            .cache()
+            .also { ready[asset] = it }
+    }
+
+    private fun timed(asset: AssetInfo, init: () -> Completable): Completable =
+        Completable.defer {
+            val start = System.nanoTime()
+            fun record(succeeded: Boolean) {
+                AssetInitTiming(
+                    asset = asset,
+                    millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    succeeded = succeeded
+                ).let {
+                    timings[asset] = it
+                    onTimed(it)
+                }
+            }
+            init()
+                .doOnComplete { record(true) }
+                .doOnError { record(false) }
+        }.subscribeOn(scheduler)
+}
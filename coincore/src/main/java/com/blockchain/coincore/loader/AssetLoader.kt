@@ -13,6 +13,12 @@ interface AssetLoader {
     // The assets which have been loaded so far. On startup we load the L1s, the assets with Custodial support and
     // the active assets. This list is used for Swap targets.
     val loadedAssets: List<CryptoAsset>
+    // How long the init of each non-custodial asset took on the last init, slowest first
+    val initTimings: List<AssetInitTiming>
 
     operator fun get(asset: AssetInfo): CryptoAsset
+
+    // Brings the loaded assets in line with a revalidated asset catalogue: removed assets are dropped, and
+    // added and changed assets are loaded as they would have been at init
+    fun loadCatalogueChanges(diff: AssetCatalogueDiff): Completable
 }
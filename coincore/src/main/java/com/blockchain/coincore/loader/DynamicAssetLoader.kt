@@ -19,13 +19,16 @@ import com.blockchain.preferences.CurrencyPrefs
 import com.blockchain.preferences.WalletStatus
 import com.blockchain.wallet.DefaultLabels
 import info.blockchain.balance.AssetInfo
+import info.blockchain.balance.CryptoCurrency
 import info.blockchain.balance.isCustodial
 import info.blockchain.balance.isCustodialOnly
 import info.blockchain.balance.isErc20
 import info.blockchain.balance.isNonCustodial
 import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
 import java.lang.IllegalStateException
+import java.util.Collections
 import piuk.blockchain.androidcore.data.fees.FeeDataManager
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
 import piuk.blockchain.androidcore.utils.extensions.thenSingle
@@ -55,8 +58,13 @@ internal class DynamicAssetLoader(
     private val formatUtils: FormatUtilities
 ) : AssetLoader {
 
-    private val activeAssetMap = mutableMapOf<AssetInfo, CryptoAsset>()
-    private val assetMap = mutableMapOf<AssetInfo, CryptoAsset>()
+    // Insertion ordered, so the assets are listed in the order they are loaded - the l1s first, then the
+    // ERC20s and custodial assets. Written to concurrently, so iterate them holding their lock.
+    private val activeAssetMap: MutableMap<AssetInfo, CryptoAsset> = Collections.synchronizedMap(LinkedHashMap())
+    private val assetMap: MutableMap<AssetInfo, CryptoAsset> = Collections.synchronizedMap(LinkedHashMap())
+
+    @Volatile
+    private var initScheduler: AssetInitScheduler? = null
 
     override operator fun get(asset: AssetInfo): CryptoAsset =
         assetMap[asset] ?: attemptLoadAsset(asset)
@@ -75,38 +83,80 @@ internal class DynamicAssetLoader(
         assetCatalogue.initialise()
             .doOnSubscribe { crashLogger.logEvent("Coincore init started") }
             .flatMap { supportedAssets ->
-                // We need to make sure than any l1 assets - notably ETH - is initialised before
-                // create any l2s. So that things like balance calls will work
                 activeAssetMap.putAll(nonCustodialAssets.associateBy { it.asset })
-                initNonCustodialAssets(nonCustodialAssets)
-                    // Do not load the non-custodial assets here otherwise they become DynamicOnlyTradingAsset
-                    // and the non-custodial accounts won't show up.
-                    .thenSingle { doLoadAssets(supportedAssets.minus(nonCustodialAssets.map { it.asset })) }
+                val scheduler = nonCustodialInitScheduler(nonCustodialAssets).also { initScheduler = it }
+
+                // The l1 assets initialise concurrently, while the dynamic assets load alongside them.
+                // ERC20s wait for ETH to be initialised, so that things like balance calls will work.
+                // Do not load the non-custodial assets here otherwise they become DynamicOnlyTradingAsset
+                // and the non-custodial accounts won't show up.
+                Observable.mergeArrayDelayError(
+                    scheduler.start().toObservable(),
+                    doLoadAssets(
+                        supportedAssets.minus(nonCustodialAssets.map { it.asset }),
+                        erc20Ready = scheduler.whenReady(CryptoCurrency.ETHER)
+                    ).toObservable()
+                ).singleOrError()
             }
             .map { nonCustodialAssets + it }
             .doOnSuccess { assetList -> assetMap.putAll(assetList.associateBy { it.asset }) }
             .doOnError { Timber.e("init failed") }
             .ignoreElement()
 
-    private fun initNonCustodialAssets(assetList: Set<CryptoAsset>): Completable =
-        Completable.concat(
-            assetList.filterIsInstance<NonCustodialSupport>()
-                .map { asset ->
-                    Completable.defer { asset.initToken() }
-                        .doOnError {
-                            crashLogger.logException(
-                                CoincoreInitFailure("Failed init: ${(asset as CryptoAsset).asset.networkTicker}", it)
-                            )
-                        }
-                }.toList()
+    override fun loadCatalogueChanges(diff: AssetCatalogueDiff): Completable =
+        Completable.defer {
+            // The non-custodial assets are fixed, and are never reloaded
+            val fixedAssets = nonCustodialAssets.map { it.asset }.toSet()
+            // Changed assets are dropped too, so that they are loaded again with their new details
+            (diff.removed + diff.changed).minus(fixedAssets).forEach { asset ->
+                assetMap.remove(asset)
+                activeAssetMap.remove(asset)
+            }
+            doLoadAssets(
+                (diff.added + diff.changed).minus(fixedAssets),
+                erc20Ready = Completable.complete()
+            ).doOnSuccess { assetList ->
+                assetList.forEach { assetMap.putIfAbsent(it.asset, it) }
+            }.ignoreElement()
+        }
+
+    private fun nonCustodialInitScheduler(assetList: Set<CryptoAsset>): AssetInitScheduler =
+        AssetInitScheduler(
+            inits = assetList.filterIsInstance<NonCustodialSupport>()
+                .associate { asset ->
+                    (asset as CryptoAsset).asset to {
+                        asset.initToken()
+                            .doOnError {
+                                crashLogger.logException(
+                                    CoincoreInitFailure("Failed init: ${asset.asset.networkTicker}", it)
+                                )
+                            }
+                    }
+                },
+            onTimed = { timing ->
+                crashLogger.logEvent(
+                    "Coincore init ${timing.asset.networkTicker} took ${timing.millis}ms" +
+                        if (timing.succeeded) "" else " and failed"
+                )
+            }
         )
 
     private fun doLoadAssets(
-        dynamicAssets: Set<AssetInfo>
+        dynamicAssets: Set<AssetInfo>,
+        erc20Ready: Completable
     ): Single<List<CryptoAsset>> {
         val erc20assets = dynamicAssets.filter { it.isErc20() }
 
-        return loadErc20Assets(erc20assets).flatMap { loadedErc20 ->
+        return Single.zip(
+            Single.zip(
+                tradingBalances.getActiveAssets(),
+                interestBalances.getActiveAssets()
+            ) { activeTrading, activeInterest ->
+                activeInterest + activeTrading
+            },
+            erc20Ready.thenSingle { erc20DataManager.getActiveAssets() }
+        ) { activeCustodial, activeNoncustodial ->
+            val loadedErc20 = loadErc20Assets(erc20assets, activeCustodial + activeNoncustodial)
             // Loading Custodial ERC20s even without a balance is necessary so they show up for swap
             val custodialAssets = dynamicAssets.filter { dynamicAsset ->
                 dynamicAsset.isCustodial &&
@@ -115,51 +165,36 @@ internal class DynamicAssetLoader(
             // Those two sets should NOT overlap
             check(loadedErc20.intersect(custodialAssets).isEmpty())
             activeAssetMap.putAll(loadedErc20.associateBy { it.asset })
-            loadCustodialOnlyAssets(custodialAssets).map { custodialList ->
-                loadedErc20 + custodialList
-            }
+            loadedErc20 + loadCustodialOnlyAssets(custodialAssets, activeCustodial)
         }
     }
 
     private fun loadCustodialOnlyAssets(
-        custodialAssets: Iterable<AssetInfo>
-    ): Single<List<CryptoAsset>> =
-        Single.zip(
-            tradingBalances.getActiveAssets(),
-            interestBalances.getActiveAssets()
-        ) { activeTrading, activeInterest ->
-            activeInterest + activeTrading
-        }.map { activeAssets ->
-            custodialAssets.map { asset ->
-                val loadedAsset = loadCustodialOnlyAsset(asset)
-                if (activeAssets.contains(asset)) {
-                    activeAssetMap[asset] = loadedAsset
-                }
-                loadedAsset
+        custodialAssets: Iterable<AssetInfo>,
+        activeAssets: Set<AssetInfo>
+    ): List<CryptoAsset> =
+        custodialAssets.map { asset ->
+            val loadedAsset = loadCustodialOnlyAsset(asset)
+            if (activeAssets.contains(asset)) {
+                activeAssetMap[asset] = loadedAsset
             }
+            loadedAsset
         }
 
     private fun loadErc20Assets(
-        erc20Assets: Iterable<AssetInfo>
-    ): Single<List<CryptoAsset>> =
-        Single.zip(
-            tradingBalances.getActiveAssets(),
-            interestBalances.getActiveAssets(),
-            erc20DataManager.getActiveAssets()
-        ) { activeTrading, activeInterest, activeNoncustodial ->
-            // Always load the fully supported ERC20s
-            val erc20WithFullSupport = erc20Assets.filter { dynamicAsset ->
-                dynamicAsset.isNonCustodial &&
-                    dynamicAsset.isCustodial
-            }
-            activeInterest + activeTrading + activeNoncustodial + erc20WithFullSupport
-        }.map { activeAssets ->
-            erc20Assets.filter { activeAssets.contains(it) }
-        }.map { activeSupportedAssets ->
-            activeSupportedAssets.map { asset ->
+        erc20Assets: Iterable<AssetInfo>,
+        activeAssets: Set<AssetInfo>
+    ): List<CryptoAsset> {
+        // Always load the fully supported ERC20s
+        val erc20WithFullSupport = erc20Assets.filter { dynamicAsset ->
+            dynamicAsset.isNonCustodial &&
+                dynamicAsset.isCustodial
+        }
+        return erc20Assets.filter { activeAssets.contains(it) || erc20WithFullSupport.contains(it) }
+            .map { asset ->
                 loadErc20Asset(asset)
             }
-        }
+    }
 
     private fun loadCustodialOnlyAsset(assetInfo: AssetInfo): CryptoAsset {
         return DynamicOnlyTradingAsset(
@@ -205,10 +240,13 @@ internal class DynamicAssetLoader(
     }
 
     override val activeAssets: List<CryptoAsset>
-        get() = activeAssetMap.values.toList()
+        get() = synchronized(activeAssetMap) { activeAssetMap.values.toList() }
 
     override val loadedAssets: List<CryptoAsset>
-        get() = assetMap.values.toList()
+        get() = synchronized(assetMap) { assetMap.values.toList() }
+
+    override val initTimings: List<AssetInitTiming>
+        get() = initScheduler?.initTimings ?: emptyList()
 
     companion object {
         private val assetActions =
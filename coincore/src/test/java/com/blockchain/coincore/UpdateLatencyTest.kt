@@ -0,0 +1,37 @@
+package com.blockchain.coincore
+
+import java.util.concurrent.TimeUnit
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class UpdateLatencyTest {
+
+    private val subject = UpdateLatency()
+
+    @Test
+    fun `no samples give zero figures`() {
+        subject.samples `should be equal to` 0
+        subject.averageMillis `should be equal to` 0.0
+        subject.maxMillis `should be equal to` 0.0
+    }
+
+    @Test
+    fun `recorded samples are counted, averaged and the max kept`() {
+        subject.record(TimeUnit.MILLISECONDS.toNanos(2))
+        subject.record(TimeUnit.MILLISECONDS.toNanos(6))
+        subject.record(TimeUnit.MILLISECONDS.toNanos(4))
+
+        subject.samples `should be equal to` 3
+        subject.averageMillis `should be equal to` 4.0
+        subject.maxMillis `should be equal to` 6.0
+    }
+
+    @Test
+    fun `figures are reported in fractional milliseconds`() {
+        subject.record(TimeUnit.MICROSECONDS.toNanos(500))
+        subject.record(TimeUnit.MICROSECONDS.toNanos(1500))
+
+        subject.averageMillis `should be equal to` 1.0
+        subject.maxMillis `should be equal to` 1.5
+    }
+}
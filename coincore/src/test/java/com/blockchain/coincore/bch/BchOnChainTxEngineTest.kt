@@ -152,14 +152,14 @@ class BchOnChainTxEngineTest : CoincoreTestBase() {
     @Test
     fun `PendingTx is correctly initialised`() {
         // Arrange
-        val sourceAccount: BchCryptoWalletAccount = mock {
-            on { asset }.thenReturn(ASSET)
-        }
+        val sourceAccount = fundedSourceAccount(CryptoValue.zero(ASSET), CryptoValue.zero(ASSET))
 
         val txTarget: CryptoAddress = mock {
             on { asset }.thenReturn(ASSET)
         }
 
+        whenever(bchDataManager.getAddressBalance(SOURCE_XPUB)).thenReturn(CryptoValue.zero(ASSET))
+
         subject.start(
             sourceAccount,
             txTarget,
@@ -187,6 +187,11 @@ class BchOnChainTxEngineTest : CoincoreTestBase() {
 
         verify(currencyPrefs).selectedFiatCurrency
         verify(sourceAccount, atLeastOnce()).asset
+        // The session snapshot is prefetched
+        verify(sourceAccount).accountBalance
+        verify(sourceAccount).xpubAddress
+        verify(bchDataManager).getAddressBalance(SOURCE_XPUB)
+        verify(feeManager).bchFeeOptions
 
         noMoreInteractions(sourceAccount, txTarget)
     }
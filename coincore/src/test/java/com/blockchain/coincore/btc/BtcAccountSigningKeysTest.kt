@@ -0,0 +1,107 @@
+package com.blockchain.coincore.btc
+
+import com.blockchain.coincore.impl.AccountRefreshTrigger
+import com.blockchain.coincore.testutil.CoincoreTestBase
+import com.blockchain.nabu.datamanagers.CustodialWalletManager
+import com.blockchain.preferences.WalletStatus
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.anyOrNull
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import info.blockchain.wallet.payload.data.ImportedAddress
+import info.blockchain.wallet.payload.model.Utxo
+import info.blockchain.wallet.payment.SpendableUnspentOutputs
+import java.math.BigInteger
+import org.bitcoinj.core.ECKey
+import org.bitcoinj.core.LegacyAddress
+import org.bitcoinj.params.MainNetParams
+import org.bitcoinj.script.ScriptBuilder
+import org.junit.Before
+import org.junit.Test
+import org.spongycastle.util.encoders.Hex
+import piuk.blockchain.androidcore.data.fees.FeeDataManager
+import piuk.blockchain.androidcore.data.payload.PayloadDataManager
+import piuk.blockchain.androidcore.data.payments.SendDataManager
+
+class BtcAccountSigningKeysTest : CoincoreTestBase() {
+
+    private val payloadDataManager: PayloadDataManager = mock()
+    private val sendDataManager: SendDataManager = mock()
+    private val feeDataManager: FeeDataManager = mock()
+    private val walletPrefs: WalletStatus = mock()
+    private val custodialWalletManager: CustodialWalletManager = mock()
+    private val refreshTrigger: AccountRefreshTrigger = mock()
+
+    private val accountAddress = importedAddress()
+
+    private val subject =
+        BtcCryptoWalletAccount(
+            payloadManager = payloadDataManager,
+            hdAccountIndex = -1,
+            sendDataManager = sendDataManager,
+            feeDataManager = feeDataManager,
+            exchangeRates = exchangeRates,
+            internalAccount = accountAddress,
+            isHDAccount = false,
+            walletPreferences = walletPrefs,
+            custodialWalletManager = custodialWalletManager,
+            refreshTrigger = refreshTrigger,
+            identity = mock()
+        )
+
+    @Before
+    fun setup() {
+        initMocks()
+        whenever(payloadDataManager.isDoubleEncrypted).thenReturn(false)
+        whenever(payloadDataManager.getAddressSigningKeys(any(), anyOrNull())).thenReturn(emptyList())
+    }
+
+    @Test
+    fun `the key of the imported address is fetched through the batch call`() {
+        val outputs = SpendableUnspentOutputs(
+            spendableOutputs = listOf(utxoFrom(accountAddress), utxoFrom(accountAddress))
+        )
+
+        subject.getSigningKeys(outputs, SECOND_PASSWORD)
+            .test()
+            .assertComplete()
+
+        verify(payloadDataManager).getAddressSigningKeys(eq(listOf(accountAddress)), eq(null))
+    }
+
+    @Test
+    fun `the second password is passed on for a double encrypted wallet`() {
+        whenever(payloadDataManager.isDoubleEncrypted).thenReturn(true)
+        val outputs = SpendableUnspentOutputs(spendableOutputs = listOf(Utxo(value = BigInteger.TEN)))
+
+        subject.getSigningKeys(outputs, SECOND_PASSWORD)
+            .test()
+            .assertComplete()
+
+        verify(payloadDataManager).getAddressSigningKeys(eq(listOf(accountAddress)), eq(SECOND_PASSWORD))
+    }
+
+    private fun importedAddress() =
+        ECKey().let { key ->
+            ImportedAddress().apply {
+                setPrivateKeyFromBytes(key.privKeyBytes)
+                address = LegacyAddress.fromKey(MainNetParams.get(), key).toBase58()
+            }
+        }
+
+    private fun utxoFrom(importedAddress: ImportedAddress) =
+        Utxo(
+            value = BigInteger.TEN,
+            script = Hex.toHexString(
+                ScriptBuilder.createOutputScript(
+                    LegacyAddress.fromBase58(MainNetParams.get(), importedAddress.address)
+                ).program
+            )
+        )
+
+    companion object {
+        private const val SECOND_PASSWORD = "second password"
+    }
+}
@@ -13,6 +13,7 @@ import com.blockchain.coincore.testutil.CoincoreTestBase
 import com.blockchain.preferences.WalletStatus
 import com.blockchain.testutils.bitcoin
 import com.blockchain.testutils.satoshi
+import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.atLeastOnce
 import com.nhaarman.mockitokotlin2.atMost
 import com.nhaarman.mockitokotlin2.mock
@@ -35,6 +36,8 @@ import kotlin.test.assertEquals
 import org.bitcoinj.core.NetworkParameters
 import org.junit.Before
 import org.junit.Test
+import piuk.blockchain.androidcore.data.events.ActionEvent
+import piuk.blockchain.androidcore.data.events.WalletAndTransactionsUpdatedEvent
 import piuk.blockchain.androidcore.data.fees.FeeDataManager
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
 import piuk.blockchain.androidcore.data.payments.SendDataManager
@@ -155,6 +158,8 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
             on { asset }.thenReturn(ASSET)
         }
 
+        whenever(btcDataManager.getAddressBalance(SOURCE_XPUBS)).thenReturn(CryptoValue.zero(ASSET))
+
         subject.start(
             sourceAccount,
             txTarget,
@@ -182,10 +187,71 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         verify(sourceAccount, atLeastOnce()).asset
         verify(walletPreferences).getFeeTypeForAsset(ASSET)
         verify(currencyPrefs).selectedFiatCurrency
+        // The session snapshot is prefetched
+        verify(sourceAccount).accountBalance
+        verify(sourceAccount).xpubs
+        verify(btcDataManager).getAddressBalance(SOURCE_XPUBS)
+        verify(feeManager).btcFeeOptions
 
         noMoreInteractions(sourceAccount, txTarget)
     }
 
+    @Test
+    fun `amount updates reuse the session snapshot until the wallet is updated`() {
+        // Arrange
+        val inputAmount = 2.bitcoin()
+        val otherAmount = 3.bitcoin()
+        val totalBalance = 21.bitcoin()
+
+        val txTarget: CryptoAddress = mock {
+            on { asset }.thenReturn(ASSET)
+            on { address }.thenReturn(TARGET_ADDRESS)
+        }
+        val sourceAccount = mockSourceAccount(totalBalance)
+
+        whenever(btcDataManager.getAddressBalance(SOURCE_XPUBS)).thenReturn(totalBalance)
+
+        val unspentOutputs = listOf<Utxo>(mock(), mock())
+        whenever(sendDataManager.getUnspentBtcOutputs(SOURCE_XPUBS))
+            .thenReturn(Single.just(unspentOutputs))
+        val coinsForFee = SendDataManager.SpendableCoinsForFee(
+            SpendableUnspentOutputs(),
+            SendDataManager.MaxAvailable(totalBalance, CryptoValue.zero(ASSET))
+        )
+        whenever(sendDataManager.getSpendableCoinsForFees(any(), any(), any(), any(), any()))
+            .thenReturn(listOf(coinsForFee, coinsForFee, coinsForFee))
+
+        subject.start(
+            sourceAccount,
+            txTarget,
+            exchangeRates
+        )
+
+        // Act
+        val pendingTx = subject.doInitialiseTx().blockingGet()
+        subject.doUpdateAmount(inputAmount, pendingTx).test()
+            .assertValue { it.amount == inputAmount && it.totalBalance == totalBalance }
+        subject.doUpdateAmount(otherAmount, pendingTx).test()
+            .assertValue { it.amount == otherAmount && it.totalBalance == totalBalance }
+
+        // Assert
+        verify(sourceAccount).accountBalance
+        verify(feeManager).btcFeeOptions
+        verify(sendDataManager).getUnspentBtcOutputs(SOURCE_XPUBS)
+
+        // Act
+        rxBus.emitEvent(ActionEvent::class.java, WalletAndTransactionsUpdatedEvent())
+        subject.doUpdateAmount(inputAmount, pendingTx).test()
+            .assertValue { it.amount == inputAmount }
+
+        // Assert
+        verify(sourceAccount, times(2)).accountBalance
+        verify(feeManager, times(2)).btcFeeOptions
+        verify(sendDataManager, times(2)).getUnspentBtcOutputs(SOURCE_XPUBS)
+
+        subject.stop(pendingTx)
+    }
+
     @Test
     fun `update amount modifies the pendingTx correctly for regular fees`() {
         // Arrange
@@ -211,18 +277,9 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         whenever(sendDataManager.getUnspentBtcOutputs(SOURCE_XPUBS))
             .thenReturn(Single.just(unspentOutputs))
 
-        whenever(
-            sendDataManager.getMaximumAvailable(
-                ASSET,
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                feePerKb
-            )
-        ).thenReturn(
-            SendDataManager.MaxAvailable(
-                totalSweepable as CryptoValue,
-                (totalBalance - totalFee) as CryptoValue
-            )
+        val maxAvailable = SendDataManager.MaxAvailable(
+            totalSweepable as CryptoValue,
+            (totalBalance - totalFee) as CryptoValue
         )
 
         val utxoBundle: SpendableUnspentOutputs = mock {
@@ -233,24 +290,20 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         }
 
         whenever(
-            sendDataManager.getSpendableCoins(
+            sendDataManager.getSpendableCoinsForFees(
                 unspentOutputs,
                 TARGET_OUTPUT_TYPE,
                 CHANGE_OUTPUT_TYPE,
                 inputAmount,
-                feePerKb
+                listOf(feePerKb, feePerKb, feePerKbPriority)
             )
-        ).thenReturn(utxoBundle)
-
-        whenever(
-            sendDataManager.getSpendableCoins(
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                CHANGE_OUTPUT_TYPE,
-                inputAmount,
-                feePerKbPriority
+        ).thenReturn(
+            listOf(
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundlePriority, maxAvailable)
             )
-        ).thenReturn(utxoBundlePriority)
+        )
 
         subject.start(
             sourceAccount,
@@ -298,13 +351,15 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         verify(btcFeeOptions, atLeastOnce()).priorityFee
         verify(btcFeeOptions, atLeastOnce()).regularFee
         verify(sendDataManager).getUnspentBtcOutputs(SOURCE_XPUBS)
-        verify(sendDataManager).getMaximumAvailable(ASSET, unspentOutputs, TARGET_OUTPUT_TYPE, feePerKb)
         verify(utxoBundlePriority).absoluteFee
         verify(utxoBundle, times(2)).absoluteFee
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKb)
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKbPriority)
+        verify(sendDataManager).getSpendableCoinsForFees(
+            unspentOutputs,
+            TARGET_OUTPUT_TYPE,
+            CHANGE_OUTPUT_TYPE,
+            inputAmount,
+            listOf(feePerKb, feePerKb, feePerKbPriority)
+        )
 
         noMoreInteractions(sourceAccount, txTarget)
     }
@@ -335,18 +390,9 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         whenever(sendDataManager.getUnspentBtcOutputs(SOURCE_XPUBS))
             .thenReturn(Single.just(unspentOutputs))
 
-        whenever(
-            sendDataManager.getMaximumAvailable(
-                ASSET,
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                feePerKb
-            )
-        ).thenReturn(
-            SendDataManager.MaxAvailable(
-                totalSweepable as CryptoValue,
-                fullFee as CryptoValue
-            )
+        val maxAvailable = SendDataManager.MaxAvailable(
+            totalSweepable as CryptoValue,
+            fullFee as CryptoValue
         )
 
         val utxoBundleRegular: SpendableUnspentOutputs = mock {
@@ -358,24 +404,20 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         }
 
         whenever(
-            sendDataManager.getSpendableCoins(
+            sendDataManager.getSpendableCoinsForFees(
                 unspentOutputs,
                 TARGET_OUTPUT_TYPE,
                 CHANGE_OUTPUT_TYPE,
                 inputAmount,
-                feePerKbRegular
+                listOf(feePerKb, feePerKbRegular, feePerKb)
             )
-        ).thenReturn(utxoBundleRegular)
-
-        whenever(
-            sendDataManager.getSpendableCoins(
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                CHANGE_OUTPUT_TYPE,
-                inputAmount,
-                feePerKb
+        ).thenReturn(
+            listOf(
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundleRegular, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable)
             )
-        ).thenReturn(utxoBundle)
+        )
 
         subject.start(
             sourceAccount,
@@ -423,13 +465,15 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         verify(btcFeeOptions, atLeastOnce()).regularFee
         verify(btcFeeOptions, atLeastOnce()).priorityFee
         verify(sendDataManager).getUnspentBtcOutputs(SOURCE_XPUBS)
-        verify(sendDataManager).getMaximumAvailable(ASSET, unspentOutputs, TARGET_OUTPUT_TYPE, feePerKb)
         verify(utxoBundleRegular).absoluteFee
         verify(utxoBundle, times(2)).absoluteFee
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKbRegular)
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKb)
+        verify(sendDataManager).getSpendableCoinsForFees(
+            unspentOutputs,
+            TARGET_OUTPUT_TYPE,
+            CHANGE_OUTPUT_TYPE,
+            inputAmount,
+            listOf(feePerKb, feePerKbRegular, feePerKb)
+        )
 
         noMoreInteractions(sourceAccount, txTarget)
     }
@@ -462,18 +506,9 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         val priorityFee = (FEE_PRIORITY * 1000 * 3).satoshi()
         val prioritySweepable = totalBalance - priorityFee
 
-        whenever(
-            sendDataManager.getMaximumAvailable(
-                ASSET,
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                feePerKb
-            )
-        ).thenReturn(
-            SendDataManager.MaxAvailable(
-                prioritySweepable as CryptoValue,
-                priorityFee
-            )
+        val maxAvailable = SendDataManager.MaxAvailable(
+            prioritySweepable as CryptoValue,
+            priorityFee
         )
 
         val utxoBundleRegular: SpendableUnspentOutputs = mock {
@@ -484,24 +519,20 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         }
 
         whenever(
-            sendDataManager.getSpendableCoins(
+            sendDataManager.getSpendableCoinsForFees(
                 unspentOutputs,
                 TARGET_OUTPUT_TYPE,
                 CHANGE_OUTPUT_TYPE,
                 inputAmount,
-                feePerKbRegular
+                listOf(feePerKb, feePerKbRegular, feePerKb)
             )
-        ).thenReturn(utxoBundleRegular)
-
-        whenever(
-            sendDataManager.getSpendableCoins(
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                CHANGE_OUTPUT_TYPE,
-                inputAmount,
-                feePerKb
+        ).thenReturn(
+            listOf(
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundleRegular, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable)
             )
-        ).thenReturn(utxoBundle)
+        )
 
         subject.start(
             sourceAccount,
@@ -551,13 +582,15 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         verify(btcFeeOptions, atLeastOnce()).regularFee
         verify(btcFeeOptions, atLeastOnce()).priorityFee
         verify(sendDataManager).getUnspentBtcOutputs(SOURCE_XPUBS)
-        verify(sendDataManager).getMaximumAvailable(ASSET, unspentOutputs, TARGET_OUTPUT_TYPE, feePerKb)
         verify(utxoBundleRegular).absoluteFee
         verify(utxoBundle, times(2)).absoluteFee
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKbRegular)
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKb)
+        verify(sendDataManager).getSpendableCoinsForFees(
+            unspentOutputs,
+            TARGET_OUTPUT_TYPE,
+            CHANGE_OUTPUT_TYPE,
+            inputAmount,
+            listOf(feePerKb, feePerKbRegular, feePerKb)
+        )
         verify(walletPreferences).setFeeTypeForAsset(ASSET, FeeLevel.Priority.ordinal)
 
         noMoreInteractions(sourceAccount, txTarget)
@@ -692,18 +725,9 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         val expectedFee = (feeCustom * 1000 * 3).satoshi()
         val expectedSweepable = totalBalance - expectedFee
 
-        whenever(
-            sendDataManager.getMaximumAvailable(
-                ASSET,
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                feePerKb
-            )
-        ).thenReturn(
-            SendDataManager.MaxAvailable(
-                expectedSweepable as CryptoValue,
-                expectedFee
-            )
+        val maxAvailable = SendDataManager.MaxAvailable(
+            expectedSweepable as CryptoValue,
+            expectedFee
         )
 
         val utxoBundleRegular: SpendableUnspentOutputs = mock {
@@ -717,34 +741,20 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         }
 
         whenever(
-            sendDataManager.getSpendableCoins(
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                CHANGE_OUTPUT_TYPE,
-                inputAmount,
-                regularFee
-            )
-        ).thenReturn(utxoBundleRegular)
-
-        whenever(
-            sendDataManager.getSpendableCoins(
+            sendDataManager.getSpendableCoinsForFees(
                 unspentOutputs,
                 TARGET_OUTPUT_TYPE,
                 CHANGE_OUTPUT_TYPE,
                 inputAmount,
-                priorityFee
+                listOf(feePerKb, regularFee, priorityFee)
             )
-        ).thenReturn(utxoBundlePriority)
-
-        whenever(
-            sendDataManager.getSpendableCoins(
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                CHANGE_OUTPUT_TYPE,
-                inputAmount,
-                feePerKb
+        ).thenReturn(
+            listOf(
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundleRegular, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundlePriority, maxAvailable)
             )
-        ).thenReturn(utxoBundle)
+        )
 
         subject.start(
             sourceAccount,
@@ -795,16 +805,16 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         verify(btcFeeOptions, atLeastOnce()).priorityFee
         verify(btcFeeOptions, atLeastOnce()).limits
         verify(sendDataManager).getUnspentBtcOutputs(SOURCE_XPUBS)
-        verify(sendDataManager).getMaximumAvailable(ASSET, unspentOutputs, TARGET_OUTPUT_TYPE, feePerKb)
         verify(utxoBundleRegular).absoluteFee
         verify(utxoBundlePriority).absoluteFee
         verify(utxoBundle).absoluteFee
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, regularFee)
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, priorityFee)
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKb)
+        verify(sendDataManager).getSpendableCoinsForFees(
+            unspentOutputs,
+            TARGET_OUTPUT_TYPE,
+            CHANGE_OUTPUT_TYPE,
+            inputAmount,
+            listOf(feePerKb, regularFee, priorityFee)
+        )
         verify(walletPreferences).setFeeTypeForAsset(ASSET, FeeLevel.Custom.ordinal)
 
         noMoreInteractions(sourceAccount, txTarget)
@@ -842,18 +852,9 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         val expectedFee = (feeCustom * 1000 * 3).satoshi()
         val expectedSweepable = totalBalance - expectedFee
 
-        whenever(
-            sendDataManager.getMaximumAvailable(
-                ASSET,
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                feePerKb
-            )
-        ).thenReturn(
-            SendDataManager.MaxAvailable(
-                expectedSweepable as CryptoValue,
-                expectedFee
-            )
+        val maxAvailable = SendDataManager.MaxAvailable(
+            expectedSweepable as CryptoValue,
+            expectedFee
         )
 
         val utxoBundle: SpendableUnspentOutputs = mock {
@@ -869,34 +870,20 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         }
 
         whenever(
-            sendDataManager.getSpendableCoins(
+            sendDataManager.getSpendableCoinsForFees(
                 unspentOutputs,
                 TARGET_OUTPUT_TYPE,
                 CHANGE_OUTPUT_TYPE,
                 inputAmount,
-                feePerKbRegular
+                listOf(feePerKb, feePerKbRegular, feePerKbPriority)
             )
-        ).thenReturn(utxoBundleRegular)
-
-        whenever(
-            sendDataManager.getSpendableCoins(
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                CHANGE_OUTPUT_TYPE,
-                inputAmount,
-                feePerKbPriority
-            )
-        ).thenReturn(utxoBundlePriority)
-
-        whenever(
-            sendDataManager.getSpendableCoins(
-                unspentOutputs,
-                TARGET_OUTPUT_TYPE,
-                CHANGE_OUTPUT_TYPE,
-                inputAmount,
-                feePerKb
+        ).thenReturn(
+            listOf(
+                SendDataManager.SpendableCoinsForFee(utxoBundle, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundleRegular, maxAvailable),
+                SendDataManager.SpendableCoinsForFee(utxoBundlePriority, maxAvailable)
             )
-        ).thenReturn(utxoBundle)
+        )
 
         subject.start(
             sourceAccount,
@@ -948,16 +935,16 @@ class BtcOnChainTxEngineTest : CoincoreTestBase() {
         verify(btcFeeOptions, atLeastOnce()).priorityFee
         verify(btcFeeOptions, atLeastOnce()).limits
         verify(sendDataManager).getUnspentBtcOutputs(SOURCE_XPUBS)
-        verify(sendDataManager).getMaximumAvailable(ASSET, unspentOutputs, TARGET_OUTPUT_TYPE, feePerKb)
         verify(utxoBundle).absoluteFee
         verify(utxoBundleRegular).absoluteFee
         verify(utxoBundlePriority).absoluteFee
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKbRegular)
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKbPriority)
-        verify(sendDataManager)
-            .getSpendableCoins(unspentOutputs, TARGET_OUTPUT_TYPE, CHANGE_OUTPUT_TYPE, inputAmount, feePerKb)
+        verify(sendDataManager).getSpendableCoinsForFees(
+            unspentOutputs,
+            TARGET_OUTPUT_TYPE,
+            CHANGE_OUTPUT_TYPE,
+            inputAmount,
+            listOf(feePerKb, feePerKbRegular, feePerKbPriority)
+        )
         verify(walletPreferences).setFeeTypeForAsset(ASSET, FeeLevel.Custom.ordinal)
 
         noMoreInteractions(sourceAccount, txTarget)
@@ -0,0 +1,89 @@
+package com.blockchain.coincore.impl
+
+import com.blockchain.coincore.CryptoAddress
+import com.blockchain.coincore.SingleAccount
+import com.blockchain.coincore.SingleAccountList
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import info.blockchain.balance.CryptoCurrency
+import io.reactivex.rxjava3.core.Single
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class AccountAddressIndexTest {
+
+    private interface HdAccount : SingleAccount, MultiAddressAccount
+
+    private val hdReceive = cryptoAddress(HD_RECEIVE)
+    private val staticReceive = cryptoAddress(STATIC_RECEIVE)
+
+    private val hdAccount: HdAccount = mock {
+        on { receiveAddress }.thenReturn(Single.just(hdReceive))
+        on { ownedXpubs }.thenReturn(listOf(XPUB))
+        on { xpubForAddress(USED_ADDRESS) }.thenReturn(XPUB)
+    }
+
+    private val staticAccount: SingleAccount = mock {
+        on { receiveAddress }.thenReturn(Single.just(staticReceive))
+    }
+
+    private var loads = 0
+    private fun loadAccounts(): Single<SingleAccountList> =
+        Single.fromCallable {
+            loads++
+            listOf(hdAccount, staticAccount)
+        }
+
+    private val subject = AccountAddressIndex()
+
+    private fun find(address: String, version: Long = 1) =
+        subject.findAccount(CryptoCurrency.BTC, version, address, ::loadAccounts).test()
+
+    @Test
+    fun `receive addresses are matched ignoring case and uri scheme`() {
+        find("bitcoin:${STATIC_RECEIVE.toUpperCase()}?amount=1").assertValue(staticAccount)
+        find(HD_RECEIVE).assertValue(hdAccount)
+
+        loads `should be equal to` 1
+        verify(staticAccount, times(1)).receiveAddress
+        verify(hdAccount, times(1)).receiveAddress
+    }
+
+    @Test
+    fun `used addresses are resolved through their xpub`() {
+        find(USED_ADDRESS).assertValue(hdAccount)
+        find(USED_ADDRESS).assertValue(hdAccount)
+
+        verify(hdAccount, times(1)).xpubForAddress(USED_ADDRESS)
+    }
+
+    @Test
+    fun `misses only fetch the addresses that can move on`() {
+        find(HD_RECEIVE).assertValue(hdAccount)
+        find(UNKNOWN_ADDRESS).assertNoValues().assertComplete()
+
+        verify(staticAccount, times(1)).receiveAddress
+        verify(hdAccount, times(2)).receiveAddress
+    }
+
+    @Test
+    fun `a new version of the accounts is indexed again`() {
+        find(STATIC_RECEIVE, version = 1).assertValue(staticAccount)
+        find(STATIC_RECEIVE, version = 2).assertValue(staticAccount)
+
+        verify(staticAccount, times(2)).receiveAddress
+    }
+
+    private fun cryptoAddress(value: String): CryptoAddress = mock {
+        on { address }.thenReturn(value)
+    }
+
+    companion object {
+        private const val XPUB = "xpub"
+        private const val HD_RECEIVE = "1HdReceive"
+        private const val STATIC_RECEIVE = "1StaticReceive"
+        private const val USED_ADDRESS = "1UsedAddress"
+        private const val UNKNOWN_ADDRESS = "1Unknown"
+    }
+}
@@ -1,12 +1,18 @@
 package com.blockchain.coincore.impl
 
+import com.blockchain.coincore.loader.AssetCatalogueDiff
 import com.blockchain.coincore.loader.AssetCatalogueImpl
 import com.blockchain.coincore.testutil.CoincoreTestBase
 import com.blockchain.core.dynamicassets.DynamicAssetsDataManager
 import com.nhaarman.mockitokotlin2.mock
+import info.blockchain.balance.AssetCategory
+import info.blockchain.balance.AssetInfo
 import info.blockchain.balance.CryptoCurrency
+import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.subjects.SingleSubject
 import org.amshove.kluent.`should be`
+import org.amshove.kluent.`should be equal to`
 import org.junit.Before
 import org.junit.Test
 import piuk.blockchain.androidcore.utils.extensions.emptySubscribe
@@ -19,6 +25,7 @@ class AssetCatalogueTest : CoincoreTestBase() {
     )
 
     private val assetsManager: DynamicAssetsDataManager = mock {
+        on { cachedCryptoAssets() }.thenReturn(Maybe.empty())
         on { availableCryptoAssets() }.thenReturn(Single.just(assetList))
     }
 
@@ -96,4 +103,61 @@ class AssetCatalogueTest : CoincoreTestBase() {
     fun `not recognised should return null`() {
         subject.fromNetworkTicker("NONE") `should be` null
     }
+
+    @Test
+    fun `stored catalogue is served without waiting for the network`() {
+        val storedManager: DynamicAssetsDataManager = mock {
+            on { cachedCryptoAssets() }.thenReturn(Maybe.just(listOf(TEST_ASSET)))
+            on { availableCryptoAssets() }.thenReturn(Single.never())
+        }
+        val catalogue = AssetCatalogueImpl(setOf(CryptoCurrency.BTC), storedManager)
+
+        catalogue.initialise()
+            .test()
+            .assertValue(setOf(CryptoCurrency.BTC, TEST_ASSET))
+
+        catalogue.fromNetworkTicker("NOPE") `should be` TEST_ASSET
+    }
+
+    @Test
+    fun `revalidating a stored catalogue publishes the differences`() {
+        val fetched = SingleSubject.create<List<AssetInfo>>()
+        val storedManager: DynamicAssetsDataManager = mock {
+            on { cachedCryptoAssets() }.thenReturn(Maybe.just(listOf(TEST_ASSET, SECONDARY_TEST_ASSET)))
+            on { availableCryptoAssets() }.thenReturn(fetched)
+        }
+        val catalogue = AssetCatalogueImpl(setOf(CryptoCurrency.BTC), storedManager)
+        val changes = catalogue.catalogueChanges.test()
+        catalogue.initialise().emptySubscribe()
+
+        val renamed = CryptoCurrency(
+            displayTicker = "NOPE",
+            networkTicker = "NOPE",
+            name = "Still not a real thing",
+            categories = setOf(AssetCategory.CUSTODIAL),
+            precisionDp = 8,
+            requiredConfirmations = 3,
+            colour = "000000"
+        )
+        val added = CryptoCurrency(
+            displayTicker = "NEW",
+            networkTicker = "NEW",
+            name = "New",
+            categories = setOf(AssetCategory.CUSTODIAL),
+            precisionDp = 8,
+            requiredConfirmations = 3,
+            colour = "000000"
+        )
+        fetched.onSuccess(listOf(renamed, added))
+
+        changes.assertValue(
+            AssetCatalogueDiff(
+                added = setOf(added),
+                removed = setOf(SECONDARY_TEST_ASSET),
+                changed = setOf(renamed)
+            )
+        )
+        catalogue.fromNetworkTicker("NOPE")?.name `should be equal to` "Still not a real thing"
+        catalogue.fromNetworkTicker("NOPE2") `should be` null
+    }
 }
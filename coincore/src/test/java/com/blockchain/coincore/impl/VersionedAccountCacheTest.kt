@@ -0,0 +1,51 @@
+package com.blockchain.coincore.impl
+
+import io.reactivex.rxjava3.core.Single
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class VersionedAccountCacheTest {
+
+    private var time = 0L
+    private var builds = 0
+
+    private val subject = VersionedAccountCache<Long, Int>(
+        maxAgeMillis = 1000,
+        now = { time }
+    )
+
+    private fun build(): Single<Int> = Single.fromCallable { ++builds }
+
+    @Test
+    fun `callers of the same version share one build`() {
+        subject.get(1L, ::build).test().assertValue(1)
+        subject.get(1L, ::build).test().assertValue(1)
+
+        builds `should be equal to` 1
+    }
+
+    @Test
+    fun `a new version is rebuilt`() {
+        subject.get(1L, ::build).test().assertValue(1)
+        subject.get(2L, ::build).test().assertValue(2)
+    }
+
+    @Test
+    fun `invalidated and expired builds are rebuilt`() {
+        subject.get(1L, ::build).test().assertValue(1)
+        subject.invalidate()
+        subject.get(1L, ::build).test().assertValue(2)
+
+        time = 1000
+        subject.get(1L, ::build).test().assertValue(3)
+    }
+
+    @Test
+    fun `failed builds are not kept`() {
+        subject.get(1L) { Single.error(Throwable()) }
+            .test()
+            .assertError(Throwable::class.java)
+
+        subject.get(1L, ::build).test().assertValue(1)
+    }
+}
@@ -0,0 +1,78 @@
+package com.blockchain.coincore.loader
+
+import info.blockchain.balance.CryptoCurrency
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.subjects.CompletableSubject
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class AssetInitSchedulerTest {
+
+    private val btcInit = CompletableSubject.create()
+    private val ethInit = CompletableSubject.create()
+    private val bchInit = CompletableSubject.create()
+
+    private val subject = AssetInitScheduler(
+        inits = mapOf(
+            CryptoCurrency.BTC to { btcInit },
+            CryptoCurrency.ETHER to { ethInit },
+            CryptoCurrency.BCH to { bchInit }
+        ),
+        dependencies = mapOf(CryptoCurrency.BCH to setOf(CryptoCurrency.BTC)),
+        scheduler = Schedulers.trampoline()
+    )
+
+    @Test
+    fun `independent assets initialise concurrently`() {
+        subject.start().test()
+
+        btcInit.hasObservers() `should be equal to` true
+        ethInit.hasObservers() `should be equal to` true
+    }
+
+    @Test
+    fun `dependent assets wait for their dependencies`() {
+        val test = subject.start().test()
+
+        bchInit.hasObservers() `should be equal to` false
+        btcInit.onComplete()
+        bchInit.hasObservers() `should be equal to` true
+
+        ethInit.onComplete()
+        bchInit.onComplete()
+        test.assertComplete()
+    }
+
+    @Test
+    fun `a failed init does not stop unrelated assets`() {
+        val test = subject.start().test()
+        val ethReady = subject.whenReady(CryptoCurrency.ETHER).test()
+
+        btcInit.onError(Throwable())
+        ethReady.assertNotComplete()
+        test.assertNotComplete()
+
+        ethInit.onComplete()
+        ethReady.assertComplete()
+        bchInit.hasObservers() `should be equal to` false
+        test.assertError(Throwable::class.java)
+    }
+
+    @Test
+    fun `each init is run once and timed`() {
+        var runs = 0
+        val scheduler = AssetInitScheduler(
+            inits = mapOf(CryptoCurrency.ETHER to { Completable.fromAction { runs++ } }),
+            scheduler = Schedulers.trampoline()
+        )
+
+        scheduler.whenReady(CryptoCurrency.ETHER).test().assertComplete()
+        scheduler.start().test().assertComplete()
+        scheduler.whenReady(CryptoCurrency.XLM).test().assertComplete()
+
+        runs `should be equal to` 1
+        scheduler.initTimings.map { it.asset to it.succeeded } `should be equal to`
+            listOf(CryptoCurrency.ETHER to true)
+    }
+}
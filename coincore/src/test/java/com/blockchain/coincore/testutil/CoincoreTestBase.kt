@@ -16,6 +16,7 @@ import org.koin.core.context.stopKoin
 import org.koin.core.module.Module
 import org.koin.dsl.bind
 import org.koin.dsl.module
+import piuk.blockchain.androidcore.data.rxjava.RxBus
 
 private fun injectMocks(module: Module) {
     startKoin {
@@ -42,6 +43,8 @@ open class CoincoreTestBase {
 
     private val mockedCrashLogger: CrashLogger = mock()
 
+    protected val rxBus = RxBus()
+
     private val userFiatToUserFiat = ExchangeRate.FiatToFiat(
         from = TEST_USER_FIAT,
         to = TEST_USER_FIAT,
@@ -70,6 +73,9 @@ open class CoincoreTestBase {
                 factory {
                     mockedCrashLogger
                 }.bind(CrashLogger::class)
+                factory {
+                    rxBus
+                }
             }
         )
     }
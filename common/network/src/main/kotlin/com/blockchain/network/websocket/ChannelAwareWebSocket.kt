@@ -4,7 +4,10 @@ import com.blockchain.serialization.JsonSerializable
 import com.squareup.moshi.JsonAdapter
 import com.squareup.moshi.Moshi
 import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.ObservableEmitter
 import io.reactivex.rxjava3.subjects.PublishSubject
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArraySet
 
 interface ChannelAwareWebSocket {
     fun openChannel(name: String, params: JsonSerializable? = null): WebSocketChannel<String>
@@ -20,9 +23,11 @@ private class WebSocketChannelAdapter(private val underlingSocket: StringWebSock
     private val outAdapter = Moshi.Builder()
         .build().adapter(SubscribeUnsubscribeJson::class.java)
 
+    private val router = ChannelRouter(underlingSocket)
+
     override fun openChannel(name: String, params: JsonSerializable?): WebSocketChannel<String> {
         underlingSocket.send(outAdapter.toJson(SubscribeUnsubscribeJson(name, "subscribe", params)))
-        return underlingSocket.asChannel(name, outAdapter)
+        return underlingSocket.asChannel(name, router, outAdapter)
     }
 }
 
@@ -30,13 +35,12 @@ class ErrorFromServer(val fullJson: String) : Exception("Server returned error")
 
 private fun StringWebSocket.asChannel(
     name: String,
+    router: ChannelRouter,
     outAdapter: JsonAdapter<SubscribeUnsubscribeJson>
 ): WebSocketChannel<String> {
 
     return object : WebSocketChannel<String> {
 
-        val channelMessageFilter = this@asChannel.channelMessageFilter(name, throwErrors = true)
-
         private val closed = PublishSubject.create<Any>()
 
         override fun close(params: JsonSerializable?) {
@@ -45,10 +49,49 @@ private fun StringWebSocket.asChannel(
         }
 
         override val responses: Observable<String>
-            get() = channelMessageFilter.responses.takeUntil(closed)
+            get() = router.channel(name)
+                .filter { (fields, json) -> fields.isChannelMessage(json, throwErrors = true) }
+                .map { (_, json) -> json }
+                .takeUntil(closed)
     }
 }
 
+/**
+ * Shares one subscription to the underlying socket between all the open channels. Each message is
+ * peeked once for its channel and handed straight to that channel's subscribers, so the cost per
+ * message doesn't grow with the number of channels open. When the socket completes or fails, so
+ * does every open channel.
+ */
+private class ChannelRouter(private val source: WebSocketReceive<String>) {
+
+    private val subscribers = ConcurrentHashMap<String, MutableSet<ObservableEmitter<Pair<RoutingFields, String>>>>()
+
+    private val dispatch: Observable<Pair<RoutingFields, String>> =
+        Observable.defer { source.responses }
+            .doOnNext { json -> route(json) }
+            // Errors reach the channels through the merge in channel(), completion has to be passed on
+            .doOnComplete { completeSubscribers() }
+            .ignoreElements()
+            .toObservable<Pair<RoutingFields, String>>()
+            .share()
+
+    private fun route(json: String) {
+        val fields = json.peekRoutingFields()
+        val channel = fields.channel ?: return
+        subscribers[channel]?.forEach { it.onNext(fields to json) }
+    }
+
+    private fun completeSubscribers() =
+        subscribers.values.forEach { channelSubscribers -> channelSubscribers.forEach { it.onComplete() } }
+
+    fun channel(name: String): Observable<Pair<RoutingFields, String>> =
+        Observable.create<Pair<RoutingFields, String>> { emitter ->
+            val channelSubscribers = subscribers.getOrPut(name) { CopyOnWriteArraySet() }
+            channelSubscribers.add(emitter)
+            emitter.setCancellable { channelSubscribers.remove(emitter) }
+        }.mergeWith(dispatch)
+}
+
 /**
  * Filters messages to those that match the channel name and are not subscribe/unsubscribe messages.
  */
@@ -58,31 +101,19 @@ fun WebSocketReceive<String>.channelMessageFilter(name: String, throwErrors: Boo
 
         override val responses: Observable<String>
             get() = this@channelMessageFilter.responses.filter { json ->
-                incomingAdapter.fromJson(json)
-                    ?.let {
-                        it.channel == name &&
-                            it.event != "subscribed" &&
-                            it.event != "unsubscribed" &&
-                            !handleError(it, json)
-                    } ?: false
-            }
-
-        private fun handleError(message: IncomingMessage, json: String): Boolean {
-            return when {
-                message.event != "error" -> false
-                throwErrors -> throw ErrorFromServer(json)
-                else -> true
+                val fields = json.peekRoutingFields()
+                fields.channel == name && fields.isChannelMessage(json, throwErrors)
             }
-        }
-
-        private val incomingAdapter = Moshi.Builder().build().adapter(IncomingMessage::class.java)
     }
 }
 
-private class IncomingMessage(
-    val channel: String,
-    val event: String
-) : JsonSerializable
+private fun RoutingFields.isChannelMessage(json: String, throwErrors: Boolean): Boolean =
+    when (event) {
+        "subscribed",
+        "unsubscribed" -> false
+        "error" -> if (throwErrors) throw ErrorFromServer(json) else false
+        else -> true
+    }
 
 private class SubscribeUnsubscribeJson(
     @Suppress("unused") val channel: String,
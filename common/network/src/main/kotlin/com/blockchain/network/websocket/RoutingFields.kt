@@ -0,0 +1,60 @@
+package com.blockchain.network.websocket
+
+import com.squareup.moshi.JsonReader
+import okio.Buffer
+
+/**
+ * The top level fields that decide which handler a socket message belongs to.
+ */
+data class RoutingFields(
+    val channel: String? = null,
+    val event: String? = null,
+    val coin: String? = null,
+    val op: String? = null
+) {
+    companion object {
+        val NONE = RoutingFields()
+    }
+}
+
+private val routingNames = JsonReader.Options.of("channel", "event", "coin", "op")
+
+/**
+ * Reads just the routing fields of a json message with a streaming reader, skipping everything else,
+ * so the full payload need only be decoded by the one handler it is routed to. Messages that are not
+ * json objects have no routing fields.
+ */
+fun String.peekRoutingFields(): RoutingFields {
+    val reader = JsonReader.of(Buffer().writeUtf8(this))
+    if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) return RoutingFields.NONE
+
+    var channel: String? = null
+    var event: String? = null
+    var coin: String? = null
+    var op: String? = null
+
+    reader.beginObject()
+    while (reader.hasNext()) {
+        when (reader.selectName(routingNames)) {
+            0 -> channel = reader.nextScalarOrNull()
+            1 -> event = reader.nextScalarOrNull()
+            2 -> coin = reader.nextScalarOrNull()
+            3 -> op = reader.nextScalarOrNull()
+            else -> {
+                reader.skipName()
+                reader.skipValue()
+            }
+        }
+    }
+    return RoutingFields(channel, event, coin, op)
+}
+
+private fun JsonReader.nextScalarOrNull(): String? =
+    when (peek()) {
+        JsonReader.Token.STRING,
+        JsonReader.Token.NUMBER -> nextString()
+        else -> {
+            skipValue()
+            null
+        }
+    }
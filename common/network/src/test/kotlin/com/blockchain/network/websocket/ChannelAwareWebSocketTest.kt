@@ -6,6 +6,7 @@ import com.nhaarman.mockitokotlin2.reset
 import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.verifyNoMoreInteractions
 import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.subjects.PublishSubject
 import org.amshove.kluent.`should be equal to`
 import org.junit.Test
 
@@ -135,6 +136,39 @@ class ChannelAwareWebSocketTest {
         test.assertComplete()
     }
 
+    @Test
+    fun `when the underlying socket completes, open channels complete`() {
+        val incoming = PublishSubject.create<String>()
+        val underlingSocket = mock<StringWebSocket> {
+            on { responses }.thenReturn(incoming)
+        }
+        val channelAwareWebSocket = underlingSocket.channelAware()
+        val channel = channelAwareWebSocket.openChannel("ChannelName").responses.test()
+        val other = channelAwareWebSocket.openChannel("OtherChannel").responses.test()
+
+        incoming.onComplete()
+
+        channel.assertComplete()
+        other.assertComplete()
+    }
+
+    @Test
+    fun `when the underlying socket fails, open channels fail`() {
+        val incoming = PublishSubject.create<String>()
+        val underlingSocket = mock<StringWebSocket> {
+            on { responses }.thenReturn(incoming)
+        }
+        val channelAwareWebSocket = underlingSocket.channelAware()
+        val channel = channelAwareWebSocket.openChannel("ChannelName").responses.test()
+        val other = channelAwareWebSocket.openChannel("OtherChannel").responses.test()
+
+        val error = RuntimeException("closed")
+        incoming.onError(error)
+
+        channel.assertError(error)
+        other.assertError(error)
+    }
+
     @Test
     fun `errors are not filtered out`() {
         val underlingSocket = mock<StringWebSocket> {
@@ -154,5 +188,25 @@ class ChannelAwareWebSocketTest {
             .assertError { (it as ErrorFromServer).fullJson == "{\"channel\":\"ChannelName\",\"event\": \"error\"}" }
     }
 
+    @Test
+    fun `open channels share one subscription to the underlying socket`() {
+        val incoming = PublishSubject.create<String>()
+        var subscriptions = 0
+        val underlingSocket = mock<StringWebSocket> {
+            on { responses }.thenReturn(incoming.doOnSubscribe { subscriptions++ })
+        }
+        val channelAwareWebSocket = underlingSocket.channelAware()
+        val channel = channelAwareWebSocket.openChannel("ChannelName").responses.test()
+        val other = channelAwareWebSocket.openChannel("OtherChannel").responses.test()
+
+        incoming.onNext("{\"channel\":\"OtherChannel\",\"event\":\"error\"}")
+        incoming.onNext("{\"channel\":\"ChannelName\",\"message\":\"message1\"}")
+
+        subscriptions `should be equal to` 1
+        other.assertError(ErrorFromServer::class.java)
+        channel.assertNoErrors()
+            .values() `should be equal to` listOf("{\"channel\":\"ChannelName\",\"message\":\"message1\"}")
+    }
+
     class Params(@Suppress("unused") val param1: String) : JsonSerializable
 }
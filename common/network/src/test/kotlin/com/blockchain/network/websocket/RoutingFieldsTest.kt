@@ -0,0 +1,32 @@
+package com.blockchain.network.websocket
+
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class RoutingFieldsTest {
+
+    @Test
+    fun `routing fields are read from the top level only`() {
+        (
+            "{\"coin\":\"btc\",\"entity\":\"xpub\",\"transaction\":{\"channel\":\"nested\",\"inputs\":[]," +
+                "\"op\":\"nested\"},\"op\":\"on_change\",\"channel\":\"prices\",\"event\":\"updated\"}"
+            ).peekRoutingFields() `should be equal to` RoutingFields(
+            channel = "prices",
+            event = "updated",
+            coin = "btc",
+            op = "on_change"
+        )
+    }
+
+    @Test
+    fun `missing and non string fields are null`() {
+        "{\"channel\":null,\"event\":{\"x\":1},\"coin\":[\"eth\"],\"op\":7}".peekRoutingFields() `should be equal to`
+            RoutingFields(op = "7")
+    }
+
+    @Test
+    fun `messages that are not objects have no routing fields`() {
+        "null".peekRoutingFields() `should be equal to` RoutingFields.NONE
+        "[{\"channel\":\"ChannelName\"}]".peekRoutingFields() `should be equal to` RoutingFields.NONE
+    }
+}
@@ -0,0 +1,154 @@
+package com.blockchain.caching
+
+import io.reactivex.rxjava3.core.Single
+import java.util.concurrent.atomic.AtomicLong
+
+data class CacheStats(
+    val hits: Long,
+    val staleHits: Long,
+    val misses: Long,
+    val loads: Long,
+    val loadFailures: Long,
+    val totalLoadMillis: Long
+) {
+    val averageLoadMillis: Long
+        get() = if (loads > 0) totalLoadMillis / loads else 0
+}
+
+/**
+ * Caches the result of an async load per key.
+ *
+ * Concurrent requests for a key that is loading share the one load. Entries expire [ttlMillis] after
+ * they were loaded - checked when read, so no timers are involved - and once [maxSize] keys are held
+ * the least recently used is evicted. With [staleWhileRevalidate] set an expired entry is still served,
+ * while it is reloaded in the background.
+ */
+class KeyedCache<K : Any, V : Any>(
+    private val ttlMillis: Long,
+    private val maxSize: Int = DEFAULT_MAX_SIZE,
+    private val staleWhileRevalidate: Boolean = false,
+    private val now: () -> Long = System::currentTimeMillis,
+    private val load: (K) -> Single<V>
+) {
+    private class CachedValue<V>(
+        val value: V,
+        val loadedAt: Long
+    )
+
+    // Access ordered, so iteration starts at the least recently used key. Guarded by this.
+    private val entries = object : LinkedHashMap<K, CachedValue<V>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, CachedValue<V>>?): Boolean =
+            size > maxSize
+    }
+
+    // Invalidating drops these too, so that loads started before then are not stored
+    private val inFlight = HashMap<K, Single<V>>()
+
+    private val hits = AtomicLong()
+    private val staleHits = AtomicLong()
+    private val misses = AtomicLong()
+    private val loads = AtomicLong()
+    private val loadFailures = AtomicLong()
+    private val totalLoadMillis = AtomicLong()
+
+    init {
+        require(maxSize > 0)
+    }
+
+    fun get(key: K): Single<V> =
+        Single.defer { read(key) }
+
+    /**
+     * Stores [value] for [key] as if it had just been loaded, in place of its entry and of any load in flight.
+     */
+    @Synchronized
+    fun put(key: K, value: V) {
+        inFlight.remove(key)
+        entries[key] = CachedValue(value, now())
+    }
+
+    @Synchronized
+    fun invalidate(key: K) {
+        entries.remove(key)
+        inFlight.remove(key)
+    }
+
+    @Synchronized
+    fun invalidateAll() {
+        entries.clear()
+        inFlight.clear()
+    }
+
+    val stats: CacheStats
+        get() = CacheStats(
+            hits = hits.get(),
+            staleHits = staleHits.get(),
+            misses = misses.get(),
+            loads = loads.get(),
+            loadFailures = loadFailures.get(),
+            totalLoadMillis = totalLoadMillis.get()
+        )
+
+    @Synchronized
+    private fun read(key: K): Single<V> {
+        val entry = entries[key]
+        return when {
+            entry != null && now() - entry.loadedAt < ttlMillis -> {
+                hits.incrementAndGet()
+                Single.just(entry.value)
+            }
+            entry != null && staleWhileRevalidate -> {
+                staleHits.incrementAndGet()
+                loadFor(key).ignoreElement()
+                    .onErrorComplete()
+                    .subscribe()
+                Single.just(entry.value)
+            }
+            else -> {
+                misses.incrementAndGet()
+                loadFor(key)
+            }
+        }
+    }
+
+    // Must be called holding the lock
+    private fun loadFor(key: K): Single<V> {
+        inFlight[key]?.let { return it }
+
+        lateinit var request: Single<V>
+        request = Single.defer {
+            val startedAt = now()
+            load(key)
+                .doOnSuccess { value ->
+                    loads.incrementAndGet()
+                    totalLoadMillis.addAndGet(now() - startedAt)
+                    store(key, value, request)
+                }.doOnError {
+                    loadFailures.incrementAndGet()
+                }
+        }.doFinally {
+            completed(key, request)
+        }.cache()
+
+        inFlight[key] = request
+        return request
+    }
+
+    @Synchronized
+    private fun store(key: K, value: V, request: Single<V>) {
+        if (inFlight[key] === request) {
+            entries[key] = CachedValue(value, now())
+        }
+    }
+
+    @Synchronized
+    private fun completed(key: K, request: Single<V>) {
+        if (inFlight[key] === request) {
+            inFlight.remove(key)
+        }
+    }
+
+    companion object {
+        private const val DEFAULT_MAX_SIZE = 100
+    }
+}
@@ -0,0 +1,7 @@
+package com.blockchain.core
+
+/**
+ * Most keys bound to one query of the [Database], such as the values of an IN list. Longer lists are
+ * queried in chunks, which keeps each query well within the sqlite bound parameter limit.
+ */
+internal const val MAX_KEYS_PER_QUERY = 500
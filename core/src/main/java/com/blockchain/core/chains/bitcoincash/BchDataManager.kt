@@ -21,6 +21,7 @@ import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
 import io.reactivex.rxjava3.schedulers.Schedulers
 import java.math.BigInteger
 import org.bitcoinj.core.LegacyAddress
@@ -39,6 +40,9 @@ class BchDataManager(
     private val crashLogger: CrashLogger
 ) {
 
+    @Volatile
+    private var metadataChangesDisposable: Disposable? = null
+
     /**
      * Clears the currently stored BCH wallet from memory.
      */
@@ -68,6 +72,7 @@ class BchDataManager(
             .doOnSuccess { (metadata, _) ->
                 bchDataStore.bchMetadata = metadata
                 restoreBchWallet(metadata)
+                watchMetadataChanges(defaultLabel)
             }
             .flatMapCompletable { (_, needsSave) ->
                 val saveToMetadataCompletable = if (needsSave) {
@@ -87,6 +92,18 @@ class BchDataManager(
             }
             .subscribeOn(Schedulers.io())
 
+    // Loads the metadata again when the one served from the device turns out to have been changed elsewhere
+    private fun watchMetadataChanges(defaultLabel: String) {
+        metadataChangesDisposable?.dispose()
+        metadataChangesDisposable = metadataManager.metadataChanges
+            .filter { it == BitcoinCashWallet.METADATA_TYPE_EXTERNAL }
+            .flatMapMaybe { fetchMetadata(defaultLabel, payloadDataManager.accounts.size) }
+            .subscribe(
+                { Timber.d("BCH metadata reloaded") },
+                { Timber.e(it, "Failed to reload the BCH metadata") }
+            )
+    }
+
     @Deprecated("Use syncWithServer")
     fun serializeForSaving(): String = bchDataStore.bchMetadata!!.toJson()
 
@@ -2,14 +2,14 @@ package com.blockchain.core.chains.erc20.call
 
 import com.blockchain.api.services.Erc20TokenBalance
 import com.blockchain.api.services.NonCustodialErc20Service
-import com.blockchain.caching.TimedCacheRequest
+import com.blockchain.caching.KeyedCache
 import com.blockchain.core.chains.erc20.model.Erc20Balance
 import info.blockchain.balance.AssetCatalogue
 import info.blockchain.balance.AssetInfo
 import info.blockchain.balance.CryptoCurrency
 import info.blockchain.balance.CryptoValue
 import io.reactivex.rxjava3.core.Single
-import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.TimeUnit
 
 internal typealias Erc20BalanceMap = Map<AssetInfo, Erc20Balance>
 
@@ -17,17 +17,15 @@ internal class Erc20BalanceCallCache(
     private val erc20Service: NonCustodialErc20Service,
     private val assetCatalogue: AssetCatalogue
 ) {
-    private val cacheRequest: TimedCacheRequest<Erc20BalanceMap> by lazy {
-        TimedCacheRequest(
-            cacheLifetimeSeconds = BALANCE_CACHE_TTL_SECONDS,
-            refreshFn = ::refreshCache
-        )
-    }
-
-    private val account = AtomicReference<String>()
+    // Keyed on the account, so a change of account is never served the balances of the last one
+    private val cache = KeyedCache(
+        ttlMillis = TimeUnit.SECONDS.toMillis(BALANCE_CACHE_TTL_SECONDS),
+        maxSize = 1,
+        load = ::refreshCache
+    )
 
-    private fun refreshCache(): Single<Erc20BalanceMap> {
-        return erc20Service.getTokenBalances(account.get())
+    private fun refreshCache(accountHash: String): Single<Erc20BalanceMap> {
+        return erc20Service.getTokenBalances(accountHash)
             .map { balanceList ->
                 balanceList.mapNotNull { balance ->
                     assetCatalogue.fromNetworkTickerWithL2Id(
@@ -41,16 +39,11 @@ internal class Erc20BalanceCallCache(
             }
     }
 
-    fun getBalances(accountHash: String): Single<Erc20BalanceMap> {
-        val oldAccountHash = account.getAndSet(accountHash)
-        if (oldAccountHash != accountHash) {
-            cacheRequest.invalidate()
-        }
-        return cacheRequest.getCachedSingle()
-    }
+    fun getBalances(accountHash: String): Single<Erc20BalanceMap> =
+        cache.get(accountHash)
 
     fun flush(asset: AssetInfo) {
-        cacheRequest.invalidate()
+        cache.invalidateAll()
     }
 
     companion object {
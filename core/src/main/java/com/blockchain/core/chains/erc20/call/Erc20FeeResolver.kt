@@ -0,0 +1,146 @@
+package com.blockchain.core.chains.erc20.call
+
+import info.blockchain.balance.CryptoCurrency
+import info.blockchain.balance.CryptoValue
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Maybe
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.subjects.PublishSubject
+import io.reactivex.rxjava3.subjects.SingleSubject
+import java.math.BigInteger
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import piuk.blockchain.androidcore.data.ethereum.EthDataManager
+import timber.log.Timber
+
+/**
+ * Resolves the ETH fee paid by erc20 transfers.
+ *
+ * Requests arriving within a short window of the first one are resolved as one batch: the stored fees
+ * of the whole batch are read with a single query, and only the hashes still missing are fetched, a few
+ * at a time. Fees of confirmed transactions are then stored, so each is only ever fetched once. No timer
+ * runs while there is nothing waiting; call [dispose] when the resolver is no longer used.
+ */
+internal class Erc20FeeResolver(
+    private val ethDataManager: EthDataManager,
+    private val feeStore: Erc20FeeStore,
+    private val batchWindowMillis: Long = FEE_BATCH_WINDOW_MS,
+    private val scheduler: Scheduler = Schedulers.computation()
+) {
+    private class FetchedFee(
+        val hash: String,
+        val fee: BigInteger,
+        val isConfirmed: Boolean
+    )
+
+    private val resolved = ConcurrentHashMap<String, CryptoValue>()
+    private val pending = ConcurrentHashMap<String, SingleSubject<CryptoValue>>()
+
+    // Gathered, and waiting for the batch to be sent. Guarded by this.
+    private val waiting = LinkedHashSet<String>()
+    private var batchTimer: Disposable? = null
+
+    private val batches = PublishSubject.create<List<String>>().toSerialized()
+    private val resolving: Disposable = batches
+        .concatMapCompletable { resolve(it) }
+        .subscribe()
+
+    fun feeFor(txHash: String): Single<CryptoValue> =
+        Single.defer {
+            resolved[txHash]?.let { return@defer Single.just(it) }
+
+            var isNew = false
+            val request = pending.computeIfAbsent(txHash) {
+                isNew = true
+                SingleSubject.create()
+            }
+            if (isNew) enqueue(txHash)
+            request
+        }
+
+    fun dispose() {
+        synchronized(this) { batchTimer?.dispose() }
+        resolving.dispose()
+    }
+
+    private fun enqueue(txHash: String) {
+        val full = synchronized(this) {
+            if (waiting.isEmpty()) {
+                batchTimer = Completable.timer(batchWindowMillis, TimeUnit.MILLISECONDS, scheduler)
+                    .subscribe { sendWaiting() }
+            }
+            waiting.add(txHash)
+            waiting.size >= MAX_BATCH_SIZE
+        }
+        if (full) {
+            sendWaiting()
+        }
+    }
+
+    private fun sendWaiting() {
+        val batch = synchronized(this) {
+            batchTimer?.dispose()
+            waiting.toList().also { waiting.clear() }
+        }
+        if (batch.isNotEmpty()) {
+            batches.onNext(batch)
+        }
+    }
+
+    private fun resolve(hashes: List<String>): Completable =
+        Single.fromCallable { feeStore.read(hashes) }
+            .subscribeOn(Schedulers.io())
+            .flatMapCompletable { stored ->
+                stored.forEach { (hash, fee) -> complete(hash, fee, remember = true) }
+                Observable.fromIterable(hashes.filterNot { it in stored })
+                    .flatMap({ fetch(it).toObservable() }, MAX_CONCURRENT_FETCHES)
+                    .toList()
+                    .observeOn(Schedulers.io())
+                    .doOnSuccess { fetched ->
+                        feeStore.write(fetched.filter { it.isConfirmed }.associate { it.hash to it.fee })
+                    }.ignoreElement()
+            }.onErrorComplete { e ->
+                Timber.e(e, "Failed to resolve erc20 fees")
+                hashes.forEach { fail(it, e) }
+                true
+            }
+
+    private fun fetch(txHash: String): Maybe<FetchedFee> =
+        ethDataManager.getTransaction(txHash)
+            .firstOrError()
+            .map { tx ->
+                FetchedFee(
+                    hash = txHash,
+                    fee = tx.gasUsed * tx.gasPrice,
+                    isConfirmed = tx.state == CONFIRMED_STATE
+                )
+            }.doOnSuccess {
+                complete(it.hash, it.fee, remember = it.isConfirmed)
+            }.doOnError {
+                fail(txHash, it)
+            }.toMaybe()
+            .onErrorComplete()
+
+    private fun complete(txHash: String, fee: BigInteger, remember: Boolean) {
+        val value = CryptoValue.fromMinor(CryptoCurrency.ETHER, fee)
+        if (remember) {
+            resolved[txHash] = value
+        }
+        pending.remove(txHash)?.onSuccess(value)
+    }
+
+    private fun fail(txHash: String, e: Throwable) {
+        pending.remove(txHash)?.onError(e)
+    }
+
+    companion object {
+        private const val FEE_BATCH_WINDOW_MS = 100L
+        private const val MAX_BATCH_SIZE = 50
+        private const val MAX_CONCURRENT_FETCHES = 4
+        private const val CONFIRMED_STATE = "CONFIRMED"
+    }
+}
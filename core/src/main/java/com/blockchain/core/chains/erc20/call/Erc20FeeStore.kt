@@ -0,0 +1,37 @@
+package com.blockchain.core.chains.erc20.call
+
+import com.blockchain.core.Database
+import com.blockchain.core.MAX_KEYS_PER_QUERY
+import java.math.BigInteger
+import timber.log.Timber
+
+/**
+ * Keeps the fee, in wei, paid by each confirmed erc20 transfer. These never change once confirmed, so
+ * they need only be fetched once.
+ */
+internal class Erc20FeeStore(
+    private val database: Database
+) {
+    fun read(hashes: Collection<String>): Map<String, BigInteger> =
+        try {
+            hashes.chunked(MAX_KEYS_PER_QUERY)
+                .flatMap { database.erc20FeeQueries.selectFees(it).executeAsList() }
+                .associate { it.hash to BigInteger(it.fee) }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to read stored erc20 fees")
+            emptyMap()
+        }
+
+    fun write(fees: Map<String, BigInteger>) {
+        if (fees.isEmpty()) return
+        try {
+            database.erc20FeeQueries.transaction {
+                fees.forEach { (hash, fee) ->
+                    database.erc20FeeQueries.insertFee(hash, fee.toString())
+                }
+            }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to store erc20 fees")
+        }
+    }
+}
@@ -5,17 +5,16 @@ import com.blockchain.api.services.NonCustodialErc20Service
 import com.blockchain.core.chains.erc20.model.Erc20HistoryEvent
 import com.blockchain.core.chains.erc20.model.Erc20HistoryList
 import info.blockchain.balance.AssetInfo
-import info.blockchain.balance.CryptoCurrency
 import info.blockchain.balance.CryptoValue
 import io.reactivex.rxjava3.core.Single
-import piuk.blockchain.androidcore.data.ethereum.EthDataManager
 
-// This doesn't cache anything at this time, since it makes a call for a single
-// asset. We can review this, when we look at activity caching in detail
+// The transfer list itself is not cached, since it is a call for a single asset. The fee of each
+// transfer is resolved, and kept, by the fee resolver - so paging through a long history does not
+// cost a call per transfer.
 
 internal class Erc20HistoryCallCache(
-    private val ethDataManager: EthDataManager,
-    private val erc20Service: NonCustodialErc20Service
+    private val erc20Service: NonCustodialErc20Service,
+    private val feeResolver: Erc20FeeResolver
 ) {
     fun fetch(accountHash: String, asset: AssetInfo): Single<Erc20HistoryList> {
         val contractAddress = asset.l2identifier
@@ -26,19 +25,12 @@ internal class Erc20HistoryCallCache(
                 list.map { tx ->
                     tx.toHistoryEvent(
                         asset,
-                        getFeeFetcher(tx.transactionHash)
+                        feeResolver.feeFor(tx.transactionHash)
                     )
                 }
             }
     }
 
-    private fun getFeeFetcher(txHash: String): Single<CryptoValue> =
-        ethDataManager.getTransaction(txHash)
-            .map { transaction ->
-                val fee = transaction.gasUsed * transaction.gasPrice
-                CryptoValue.fromMinor(CryptoCurrency.ETHER, fee)
-            }.firstOrError()
-
     fun flush(asset: AssetInfo) {
         // Do nothing
     }
@@ -0,0 +1,50 @@
+package com.blockchain.core.chains.xlm
+
+import com.blockchain.core.Database
+import com.blockchain.core.MAX_KEYS_PER_QUERY
+import com.blockchain.sunriver.Memo
+import com.blockchain.sunriver.XlmTransactionDetails
+import com.blockchain.sunriver.XlmTransactionDetailsStore
+import timber.log.Timber
+
+/**
+ * Keeps the memo and fee of each xlm transaction seen, so the activity list need not fetch them from
+ * horizon again after a restart.
+ */
+internal class XlmTransactionDetailsDbStore(
+    private val database: Database
+) : XlmTransactionDetailsStore {
+
+    override fun read(hashes: Collection<String>): Map<String, XlmTransactionDetails> =
+        try {
+            hashes.chunked(MAX_KEYS_PER_QUERY)
+                .flatMap { database.xlmTransactionDetailsQueries.selectDetails(it).executeAsList() }
+                .associate {
+                    it.hash to XlmTransactionDetails(
+                        memo = Memo(it.memoValue, it.memoType),
+                        feeCharged = it.feeCharged
+                    )
+                }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to read stored xlm transaction details")
+            emptyMap()
+        }
+
+    override fun write(details: Map<String, XlmTransactionDetails>) {
+        if (details.isEmpty()) return
+        try {
+            database.xlmTransactionDetailsQueries.transaction {
+                details.forEach { (hash, detail) ->
+                    database.xlmTransactionDetailsQueries.insertDetails(
+                        hash,
+                        detail.memo.value,
+                        detail.memo.type,
+                        detail.feeCharged
+                    )
+                }
+            }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to store xlm transaction details")
+        }
+    }
+}
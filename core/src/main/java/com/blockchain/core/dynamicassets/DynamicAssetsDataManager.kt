@@ -1,6 +1,7 @@
 package com.blockchain.core.dynamicassets
 
 import info.blockchain.balance.AssetInfo
+import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Single
 
 data class FiatInfo(
@@ -13,6 +14,8 @@ typealias CryptoAssetList = List<AssetInfo>
 typealias FiatAssetList = List<FiatInfo>
 
 interface DynamicAssetsDataManager {
+    // The catalogue saved by the last successful availableCryptoAssets() call, if there is one
+    fun cachedCryptoAssets(): Maybe<CryptoAssetList>
     fun availableCryptoAssets(): Single<CryptoAssetList>
     fun availableFiatAssets(): Single<FiatAssetList>
 }
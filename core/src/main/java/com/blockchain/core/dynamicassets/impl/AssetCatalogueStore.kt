@@ -0,0 +1,97 @@
+package com.blockchain.core.dynamicassets.impl
+
+import com.blockchain.core.Database
+import com.blockchain.core.dynamicassets.CryptoAssetList
+import dynamicassets.CatalogueAsset
+import info.blockchain.balance.AssetCategory
+import info.blockchain.balance.AssetInfo
+import info.blockchain.balance.CryptoCurrency
+import timber.log.Timber
+
+// Bump this whenever the mapping from DynamicAsset to AssetInfo changes, so that catalogues mapped by
+// an older build are discarded rather than served
+private const val CATALOGUE_SCHEMA = 1L
+
+internal class StoredCatalogue(
+    val version: String,
+    val assets: CryptoAssetList
+)
+
+/**
+ * Keeps the last mapped crypto asset catalogue in the cache database, along with the version of the
+ * discovery responses it was mapped from, so that it can be served at startup before the network is
+ * reached.
+ */
+internal class AssetCatalogueStore(
+    private val database: Database
+) {
+    fun read(): StoredCatalogue? =
+        try {
+            database.assetCatalogueQueries.transactionWithResult<StoredCatalogue?> {
+                database.assetCatalogueQueries.selectVersion().executeAsOneOrNull()
+                    ?.takeIf { it.schemaVersion == CATALOGUE_SCHEMA }
+                    ?.let { stored ->
+                        StoredCatalogue(
+                            version = stored.version,
+                            assets = database.assetCatalogueQueries.selectAssets()
+                                .executeAsList()
+                                .map { it.toAssetInfo() }
+                        )
+                    }
+            }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to read the stored asset catalogue")
+            null
+        }
+
+    fun write(catalogue: StoredCatalogue) {
+        try {
+            database.assetCatalogueQueries.transaction {
+                database.assetCatalogueQueries.clear()
+                catalogue.assets.forEachIndexed { position, asset ->
+                    database.assetCatalogueQueries.insertAsset(
+                        networkTicker = asset.networkTicker,
+                        displayTicker = asset.displayTicker,
+                        name = asset.name,
+                        categories = asset.categories.joinToString(CATEGORY_SEPARATOR) { it.name },
+                        precisionDp = asset.precisionDp.toLong(),
+                        startDate = asset.startDate,
+                        requiredConfirmations = asset.requiredConfirmations.toLong(),
+                        l1chainTicker = asset.l1chainTicker,
+                        l2identifier = asset.l2identifier,
+                        colour = asset.colour,
+                        logo = asset.logo,
+                        txExplorerUrlBase = asset.txExplorerUrlBase,
+                        position = position.toLong()
+                    )
+                }
+                database.assetCatalogueQueries.setVersion(CATALOGUE_SCHEMA, catalogue.version)
+            }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to store the asset catalogue")
+        }
+    }
+
+    private fun CatalogueAsset.toAssetInfo(): AssetInfo =
+        CryptoCurrency(
+            displayTicker = displayTicker,
+            networkTicker = networkTicker,
+            name = name,
+            categories = categories.split(CATEGORY_SEPARATOR)
+                .filter { it.isNotEmpty() }
+                .map { AssetCategory.valueOf(it) }
+                .toSet(),
+            precisionDp = precisionDp.toInt(),
+            startDate = startDate,
+            requiredConfirmations = requiredConfirmations.toInt(),
+            l1chainTicker = l1chainTicker,
+            l2identifier = l2identifier,
+            colour = colour,
+            logo = logo,
+            txExplorerUrlBase = txExplorerUrlBase
+        )
+
+    companion object {
+        private const val CATEGORY_SEPARATOR = ","
+    }
+}
@@ -10,29 +10,58 @@ import com.blockchain.core.dynamicassets.FiatInfo
 import info.blockchain.balance.AssetCategory
 import info.blockchain.balance.AssetInfo
 import info.blockchain.balance.CryptoCurrency
+import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.Schedulers
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicReference
 
 internal class DynamicAssetsDataManagerImpl(
-    private val discoveryService: AssetDiscoveryService
+    private val discoveryService: AssetDiscoveryService,
+    private val catalogueStore: AssetCatalogueStore
 ) : DynamicAssetsDataManager {
 
+    private val storedCatalogue: AtomicReference<StoredCatalogue?> = AtomicReference(null)
+
+    override fun cachedCryptoAssets(): Maybe<CryptoAssetList> =
+        Maybe.fromCallable<CryptoAssetList> { loadStoredCatalogue()?.assets }
+            .subscribeOn(Schedulers.io())
+
     override fun availableCryptoAssets(): Single<CryptoAssetList> =
         Single.zip(
             discoveryService.getErc20Assets(),
             discoveryService.getCustodialAssets()
         ) { erc20, custodial ->
-            val cryptoAssets = erc20 + custodial
-            cryptoAssets.filterNot { it.isFiat }
-                .toSet() // Remove dups
-                .filter { it.hasSupport() }
-                .map { it.toAssetInfo() }
+            val cryptoAssets = (erc20 + custodial).filterNot { it.isFiat }
+            val version = cryptoAssets.version()
+
+            // Only re-map the responses when they differ from those the stored catalogue came from
+            loadStoredCatalogue()?.takeIf { it.version == version }?.assets
+                ?: cryptoAssets.toSet() // Remove dups
+                    .filter { it.hasSupport() }
+                    .map { it.toAssetInfo() }
+                    .also { assets ->
+                        StoredCatalogue(version, assets).let {
+                            storedCatalogue.set(it)
+                            catalogueStore.write(it)
+                        }
+                    }
         }
 
+    private fun loadStoredCatalogue(): StoredCatalogue? =
+        storedCatalogue.get() ?: catalogueStore.read()?.also { storedCatalogue.compareAndSet(null, it) }
+
     override fun availableFiatAssets(): Single<FiatAssetList> =
         discoveryService.getFiatAssets()
             .map { list -> list.map { it.toFiatInfo() } }
 }
 
+// A digest of the discovery responses, independent of the order the assets were listed in
+private fun List<DynamicAsset>.version(): String =
+    MessageDigest.getInstance("SHA-256")
+        .digest(map { it.toString() }.sorted().joinToString("\n").toByteArray())
+        .joinToString("") { "%02x".format(it) }
+
 private fun DynamicAsset.hasSupport() =
     this.products.intersect(requiredProducts).isNotEmpty()
 
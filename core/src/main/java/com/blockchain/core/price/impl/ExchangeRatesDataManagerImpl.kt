@@ -14,7 +14,7 @@ import java.util.Calendar
 
 internal class ExchangeRatesDataManagerImpl(
     private val priceStore: AssetPriceStore,
-    private val sparklineCall: SparklineCallCache,
+    private val sparklineStore: SparklineStore,
     private val assetPriceService: AssetPriceService,
     private val currencyPrefs: CurrencyPrefs
 ) : ExchangeRatesDataManager {
@@ -202,7 +202,7 @@ internal class ExchangeRatesDataManagerImpl(
     override fun get24hPriceSeries(
         asset: AssetInfo
     ): Single<HistoricalRateList> =
-        sparklineCall.fetch(asset, userFiat)
+        sparklineStore.fetch(asset, userFiat)
 
     override val fiatAvailableForRates: List<String>
         get() = priceStore.fiatQuoteTickers
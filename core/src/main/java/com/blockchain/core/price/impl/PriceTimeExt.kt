@@ -48,11 +48,12 @@ internal fun HistoricalTimeSpan.suggestTimescaleInterval(): PriceTimescale =
     }
 
 internal fun Single<List<AssetPrice>>.toHistoricalRateList() =
-    this.map { list ->
-        list.map {
-            HistoricalRate(
-                it.timestamp,
-                it.price
-            )
-        }
+    this.map { it.toHistoricalRateList() }
+
+internal fun List<AssetPrice>.toHistoricalRateList() =
+    map {
+        HistoricalRate(
+            it.timestamp,
+            it.price
+        )
     }
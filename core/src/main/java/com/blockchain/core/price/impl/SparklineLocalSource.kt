@@ -0,0 +1,67 @@
+package com.blockchain.core.price.impl
+
+import com.blockchain.core.Database
+import com.blockchain.core.MAX_KEYS_PER_QUERY
+import com.blockchain.core.price.HistoricalRate
+import com.blockchain.core.price.HistoricalRateList
+import com.blockchain.core.price.HistoricalTimeSpan
+import timber.log.Timber
+
+internal data class StoredSparkline(
+    val rates: HistoricalRateList,
+    val fetchedAt: Long
+)
+
+/**
+ * Keeps the sparklines last fetched on the device, so that they can be drawn before they are
+ * fetched again.
+ */
+internal class SparklineLocalSource(
+    private val database: Database
+) {
+    fun read(
+        bases: Collection<String>,
+        quote: String,
+        span: HistoricalTimeSpan
+    ): Map<String, StoredSparkline> =
+        try {
+            bases.chunked(MAX_KEYS_PER_QUERY)
+                .flatMap { database.sparklineQueries.selectSeries(quote, span.name, it).executeAsList() }
+                .groupBy { it.base }
+                .mapValues { (_, rows) ->
+                    StoredSparkline(
+                        rates = rows.mapNotNull { row ->
+                            row.timestamp?.let { timestamp ->
+                                row.rate?.let { rate -> HistoricalRate(timestamp, rate) }
+                            }
+                        },
+                        fetchedAt = rows.first().fetchedAt
+                    )
+                }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to read stored sparklines")
+            emptyMap()
+        }
+
+    fun write(
+        quote: String,
+        span: HistoricalTimeSpan,
+        series: Map<String, HistoricalRateList>,
+        fetchedAt: Long
+    ) {
+        if (series.isEmpty()) return
+        try {
+            database.sparklineQueries.transaction {
+                series.forEach { (base, rates) ->
+                    database.sparklineQueries.insertSeries(base, quote, span.name, fetchedAt)
+                    database.sparklineQueries.deletePoints(base, quote, span.name)
+                    rates.forEach {
+                        database.sparklineQueries.insertPoint(base, quote, span.name, it.timestamp, it.rate)
+                    }
+                }
+            }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to store sparklines")
+        }
+    }
+}
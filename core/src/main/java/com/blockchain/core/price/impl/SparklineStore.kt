@@ -0,0 +1,162 @@
+package com.blockchain.core.price.impl
+
+import com.blockchain.api.services.AssetPriceService
+import com.blockchain.caching.KeyedCache
+import com.blockchain.core.price.HistoricalRateList
+import com.blockchain.core.price.HistoricalTimeSpan
+import info.blockchain.balance.AssetInfo
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.subjects.SingleSubject
+import java.util.Calendar
+import java.util.concurrent.TimeUnit
+import timber.log.Timber
+
+private class SparklineNotAvailable(base: String, quote: String) :
+    Throwable("No sparkline available for $base to $quote")
+
+/**
+ * The sparklines of each asset, kept per base, quote and span - in memory, and on the device so that
+ * they can be drawn straight away after a restart.
+ *
+ * The sparklines in memory are held in a [KeyedCache], which still serves those older than [ttlMillis]
+ * while it loads them again. Its loads are gathered for [batchDelayMillis], and whatever the device does
+ * not hold is then fetched for all of them at once.
+ */
+internal class SparklineStore(
+    private val priceService: AssetPriceService,
+    private val localSource: SparklineLocalSource,
+    private val ttlMillis: Long = TimeUnit.MINUTES.toMillis(SPARKLINE_TTL_MINUTES),
+    maxSize: Int = SPARKLINE_MAX_SIZE,
+    private val batchDelayMillis: Long = BATCH_DELAY_MILLIS,
+    private val scheduler: Scheduler = Schedulers.io(),
+    private val now: () -> Long = System::currentTimeMillis
+) {
+    private data class SparklineKey(
+        val asset: AssetInfo,
+        val quote: String,
+        val span: HistoricalTimeSpan
+    ) {
+        val base: String
+            get() = asset.networkTicker
+    }
+
+    private val cache = KeyedCache(
+        ttlMillis = ttlMillis,
+        maxSize = maxSize,
+        staleWhileRevalidate = true,
+        now = now,
+        load = ::enqueue
+    )
+
+    // Gathered, and waiting for the batch to be sent. Guarded by this.
+    private val waiting = LinkedHashMap<SparklineKey, SingleSubject<HistoricalRateList>>()
+
+    fun fetch(
+        asset: AssetInfo,
+        quote: String,
+        span: HistoricalTimeSpan = HistoricalTimeSpan.DAY
+    ): Single<HistoricalRateList> =
+        Single.defer {
+            require(asset.startDate != null)
+            cache.get(SparklineKey(asset, quote, span))
+        }
+
+    @Synchronized
+    private fun enqueue(key: SparklineKey): Single<HistoricalRateList> {
+        if (waiting.isEmpty()) {
+            Completable.timer(batchDelayMillis, TimeUnit.MILLISECONDS, scheduler)
+                .andThen(Completable.defer { load(takeWaiting()) })
+                .onErrorComplete()
+                .subscribe()
+        }
+        return waiting.getOrPut(key) { SingleSubject.create() }
+    }
+
+    @Synchronized
+    private fun takeWaiting(): Map<SparklineKey, SingleSubject<HistoricalRateList>> =
+        waiting.toMap().also { waiting.clear() }
+
+    private fun load(batch: Map<SparklineKey, SingleSubject<HistoricalRateList>>): Completable =
+        Completable.defer {
+            val fetchedAt = now()
+            Completable.merge(
+                serveStored(batch)
+                    .groupBy { key -> Triple(key.quote, key.span, startTime(key.asset, key.span, fetchedAt)) }
+                    .map { (group, keys) ->
+                        val (quote, span, start) = group
+                        fetchSeries(quote, span, start, keys.associateWith { batch.getValue(it) }, fetchedAt)
+                    }
+            )
+        }.doOnError {
+            Timber.e(it, "Failed to load sparklines")
+            answer(batch, emptyMap())
+        }
+
+    // Answers what is stored on the device, and returns what is left to fetch
+    private fun serveStored(batch: Map<SparklineKey, SingleSubject<HistoricalRateList>>): List<SparklineKey> {
+        val stored = batch.keys.groupBy { it.quote to it.span }
+            .flatMap { (group, keys) ->
+                val (quote, span) = group
+                val found = localSource.read(keys.map { it.base }, quote, span)
+                keys.mapNotNull { key -> found[key.base]?.let { key to it } }
+            }.toMap()
+
+        stored.forEach { (key, sparkline) -> batch.getValue(key).onSuccess(sparkline.rates) }
+        return batch.keys.filter { stored[it]?.isFresh() != true }
+    }
+
+    private fun fetchSeries(
+        quote: String,
+        span: HistoricalTimeSpan,
+        start: Long,
+        requests: Map<SparklineKey, SingleSubject<HistoricalRateList>>,
+        fetchedAt: Long
+    ): Completable =
+        priceService.getHistoricPriceSeriesSince(
+            baseTickers = requests.keys.map { it.base }.toSet(),
+            quote = quote,
+            start = start,
+            scale = span.suggestTimescaleInterval()
+        ).map { prices ->
+            prices.mapValues { (_, list) -> list.toHistoricalRateList() }
+        }.doOnSuccess { fetched ->
+            localSource.write(quote, span, fetched, fetchedAt)
+            answer(requests, fetched)
+        }.doOnError {
+            Timber.e(it, "Failed to fetch sparklines")
+            answer(requests, emptyMap())
+        }.ignoreElement()
+            .onErrorComplete()
+
+    private fun answer(
+        requests: Map<SparklineKey, SingleSubject<HistoricalRateList>>,
+        fetched: Map<String, HistoricalRateList>
+    ) {
+        requests.forEach { (key, result) ->
+            val rates = fetched[key.base]
+            when {
+                // Answered with an old sparkline from the device, so it is replaced in memory by the one fetched
+                result.hasValue() -> if (rates != null) cache.put(key, rates)
+                rates != null -> result.onSuccess(rates)
+                else -> result.onError(SparklineNotAvailable(key.base, key.quote))
+            }
+        }
+    }
+
+    private fun startTime(asset: AssetInfo, span: HistoricalTimeSpan, at: Long): Long =
+        Calendar.getInstance()
+            .apply { timeInMillis = at }
+            .getStartTimeForTimeSpan(span, asset)
+
+    private fun StoredSparkline.isFresh() =
+        now() - fetchedAt < ttlMillis
+
+    companion object {
+        private const val SPARKLINE_TTL_MINUTES = 5L
+        private const val SPARKLINE_MAX_SIZE = 250
+        private const val BATCH_DELAY_MILLIS = 200L
+    }
+}
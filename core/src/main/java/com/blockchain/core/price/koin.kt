@@ -5,22 +5,24 @@ import com.blockchain.core.price.historic.HistoricRateLocalSource
 import com.blockchain.core.price.historic.HistoricRateRemoteSource
 import com.blockchain.core.price.impl.AssetPriceStore
 import com.blockchain.core.price.impl.ExchangeRatesDataManagerImpl
-import com.blockchain.core.price.impl.SparklineCallCache
+import com.blockchain.core.price.impl.SparklineLocalSource
+import com.blockchain.core.price.impl.SparklineStore
 import org.koin.dsl.bind
 import org.koin.dsl.module
 
 val pricesModule = module {
 
-    factory {
-        SparklineCallCache(
-            priceService = get()
+    single {
+        SparklineStore(
+            priceService = get(),
+            localSource = SparklineLocalSource(database = get())
         )
     }
 
     single {
         ExchangeRatesDataManagerImpl(
             priceStore = get(),
-            sparklineCall = get(),
+            sparklineStore = get(),
             assetPriceService = get(),
             currencyPrefs = get()
         )
@@ -11,13 +11,17 @@ import com.blockchain.core.chains.bitcoincash.BchDataStore
 import com.blockchain.core.chains.erc20.Erc20DataManager
 import com.blockchain.core.chains.erc20.Erc20DataManagerImpl
 import com.blockchain.core.chains.erc20.call.Erc20BalanceCallCache
+import com.blockchain.core.chains.erc20.call.Erc20FeeResolver
+import com.blockchain.core.chains.erc20.call.Erc20FeeStore
 import com.blockchain.core.chains.erc20.call.Erc20HistoryCallCache
+import com.blockchain.core.chains.xlm.XlmTransactionDetailsDbStore
 import com.blockchain.core.custodial.BrokerageDataManager
 import com.blockchain.core.custodial.BrokerageQuoteFeatureFlag
 import com.blockchain.core.custodial.TradingBalanceCallCache
 import com.blockchain.core.custodial.TradingBalanceDataManager
 import com.blockchain.core.custodial.TradingBalanceDataManagerImpl
 import com.blockchain.core.dynamicassets.DynamicAssetsDataManager
+import com.blockchain.core.dynamicassets.impl.AssetCatalogueStore
 import com.blockchain.core.dynamicassets.impl.DynamicAssetsDataManagerImpl
 import com.blockchain.core.interest.InterestBalanceCallCache
 import com.blockchain.core.interest.InterestBalanceDataManager
@@ -50,6 +54,7 @@ import com.blockchain.preferences.SimpleBuyPrefs
 import com.blockchain.preferences.ThePitLinkingPrefs
 import com.blockchain.preferences.WalletStatus
 import com.blockchain.sunriver.XlmHorizonUrlFetcher
+import com.blockchain.sunriver.XlmTransactionDetailsStore
 import com.blockchain.sunriver.XlmTransactionTimeoutFetcher
 import com.blockchain.wallet.SeedAccess
 import com.blockchain.wallet.SeedAccessWithoutPrompt
@@ -58,6 +63,7 @@ import info.blockchain.wallet.util.PrivateKeyFactory
 import java.util.UUID
 import org.koin.dsl.bind
 import org.koin.dsl.module
+import org.koin.dsl.onClose
 import piuk.blockchain.androidcore.data.access.PinRepository
 import piuk.blockchain.androidcore.data.access.PinRepositoryImpl
 import piuk.blockchain.androidcore.data.auth.AuthDataManager
@@ -66,6 +72,7 @@ import piuk.blockchain.androidcore.data.ethereum.EthDataManager
 import piuk.blockchain.androidcore.data.ethereum.datastores.EthDataStore
 import piuk.blockchain.androidcore.data.fees.FeeDataManager
 import piuk.blockchain.androidcore.data.metadata.MetadataManager
+import piuk.blockchain.androidcore.data.metadata.MetadataSnapshotStore
 import piuk.blockchain.androidcore.data.metadata.MoshiMetadataRepositoryAdapter
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
 import piuk.blockchain.androidcore.data.payload.PayloadDataManagerSeedAccessAdapter
@@ -73,6 +80,7 @@ import piuk.blockchain.androidcore.data.payload.PayloadService
 import piuk.blockchain.androidcore.data.payload.PromptingSeedAccessAdapter
 import piuk.blockchain.androidcore.data.payments.PaymentService
 import piuk.blockchain.androidcore.data.payments.SendDataManager
+import piuk.blockchain.androidcore.data.payments.SentTransactions
 import piuk.blockchain.androidcore.data.rxjava.RxBus
 import piuk.blockchain.androidcore.data.rxjava.SSLPinningEmitter
 import piuk.blockchain.androidcore.data.rxjava.SSLPinningObservable
@@ -185,11 +193,20 @@ val coreModule = module {
 
         factory {
             Erc20HistoryCallCache(
-                ethDataManager = get(),
-                erc20Service = get()
+                erc20Service = get(),
+                feeResolver = get()
             )
         }
 
+        scoped {
+            Erc20FeeResolver(
+                ethDataManager = get(),
+                feeStore = Erc20FeeStore(
+                    database = get()
+                )
+            )
+        }.onClose { it?.dispose() }
+
         scoped {
             Erc20DataManagerImpl(
                 ethDataManager = get(),
@@ -198,6 +215,12 @@ val coreModule = module {
             )
         }.bind(Erc20DataManager::class)
 
+        factory {
+            XlmTransactionDetailsDbStore(
+                database = get()
+            )
+        }.bind(XlmTransactionDetailsStore::class)
+
         factory { BchDataStore() }
 
         scoped {
@@ -243,7 +266,10 @@ val coreModule = module {
                 payloadDataManager = get(),
                 metadataInteractor = get(),
                 metadataDerivation = MetadataDerivation(),
-                crashLogger = get()
+                crashLogger = get(),
+                snapshotStore = MetadataSnapshotStore(
+                    database = get()
+                )
             )
         }
 
@@ -295,10 +321,13 @@ val coreModule = module {
 
         factory { LastTxUpdateDateOnSettingsService(get()) }.bind(LastTxUpdater::class)
 
+        scoped { SentTransactions() }
+
         factory {
             SendDataManager(
                 paymentService = get(),
-                lastTxUpdater = get()
+                lastTxUpdater = get(),
+                sentTransactions = get()
             )
         }
 
@@ -324,7 +353,10 @@ val coreModule = module {
 
     single {
         DynamicAssetsDataManagerImpl(
-            discoveryService = get()
+            discoveryService = get(),
+            catalogueStore = AssetCatalogueStore(
+                database = get()
+            )
         )
     }.bind(DynamicAssetsDataManager::class)
 
@@ -15,6 +15,7 @@ import info.blockchain.wallet.exceptions.InvalidCredentialsException
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
 import io.reactivex.rxjava3.schedulers.Schedulers
 import java.math.BigInteger
 import java.util.HashMap
@@ -35,6 +36,9 @@ class EthDataManager(
     private val lastTxUpdater: LastTxUpdater
 ) {
 
+    @Volatile
+    private var metadataChangesDisposable: Disposable? = null
+
     private val internalAccountAddress: String?
         get() = ethDataStore.ethWallet?.account?.address
 
@@ -190,6 +194,7 @@ class EthDataManager(
         fetchOrCreateEthereumWallet(assetCatalogue, label)
             .flatMapCompletable { (wallet, needsSave) ->
                 ethDataStore.ethWallet = wallet
+                watchMetadataChanges()
                 if (needsSave) {
                     save()
                 } else {
@@ -287,6 +292,22 @@ class EthDataManager(
             EthereumWallet.METADATA_TYPE_EXTERNAL
         )
 
+    // Loads the wallet again when the one served from the device turns out to have been changed elsewhere
+    private fun watchMetadataChanges() {
+        metadataChangesDisposable?.dispose()
+        metadataChangesDisposable = metadataManager.metadataChanges
+            .filter { it == EthereumWallet.METADATA_TYPE_EXTERNAL }
+            .flatMapMaybe { metadataManager.fetchMetadata(it) }
+            .subscribe(
+                { json ->
+                    EthereumWallet.load(json)
+                        ?.takeIf { it.account?.isCorrect == true }
+                        ?.let { ethDataStore.ethWallet = it }
+                },
+                { Timber.e(it, "Failed to reload the ETH wallet") }
+            )
+    }
+
     fun getErc20TokenData(asset: AssetInfo): Erc20TokenData? {
         require(asset.isErc20())
         require(asset.l2identifier != null)
@@ -1,6 +1,8 @@
 package piuk.blockchain.androidcore.data.metadata
 
 import com.blockchain.logging.CrashLogger
+import info.blockchain.wallet.BitcoinCashWallet
+import info.blockchain.wallet.ethereum.EthereumWallet
 import info.blockchain.wallet.exceptions.InvalidCredentialsException
 import info.blockchain.wallet.metadata.Metadata
 import info.blockchain.wallet.metadata.MetadataDerivation
@@ -9,8 +11,12 @@ import info.blockchain.wallet.metadata.MetadataNodeFactory
 import info.blockchain.wallet.metadata.data.RemoteMetadataNodes
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Maybe
+import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.subjects.PublishSubject
+import java.util.concurrent.ConcurrentHashMap
+import org.bitcoinj.crypto.DeterministicKey
 import org.spongycastle.crypto.InvalidCipherTextException
 import piuk.blockchain.androidcore.data.payload.PayloadDataManager
 import piuk.blockchain.androidcore.utils.extensions.then
@@ -28,13 +34,42 @@ import piuk.blockchain.androidcore.utils.extensions.then
  * derived from 'guid + sharedkey + wallet password'. This will allow us to retrieve these derived
  * keys with just a user's credentials and not derive them again.
  *
+ * The first fetch in a session of a type in [SNAPSHOT_FIRST_TYPES] is served from the last known payload
+ * kept on the device, where there is one, while the service is asked for it in the background. Saving the
+ * type waits for that check, and fails with [MetadataChangedException] rather than overwrite a payload that
+ * was changed elsewhere and has not been seen here. Such a change is also emitted on [metadataChanges], so
+ * that the type can be fetched again - a later fetch of the type loads it from the service. When the
+ * check itself fails, the next save of the type checks again. Every other type is always loaded from the
+ * service, as its consumers do not reload on [metadataChanges].
  */
 class MetadataManager(
     private val payloadDataManager: PayloadDataManager,
     private val metadataInteractor: MetadataInteractor,
     private val metadataDerivation: MetadataDerivation,
-    private val crashLogger: CrashLogger
+    private val crashLogger: CrashLogger,
+    private val snapshotStore: MetadataSnapshotStore
 ) {
+    private class DerivedMetadata(
+        val node: DeterministicKey,
+        val metadata: Metadata
+    )
+
+    // Deriving an entry's keys takes three hardened derivations, so each type is derived once per node
+    private val derivedMetadata = ConcurrentHashMap<Int, DerivedMetadata>()
+    private val snapshotsServed: MutableSet<Int> = ConcurrentHashMap.newKeySet()
+    // The snapshot served for each type, and its check against the service
+    private val unverifiedSnapshots = ConcurrentHashMap<Int, String>()
+    private val revalidations = ConcurrentHashMap<Int, Completable>()
+    private val changes = PublishSubject.create<Int>().toSerialized()
+    @Volatile
+    private var nodesRevalidation: Completable = Completable.complete()
+
+    /**
+     * Emits the types whose payload served from the device was found to have been changed elsewhere.
+     */
+    val metadataChanges: Observable<Int>
+        get() = changes
+
     private val credentials: MetadataCredentials
         get() = payloadDataManager.metadataCredentials ?: throw IllegalStateException("Wallet not initialised")
 
@@ -63,16 +98,84 @@ class MetadataManager(
     }
 
     fun fetchMetadata(metadataType: Int): Maybe<String> =
-        metadataNodeFactory.metadataNode?.let {
-            metadataInteractor.loadRemoteMetadata(
-                Metadata.newInstance(
-                    metaDataHDNode = it,
-                    type = metadataType,
-                    metadataDerivation = metadataDerivation
-                )
-            ).doOnError { logPaddingError(it, metadataType) }
+        metadataFor(metadataType)?.let { metadata ->
+            Maybe.defer {
+                val snapshot = if (metadataType in SNAPSHOT_FIRST_TYPES && snapshotsServed.add(metadataType)) {
+                    snapshotStore.read(metadata)
+                } else {
+                    null
+                }
+                if (snapshot != null) {
+                    unverifiedSnapshots[metadataType] = snapshot
+                    revalidate(metadataType, metadata).onErrorComplete().subscribe()
+                    Maybe.just(snapshot)
+                } else {
+                    nodesChecked()
+                        .andThen(Maybe.defer { loadRemoteMetadata(metadataType, requireMetadata(metadataType)) })
+                        .doOnEvent { _, error ->
+                            if (error == null) {
+                                unverifiedSnapshots.remove(metadataType)
+                                revalidations.remove(metadataType)
+                            }
+                        }
+                }
+            }
         } ?: Maybe.error(IllegalStateException("Metadata node is null"))
 
+    private fun metadataFor(metadataType: Int): Metadata? {
+        val node = metadataNodeFactory.metadataNode ?: return null
+        derivedMetadata[metadataType]?.takeIf { it.node === node }?.let { return it.metadata }
+        return Metadata.newInstance(
+            metaDataHDNode = node,
+            type = metadataType,
+            metadataDerivation = metadataDerivation
+        ).also {
+            derivedMetadata[metadataType] = DerivedMetadata(node, it)
+        }
+    }
+
+    private fun requireMetadata(metadataType: Int): Metadata =
+        metadataFor(metadataType) ?: throw IllegalStateException("Metadata node is null")
+
+    private fun loadRemoteMetadata(metadataType: Int, metadata: Metadata): Maybe<String> =
+        metadataInteractor.loadRemoteMetadata(metadata)
+            .doOnSuccess { if (metadataType in SNAPSHOT_FIRST_TYPES) snapshotStore.write(metadata, it) }
+            .doOnComplete { if (metadataType in SNAPSHOT_FIRST_TYPES) snapshotStore.delete(metadata) }
+            .doOnError { logPaddingError(it, metadataType) }
+
+    // Only a change is kept as the result of the check. After any other failure it is made again.
+    private fun revalidate(metadataType: Int, metadata: Metadata): Completable {
+        val snapshot = unverifiedSnapshots[metadataType] ?: return Completable.complete()
+        return revalidations.computeIfAbsent(metadataType) {
+            nodesChecked()
+                .andThen(
+                    Single.defer {
+                        // A snapshot read with nodes that have since been replaced counts as changed
+                        if (metadataFor(metadataType) !== metadata) {
+                            Single.just(false)
+                        } else {
+                            loadRemoteMetadata(metadataType, metadata)
+                                .map { it == snapshot }
+                                .defaultIfEmpty(false)
+                        }
+                    }
+                ).flatMapCompletable { unchanged ->
+                    if (unchanged) {
+                        Completable.complete()
+                    } else {
+                        Completable.error(MetadataChangedException(metadataType))
+                    }
+                }.doOnError { e ->
+                    if (e is MetadataChangedException) {
+                        changes.onNext(metadataType)
+                    } else {
+                        revalidations.remove(metadataType)
+                    }
+                }.subscribeOn(Schedulers.io())
+                .cache()
+        }
+    }
+
     private fun logPaddingError(e: Throwable, metadataType: Int) {
         if (e is InvalidCipherTextException) {
             crashLogger.logException(
@@ -82,11 +185,16 @@ class MetadataManager(
     }
 
     fun saveToMetadata(data: String, metadataType: Int): Completable =
-        metadataNodeFactory.metadataNode?.let {
-            metadataInteractor.putMetadata(
-                data,
-                Metadata.newInstance(metaDataHDNode = it, type = metadataType, metadataDerivation = metadataDerivation)
-            )
+        metadataFor(metadataType)?.let { metadata ->
+            Completable.defer { revalidate(metadataType, metadata) }
+                .andThen(nodesChecked())
+                .then {
+                    val current = requireMetadata(metadataType)
+                    metadataInteractor.putMetadata(data, current)
+                        .doOnComplete {
+                            if (metadataType in SNAPSHOT_FIRST_TYPES) snapshotStore.write(current, data)
+                        }
+                }
         } ?: Completable.error(IllegalStateException("Metadata node is null"))
 
     /**
@@ -122,13 +230,56 @@ class MetadataManager(
      * @throws Exception Can throw an Exception if there's an issue with the credentials or network
      */
     private fun loadNodes(): Single<Boolean> =
-        metadataInteractor.loadRemoteMetadata(metadataNodeFactory.secondPwNode)
+        loadNodesJson()
             .map { metadata -> metadataNodeFactory.initNodes(RemoteMetadataNodes.fromJson(metadata)) }
+            .doOnSuccess { nodesRevalidation.onErrorComplete().subscribe() }
             .defaultIfEmpty(false)
             .onErrorReturn { false }
 
+    // Nodes kept on the device are used straight away, and checked against the service once they are set up
+    private fun loadNodesJson(): Maybe<String> =
+        Maybe.defer {
+            val secondPwNode = metadataNodeFactory.secondPwNode
+            val snapshot = snapshotStore.read(secondPwNode)
+            if (snapshot != null) {
+                nodesRevalidation = revalidateNodes(secondPwNode, snapshot)
+                Maybe.just(snapshot)
+            } else {
+                metadataInteractor.loadRemoteMetadata(secondPwNode)
+                    .doOnSuccess { snapshotStore.write(secondPwNode, it) }
+            }
+        }
+
+    /**
+     * Loads the nodes from the service and, when they differ from the ones kept on the device, replaces
+     * both. The check of every type served from a snapshot read with the old nodes then finds it changed.
+     * If the service no longer has the nodes, the device copy is dropped, so the next login loads or
+     * generates them again.
+     */
+    private fun revalidateNodes(secondPwNode: Metadata, snapshot: String): Completable =
+        metadataInteractor.loadRemoteMetadata(secondPwNode)
+            .doOnComplete { snapshotStore.delete(secondPwNode) }
+            .filter { it != snapshot }
+            .doOnSuccess { nodes ->
+                if (metadataNodeFactory.initNodes(RemoteMetadataNodes.fromJson(nodes))) {
+                    snapshotStore.write(secondPwNode, nodes)
+                }
+            }.ignoreElement()
+            .subscribeOn(Schedulers.io())
+            .cache()
+
+    // Loads and saves wait for the nodes to be checked, but are not failed by an unsuccessful check
+    private fun nodesChecked(): Completable =
+        nodesRevalidation.onErrorComplete()
+
     fun reset() {
         _metadataNodeFactory = null
+        derivedMetadata.clear()
+        snapshotsServed.clear()
+        unverifiedSnapshots.clear()
+        revalidations.clear()
+        nodesRevalidation = Completable.complete()
+        snapshotStore.clear()
     }
 
     /**
@@ -141,10 +292,24 @@ class MetadataManager(
         return metadataInteractor.putMetadata(remoteMetadataNodes.toJson(), metadataNodeFactory.secondPwNode)
             .doOnComplete {
                 metadataNodeFactory.initNodes(remoteMetadataNodes)
+                snapshotStore.write(metadataNodeFactory.secondPwNode, remoteMetadataNodes.toJson())
             }
     }
+
+    companion object {
+        /**
+         * The types whose consumers fetch them again when they are emitted on [metadataChanges].
+         */
+        val SNAPSHOT_FIRST_TYPES = setOf(
+            EthereumWallet.METADATA_TYPE_EXTERNAL,
+            BitcoinCashWallet.METADATA_TYPE_EXTERNAL
+        )
+    }
 }
 
+class MetadataChangedException(metadataType: Int) :
+    Exception("Metadata of type $metadataType was changed elsewhere since it was last loaded")
+
 private class MetadataBadPaddingTracker(metadataType: Int, throwable: Throwable) :
     Exception("metadataType == $metadataType (${metadataType.metadataType} -- ${throwable.message}", throwable) {
 
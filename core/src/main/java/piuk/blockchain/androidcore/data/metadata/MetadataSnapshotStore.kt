@@ -0,0 +1,56 @@
+package piuk.blockchain.androidcore.data.metadata
+
+import com.blockchain.core.Database
+import info.blockchain.wallet.crypto.AESUtil
+import info.blockchain.wallet.metadata.Metadata
+import info.blockchain.wallet.util.FormatsUtil
+import timber.log.Timber
+
+/**
+ * Keeps the last known payload of each metadata entry on the device, so that it can be used before the
+ * metadata service has answered.
+ *
+ * Snapshots are kept against the address of the entry, and encrypted with its key, just as the service
+ * keeps them. Nothing can be read back without the wallet credentials the entry was derived from.
+ */
+class MetadataSnapshotStore(
+    private val database: Database
+) {
+    fun read(metadata: Metadata): String? =
+        try {
+            database.metadataSnapshotQueries.selectSnapshot(metadata.address)
+                .executeAsOneOrNull()
+                ?.let { AESUtil.decryptWithKey(metadata.encryptionKey, it) }
+                ?.takeIf { FormatsUtil.isValidJson(it) }
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to read metadata snapshot")
+            null
+        }
+
+    fun write(metadata: Metadata, payloadJson: String) {
+        try {
+            database.metadataSnapshotQueries.insertSnapshot(
+                metadata.address,
+                String(AESUtil.encryptWithKey(metadata.encryptionKey, payloadJson))
+            )
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to store metadata snapshot")
+        }
+    }
+
+    fun delete(metadata: Metadata) {
+        try {
+            database.metadataSnapshotQueries.deleteSnapshot(metadata.address)
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to delete metadata snapshot")
+        }
+    }
+
+    fun clear() {
+        try {
+            database.metadataSnapshotQueries.deleteAll()
+        } catch (e: Exception) {
+            Timber.e(e, "Unable to clear metadata snapshots")
+        }
+    }
+}
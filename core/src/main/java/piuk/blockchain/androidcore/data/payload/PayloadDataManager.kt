@@ -463,16 +463,16 @@ class PayloadDataManager internal constructor(
             .observeOn(AndroidSchedulers.mainThread())
 
     /**
-     * Returns an [SigningKey] for a given [ImportedAddress], optionally with a second password
-     * should the private key be encrypted.
+     * Returns the [SigningKey]s for the given [ImportedAddress]es, in order, optionally with a second
+     * password should the private keys be encrypted. The keys are decrypted together.
      *
-     * @param importedAddress The [ImportedAddress] to generate an Elliptic Curve Key for
-     * @param secondPassword An optional second password, necessary if the private key is encrypted
-     * @return An Elliptic Curve Key object [SigningKey]
+     * @param importedAddresses The [ImportedAddress]es to generate Elliptic Curve Keys for
+     * @param secondPassword An optional second password, necessary if the private keys are encrypted
+     * @return A list of Elliptic Curve Key objects [SigningKey]
      * @see ImportedAddress.isPrivateKeyEncrypted
      */
-    fun getAddressSigningKey(importedAddress: ImportedAddress, secondPassword: String?): SigningKey? =
-        payloadManager.getAddressSigningKey(importedAddress, secondPassword)
+    fun getAddressSigningKeys(importedAddresses: List<ImportedAddress>, secondPassword: String?): List<SigningKey> =
+        payloadManager.getAddressSigningKeys(importedAddresses, secondPassword)
 
     /**
      * Derives new [Account] from the master seed
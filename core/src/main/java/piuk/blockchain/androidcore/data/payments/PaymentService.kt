@@ -6,6 +6,7 @@ import info.blockchain.wallet.exceptions.TransactionHashApiException
 import info.blockchain.wallet.keys.SigningKey
 import info.blockchain.wallet.payload.data.XPubs
 import info.blockchain.wallet.payload.model.Utxo
+import info.blockchain.wallet.payment.FeeRateSelection
 import info.blockchain.wallet.payment.OutputType
 import info.blockchain.wallet.payment.Payment
 import info.blockchain.wallet.payment.SpendableUnspentOutputs
@@ -187,6 +188,7 @@ class PaymentService(
      * @param feePerKb The current fee per kB, as a [BigInteger]
      * @param includeReplayProtection Whether or not you intend on adding a dust input for replay protection. This is
      * an extra input and therefore affects the transaction fee.
+     * @param preferChangeless Whether to first search for a set of inputs which needs no change output
      * @return An [SpendableUnspentOutputs] object, which wraps a list of spendable outputs
      * for the given inputs
      */
@@ -196,7 +198,8 @@ class PaymentService(
         changeOutputType: OutputType,
         paymentAmount: BigInteger,
         feePerKb: BigInteger,
-        includeReplayProtection: Boolean
+        includeReplayProtection: Boolean,
+        preferChangeless: Boolean = false
     ): SpendableUnspentOutputs =
         payment.getSpendableCoins(
             unspentCoins,
@@ -204,7 +207,40 @@ class PaymentService(
             changeOutputType,
             paymentAmount,
             feePerKb,
-            includeReplayProtection
+            includeReplayProtection,
+            preferChangeless
+        )
+
+    /**
+     * Returns the [SpendableUnspentOutputs] and the maximum available amount for each of the given fees
+     * per kB, selected in a single pass over the [Utxo]s.
+     *
+     * @param unspentCoins The addresses' [Utxo]
+     * @param targetOutputType Destination output type
+     * @param changeOutputType Change output type
+     * @param paymentAmount The amount you wish to send, as a [BigInteger]
+     * @param feesPerKb The fees per kB to select for, as [BigInteger]s
+     * @param includeReplayProtection Whether or not you intend on adding a dust input for replay protection
+     * @param preferChangeless Whether to first search for a set of inputs which needs no change output
+     * @return A [FeeRateSelection] for each fee, in the same order
+     */
+    internal fun getSpendableCoinsForFees(
+        unspentCoins: List<Utxo>,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType,
+        paymentAmount: BigInteger,
+        feesPerKb: List<BigInteger>,
+        includeReplayProtection: Boolean,
+        preferChangeless: Boolean = false
+    ): List<FeeRateSelection> =
+        payment.getSpendableCoinsForFees(
+            unspentCoins,
+            targetOutputType,
+            changeOutputType,
+            paymentAmount,
+            feesPerKb,
+            includeReplayProtection,
+            preferChangeless
         )
 
     /**
@@ -19,13 +19,19 @@ import piuk.blockchain.androidcore.utils.extensions.applySchedulers
 
 class SendDataManager(
     private val paymentService: PaymentService,
-    private val lastTxUpdater: LastTxUpdater
+    private val lastTxUpdater: LastTxUpdater,
+    private val sentTransactions: SentTransactions
 ) {
     data class MaxAvailable(
         val maxSpendable: CryptoValue,
         val feeForMax: CryptoValue
     )
 
+    class SpendableCoinsForFee(
+        val spendableCoins: SpendableUnspentOutputs,
+        val maxAvailable: MaxAvailable
+    )
+
     /**
      * Submits a BTC payment to a specified Bitcoin address and returns the transaction hash if
      * successful
@@ -38,7 +44,8 @@ class SendDataManager(
     ): Single<String> =
         paymentService.submitBtcPayment(
             signedTx
-        ).logLastTx()
+        ).recordSent(signedTx)
+            .logLastTx()
             .applySchedulers()
 
     /**
@@ -91,7 +98,8 @@ class SendDataManager(
         paymentService.submitBchPayment(
             signedTx,
             dustInput
-        ).logLastTx()
+        ).recordSent(signedTx)
+            .logLastTx()
             .applySchedulers()
 
     /**
@@ -155,7 +163,7 @@ class SendDataManager(
      * Returns a [SpendableUnspentOutputs] object from a given [Utxo] object,
      * given the payment amount and the current fee per kB. This method selects the minimum number
      * of inputs necessary to allow a successful payment by selecting from the largest inputs
-     * first.
+     * first. For BTC a set of inputs which avoids a change output is searched for first.
      *
      * @param unspentCoins The addresses' [Utxo]
      * @param targetOutputType Destination output type
@@ -178,9 +186,49 @@ class SendDataManager(
         changeOutputType,
         paymentAmount.toBigInteger(),
         feePerKb.toBigInteger(),
-        paymentAmount.currency == CryptoCurrency.BCH
+        paymentAmount.currency == CryptoCurrency.BCH,
+        paymentAmount.currency == CryptoCurrency.BTC
     )
 
+    /**
+     * Selects the spendable coins for a payment, and works out the maximum available amount, at each of
+     * the given fees per kB in a single pass over the coins. As with [getSpendableCoins], for BTC a set of
+     * inputs which avoids a change output is searched for first.
+     *
+     * @param unspentCoins The addresses' [Utxo]
+     * @param targetOutputType Destination output type
+     * @param changeOutputType Change output type
+     * @param paymentAmount The amount you wish to send, as a [CryptoValue]
+     * @param feesPerKb The fees per kB to select for
+     * @return A [SpendableCoinsForFee] for each fee, in the same order
+     */
+    fun getSpendableCoinsForFees(
+        unspentCoins: List<Utxo>,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType,
+        paymentAmount: CryptoValue,
+        feesPerKb: List<CryptoValue>
+    ): List<SpendableCoinsForFee> {
+        val asset = paymentAmount.currency
+        return paymentService.getSpendableCoinsForFees(
+            unspentCoins,
+            targetOutputType,
+            changeOutputType,
+            paymentAmount.toBigInteger(),
+            feesPerKb.map { it.toBigInteger() },
+            asset == CryptoCurrency.BCH,
+            asset == CryptoCurrency.BTC
+        ).map {
+            SpendableCoinsForFee(
+                spendableCoins = it.spendableCoins,
+                maxAvailable = MaxAvailable(
+                    maxSpendable = CryptoValue.fromMinor(asset, it.maxAvailable),
+                    feeForMax = CryptoValue.fromMinor(asset, it.feeForMax)
+                )
+            )
+        }
+    }
+
     /**
      * Calculates the total amount of bitcoin or bitcoin cash that can be swept from an [Utxo]
      * object and returns the amount that can be recovered, accounting for fees
@@ -251,6 +299,12 @@ class SendDataManager(
                 .andThen(Observable.just(it))
         }
 
+    // Recorded before it is broadcast, as the websocket can report it before the broadcast returns, and
+    // dropped again if the broadcast fails, so that the websocket's report of it is then applied
+    private fun Single<String>.recordSent(signedTx: Transaction): Single<String> =
+        doOnSubscribe { sentTransactions.add(signedTx.txId.toString()) }
+            .doOnError { sentTransactions.remove(signedTx.txId.toString()) }
+
     private fun Single<String>.logLastTx(): Single<String> =
         this.flatMap {
             lastTxUpdater.updateLastTxTime()
@@ -0,0 +1,33 @@
+package piuk.blockchain.androidcore.data.payments
+
+/**
+ * The hashes of the most recent BTC and BCH transactions broadcast from this device. Their spend is
+ * taken off the local balances as soon as they are sent, so it must not be taken off again when the
+ * websocket reports them back.
+ */
+class SentTransactions(private val capacity: Int = MAX_SIZE) {
+    private val hashes = object : LinkedHashMap<String, Unit>(16, 0.75f, false) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Unit>?): Boolean =
+            size > capacity
+    }
+
+    @Synchronized
+    fun add(hash: String) {
+        hashes[hash] = Unit
+    }
+
+    @Synchronized
+    fun remove(hash: String) {
+        hashes.remove(hash)
+    }
+
+    @Synchronized
+    operator fun contains(hash: String): Boolean = hashes.containsKey(hash)
+
+    @Synchronized
+    fun clear() = hashes.clear()
+
+    companion object {
+        private const val MAX_SIZE = 100
+    }
+}
@@ -0,0 +1,138 @@
+package com.blockchain.caching
+
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.subjects.SingleSubject
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class KeyedCacheTest {
+
+    private var time = 0L
+    private val loadCounts = mutableMapOf<String, Int>()
+
+    private fun load(key: String): Single<String> =
+        Single.fromCallable {
+            val count = loadCounts.getOrDefault(key, 0) + 1
+            loadCounts[key] = count
+            "$key$count"
+        }
+
+    private fun cache(
+        maxSize: Int = 10,
+        staleWhileRevalidate: Boolean = false,
+        load: (String) -> Single<String> = ::load
+    ) = KeyedCache(
+        ttlMillis = TTL,
+        maxSize = maxSize,
+        staleWhileRevalidate = staleWhileRevalidate,
+        now = { time },
+        load = load
+    )
+
+    @Test
+    fun `each key is cached separately`() {
+        val subject = cache()
+
+        subject.get("a").test().assertValue("a1")
+        subject.get("b").test().assertValue("b1")
+        subject.get("a").test().assertValue("a1")
+
+        subject.stats.hits `should be equal to` 1
+        subject.stats.misses `should be equal to` 2
+    }
+
+    @Test
+    fun `concurrent requests for a key share one load`() {
+        val pending = SingleSubject.create<String>()
+        var loads = 0
+        val subject = cache { loads++; pending }
+
+        val first = subject.get("a").test()
+        val second = subject.get("a").test()
+        pending.onSuccess("value")
+
+        first.assertValue("value")
+        second.assertValue("value")
+        loads `should be equal to` 1
+    }
+
+    @Test
+    fun `entries expire after the ttl`() {
+        val subject = cache()
+
+        subject.get("a").test().assertValue("a1")
+        time = TTL
+        subject.get("a").test().assertValue("a2")
+    }
+
+    @Test
+    fun `expired entries are served while they are reloaded`() {
+        val subject = cache(staleWhileRevalidate = true)
+
+        subject.get("a").test().assertValue("a1")
+        time = TTL
+        subject.get("a").test().assertValue("a1")
+        subject.get("a").test().assertValue("a2")
+
+        subject.stats.staleHits `should be equal to` 1
+    }
+
+    @Test
+    fun `the least recently used key is evicted`() {
+        val subject = cache(maxSize = 2)
+
+        subject.get("a").test()
+        subject.get("b").test()
+        subject.get("a").test()
+        subject.get("c").test()
+
+        subject.get("a").test().assertValue("a1")
+        subject.get("b").test().assertValue("b2")
+    }
+
+    @Test
+    fun `loads in flight when invalidated are not stored`() {
+        val pending = SingleSubject.create<String>()
+        val subject = cache { key -> if (key == "slow") pending else load(key) }
+
+        val slow = subject.get("slow").test()
+        subject.invalidateAll()
+        pending.onSuccess("old")
+        slow.assertValue("old")
+
+        subject.get("slow").test()
+        subject.stats.hits `should be equal to` 0
+        subject.stats.misses `should be equal to` 2
+    }
+
+    @Test
+    fun `a value put in the cache replaces the entry and is served as fresh`() {
+        val subject = cache()
+
+        subject.get("a").test().assertValue("a1")
+        time = TTL
+        subject.put("a", "put")
+        subject.get("a").test().assertValue("put")
+
+        subject.stats.hits `should be equal to` 1
+        subject.stats.misses `should be equal to` 1
+    }
+
+    @Test
+    fun `failed loads are not cached`() {
+        var fail = true
+        val subject = cache { key ->
+            if (fail) Single.error(Throwable()) else load(key)
+        }
+
+        subject.get("a").test().assertError(Throwable::class.java)
+        fail = false
+        subject.get("a").test().assertValue("a1")
+
+        subject.stats.loadFailures `should be equal to` 1
+    }
+
+    companion object {
+        private const val TTL = 1000L
+    }
+}
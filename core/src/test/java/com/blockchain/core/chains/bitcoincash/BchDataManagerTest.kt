@@ -50,7 +50,9 @@ class BchDataManagerTest {
     private val crashLogger: CrashLogger = mock()
     private val bitcoinApi: NonCustodialBitcoinService = mock()
     private val defaultLabels: DefaultLabels = mock()
-    private val metadataManager: MetadataManager = mock()
+    private val metadataManager: MetadataManager = mock {
+        on { metadataChanges }.thenReturn(Observable.never())
+    }
 
     @Before
     fun setUp() {
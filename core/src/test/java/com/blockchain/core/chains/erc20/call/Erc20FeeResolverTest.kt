@@ -0,0 +1,140 @@
+package com.blockchain.core.chains.erc20.call
+
+import com.blockchain.android.testutils.rxInit
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import info.blockchain.balance.CryptoCurrency
+import info.blockchain.balance.CryptoValue
+import info.blockchain.wallet.ethereum.data.EthTransaction
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
+import org.junit.Rule
+import org.junit.Test
+import piuk.blockchain.androidcore.data.ethereum.EthDataManager
+
+class Erc20FeeResolverTest {
+
+    @get:Rule
+    val initSchedulers = rxInit {
+        ioTrampoline()
+    }
+
+    private val scheduler = TestScheduler()
+
+    private val ethDataManager: EthDataManager = mock {
+        on { getTransaction(any()) }.thenReturn(Observable.just(transaction(CONFIRMED)))
+    }
+
+    private val feeStore: Erc20FeeStore = mock {
+        on { read(any()) }.thenReturn(mapOf(STORED_HASH to STORED_FEE))
+    }
+
+    private val subject = Erc20FeeResolver(
+        ethDataManager = ethDataManager,
+        feeStore = feeStore,
+        batchWindowMillis = BATCH_WINDOW_MS,
+        scheduler = scheduler
+    )
+
+    @Test
+    fun `requests in one window are resolved as one batch`() {
+        val stored = subject.feeFor(STORED_HASH).test()
+        val missing = subject.feeFor(MISSING_HASH).test()
+        val again = subject.feeFor(MISSING_HASH).test()
+
+        scheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS)
+
+        stored.assertValue(CryptoValue.fromMinor(CryptoCurrency.ETHER, STORED_FEE))
+        missing.assertValue(CryptoValue.fromMinor(CryptoCurrency.ETHER, FETCHED_FEE))
+        again.assertValue(CryptoValue.fromMinor(CryptoCurrency.ETHER, FETCHED_FEE))
+
+        verify(feeStore, times(1)).read(listOf(STORED_HASH, MISSING_HASH))
+        verify(ethDataManager, times(1)).getTransaction(MISSING_HASH)
+        verify(ethDataManager, never()).getTransaction(STORED_HASH)
+        verify(feeStore).write(mapOf(MISSING_HASH to FETCHED_FEE))
+    }
+
+    @Test
+    fun `confirmed fees are only fetched once`() {
+        subject.feeFor(MISSING_HASH).test()
+        scheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS)
+
+        subject.feeFor(MISSING_HASH)
+            .test()
+            .assertValue(CryptoValue.fromMinor(CryptoCurrency.ETHER, FETCHED_FEE))
+
+        verify(ethDataManager, times(1)).getTransaction(MISSING_HASH)
+    }
+
+    @Test
+    fun `pending fees are not stored and are fetched again`() {
+        whenever(ethDataManager.getTransaction(MISSING_HASH))
+            .thenReturn(Observable.just(transaction(PENDING)))
+
+        subject.feeFor(MISSING_HASH).test()
+        scheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS)
+        subject.feeFor(MISSING_HASH).test()
+        scheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS)
+
+        verify(ethDataManager, times(2)).getTransaction(MISSING_HASH)
+        verify(feeStore, times(2)).write(emptyMap())
+    }
+
+    @Test
+    fun `a failed fetch fails only its own request`() {
+        whenever(ethDataManager.getTransaction(MISSING_HASH))
+            .thenReturn(Observable.error(Throwable()))
+
+        val stored = subject.feeFor(STORED_HASH).test()
+        val missing = subject.feeFor(MISSING_HASH).test()
+        scheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS)
+
+        stored.assertValueCount(1)
+        missing.assertError(Throwable::class.java)
+    }
+
+    @Test
+    fun `a full batch is resolved without waiting for the window`() {
+        val hashes = (1..MAX_BATCH_SIZE).map { "0x$it" }
+        hashes.forEach { subject.feeFor(it).test() }
+
+        verify(feeStore).read(hashes)
+    }
+
+    @Test
+    fun `requests are not resolved once disposed`() {
+        subject.dispose()
+
+        subject.feeFor(MISSING_HASH).test()
+        scheduler.advanceTimeBy(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS)
+
+        verify(feeStore, never()).read(any())
+    }
+
+    private fun transaction(state: String) =
+        EthTransaction(
+            gasPrice = GAS_PRICE,
+            gasUsed = GAS_USED,
+            state = state
+        )
+
+    companion object {
+        private const val BATCH_WINDOW_MS = 100L
+        private const val MAX_BATCH_SIZE = 50
+        private const val STORED_HASH = "0xstored"
+        private const val MISSING_HASH = "0xmissing"
+        private const val CONFIRMED = "CONFIRMED"
+        private const val PENDING = "PENDING"
+
+        private val STORED_FEE = 1234.toBigInteger()
+        private val GAS_PRICE: BigInteger = 20.toBigInteger()
+        private val GAS_USED: BigInteger = 21000.toBigInteger()
+        private val FETCHED_FEE: BigInteger = GAS_PRICE * GAS_USED
+    }
+}
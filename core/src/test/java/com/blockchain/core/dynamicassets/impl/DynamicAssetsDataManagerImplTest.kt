@@ -0,0 +1,99 @@
+package com.blockchain.core.dynamicassets.impl
+
+import com.blockchain.android.testutils.rxInit
+import com.blockchain.api.services.AssetDiscoveryService
+import com.blockchain.api.services.DynamicAsset
+import com.blockchain.api.services.DynamicAssetProducts
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.argumentCaptor
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import io.reactivex.rxjava3.core.Single
+import org.amshove.kluent.`should be equal to`
+import org.junit.Rule
+import org.junit.Test
+
+class DynamicAssetsDataManagerImplTest {
+
+    @get:Rule
+    val initSchedulers = rxInit {
+        ioTrampoline()
+    }
+
+    private val discoveryService: AssetDiscoveryService = mock {
+        on { getErc20Assets() }.thenReturn(Single.just(listOf(ERC20_ASSET)))
+        on { getCustodialAssets() }.thenReturn(Single.just(listOf(CUSTODIAL_ASSET)))
+    }
+
+    private val catalogueStore: AssetCatalogueStore = mock()
+
+    private val subject = DynamicAssetsDataManagerImpl(
+        discoveryService = discoveryService,
+        catalogueStore = catalogueStore
+    )
+
+    @Test
+    fun `fetched catalogue is mapped and stored`() {
+        subject.availableCryptoAssets()
+            .test()
+            .assertValue { list -> list.map { it.networkTicker } == listOf("TKN", "CSTD") }
+
+        argumentCaptor<StoredCatalogue>().apply {
+            verify(catalogueStore).write(capture())
+            firstValue.assets.map { it.networkTicker } `should be equal to` listOf("TKN", "CSTD")
+        }
+    }
+
+    @Test
+    fun `unchanged responses are served from the stored catalogue without re-mapping`() {
+        subject.availableCryptoAssets().test()
+        val stored = argumentCaptor<StoredCatalogue>().apply {
+            verify(catalogueStore).write(capture())
+        }.firstValue
+
+        val restarted = DynamicAssetsDataManagerImpl(discoveryService, catalogueStore)
+        whenever(catalogueStore.read()).thenReturn(stored)
+
+        restarted.cachedCryptoAssets()
+            .test()
+            .assertValue(stored.assets)
+
+        restarted.availableCryptoAssets()
+            .test()
+            .assertValue { it === stored.assets }
+        // Only the first fetch was mapped and written
+        verify(catalogueStore, times(1)).write(any())
+    }
+
+    @Test
+    fun `no stored catalogue completes empty`() {
+        subject.cachedCryptoAssets()
+            .test()
+            .assertComplete()
+            .assertNoValues()
+    }
+
+    companion object {
+        private val ERC20_ASSET = DynamicAsset(
+            assetName = "Token",
+            networkTicker = "TKN",
+            displayTicker = "TKN",
+            isFiat = false,
+            precision = 18,
+            products = setOf(DynamicAssetProducts.PrivateKey),
+            parentChain = AssetDiscoveryService.ETHEREUM,
+            chainIdentifier = "0x1234"
+        )
+
+        private val CUSTODIAL_ASSET = DynamicAsset(
+            assetName = "Custodial",
+            networkTicker = "CSTD",
+            displayTicker = "CSTD",
+            isFiat = false,
+            precision = 8,
+            products = setOf(DynamicAssetProducts.CustodialWalletBalance)
+        )
+    }
+}
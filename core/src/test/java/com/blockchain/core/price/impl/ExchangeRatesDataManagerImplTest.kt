@@ -45,11 +45,11 @@ class ExchangeRatesDataManagerImplTest {
     }
 
     private val priceStore: AssetPriceStore = mock()
-    private val sparklineCall: SparklineCallCache = mock()
+    private val sparklineStore: SparklineStore = mock()
 
     private val subject = ExchangeRatesDataManagerImpl(
         priceStore = priceStore,
-        sparklineCall = sparklineCall,
+        sparklineStore = sparklineStore,
         assetPriceService = priceService,
         currencyPrefs = currencyPrefs
     )
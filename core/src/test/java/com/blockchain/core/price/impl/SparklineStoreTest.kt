@@ -0,0 +1,202 @@
+package com.blockchain.core.price.impl
+
+import com.blockchain.api.services.AssetPrice
+import com.blockchain.api.services.AssetPriceService
+import com.blockchain.api.services.PriceTimescale
+import com.blockchain.core.price.HistoricalRate
+import com.blockchain.core.price.HistoricalTimeSpan
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.eq
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.verifyNoMoreInteractions
+import com.nhaarman.mockitokotlin2.whenever
+import info.blockchain.balance.CryptoCurrency
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import java.util.concurrent.TimeUnit
+import org.junit.Test
+
+class SparklineStoreTest {
+
+    private val scheduler = TestScheduler()
+
+    private var now = DATE_NOW_MILLIS
+
+    private val priceService: AssetPriceService = mock {
+        on {
+            getHistoricPriceSeriesSince(
+                baseTickers = any(),
+                quote = any(),
+                start = any(),
+                scale = any()
+            )
+        }.thenReturn(
+            Single.just(
+                mapOf(
+                    ASSET_ONE.networkTicker to listOf(price(ASSET_ONE.networkTicker, 100.0)),
+                    ASSET_TWO.networkTicker to listOf(price(ASSET_TWO.networkTicker, 200.0))
+                )
+            )
+        )
+    }
+
+    private val localSource: SparklineLocalSource = mock {
+        on { read(any(), any(), any()) }.thenReturn(emptyMap())
+    }
+
+    private val subject = SparklineStore(
+        priceService = priceService,
+        localSource = localSource,
+        ttlMillis = TTL_MILLIS,
+        batchDelayMillis = BATCH_DELAY_MILLIS,
+        scheduler = scheduler,
+        now = { now }
+    )
+
+    @Test
+    fun `sparklines requested together are fetched in one call`() {
+        val one = subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+        val two = subject.fetch(ASSET_TWO, SELECTED_FIAT).test()
+
+        one.assertNoValues()
+        two.assertNoValues()
+
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        one.assertValue(listOf(HistoricalRate(TIMESTAMP, 100.0)))
+        two.assertValue(listOf(HistoricalRate(TIMESTAMP, 200.0)))
+
+        verify(priceService).getHistoricPriceSeriesSince(
+            baseTickers = setOf(ASSET_ONE.networkTicker, ASSET_TWO.networkTicker),
+            quote = SELECTED_FIAT,
+            start = DATE_ONE_DAY_AGO_SECS,
+            scale = PriceTimescale.FIFTEEN_MINUTES
+        )
+        verifyNoMoreInteractions(priceService)
+        verify(localSource).write(eq(SELECTED_FIAT), eq(HistoricalTimeSpan.DAY), any(), eq(DATE_NOW_MILLIS))
+    }
+
+    @Test
+    fun `a fetched sparkline is served from memory until it expires`() {
+        subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+            .assertValue(listOf(HistoricalRate(TIMESTAMP, 100.0)))
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        verify(priceService).getHistoricPriceSeriesSince(any<Set<String>>(), any(), any(), any())
+        verifyNoMoreInteractions(priceService)
+    }
+
+    @Test
+    fun `an expired sparkline is served while it is fetched again`() {
+        subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        now += TTL_MILLIS
+        subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+            .assertValue(listOf(HistoricalRate(TIMESTAMP, 100.0)))
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        verify(priceService, times(2))
+            .getHistoricPriceSeriesSince(any<Set<String>>(), any(), any(), any())
+    }
+
+    @Test
+    fun `a sparkline stored on the device is served without fetching it`() {
+        val stored = listOf(HistoricalRate(TIMESTAMP, 50.0))
+        whenever(localSource.read(any(), eq(SELECTED_FIAT), eq(HistoricalTimeSpan.DAY)))
+            .thenReturn(mapOf(ASSET_ONE.networkTicker to StoredSparkline(stored, DATE_NOW_MILLIS - 1)))
+
+        val result = subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        result.assertValue(stored)
+        verify(priceService, never()).getHistoricPriceSeriesSince(any<Set<String>>(), any(), any(), any())
+    }
+
+    @Test
+    fun `an old sparkline stored on the device is served while it is fetched again`() {
+        val stored = listOf(HistoricalRate(TIMESTAMP, 50.0))
+        whenever(localSource.read(any(), eq(SELECTED_FIAT), eq(HistoricalTimeSpan.DAY)))
+            .thenReturn(mapOf(ASSET_ONE.networkTicker to StoredSparkline(stored, DATE_NOW_MILLIS - TTL_MILLIS)))
+
+        val result = subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        result.assertValue(stored)
+        verify(priceService).getHistoricPriceSeriesSince(any<Set<String>>(), any(), any(), any())
+        verify(localSource).write(eq(SELECTED_FIAT), eq(HistoricalTimeSpan.DAY), any(), eq(DATE_NOW_MILLIS))
+    }
+
+    @Test
+    fun `the sparkline fetched in place of an old one from the device is then served from memory`() {
+        val stored = listOf(HistoricalRate(TIMESTAMP, 50.0))
+        whenever(localSource.read(any(), eq(SELECTED_FIAT), eq(HistoricalTimeSpan.DAY)))
+            .thenReturn(mapOf(ASSET_ONE.networkTicker to StoredSparkline(stored, DATE_NOW_MILLIS - TTL_MILLIS)))
+
+        subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+            .assertValue(listOf(HistoricalRate(TIMESTAMP, 100.0)))
+        verify(localSource).read(any(), any(), any())
+        verify(priceService).getHistoricPriceSeriesSince(any<Set<String>>(), any(), any(), any())
+    }
+
+    @Test
+    fun `a sparkline missing from the fetched series fails`() {
+        whenever(priceService.getHistoricPriceSeriesSince(any<Set<String>>(), any(), any(), any()))
+            .thenReturn(Single.just(emptyMap()))
+
+        val result = subject.fetch(ASSET_ONE, SELECTED_FIAT).test()
+        scheduler.advanceTimeBy(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+
+        result.assertError(Throwable::class.java)
+    }
+
+    companion object {
+        private const val DATE_NOW_MILLIS = 1626972500000L
+        private const val DATE_ONE_DAY_AGO_SECS = 1626886100L
+        private const val TIMESTAMP = 1626886200L
+
+        private const val TTL_MILLIS = 60_000L
+        private const val BATCH_DELAY_MILLIS = 200L
+
+        private const val SELECTED_FIAT = "USD"
+
+        private val ASSET_ONE = object : CryptoCurrency(
+            displayTicker = "ONE",
+            networkTicker = "ONE",
+            name = "One",
+            startDate = 1000000001,
+            categories = emptySet(),
+            precisionDp = 8,
+            requiredConfirmations = 5,
+            colour = "#123456"
+        ) { }
+
+        private val ASSET_TWO = object : CryptoCurrency(
+            displayTicker = "TWO",
+            networkTicker = "TWO",
+            name = "Two",
+            startDate = 1000000001,
+            categories = emptySet(),
+            precisionDp = 8,
+            requiredConfirmations = 5,
+            colour = "#123456"
+        ) { }
+
+        private fun price(base: String, rate: Double) =
+            AssetPrice(
+                base = base,
+                quote = SELECTED_FIAT,
+                price = rate,
+                timestamp = TIMESTAMP
+            )
+    }
+}
@@ -2,8 +2,12 @@ package piuk.blockchain.androidcore.data.metadata
 
 import com.blockchain.android.testutils.rxInit
 import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.argThat
 import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import info.blockchain.wallet.exceptions.InvalidCredentialsException
 import info.blockchain.wallet.keys.MasterKey
@@ -28,6 +32,7 @@ class MetadataManagerTest {
     private val payloadDataManager: PayloadDataManager = mock()
     private val metadataInteractor: MetadataInteractor = mock()
     private val metadataDerivation: MetadataDerivation = MetadataDerivation()
+    private val snapshotStore: MetadataSnapshotStore = mock()
 
     private val seed = "15e23aa73d25994f1921a1256f93f72c"
     private val mockMasterKey: MasterKey = mock {
@@ -43,6 +48,13 @@ class MetadataManagerTest {
             "TrycrBmbPibKd2LhzjDW"
     }.toJson()
 
+    private val changedRemoteMetadata = RemoteMetadataNodes.fromJson(fakeRemoteMetadata).let {
+        RemoteMetadataNodes().apply {
+            mdid = it.metadata
+            metadata = it.mdid
+        }
+    }.toJson()
+
     @Suppress("unused")
     @get:Rule
     val initSchedulers = rxInit {
@@ -56,7 +68,8 @@ class MetadataManagerTest {
             payloadDataManager,
             metadataInteractor,
             metadataDerivation,
-            mock()
+            mock(),
+            snapshotStore
         )
         whenever(payloadDataManager.metadataCredentials).thenReturn(
             MetadataCredentials(
@@ -172,4 +185,149 @@ class MetadataManagerTest {
             .then { subject.saveToMetadata("metadata save payload", 0) }.test()
         test.assertError { it is IllegalStateException }
     }
+
+    @Test
+    fun `the first fetch of a type is served from its snapshot`() {
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.just(fakeRemoteMetadata))
+        whenever(snapshotStore.read(argThat { type == METADATA_TYPE })).thenReturn(SNAPSHOT)
+
+        subject.attemptMetadataSetup()
+            .thenMaybe { subject.fetchMetadata(METADATA_TYPE) }
+            .test()
+            .assertValue(SNAPSHOT)
+
+        subject.fetchMetadata(METADATA_TYPE)
+            .test()
+            .assertValue(fakeRemoteMetadata)
+    }
+
+    @Test
+    fun `saving over a snapshot that was changed elsewhere fails until it is loaded again`() {
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.just(fakeRemoteMetadata))
+        whenever(metadataInteractor.putMetadata(any(), any())).thenReturn(Completable.complete())
+        whenever(snapshotStore.read(argThat { type == METADATA_TYPE })).thenReturn(SNAPSHOT)
+
+        subject.attemptMetadataSetup()
+            .thenMaybe { subject.fetchMetadata(METADATA_TYPE) }
+            .test()
+        subject.saveToMetadata(SNAPSHOT, METADATA_TYPE)
+            .test()
+            .assertError(MetadataChangedException::class.java)
+
+        subject.fetchMetadata(METADATA_TYPE).test()
+        subject.saveToMetadata(SNAPSHOT, METADATA_TYPE)
+            .test()
+            .assertComplete()
+        verify(metadataInteractor, times(1)).putMetadata(eq(SNAPSHOT), any())
+    }
+
+    @Test
+    fun `a check that failed is made again by the next save`() {
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(
+            Maybe.just(fakeRemoteMetadata),
+            Maybe.error(IllegalStateException()),
+            Maybe.just(SNAPSHOT)
+        )
+        whenever(metadataInteractor.putMetadata(any(), any())).thenReturn(Completable.complete())
+        whenever(snapshotStore.read(argThat { type == METADATA_TYPE })).thenReturn(SNAPSHOT)
+
+        subject.attemptMetadataSetup()
+            .thenMaybe { subject.fetchMetadata(METADATA_TYPE) }
+            .test()
+        subject.saveToMetadata(SNAPSHOT, METADATA_TYPE)
+            .test()
+            .assertComplete()
+
+        verify(metadataInteractor).putMetadata(eq(SNAPSHOT), any())
+    }
+
+    @Test
+    fun `a snapshot that was changed elsewhere is announced`() {
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.just(fakeRemoteMetadata))
+        whenever(snapshotStore.read(argThat { type == METADATA_TYPE })).thenReturn(SNAPSHOT)
+        val changes = subject.metadataChanges.test()
+
+        subject.attemptMetadataSetup()
+            .thenMaybe { subject.fetchMetadata(METADATA_TYPE) }
+            .test()
+
+        changes.assertValue(METADATA_TYPE)
+    }
+
+    @Test
+    fun `a type that does not reload on changes is loaded from the service despite a snapshot`() {
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.just(fakeRemoteMetadata))
+        whenever(snapshotStore.read(argThat { type == NON_LISTENING_TYPE })).thenReturn(SNAPSHOT)
+
+        subject.attemptMetadataSetup()
+            .thenMaybe { subject.fetchMetadata(NON_LISTENING_TYPE) }
+            .test()
+            .assertValue(fakeRemoteMetadata)
+    }
+
+    @Test
+    fun `saving a type that does not reload on changes succeeds after a remote change`() {
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.just(fakeRemoteMetadata))
+        whenever(metadataInteractor.putMetadata(any(), any())).thenReturn(Completable.complete())
+        whenever(snapshotStore.read(argThat { type == NON_LISTENING_TYPE })).thenReturn(SNAPSHOT)
+        val changes = subject.metadataChanges.test()
+
+        subject.attemptMetadataSetup()
+            .thenMaybe { subject.fetchMetadata(NON_LISTENING_TYPE) }
+            .test()
+        subject.saveToMetadata(SNAPSHOT, NON_LISTENING_TYPE)
+            .test()
+            .assertComplete()
+
+        changes.assertNoValues()
+        verify(snapshotStore, never()).write(argThat { type == NON_LISTENING_TYPE }, any())
+    }
+
+    @Test
+    fun `nodes kept on the device are used and checked against the service`() {
+        whenever(snapshotStore.read(any())).thenReturn(fakeRemoteMetadata)
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.just(fakeRemoteMetadata))
+
+        subject.attemptMetadataSetup()
+            .test()
+            .assertComplete()
+
+        verify(metadataInteractor).loadRemoteMetadata(any())
+        verify(snapshotStore, never()).write(any(), any())
+    }
+
+    @Test
+    fun `nodes changed on the service replace the ones kept on the device`() {
+        whenever(snapshotStore.read(any())).thenReturn(fakeRemoteMetadata)
+        whenever(snapshotStore.read(argThat { type == METADATA_TYPE })).thenReturn(SNAPSHOT)
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.just(changedRemoteMetadata))
+        val changes = subject.metadataChanges.test()
+
+        subject.attemptMetadataSetup()
+            .thenMaybe { subject.fetchMetadata(METADATA_TYPE) }
+            .test()
+            .assertValue(SNAPSHOT)
+
+        verify(snapshotStore).write(argThat { type == NODES_TYPE }, eq(changedRemoteMetadata))
+        changes.assertValue(METADATA_TYPE)
+    }
+
+    @Test
+    fun `nodes no longer on the service are dropped from the device`() {
+        whenever(snapshotStore.read(any())).thenReturn(fakeRemoteMetadata)
+        whenever(metadataInteractor.loadRemoteMetadata(any())).thenReturn(Maybe.empty())
+
+        subject.attemptMetadataSetup()
+            .test()
+            .assertComplete()
+
+        verify(snapshotStore).delete(argThat { type == NODES_TYPE })
+    }
+
+    companion object {
+        private const val METADATA_TYPE = 5
+        private const val NON_LISTENING_TYPE = 10
+        private const val NODES_TYPE = -1
+        private const val SNAPSHOT = "{\"snapshot\":true}"
+    }
 }
@@ -477,14 +477,14 @@ class PayloadDataManagerTest {
         val mockImportedAddress: ImportedAddress = mock()
         val secondPassword = "SECOND_PASSWORD"
         val mockKey: SigningKey = mock()
-        whenever(payloadManager.getAddressSigningKey(mockImportedAddress, secondPassword))
-            .thenReturn(mockKey)
+        whenever(payloadManager.getAddressSigningKeys(listOf(mockImportedAddress), secondPassword))
+            .thenReturn(listOf(mockKey))
         // Act
-        val result = subject.getAddressSigningKey(mockImportedAddress, secondPassword)
+        val result = subject.getAddressSigningKeys(listOf(mockImportedAddress), secondPassword)
         // Assert
-        verify(payloadManager).getAddressSigningKey(mockImportedAddress, secondPassword)
+        verify(payloadManager).getAddressSigningKeys(listOf(mockImportedAddress), secondPassword)
         verifyNoMoreInteractions(payloadManager)
-        result shouldEqual mockKey
+        result shouldEqual listOf(mockKey)
     }
 
     @Test
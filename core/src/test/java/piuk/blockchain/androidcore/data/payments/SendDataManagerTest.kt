@@ -21,8 +21,10 @@ import info.blockchain.wallet.payment.SpendableUnspentOutputs
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.subjects.SingleSubject
 import java.math.BigInteger
 import org.amshove.kluent.shouldEqual
+import org.bitcoinj.core.Sha256Hash
 import org.bitcoinj.core.Transaction
 import org.junit.Before
 import org.junit.Rule
@@ -33,6 +35,7 @@ class SendDataManagerTest {
     private lateinit var subject: SendDataManager
     private val mockPaymentService: PaymentService = mock()
     private val mockLastTxUpdater: LastTxUpdater = mock()
+    private val sentTransactions = SentTransactions()
     private val targetOutputType = OutputType.P2PKH
     private val changeOutputType = OutputType.P2PKH
 
@@ -44,7 +47,7 @@ class SendDataManagerTest {
 
     @Before
     fun setUp() {
-        subject = SendDataManager(mockPaymentService, mockLastTxUpdater)
+        subject = SendDataManager(mockPaymentService, mockLastTxUpdater, sentTransactions)
     }
 
     @Test
@@ -57,7 +60,9 @@ class SendDataManagerTest {
         val mockFee: BigInteger = mock()
         val mockAmount: BigInteger = mock()
         val txHash = "TX_HASH"
-        val mockTx: Transaction = mock()
+        val mockTx: Transaction = mock {
+            on { txId }.thenReturn(TX_ID)
+        }
 
         whenever(
             mockPaymentService.getBtcTx(
@@ -98,6 +103,40 @@ class SendDataManagerTest {
         verifyNoMoreInteractions(mockPaymentService)
     }
 
+    @Test
+    fun `a submitted payment is recorded as sent before the broadcast returns`() {
+        val mockTx: Transaction = mock {
+            on { txId }.thenReturn(TX_ID)
+        }
+        val broadcast = SingleSubject.create<String>()
+        whenever(mockPaymentService.submitBtcPayment(mockTx)).thenReturn(broadcast)
+        whenever(mockLastTxUpdater.updateLastTxTime()).thenReturn(Completable.complete())
+
+        val testObserver = subject.submitBtcPayment(mockTx).test()
+        // The websocket reports it while the broadcast is still in flight
+        (TX_ID.toString() in sentTransactions) shouldEqual true
+
+        broadcast.onSuccess("TX_HASH")
+        testObserver.assertComplete()
+        (TX_ID.toString() in sentTransactions) shouldEqual true
+    }
+
+    @Test
+    fun `a payment whose broadcast fails is no longer recorded as sent`() {
+        val mockTx: Transaction = mock {
+            on { txId }.thenReturn(TX_ID)
+        }
+        val broadcast = SingleSubject.create<String>()
+        whenever(mockPaymentService.submitBtcPayment(mockTx)).thenReturn(broadcast)
+
+        val testObserver = subject.submitBtcPayment(mockTx).test()
+        (TX_ID.toString() in sentTransactions) shouldEqual true
+
+        broadcast.onError(Exception())
+        testObserver.assertError(Exception::class.java)
+        (TX_ID.toString() in sentTransactions) shouldEqual false
+    }
+
     @Test
     fun `submitPayment BTC successful even if logging last tx fails`() {
         // Arrange
@@ -108,7 +147,9 @@ class SendDataManagerTest {
         val mockFee: BigInteger = mock()
         val mockAmount: BigInteger = mock()
         val txHash = "TX_HASH"
-        val mockTx: Transaction = mock()
+        val mockTx: Transaction = mock {
+            on { txId }.thenReturn(TX_ID)
+        }
 
         whenever(
             mockPaymentService.getBtcTx(
@@ -158,7 +199,9 @@ class SendDataManagerTest {
         val mockFee: BigInteger = mock()
         val mockAmount: BigInteger = mock()
         val txHash = "TX_HASH"
-        val mockTx: Transaction = mock()
+        val mockTx: Transaction = mock {
+            on { txId }.thenReturn(TX_ID)
+        }
         val dustInput = mock<DustInput>()
 
         whenever(
@@ -213,7 +256,9 @@ class SendDataManagerTest {
         val mockFee: BigInteger = mock()
         val mockAmount: BigInteger = mock()
         val txHash = "TX_HASH"
-        val mockTx: Transaction = mock()
+        val mockTx: Transaction = mock {
+            on { txId }.thenReturn(TX_ID)
+        }
         val dustInput = mock<DustInput>()
 
         whenever(
@@ -329,7 +374,8 @@ class SendDataManagerTest {
                 changeOutputType,
                 payment.toBigInteger(),
                 fee,
-                false
+                false,
+                true
             )
         ).thenReturn(outputs)
         // Act
@@ -338,7 +384,7 @@ class SendDataManagerTest {
         // Assert
         result shouldEqual outputs
         verify(mockPaymentService)
-            .getSpendableCoins(unspent, targetOutputType, changeOutputType, payment.toBigInteger(), fee, false)
+            .getSpendableCoins(unspent, targetOutputType, changeOutputType, payment.toBigInteger(), fee, false, true)
         verifyNoMoreInteractions(mockPaymentService)
     }
 
@@ -450,4 +496,8 @@ class SendDataManagerTest {
         verify(mockPaymentService).estimateFee(inputs, outputs, mockFeePerKb)
         verifyNoMoreInteractions(mockPaymentService)
     }
+
+    companion object {
+        private val TX_ID = Sha256Hash.wrap("9a0f3c1e4b8e0f7d2c6a5b4e3d2c1b0a9f8e7d6c5b4a39281706f5e4d3c2b1a0")
+    }
 }
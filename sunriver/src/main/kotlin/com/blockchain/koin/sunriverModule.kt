@@ -25,7 +25,8 @@ val sunriverModule = module {
                 lastTxUpdater = get(),
                 eventLogger = get(),
                 xlmHorizonUrlFetcher = get(),
-                xlmHorizonDefUrl = getProperty("HorizonURL")
+                xlmHorizonDefUrl = getProperty("HorizonURL"),
+                transactionDetailsStore = get()
             )
         }
 
@@ -0,0 +1,90 @@
+package com.blockchain.sunriver
+
+import info.blockchain.balance.CryptoValue
+
+/**
+ * What a transaction needs to know about an account: what it holds, how many reserves it is paying for
+ * and the sequence number of the last transaction it sent.
+ */
+internal data class HorizonAccountState(
+    val balance: CryptoValue,
+    val subentryCount: Int,
+    val sequenceNumber: Long
+)
+
+/**
+ * Short lived cache of account state, so that building and checking transactions - which happens on
+ * every change to a send - need not look both accounts up again each time.
+ *
+ * Accounts that do not exist are cached too, as null. After a transaction is submitted the state of
+ * both accounts is moved on locally, so a following send uses the next sequence number without asking
+ * horizon for it. Anything that leaves the local state in doubt should [invalidate] it.
+ */
+internal class HorizonAccountCache(
+    private val maxAgeMillis: Long = MAX_AGE_MILLIS,
+    private val now: () -> Long = System::currentTimeMillis
+) {
+    private class CachedAccount(
+        val state: HorizonAccountState?,
+        val cachedAt: Long
+    )
+
+    private val accounts = mutableMapOf<String, CachedAccount>()
+
+    fun get(accountId: String, fetch: (String) -> HorizonAccountState?): HorizonAccountState? {
+        synchronized(this) {
+            accounts[accountId]?.takeIf { now() - it.cachedAt < maxAgeMillis }?.let { return it.state }
+        }
+        return fetch(accountId).also { put(accountId, it) }
+    }
+
+    @Synchronized
+    fun put(accountId: String, state: HorizonAccountState?) {
+        accounts[accountId] = CachedAccount(state, now())
+    }
+
+    @Synchronized
+    fun submitted(
+        sourceAccountId: String,
+        sequenceNumber: Long,
+        spent: CryptoValue,
+        destinationAccountId: String,
+        received: CryptoValue
+    ) {
+        accounts[sourceAccountId]?.state?.let { source ->
+            put(
+                sourceAccountId,
+                source.copy(
+                    balance = (source.balance - spent) as CryptoValue,
+                    sequenceNumber = sequenceNumber
+                )
+            )
+        }
+        if (destinationAccountId != sourceAccountId) {
+            accounts[destinationAccountId]?.let { destination ->
+                // Funding an account creates it. It has not sent anything yet, but its starting sequence
+                // number is not known here, and sending from it will look it up anyway.
+                val state = destination.state
+                if (state != null) {
+                    put(destinationAccountId, state.copy(balance = (state.balance + received) as CryptoValue))
+                } else {
+                    invalidate(destinationAccountId)
+                }
+            }
+        }
+    }
+
+    @Synchronized
+    fun invalidate(vararg accountIds: String) {
+        accountIds.forEach { accounts.remove(it) }
+    }
+
+    @Synchronized
+    fun invalidateAll() {
+        accounts.clear()
+    }
+
+    companion object {
+        private const val MAX_AGE_MILLIS = 30_000L
+    }
+}
@@ -4,90 +4,63 @@ import com.blockchain.sunriver.models.XlmTransaction
 import info.blockchain.balance.CryptoCurrency
 import info.blockchain.balance.CryptoValue
 import org.stellar.sdk.KeyPair
-import org.stellar.sdk.Memo
-import org.stellar.sdk.MemoHash
-import org.stellar.sdk.MemoId
-import org.stellar.sdk.MemoReturnHash
-import org.stellar.sdk.MemoText
 import org.stellar.sdk.responses.operations.CreateAccountOperationResponse
 import org.stellar.sdk.responses.operations.OperationResponse
 import org.stellar.sdk.responses.operations.PaymentOperationResponse
 
-internal fun List<OperationResponse>.map(accountId: String, horizonProxy: HorizonProxy): List<XlmTransaction> =
-    filter { it is CreateAccountOperationResponse || it is PaymentOperationResponse }
+internal fun OperationResponse.isSupported(): Boolean =
+    this is CreateAccountOperationResponse || this is PaymentOperationResponse
+
+internal fun List<OperationResponse>.map(
+    accountId: String,
+    details: Map<String, XlmTransactionDetails>
+): List<XlmTransaction> =
+    filter { it.isSupported() }
         .map {
             mapOperationResponse(
                 it,
                 accountId,
-                horizonProxy
+                details[it.transactionHash]
             )
         }
 
 internal fun mapOperationResponse(
     operationResponse: OperationResponse,
     usersAccountId: String,
-    horizonProxy: HorizonProxy
+    details: XlmTransactionDetails?
 ): XlmTransaction =
     when (operationResponse) {
-        is CreateAccountOperationResponse -> operationResponse.mapCreate(usersAccountId, horizonProxy)
-        is PaymentOperationResponse -> operationResponse.mapPayment(usersAccountId, horizonProxy)
+        is CreateAccountOperationResponse -> operationResponse.mapCreate(usersAccountId, details)
+        is PaymentOperationResponse -> operationResponse.mapPayment(usersAccountId, details)
         else -> throw IllegalArgumentException("Unsupported operation type ${operationResponse.javaClass.simpleName}")
     }
 
 private fun CreateAccountOperationResponse.mapCreate(
     usersAccountId: String,
-    horizonProxy: HorizonProxy
-): XlmTransaction {
-    return try {
-        val transactionResponse = horizonProxy.getTransaction(transactionHash)
-        val memo = transactionResponse.memo ?: Memo.none()
-        val fee = CryptoValue.fromMinor(CryptoCurrency.XLM, transactionResponse.feeCharged.toBigInteger())
-        toXlmTransaction(usersAccountId, startingBalance, memo, account, funder, fee)
-    } catch (e: Throwable) {
-        // There's a bug in the xlm sdk (horizonProxy.getTransaction()) which throws a
-        // NoSuchMethodError when parsing a int memo on pre jdk 1.8 devices
-        // In this case, we can't know the fee but everything else is known, so:
-        toXlmTransaction(
-            usersAccountId,
-            startingBalance,
-            Memo.none(),
-            account,
-            funder,
-            CryptoValue.zero(CryptoCurrency.XLM)
-        )
-    }
-}
+    details: XlmTransactionDetails?
+): XlmTransaction =
+    toXlmTransaction(usersAccountId, startingBalance, details, account, funder)
 
 private fun PaymentOperationResponse.mapPayment(
     usersAccountId: String,
-    horizonProxy: HorizonProxy
-): XlmTransaction {
-    return try {
-        val transactionResponse = horizonProxy.getTransaction(transactionHash)
-        val memo = transactionResponse.memo ?: Memo.none()
-        val fee = CryptoValue.fromMinor(CryptoCurrency.XLM, transactionResponse.feeCharged.toBigInteger())
-        toXlmTransaction(usersAccountId, amount, memo, to, from, fee)
-    } catch (e: Throwable) {
-        // There's a bug in the xlm sdk (horizonProxy.getTransaction()) which throws a
-        // NoSuchMethodError when parsing a int memo on pre jdk 1.8 devices
-        // In this case, we can't know the fee but everything else is known, so:
-        toXlmTransaction(usersAccountId, amount, Memo.none(), to, from, CryptoValue.zero(CryptoCurrency.XLM))
-    }
-}
+    details: XlmTransactionDetails?
+): XlmTransaction =
+    toXlmTransaction(usersAccountId, amount, details, to, from)
 
 private fun OperationResponse.toXlmTransaction(
     usersAccountId: String,
     amount: String,
-    memo: Memo,
+    details: XlmTransactionDetails?,
     to: String,
-    from: String,
-    fee: CryptoValue
+    from: String
 ) = XlmTransaction(
     timeStamp = createdAt,
     value = deltaValueForAccount(usersAccountId, KeyPair.fromAccountId(from), amount),
-    fee = fee,
+    // Without the details of the transaction we can't know the fee, but everything else is known
+    fee = details?.let { CryptoValue.fromMinor(CryptoCurrency.XLM, it.feeCharged.toBigInteger()) }
+        ?: CryptoValue.zero(CryptoCurrency.XLM),
     hash = transactionHash,
-    memo = mapMemo(memo),
+    memo = details?.memo ?: Memo.None,
     to = KeyPair.fromAccountId(to).toHorizonKeyPair().neuter(),
     from = KeyPair.fromAccountId(from).toHorizonKeyPair().neuter()
 )
@@ -106,12 +79,3 @@ private fun deltaValueForAccount(
         }
     return CryptoValue.fromMajor(CryptoCurrency.XLM, deltaForThisAccount)
 }
-
-private fun mapMemo(memo: Memo): com.blockchain.sunriver.Memo =
-    when (memo) {
-        is MemoId -> Memo(memo.id.toString(), "id")
-        is MemoHash -> Memo(memo.hexValue, "hash")
-        is MemoReturnHash -> Memo(memo.hexValue, "return")
-        is MemoText -> Memo(memo.text, "text")
-        else -> com.blockchain.sunriver.Memo.None
-    }
@@ -4,6 +4,7 @@ import info.blockchain.balance.CryptoCurrency
 import info.blockchain.balance.CryptoValue
 import java.math.BigDecimal
 import java.math.BigInteger
+import org.stellar.sdk.Account
 import org.stellar.sdk.AssetTypeNative
 import org.stellar.sdk.CreateAccountOperation
 import org.stellar.sdk.KeyPair
@@ -19,12 +20,15 @@ import org.stellar.sdk.responses.AccountResponse
 import org.stellar.sdk.responses.TransactionResponse
 import org.stellar.sdk.responses.operations.OperationResponse
 
+internal const val OPERATIONS_PAGE_SIZE = 50
+
 private val basePerOperationFee = CryptoValue.fromMinor(CryptoCurrency.XLM, 100.toBigInteger())
 
 internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
 
     private var server = serverFactory("")
     private lateinit var currentNetwork: Network
+    private val accountCache = HorizonAccountCache()
 
     fun update(url: String) {
         currentNetwork = if (url.contains("test")) {
@@ -33,6 +37,7 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
             Network.PUBLIC
         }
         server = serverFactory(url)
+        accountCache.invalidateAll()
     }
 
     fun accountExists(accountId: String) = findAccount(accountId) != null
@@ -48,7 +53,14 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
             )
         }
 
-    private fun findAccount(accountId: String): AccountResponse? {
+    // Always asks horizon, and refreshes the cached state of the account with the answer
+    private fun findAccount(accountId: String): AccountResponse? =
+        lookUpAccount(accountId).also { accountCache.put(accountId, it?.toState()) }
+
+    private fun cachedAccount(accountId: String): HorizonAccountState? =
+        accountCache.get(accountId) { lookUpAccount(it)?.toState() }
+
+    private fun lookUpAccount(accountId: String): AccountResponse? {
         val accounts = server.accounts()
         return try {
             accounts.account(accountId)
@@ -61,11 +73,20 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
         }
     }
 
-    fun getTransactionList(accountId: String): List<OperationResponse> = try {
+    /**
+     * One page of the operations on an account. Without a [cursor] this is the first page in [order],
+     * otherwise it is the page that follows the operation with that paging token.
+     */
+    fun getTransactionList(
+        accountId: String,
+        cursor: String? = null,
+        order: RequestBuilder.Order = RequestBuilder.Order.DESC
+    ): List<OperationResponse> = try {
         server.operations()
-            .order(RequestBuilder.Order.DESC)
-            .limit(50)
+            .order(order)
+            .limit(OPERATIONS_PAGE_SIZE)
             .forAccount(accountId)
+            .let { request -> cursor?.let { request.cursor(it) } ?: request }
             .execute()
             .records
     } catch (e: ErrorResponse) {
@@ -95,19 +116,50 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
         memo: Memo,
         timeout: Long,
         perOperationFee: CryptoValue? = null
+    ): SendResult =
+        submitTransaction(source, destinationAccountId, amount, memo, timeout, perOperationFee).let { result ->
+            // The cached sequence number was behind, something else has sent from the account since
+            if (result.failureExtra == BAD_SEQUENCE_RESULT_CODE) {
+                submitTransaction(source, destinationAccountId, amount, memo, timeout, perOperationFee)
+            } else {
+                result
+            }
+        }
+
+    private fun submitTransaction(
+        source: KeyPair,
+        destinationAccountId: String,
+        amount: CryptoValue,
+        memo: Memo,
+        timeout: Long,
+        perOperationFee: CryptoValue?
     ): SendResult {
         val result = dryRunTransaction(source, destinationAccountId, amount, memo, perOperationFee, timeout)
         if (!result.success || result.transaction == null) {
             return result
         }
         result.transaction.sign(source)
-        val submitTransactionResponse = server.submitTransaction(result.transaction)
+        val submitTransactionResponse = try {
+            server.submitTransaction(result.transaction)
+        } catch (e: Exception) {
+            accountCache.invalidate(source.accountId, destinationAccountId)
+            throw e
+        }
         return if (submitTransactionResponse.isSuccess) {
+            accountCache.submitted(
+                sourceAccountId = source.accountId,
+                sequenceNumber = result.transaction.sequenceNumber,
+                spent = (amount + CryptoValue.fromMinor(CryptoCurrency.XLM, result.transaction.fee.toBigInteger()))
+                    as CryptoValue,
+                destinationAccountId = destinationAccountId,
+                received = amount
+            )
             SendResult(
                 true,
                 result.transaction
             )
         } else {
+            accountCache.invalidate(source.accountId, destinationAccountId)
             val extras = submitTransactionResponse.extras
             SendResult(
                 false,
@@ -144,7 +196,7 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
                 failureValue = minSend
             )
         }
-        val destinationAccountExists = accountExists(destinationAccountId)
+        val destinationAccountExists = cachedAccount(destinationAccountId) != null
         val newAccountMinBalance = minBalance(minReserve, subentryCount = 0)
         if (!destinationAccountExists && amount < newAccountMinBalance) {
             return SendResult(
@@ -153,10 +205,11 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
                 failureValue = newAccountMinBalance
             )
         }
-        val account = server.accounts().account(source.accountId)
+        val account = cachedAccount(source.accountId)
+            ?: throw ErrorResponse(404, "Source account ${source.accountId} not found")
         val transaction =
             createUnsignedTransaction(
-                account,
+                Account(source.accountId, account.sequenceNumber),
                 KeyPair.fromAccountId(destinationAccountId),
                 destinationAccountExists,
                 amount.toBigDecimal(),
@@ -222,7 +275,7 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
     }
 
     private fun createUnsignedTransaction(
-        source: AccountResponse,
+        source: Account,
         destination: KeyPair,
         destinationAccountExists: Boolean,
         amount: BigDecimal,
@@ -257,6 +310,7 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
 
     companion object {
         const val XLM_DEFAULT_TIMEOUT_SECS: Long = 10
+        private const val BAD_SEQUENCE_RESULT_CODE = "tx_bad_seq"
     }
 }
 
@@ -267,6 +321,13 @@ private val AccountResponse?.balance: CryptoValue
         }?.balance?.let { CryptoValue.fromMajor(CryptoCurrency.XLM, it.toBigDecimal()) }
             ?: CryptoValue.zero(CryptoCurrency.XLM)
 
+private fun AccountResponse.toState() =
+    HorizonAccountState(
+        balance = balance,
+        subentryCount = subentryCount,
+        sequenceNumber = sequenceNumber
+    )
+
 private fun AccountResponse?.minBalance(minReserve: CryptoValue): CryptoValue =
     this?.let { minBalance(minReserve, subentryCount) } ?: CryptoValue.zero(CryptoCurrency.XLM)
 
@@ -39,7 +39,8 @@ class XlmDataManager internal constructor(
     private val lastTxUpdater: LastTxUpdater,
     private val eventLogger: EventLogger,
     xlmHorizonUrlFetcher: XlmHorizonUrlFetcher,
-    xlmHorizonDefUrl: String
+    xlmHorizonDefUrl: String,
+    transactionDetailsStore: XlmTransactionDetailsStore = InMemoryXlmTransactionDetailsStore()
 ) {
     private val xlmProxyUrl = xlmHorizonUrlFetcher
         .xlmHorizonUrl(xlmHorizonDefUrl)
@@ -47,6 +48,14 @@ class XlmDataManager internal constructor(
             horizonProxy.update(it)
         }.cache()
 
+    private val transactionHistory = XlmTransactionHistory(
+        horizonProxy = horizonProxy,
+        enricher = XlmTransactionEnricher(
+            horizonProxy = horizonProxy,
+            store = transactionDetailsStore
+        )
+    )
+
     fun sendFunds(
         sendDetails: SendDetails,
         secondPassword: String? = null
@@ -167,14 +176,18 @@ class XlmDataManager internal constructor(
         maybeDefaultXlmAccount().map(XlmAccount::toReference)
 
     fun getTransactionList(accountReference: XlmAccountReference): Single<List<XlmTransaction>> =
-        Single.fromCallable {
-            horizonProxy.getTransactionList(accountReference.accountId)
-                .map(accountReference.accountId, horizonProxy)
-        }.ensureUrlUpdated()
+        transactionHistory.getTransactionList(accountReference.accountId).ensureUrlUpdated()
 
     fun getTransactionList(): Single<List<XlmTransaction>> =
         defaultAccount().flatMap { getTransactionList(it) }
 
+    /**
+     * Clears the transaction histories held in memory, and stops loading their older pages.
+     */
+    fun clearAccountDetails() {
+        transactionHistory.clear()
+    }
+
     private fun defaultXlmAccount() =
         wallet.map(XlmMetaData::default)
 
@@ -0,0 +1,94 @@
+package com.blockchain.sunriver
+
+import io.reactivex.rxjava3.core.Maybe
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.Schedulers
+import java.util.concurrent.ConcurrentHashMap
+import org.stellar.sdk.MemoHash
+import org.stellar.sdk.MemoId
+import org.stellar.sdk.MemoReturnHash
+import org.stellar.sdk.MemoText
+import org.stellar.sdk.responses.TransactionResponse
+
+/**
+ * The parts of a transaction that the operations list does not carry.
+ */
+data class XlmTransactionDetails(
+    val memo: Memo,
+    val feeCharged: Long
+)
+
+/**
+ * Keeps the details of transactions already seen. A transaction is only returned by horizon once it is
+ * in a ledger, after which its details never change, so they can be kept for good.
+ */
+interface XlmTransactionDetailsStore {
+    fun read(hashes: Collection<String>): Map<String, XlmTransactionDetails>
+    fun write(details: Map<String, XlmTransactionDetails>)
+}
+
+internal class InMemoryXlmTransactionDetailsStore : XlmTransactionDetailsStore {
+
+    private val details = ConcurrentHashMap<String, XlmTransactionDetails>()
+
+    override fun read(hashes: Collection<String>): Map<String, XlmTransactionDetails> =
+        hashes.mapNotNull { hash -> details[hash]?.let { hash to it } }.toMap()
+
+    override fun write(details: Map<String, XlmTransactionDetails>) {
+        this.details.putAll(details)
+    }
+}
+
+/**
+ * Looks up the memo and fee of each transaction in a page of operations. Stored details are used where
+ * there are any, and only the rest are fetched from horizon, a few at a time.
+ */
+internal class XlmTransactionEnricher(
+    private val horizonProxy: HorizonProxy,
+    private val store: XlmTransactionDetailsStore,
+    private val maxConcurrency: Int = MAX_CONCURRENT_FETCHES
+) {
+    fun detailsFor(hashes: Collection<String>): Single<Map<String, XlmTransactionDetails>> =
+        Single.fromCallable { store.read(hashes.toSet()) }
+            .flatMap { stored ->
+                val missing = hashes.toSet() - stored.keys
+                Observable.fromIterable(missing)
+                    .flatMap({ hash -> fetch(hash).toObservable() }, maxConcurrency)
+                    .toMap({ it.first }, { it.second })
+                    .doOnSuccess { store.write(it) }
+                    .map { fetched -> stored + fetched }
+            }
+
+    // Transactions that cannot be fetched are left out, and are mapped without a memo or fee
+    private fun fetch(hash: String): Maybe<Pair<String, XlmTransactionDetails>> =
+        Maybe.fromCallable<Pair<String, XlmTransactionDetails>> {
+            try {
+                hash to horizonProxy.getTransaction(hash).toDetails()
+            } catch (e: Throwable) {
+                // There's a bug in the xlm sdk (horizonProxy.getTransaction()) which throws a
+                // NoSuchMethodError when parsing a int memo on pre jdk 1.8 devices. That is not
+                // an Exception, and rx would rethrow it as fatal, so it is caught here.
+                null
+            }
+        }.subscribeOn(Schedulers.io())
+
+    companion object {
+        private const val MAX_CONCURRENT_FETCHES = 4
+    }
+}
+
+private fun TransactionResponse.toDetails() =
+    XlmTransactionDetails(
+        memo = memo.toMemo(),
+        feeCharged = feeCharged
+    )
+
+private fun org.stellar.sdk.Memo?.toMemo(): Memo =
+    when (this) {
+        is MemoId -> Memo(id.toString(), "id")
+        is MemoHash -> Memo(hexValue, "hash")
+        is MemoReturnHash -> Memo(hexValue, "return")
+        is MemoText -> Memo(text, "text")
+        else -> Memo.None
+    }
@@ -0,0 +1,157 @@
+package com.blockchain.sunriver
+
+import com.blockchain.sunriver.models.XlmTransaction
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.kotlin.subscribeBy
+import io.reactivex.rxjava3.schedulers.Schedulers
+import java.util.concurrent.ConcurrentHashMap
+import org.stellar.sdk.requests.RequestBuilder
+import org.stellar.sdk.responses.operations.OperationResponse
+import timber.log.Timber
+
+/**
+ * The transaction history of each account, newest first.
+ *
+ * The first load only fetches the latest page of operations on the account. Once that has been returned,
+ * the older pages are fetched in the background, up to [maxPages] pages in all, and added to the history
+ * for the following loads. After the first load only the operations newer than the newest one seen are
+ * fetched, from its paging token, and added to the transactions already mapped. If too many have arrived
+ * since to page through, it starts over.
+ */
+internal class XlmTransactionHistory(
+    private val horizonProxy: HorizonProxy,
+    private val enricher: XlmTransactionEnricher,
+    private val maxPages: Int = MAX_PAGES
+) {
+    private class AccountHistory(
+        val newestPagingToken: String,
+        // The oldest operation loaded, while there are older ones still to load
+        val oldestPagingToken: String?,
+        val transactions: List<XlmTransaction>
+    )
+
+    private class FetchedOperations(
+        // Newest first
+        val operations: List<OperationResponse>,
+        val newestPagingToken: String?,
+        val oldestPagingToken: String?,
+        // Null when the history was loaded from the start
+        val known: List<XlmTransaction>?
+    )
+
+    private val histories = ConcurrentHashMap<String, AccountHistory>()
+    private val olderLoads = ConcurrentHashMap<String, Disposable>()
+
+    fun getTransactionList(accountId: String): Single<List<XlmTransaction>> =
+        Single.fromCallable { fetchOperations(accountId, histories[accountId]) }
+            .flatMap { fetched ->
+                mapOperations(accountId, fetched.operations)
+                    .map { transactions -> update(accountId, fetched, transactions) }
+            }.doAfterSuccess {
+                loadOlderOperations(accountId)
+            }
+
+    private fun mapOperations(accountId: String, operations: List<OperationResponse>): Single<List<XlmTransaction>> {
+        val supported = operations.filter { it.isSupported() }
+        return enricher.detailsFor(supported.map { it.transactionHash })
+            .map { details -> supported.map(accountId, details) }
+    }
+
+    private fun update(
+        accountId: String,
+        fetched: FetchedOperations,
+        transactions: List<XlmTransaction>
+    ): List<XlmTransaction> {
+        val newestPagingToken = fetched.newestPagingToken ?: return transactions + fetched.known.orEmpty()
+        return histories.compute(accountId) { _, current ->
+            if (fetched.known != null && current != null) {
+                // Older operations may have been added since the fetch started
+                AccountHistory(newestPagingToken, current.oldestPagingToken, transactions + current.transactions)
+            } else {
+                AccountHistory(newestPagingToken, fetched.oldestPagingToken, transactions)
+            }
+        }!!.transactions
+    }
+
+    private fun fetchOperations(accountId: String, history: AccountHistory?): FetchedOperations {
+        if (history != null) {
+            val newer = pages(accountId, history.newestPagingToken, RequestBuilder.Order.ASC, maxPages)
+            if (newer.size < maxPages * OPERATIONS_PAGE_SIZE) {
+                val newestFirst = newer.asReversed()
+                return FetchedOperations(
+                    operations = newestFirst,
+                    newestPagingToken = newestFirst.firstOrNull()?.pagingToken ?: history.newestPagingToken,
+                    oldestPagingToken = history.oldestPagingToken,
+                    known = history.transactions
+                )
+            }
+        }
+        val latest = horizonProxy.getTransactionList(accountId, null, RequestBuilder.Order.DESC)
+        return FetchedOperations(
+            operations = latest,
+            newestPagingToken = latest.firstOrNull()?.pagingToken,
+            oldestPagingToken = latest.lastOrNull()?.pagingToken
+                ?.takeIf { latest.size >= OPERATIONS_PAGE_SIZE && maxPages > 1 },
+            known = null
+        )
+    }
+
+    // Pages back from the oldest operation loaded, unless that is already under way. A failed load is
+    // tried again after the next load of the history.
+    private fun loadOlderOperations(accountId: String) {
+        val cursor = histories[accountId]?.oldestPagingToken ?: return
+        if (olderLoads[accountId]?.isDisposed == false) return
+
+        olderLoads[accountId] = Single.fromCallable {
+            pages(accountId, cursor, RequestBuilder.Order.DESC, maxPages - 1)
+        }.flatMap { older ->
+            mapOperations(accountId, older)
+        }.subscribeOn(Schedulers.io())
+            .subscribeBy(
+                onSuccess = { older ->
+                    histories.computeIfPresent(accountId) { _, current ->
+                        if (current.oldestPagingToken == cursor) {
+                            AccountHistory(current.newestPagingToken, null, current.transactions + older)
+                        } else {
+                            current
+                        }
+                    }
+                },
+                onError = { Timber.e(it, "Failed to load older XLM operations for $accountId") }
+            )
+    }
+
+    /**
+     * Stops any older pages still loading, and drops the histories loaded so far.
+     */
+    fun clear() {
+        olderLoads.values.forEach { it.dispose() }
+        olderLoads.clear()
+        histories.clear()
+    }
+
+    // Follows the cursor until a page comes back short, or pageLimit pages have been fetched
+    private fun pages(
+        accountId: String,
+        cursor: String?,
+        order: RequestBuilder.Order,
+        pageLimit: Int
+    ): List<OperationResponse> {
+        val operations = mutableListOf<OperationResponse>()
+        var next = cursor
+        repeat(pageLimit) {
+            val page = horizonProxy.getTransactionList(accountId, next, order)
+            operations += page
+            next = page.lastOrNull()?.pagingToken
+            if (page.size < OPERATIONS_PAGE_SIZE || next == null) {
+                return operations
+            }
+        }
+        return operations
+    }
+
+    companion object {
+        private const val MAX_PAGES = 10
+    }
+}
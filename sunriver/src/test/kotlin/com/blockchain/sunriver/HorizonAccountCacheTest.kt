@@ -0,0 +1,83 @@
+package com.blockchain.sunriver
+
+import com.blockchain.testutils.lumens
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class HorizonAccountCacheTest {
+
+    private var time = 0L
+    private var fetches = 0
+
+    private val subject = HorizonAccountCache(
+        maxAgeMillis = MAX_AGE,
+        now = { time }
+    )
+
+    private fun fetch(state: HorizonAccountState?): (String) -> HorizonAccountState? = {
+        fetches++
+        state
+    }
+
+    @Test
+    fun `accounts are only fetched once while fresh`() {
+        subject.get(SOURCE, fetch(SOURCE_STATE)) `should be equal to` SOURCE_STATE
+        subject.get(SOURCE, fetch(null)) `should be equal to` SOURCE_STATE
+        time = MAX_AGE
+        subject.get(SOURCE, fetch(null)) `should be equal to` null
+
+        fetches `should be equal to` 2
+    }
+
+    @Test
+    fun `accounts that do not exist are cached`() {
+        subject.get(DESTINATION, fetch(null))
+        subject.get(DESTINATION, fetch(null)) `should be equal to` null
+
+        fetches `should be equal to` 1
+    }
+
+    @Test
+    fun `a submitted transaction moves both accounts on`() {
+        subject.put(SOURCE, SOURCE_STATE)
+        subject.put(DESTINATION, DESTINATION_STATE)
+
+        subject.submitted(
+            sourceAccountId = SOURCE,
+            sequenceNumber = 11,
+            spent = 3.lumens(),
+            destinationAccountId = DESTINATION,
+            received = 2.lumens()
+        )
+
+        subject.get(SOURCE, fetch(null)) `should be equal to` HorizonAccountState(7.lumens(), 0, 11)
+        subject.get(DESTINATION, fetch(null)) `should be equal to` DESTINATION_STATE.copy(balance = 3.lumens())
+        fetches `should be equal to` 0
+    }
+
+    @Test
+    fun `funding a new account leaves it to be fetched again`() {
+        subject.put(SOURCE, SOURCE_STATE)
+        subject.put(DESTINATION, null)
+
+        subject.submitted(
+            sourceAccountId = SOURCE,
+            sequenceNumber = 11,
+            spent = 3.lumens(),
+            destinationAccountId = DESTINATION,
+            received = 2.lumens()
+        )
+
+        subject.get(DESTINATION, fetch(DESTINATION_STATE)) `should be equal to` DESTINATION_STATE
+        fetches `should be equal to` 1
+    }
+
+    companion object {
+        private const val MAX_AGE = 1000L
+        private const val SOURCE = "source"
+        private const val DESTINATION = "destination"
+
+        private val SOURCE_STATE = HorizonAccountState(10.lumens(), 0, 10)
+        private val DESTINATION_STATE = HorizonAccountState(1.lumens(), 2, 20)
+    }
+}
@@ -5,6 +5,8 @@ import com.blockchain.testutils.lumens
 import com.blockchain.testutils.stroops
 import com.nhaarman.mockitokotlin2.internal.createInstance
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import org.amshove.kluent.`should be`
 import org.amshove.kluent.`should be equal to`
@@ -16,6 +18,7 @@ import org.koin.test.KoinTest
 import org.mockito.ArgumentMatcher
 import org.mockito.Mockito
 import org.stellar.sdk.KeyPair
+import org.stellar.sdk.Memo
 import org.stellar.sdk.PaymentOperation
 import org.stellar.sdk.Server
 import org.stellar.sdk.Transaction
@@ -223,6 +226,49 @@ class HorizonProxyTest : KoinTest {
         }
     }
 
+    @Test
+    fun `sending after a dry run does not look the accounts up again`() {
+        val source = KeyPair.fromSecretSeed("SAD6LOTFMPIGAPOF2SPQSYD4OIGIE5XVVX3FW3K7QVFUTRSUUHMZQ76I")
+        val destinationAccountId = "GCO724H2FOHPBFF4OQ6IB5GB3CVE4W3UGDY4RIHHG6UPQ2YZSSCINMAI"
+
+        val accounts = createAccountsWith(
+            Pair(
+                destinationAccountId,
+                createAccountResponse(
+                    createBalanceWith("native", null, "10000"),
+                    accountId = destinationAccountId
+                )
+            ),
+            Pair(
+                accountId,
+                createAccountResponse(
+                    createBalanceWith("native", null, "10000"),
+                    accountId = accountId,
+                    sequenceNumber = 10
+                )
+            )
+        )
+        givenTheServerAccountsAre(accounts)
+
+        val transactionResponse = givenASuccessfulTransactionResponse()
+        whenever(
+            server.submitTransaction(withAnyTransactionWith(accountId))
+        ).thenReturn(
+            transactionResponse
+        )
+
+        subject.update("")
+        subject.dryRunTransaction(source, destinationAccountId, 1.lumens(), Memo.none())
+            .transaction!!.sequenceNumber `should be equal to` 11L
+        subject.sendTransaction(source, destinationAccountId, 1.lumens(), 10)
+            .transaction!!.sequenceNumber `should be equal to` 11L
+        subject.sendTransaction(source, destinationAccountId, 1.lumens(), 10)
+            .transaction!!.sequenceNumber `should be equal to` 12L
+
+        verify(accounts, times(1)).account(accountId)
+        verify(accounts, times(1)).account(destinationAccountId)
+    }
+
     @Test
     fun `insufficient funds that we know about before transaction send - whole balance`() {
         val source = KeyPair.fromSecretSeed("SAD6LOTFMPIGAPOF2SPQSYD4OIGIE5XVVX3FW3K7QVFUTRSUUHMZQ76I")
@@ -399,12 +445,14 @@ class HorizonProxyTest : KoinTest {
     private fun createAccountResponse(
         vararg balances: AccountResponse.Balance,
         subentryCount: Int = 0,
-        accountId: String = ""
+        accountId: String = "",
+        sequenceNumber: Long = 0
     ): AccountResponse {
         val mock: AccountResponse = mock()
         whenever(mock.balances).thenReturn(balances)
         whenever(mock.subentryCount).thenReturn(subentryCount)
         whenever(mock.accountId).thenReturn(accountId)
+        whenever(mock.sequenceNumber).thenReturn(sequenceNumber)
         return mock
     }
 
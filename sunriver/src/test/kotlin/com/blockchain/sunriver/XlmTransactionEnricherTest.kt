@@ -0,0 +1,73 @@
+package com.blockchain.sunriver
+
+import com.blockchain.testutils.rxInit
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import org.junit.Rule
+import org.junit.Test
+import org.stellar.sdk.MemoText
+import org.stellar.sdk.responses.TransactionResponse
+
+class XlmTransactionEnricherTest {
+
+    @get:Rule
+    val initSchedulers = rxInit {
+        ioTrampoline()
+    }
+
+    private val fetchedTransaction: TransactionResponse = mock {
+        on { feeCharged }.thenReturn(FETCHED_FEE)
+        on { memo }.thenReturn(MemoText("memo"))
+    }
+
+    private val horizonProxy: HorizonProxy = mock {
+        on { getTransaction(any()) }.thenReturn(fetchedTransaction)
+    }
+
+    private val store: XlmTransactionDetailsStore = mock {
+        on { read(any()) }.thenReturn(mapOf(STORED_HASH to STORED_DETAILS))
+    }
+
+    private val subject = XlmTransactionEnricher(
+        horizonProxy = horizonProxy,
+        store = store
+    )
+
+    @Test
+    fun `only transactions that are not stored are fetched`() {
+        subject.detailsFor(listOf(STORED_HASH, MISSING_HASH))
+            .test()
+            .assertValue(
+                mapOf(
+                    STORED_HASH to STORED_DETAILS,
+                    MISSING_HASH to FETCHED_DETAILS
+                )
+            )
+
+        verify(horizonProxy, never()).getTransaction(STORED_HASH)
+        verify(store).write(mapOf(MISSING_HASH to FETCHED_DETAILS))
+    }
+
+    @Test
+    fun `transactions that fail to fetch are left out and not stored`() {
+        whenever(horizonProxy.getTransaction(MISSING_HASH)).thenThrow(NoSuchMethodError())
+
+        subject.detailsFor(listOf(STORED_HASH, MISSING_HASH))
+            .test()
+            .assertValue(mapOf(STORED_HASH to STORED_DETAILS))
+
+        verify(store).write(emptyMap())
+    }
+
+    companion object {
+        private const val STORED_HASH = "stored"
+        private const val MISSING_HASH = "missing"
+        private const val FETCHED_FEE = 200L
+
+        private val STORED_DETAILS = XlmTransactionDetails(Memo.None, 100)
+        private val FETCHED_DETAILS = XlmTransactionDetails(Memo("memo", "text"), FETCHED_FEE)
+    }
+}
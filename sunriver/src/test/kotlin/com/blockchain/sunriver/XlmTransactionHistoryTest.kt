@@ -0,0 +1,147 @@
+package com.blockchain.sunriver
+
+import com.blockchain.testutils.rxInit
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import org.amshove.kluent.`should be equal to`
+import org.junit.Rule
+import org.junit.Test
+import org.stellar.sdk.requests.RequestBuilder
+import org.stellar.sdk.responses.TransactionResponse
+import org.stellar.sdk.responses.operations.PaymentOperationResponse
+
+class XlmTransactionHistoryTest {
+
+    @get:Rule
+    val initSchedulers = rxInit {
+        ioTrampoline()
+    }
+
+    private val transaction: TransactionResponse = mock {
+        on { feeCharged }.thenReturn(100L)
+    }
+
+    private val horizonProxy: HorizonProxy = mock {
+        on { getTransaction(any()) }.thenReturn(transaction)
+    }
+
+    private fun subject(maxPages: Int = 10) =
+        XlmTransactionHistory(
+            horizonProxy = horizonProxy,
+            enricher = XlmTransactionEnricher(horizonProxy, InMemoryXlmTransactionDetailsStore()),
+            maxPages = maxPages
+        )
+
+    @Test
+    fun `the first load returns the latest page and the older pages are added after it`() {
+        val firstPage = payments(0 until OPERATIONS_PAGE_SIZE)
+        val secondPage = payments(OPERATIONS_PAGE_SIZE..OPERATIONS_PAGE_SIZE)
+        givenPage(null, RequestBuilder.Order.DESC, firstPage)
+        givenPage(firstPage.last().pagingToken, RequestBuilder.Order.DESC, secondPage)
+        givenPage(firstPage.first().pagingToken, RequestBuilder.Order.ASC, emptyList())
+        val subject = subject()
+
+        subject.getTransactionList(ACCOUNT_ID)
+            .test()
+            .values()
+            .single()
+            .map { it.hash } `should be equal to` firstPage.map { it.transactionHash }
+
+        subject.getTransactionList(ACCOUNT_ID)
+            .test()
+            .values()
+            .single()
+            .map { it.hash } `should be equal to` (firstPage + secondPage).map { it.transactionHash }
+
+        verify(horizonProxy, times(1)).getTransactionList(ACCOUNT_ID, null, RequestBuilder.Order.DESC)
+        verify(horizonProxy, times(1))
+            .getTransactionList(ACCOUNT_ID, firstPage.last().pagingToken, RequestBuilder.Order.DESC)
+    }
+
+    @Test
+    fun `older pages are not fetched when the first page is the whole history`() {
+        val firstPage = payments(0..1)
+        givenPage(null, RequestBuilder.Order.DESC, firstPage)
+
+        subject().getTransactionList(ACCOUNT_ID).test()
+
+        verify(horizonProxy, never())
+            .getTransactionList(ACCOUNT_ID, firstPage.last().pagingToken, RequestBuilder.Order.DESC)
+    }
+
+    @Test
+    fun `later loads only fetch the newer operations`() {
+        val older = payments(0..0)
+        val newer = payments(1..1)
+        givenPage(null, RequestBuilder.Order.DESC, older)
+        givenPage(older.single().pagingToken, RequestBuilder.Order.ASC, newer)
+        val subject = subject()
+
+        subject.getTransactionList(ACCOUNT_ID).test()
+        subject.getTransactionList(ACCOUNT_ID)
+            .test()
+            .values()
+            .single()
+            .map { it.hash } `should be equal to` listOf("hash1", "hash0")
+
+        verify(horizonProxy, times(1)).getTransactionList(ACCOUNT_ID, null, RequestBuilder.Order.DESC)
+        verify(horizonProxy, times(1)).getTransaction("hash0")
+    }
+
+    @Test
+    fun `the history is loaded again when too much is newer to page through`() {
+        val older = payments(0..0)
+        val latest = payments(0..1).reversed()
+        givenPage(null, RequestBuilder.Order.DESC, older)
+        givenPage(older.single().pagingToken, RequestBuilder.Order.ASC, payments(1..OPERATIONS_PAGE_SIZE))
+        val subject = subject(maxPages = 1)
+
+        subject.getTransactionList(ACCOUNT_ID).test()
+        givenPage(null, RequestBuilder.Order.DESC, latest)
+        subject.getTransactionList(ACCOUNT_ID)
+            .test()
+            .values()
+            .single()
+            .map { it.hash } `should be equal to` listOf("hash1", "hash0")
+    }
+
+    @Test
+    fun `the history is loaded from the start again once cleared`() {
+        val older = payments(0..0)
+        givenPage(null, RequestBuilder.Order.DESC, older)
+        val subject = subject()
+
+        subject.getTransactionList(ACCOUNT_ID).test()
+        subject.clear()
+        subject.getTransactionList(ACCOUNT_ID).test()
+
+        verify(horizonProxy, times(2)).getTransactionList(ACCOUNT_ID, null, RequestBuilder.Order.DESC)
+        verify(horizonProxy, never())
+            .getTransactionList(ACCOUNT_ID, older.single().pagingToken, RequestBuilder.Order.ASC)
+    }
+
+    private fun givenPage(cursor: String?, order: RequestBuilder.Order, page: List<PaymentOperationResponse>) {
+        whenever(horizonProxy.getTransactionList(ACCOUNT_ID, cursor, order)).thenReturn(page)
+    }
+
+    private fun payments(range: IntRange): List<PaymentOperationResponse> =
+        range.map { index ->
+            mock {
+                on { createdAt }.thenReturn("createdAt")
+                on { amount }.thenReturn("1")
+                on { transactionHash }.thenReturn("hash$index")
+                on { pagingToken }.thenReturn("token$index")
+                on { to }.thenReturn(ACCOUNT_ID)
+                on { from }.thenReturn(OTHER_ACCOUNT_ID)
+            }
+        }
+
+    companion object {
+        private const val ACCOUNT_ID = "GC24LNYWXIYYB6OGCMAZZ5RX6WPI2F74ZV7HNBV4ADALLXJRT7ZTLHP2"
+        private const val OTHER_ACCOUNT_ID = "GBAHSNSG37BOGBS4GXUPMHZWJQ22WIOJQYORRBHTABMMU6SGSKDEAOPT"
+    }
+}
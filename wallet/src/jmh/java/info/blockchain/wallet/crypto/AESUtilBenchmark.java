@@ -0,0 +1,77 @@
+package info.blockchain.wallet.crypto;
+
+import info.blockchain.wallet.util.DoubleEncryptionFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decrypt throughput for the double encrypted private keys of a wallet with many imported addresses,
+ * with the derived key cache cleared before each pass (a new session) and kept (a repeated operation
+ * within the session).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AESUtilBenchmark {
+
+    private static final String SHARED_KEY = "b4ae2aa7-fa8c-4d38-8e1f-0b7f8e0e6a10";
+    private static final String SECOND_PASSWORD = "second password";
+    private static final int ITERATIONS = 5000;
+
+    @Param({"100", "500"})
+    public int keyCount;
+
+    private final List<String> encryptedKeys = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        for (int i = 0; i < keyCount; i++) {
+            encryptedKeys.add(
+                DoubleEncryptionFactory.encrypt("private key " + i, SHARED_KEY, SECOND_PASSWORD, ITERATIONS)
+            );
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class NewSession {
+        @Setup(Level.Invocation)
+        public void clearCache() {
+            AESUtil.clearDerivedKeyCache();
+        }
+    }
+
+    @Benchmark
+    public void decryptAllNewSession(NewSession session, Blackhole blackhole) throws Exception {
+        decryptAll(blackhole);
+    }
+
+    @Benchmark
+    public void decryptAllCached(Blackhole blackhole) throws Exception {
+        decryptAll(blackhole);
+    }
+
+    private void decryptAll(Blackhole blackhole) throws Exception {
+        for (String encrypted : encryptedKeys) {
+            blackhole.consume(DoubleEncryptionFactory.decrypt(encrypted, SHARED_KEY, SECOND_PASSWORD, ITERATIONS));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package info.blockchain.wallet.multiaddress
+
+import com.blockchain.api.bitcoin.data.Input
+import com.blockchain.api.bitcoin.data.Output
+import com.blockchain.api.bitcoin.data.Transaction
+import com.blockchain.api.bitcoin.data.XpubDto
+import kotlin.random.Random
+
+/**
+ * Builds a synthetic multiaddress transaction history for a wallet with one HD account and a set of
+ * imported addresses, mixing sends, receives and transfers.
+ */
+object MultiAddressFixtures {
+
+    private const val XPUB = "xpub6CDBEbdAdWfnQ6qXJ9diapcdmSF4kxoPGwx2SMzPKS5tKTpT6XPnswneuFLt" +
+        "Qpb1PCeKzjzMDZNBJ4msC9SJGaPr5icrZvWNXMU5PETCAdM"
+
+    @JvmStatic
+    fun importedAddresses(count: Int): List<String> = List(count) { "1Imported$it" }
+
+    @JvmStatic
+    fun transactions(count: Int, importedAddresses: List<String>): List<Transaction> {
+        val random = Random(42)
+        return List(count) { index ->
+            val ownInput = Output(
+                addr = "1Receive${random.nextInt(count)}",
+                value = 100_000.toBigInteger(),
+                xpub = XpubDto(XPUB, "M/0/${random.nextInt(count)}")
+            )
+            val importedInput = Output(
+                addr = importedAddresses[random.nextInt(importedAddresses.size)],
+                value = 50_000.toBigInteger()
+            )
+            val change = Output(
+                addr = "1Change$index",
+                value = 20_000.toBigInteger(),
+                xpub = XpubDto(XPUB, "M/1/$index")
+            )
+            val external = Output(
+                addr = "1External$index",
+                value = 120_000.toBigInteger()
+            )
+            val imported = Output(
+                addr = importedAddresses[random.nextInt(importedAddresses.size)],
+                value = 9_000.toBigInteger()
+            )
+            Transaction(
+                hash = "tx$index",
+                blockHeight = 600_000L + index,
+                result = (-130_000).toBigInteger(),
+                fee = 1_000.toBigInteger(),
+                time = 1_600_000_000L + index,
+                inputs = listOf(Input(prevOut = ownInput), Input(prevOut = importedInput)),
+                out = listOf(change, external, imported)
+            )
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package info.blockchain.wallet.multiaddress;
+
+import com.blockchain.api.bitcoin.data.Transaction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps a synthetic 5,000 transaction multiaddress response the same way
+ * {@link MultiAddressFactory} does, sharing one {@link OwnedAddresses} across the whole run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionMapperBenchmark {
+
+    private static final int LATEST_BLOCK = 700_000;
+
+    @Param({"5000"})
+    public int transactionCount;
+
+    @Param({"50", "1000"})
+    public int importedAddressCount;
+
+    private List<String> importedAddresses;
+    private List<Transaction> transactions;
+
+    @Setup
+    public void setUp() {
+        importedAddresses = MultiAddressFixtures.importedAddresses(importedAddressCount);
+        transactions = MultiAddressFixtures.transactions(transactionCount, importedAddresses);
+    }
+
+    @Benchmark
+    public int summarize() {
+        OwnedAddresses ownAddresses = new OwnedAddresses(importedAddresses);
+        int summarized = 0;
+        for (Transaction tx : transactions) {
+            if (TransactionMapperKt.toTransactionSummary(tx, ownAddresses, 0, LATEST_BLOCK) != null) {
+                summarized++;
+            }
+        }
+        return summarized;
+    }
+}
@@ -0,0 +1,78 @@
+package info.blockchain.wallet.payment;
+
+import info.blockchain.wallet.payload.model.Utxo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the greedy {@link CoinSelection} against {@link LinearCoinSelection} on wallets made up of
+ * many small UTXOs, where every coin has to be selected to reach the target amount.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoinSelectionBenchmark {
+
+    private static final BigInteger FEE_PER_BYTE = BigInteger.valueOf(20);
+
+    @Param({"10000", "50000", "100000"})
+    public int utxoCount;
+
+    private List<Utxo> coins;
+    private BigInteger outputAmount;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        coins = new ArrayList<>(utxoCount);
+        BigInteger total = BigInteger.ZERO;
+        for (int i = 0; i < utxoCount; i++) {
+            BigInteger value = BigInteger.valueOf(5_000 + random.nextInt(20_000));
+            total = total.add(value);
+            coins.add(new Utxo(value, "", "tx" + i, 0, true, null, random.nextBoolean(), false));
+        }
+        // Large enough to consume most of the wallet, the worst case for the greedy selection
+        outputAmount = total.divide(BigInteger.valueOf(2));
+    }
+
+    @Benchmark
+    public SpendableUnspentOutputs greedySelect() {
+        return new CoinSelection(coins, FEE_PER_BYTE)
+            .select(outputAmount, OutputType.P2WPKH, OutputType.P2WPKH, AscentDraw.INSTANCE);
+    }
+
+    @Benchmark
+    public SpendableUnspentOutputs linearSelect() {
+        return new LinearCoinSelection(coins, FEE_PER_BYTE)
+            .select(outputAmount, OutputType.P2WPKH, OutputType.P2WPKH, AscentDraw.INSTANCE);
+    }
+
+    @Benchmark
+    public SpendableUnspentOutputs greedySelectAll() {
+        return new CoinSelection(coins, FEE_PER_BYTE).selectAll(OutputType.P2WPKH, null);
+    }
+
+    @Benchmark
+    public SpendableUnspentOutputs linearSelectAll() {
+        return new LinearCoinSelection(coins, FEE_PER_BYTE).selectAll(OutputType.P2WPKH, null);
+    }
+}
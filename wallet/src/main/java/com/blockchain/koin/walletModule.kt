@@ -1,18 +1,27 @@
 package com.blockchain.koin
 
+import com.blockchain.appinfo.AppInfo
 import info.blockchain.wallet.api.dust.BchDustService
 import info.blockchain.wallet.api.dust.DustApi
 import info.blockchain.wallet.api.dust.DustService
+import info.blockchain.wallet.bip44.DerivedAddressCache
+import info.blockchain.wallet.bip44.FileDerivedAddressStore
+import info.blockchain.wallet.crypto.AESUtil
 import info.blockchain.wallet.ethereum.EthAccountApi
 import info.blockchain.wallet.ethereum.EthEndpoints
 import info.blockchain.wallet.metadata.MetadataInteractor
 import info.blockchain.wallet.metadata.MetadataService
+import info.blockchain.wallet.multiaddress.InMemoryTransactionSummaryStore
 import info.blockchain.wallet.multiaddress.MultiAddressFactory
 import info.blockchain.wallet.multiaddress.MultiAddressFactoryBtc
+import info.blockchain.wallet.multiaddress.TransactionSummaryStore
 import info.blockchain.wallet.payload.BalanceManagerBch
 import info.blockchain.wallet.payload.BalanceManagerBtc
 import info.blockchain.wallet.payload.PayloadManager
 import info.blockchain.wallet.payload.PayloadManagerWiper
+import java.io.File
+import org.koin.core.scope.Scope
+import org.koin.core.scope.ScopeCallback
 import org.koin.dsl.bind
 import org.koin.dsl.module
 import retrofit2.Retrofit
@@ -21,9 +30,46 @@ val walletModule = module {
 
     scope(payloadScopeQualifier) {
 
-        scoped { PayloadManager(get(), get(), get(), get(), get()) }
+        scoped {
+            PayloadManager(get(), get(), get(), get(), get(), get()).also {
+                // The keys derived while the wallet was open are dropped when it is closed
+                registerCallback(
+                    object : ScopeCallback {
+                        override fun onScopeClose(scope: Scope) {
+                            AESUtil.clearDerivedKeyCache()
+                        }
+                    }
+                )
+            }
+        }
+
+        scoped {
+            DerivedAddressCache(
+                // Kept in memory only where no cache directory is bound
+                diskStore = getOrNull<AppInfo>()?.let {
+                    FileDerivedAddressStore(File(it.cacheDir, DERIVED_ADDRESSES_FILE))
+                }
+            ).also { cache ->
+                // Derived addresses are kept across restarts, but not once the wallet is closed
+                registerCallback(
+                    object : ScopeCallback {
+                        override fun onScopeClose(scope: Scope) {
+                            cache.clear()
+                        }
+                    }
+                )
+            }
+        }
 
-        factory { MultiAddressFactoryBtc(bitcoinApi = get()) }.bind(MultiAddressFactory::class)
+        // Summarized transactions are kept only while the wallet is open
+        scoped { InMemoryTransactionSummaryStore() }.bind(TransactionSummaryStore::class)
+
+        factory {
+            MultiAddressFactoryBtc(
+                bitcoinApi = get(),
+                transactionStore = get()
+            )
+        }.bind(MultiAddressFactory::class)
 
         factory { BalanceManagerBtc(bitcoinApi = get()) }
 
@@ -51,6 +97,7 @@ val walletModule = module {
                 if (!payloadScope.closed) {
                     payloadScope.close()
                 }
+                AESUtil.clearDerivedKeyCache()
             }
         }
     }.bind(PayloadManagerWiper::class)
@@ -62,3 +109,5 @@ val walletModule = module {
         )
     }
 }
+
+private const val DERIVED_ADDRESSES_FILE = "derived_addresses.txt"
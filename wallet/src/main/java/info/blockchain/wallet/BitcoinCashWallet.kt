@@ -84,7 +84,7 @@ open class BitcoinCashWallet : DeterministicWallet {
      * @param activeXpubs A list of active xPubs addresses.
      * @param context Xpub address. Used to fetch transaction only relating to this address.
      * @param limit Maximum amount of transactions fetched
-     * @param offset Page offset
+     * @param offset Page offset. The first page is synced incrementally against previously fetched transactions.
      * @return All wallet transactions, all transactions, or transaction relating to a single context/address
      */
     fun getTransactions(
@@ -93,13 +93,22 @@ open class BitcoinCashWallet : DeterministicWallet {
         limit: Int,
         offset: Int
     ): List<TransactionSummary> =
-        multiAddressFactoryBch.getAccountTransactions(
-            activeXpubs,
-            context,
-            limit,
-            offset,
-            BCH_FORK_HEIGHT
-        )
+        if (offset == 0) {
+            multiAddressFactoryBch.syncAccountTransactions(
+                activeXpubs,
+                context,
+                limit,
+                BCH_FORK_HEIGHT
+            )
+        } else {
+            multiAddressFactoryBch.getAccountTransactions(
+                activeXpubs,
+                context,
+                limit,
+                offset,
+                BCH_FORK_HEIGHT
+            )
+        }
 
     /**
      * Generates a Base58 Bitcoin Cash receive address for an account at a given position. The
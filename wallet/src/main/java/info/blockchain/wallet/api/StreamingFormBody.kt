@@ -0,0 +1,82 @@
+package info.blockchain.wallet.api
+
+import java.nio.ByteBuffer
+import okhttp3.MediaType
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.RequestBody
+import okio.BufferedSink
+
+/**
+ * An `application/x-www-form-urlencoded` body which percent-encodes its values while writing them to the
+ * request, so a large value such as the encrypted wallet payload is never copied into an encoded string.
+ * Values may be given as a [ByteArray] or a [ByteBuffer], whose remaining bytes are written without
+ * being copied. Null values are left out, as Retrofit does for `@Field` parameters.
+ */
+internal class StreamingFormBody(
+    fields: List<Pair<String, Any?>>
+) : RequestBody() {
+
+    private val fields: List<Pair<ByteBuffer, ByteBuffer>> = fields.mapNotNull { (name, value) ->
+        when (value) {
+            null -> null
+            is ByteArray -> name.toBuffer() to ByteBuffer.wrap(value)
+            is ByteBuffer -> name.toBuffer() to value.duplicate()
+            else -> name.toBuffer() to value.toString().toBuffer()
+        }
+    }
+
+    override fun contentType(): MediaType = CONTENT_TYPE
+
+    override fun contentLength(): Long =
+        fields.sumOf { (name, value) -> encodedLength(name) + 1 + encodedLength(value) } +
+            (fields.size - 1).coerceAtLeast(0)
+
+    override fun writeTo(sink: BufferedSink) {
+        fields.forEachIndexed { index, (name, value) ->
+            if (index > 0) {
+                sink.writeByte('&'.code)
+            }
+            sink.writeEncoded(name)
+            sink.writeByte('='.code)
+            sink.writeEncoded(value)
+        }
+    }
+
+    private fun String.toBuffer(): ByteBuffer =
+        ByteBuffer.wrap(toByteArray())
+
+    // Reads by index, so the buffers can be written again when the request is retried
+    private fun encodedLength(bytes: ByteBuffer): Long =
+        (bytes.position() until bytes.limit()).sumOf {
+            val byte = bytes.get(it)
+            if (byte.isUnreserved() || byte == SPACE) 1L else 3L
+        }
+
+    private fun BufferedSink.writeEncoded(bytes: ByteBuffer) {
+        for (index in bytes.position() until bytes.limit()) {
+            val byte = bytes.get(index)
+            when {
+                byte.isUnreserved() -> writeByte(byte.toInt())
+                byte == SPACE -> writeByte('+'.code)
+                else -> {
+                    val value = byte.toInt() and 0xff
+                    writeByte('%'.code)
+                    writeByte(HEX[value shr 4].code)
+                    writeByte(HEX[value and 0x0f].code)
+                }
+            }
+        }
+    }
+
+    // The characters URLEncoder leaves as they are
+    private fun Byte.isUnreserved(): Boolean {
+        val c = toInt().toChar()
+        return c in 'a'..'z' || c in 'A'..'Z' || c in '0'..'9' || c == '-' || c == '_' || c == '.' || c == '*'
+    }
+
+    companion object {
+        private val CONTENT_TYPE = "application/x-www-form-urlencoded".toMediaType()
+        private const val SPACE = ' '.code.toByte()
+        private const val HEX = "0123456789ABCDEF"
+    }
+}
@@ -10,10 +10,10 @@ import info.blockchain.wallet.ApiCode
 import info.blockchain.wallet.api.data.Settings
 import info.blockchain.wallet.api.data.Status
 import info.blockchain.wallet.api.data.WalletOptions
+import info.blockchain.wallet.payload.data.EncryptedWalletPayload
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
-import java.net.URLEncoder
 import okhttp3.ResponseBody
 import org.spongycastle.util.encoders.Hex
 import retrofit2.Call
@@ -90,31 +90,29 @@ class WalletApi(
         return explorerInstance.pinStore(key, pin, null, "get", getApiCode())
     }
 
+    /**
+     * Uploads a new wallet, streaming the encrypted payload into the request.
+     */
     fun insertWallet(
         guid: String?,
         sharedKey: String?,
         activeAddressList: List<String>?,
-        encryptedPayload: String,
-        newChecksum: String?,
+        encryptedPayload: EncryptedWalletPayload,
         email: String?,
         device: String?
-    ): Call<ResponseBody> {
-        val pipedAddresses = activeAddressList?.joinToString("|")
-
-        return explorerInstance.syncWalletCall(
-            "insert",
-            guid,
-            sharedKey,
-            encryptedPayload,
-            encryptedPayload.length,
-            URLEncoder.encode(newChecksum, "utf-8"),
-            pipedAddresses,
-            email,
-            device,
-            null,
-            getApiCode()
+    ): Call<ResponseBody> =
+        explorerInstance.syncWalletCall(
+            syncWalletBody(
+                method = "insert",
+                guid = guid,
+                sharedKey = sharedKey,
+                encryptedPayload = encryptedPayload,
+                pipedAddresses = activeAddressList?.joinToString("|"),
+                email = email,
+                device = device,
+                oldChecksum = null
+            )
         )
-    }
 
     fun submitCoinReceiveAddresses(guid: String, sharedKey: String, coinAddresses: String): Observable<ResponseBody> =
         explorerInstance.submitCoinReceiveAddresses(
@@ -124,32 +122,54 @@ class WalletApi(
             coinAddresses
         )
 
+    /**
+     * Saves the wallet, streaming the encrypted payload into the request.
+     */
     fun updateWallet(
         guid: String?,
         sharedKey: String?,
         activeAddressList: List<String>?,
-        encryptedPayload: String,
-        newChecksum: String?,
+        encryptedPayload: EncryptedWalletPayload,
         oldChecksum: String?,
         device: String?
-    ): Call<ResponseBody> {
-
-        val pipedAddresses = activeAddressList?.joinToString("|") ?: ""
+    ): Call<ResponseBody> =
+        explorerInstance.syncWalletCall(
+            syncWalletBody(
+                method = "update",
+                guid = guid,
+                sharedKey = sharedKey,
+                encryptedPayload = encryptedPayload,
+                pipedAddresses = activeAddressList?.joinToString("|") ?: "",
+                email = null,
+                device = device,
+                oldChecksum = oldChecksum
+            )
+        )
 
-        return explorerInstance.syncWalletCall(
-            "update",
-            guid,
-            sharedKey,
-            encryptedPayload,
-            encryptedPayload.length,
-            URLEncoder.encode(newChecksum, "utf-8"),
-            pipedAddresses,
-            null,
-            device,
-            oldChecksum,
-            getApiCode()
+    private fun syncWalletBody(
+        method: String,
+        guid: String?,
+        sharedKey: String?,
+        encryptedPayload: EncryptedWalletPayload,
+        pipedAddresses: String?,
+        email: String?,
+        device: String?,
+        oldChecksum: String?
+    ) = StreamingFormBody(
+        listOf(
+            "method" to method,
+            "guid" to guid,
+            "sharedKey" to sharedKey,
+            "payload" to encryptedPayload.wrapperJson,
+            "length" to encryptedPayload.length,
+            "checksum" to encryptedPayload.checksum,
+            "active" to pipedAddresses,
+            "email" to email,
+            "device" to device,
+            "old_checksum" to oldChecksum,
+            "api_code" to getApiCode()
         )
-    }
+    )
 
     fun fetchWalletData(guid: String, sharedKey: String): Call<ResponseBody> {
         return explorerInstance.fetchWalletData(
@@ -8,9 +8,11 @@ import info.blockchain.wallet.api.data.WalletOptions
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import okhttp3.RequestBody
 import okhttp3.ResponseBody
 import retrofit2.Call
 import retrofit2.Response
+import retrofit2.http.Body
 import retrofit2.http.Field
 import retrofit2.http.FormUrlEncoded
 import retrofit2.http.GET
@@ -95,21 +97,11 @@ interface WalletExplorerEndpoints {
         @Field("coin-addresses") coinAddresses: String
     ): Observable<ResponseBody>
 
-    @FormUrlEncoded
+    /**
+     * Inserts or updates the wallet, with the form built by the caller, see [StreamingFormBody]
+     */
     @POST("wallet")
-    fun syncWalletCall(
-        @Field("method") method: String,
-        @Field("guid") guid: String?,
-        @Field("sharedKey") sharedKey: String?,
-        @Field("payload") payload: String,
-        @Field("length") length: Int,
-        @Field("checksum") checksum: String,
-        @Field("active") active: String?,
-        @Field("email") email: String?,
-        @Field("device") device: String?,
-        @Field("old_checksum") old_checksum: String?,
-        @Field("api_code") apiCode: String
-    ): Call<ResponseBody>
+    fun syncWalletCall(@Body body: RequestBody): Call<ResponseBody>
 
     @FormUrlEncoded
     @POST("wallet")
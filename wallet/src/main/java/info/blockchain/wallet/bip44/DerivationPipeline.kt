@@ -0,0 +1,74 @@
+package info.blockchain.wallet.bip44
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.ForkJoinWorkerThread
+import java.util.stream.Collectors
+import org.bitcoinj.core.NetworkParameters
+import org.bitcoinj.crypto.DeterministicKey
+
+/**
+ * Fans HD key derivation out across the available cores. Results are always joined in the order of the
+ * inputs, so the derived accounts and addresses are the same as when deriving them one at a time.
+ *
+ * Derivations may be nested, eg. deriving the addresses of accounts which are themselves being derived
+ * in parallel; the work stealing pool runs nested derivations without blocking its workers.
+ */
+object DerivationPipeline {
+
+    private val parallelism = Runtime.getRuntime().availableProcessors()
+
+    private val pool: ForkJoinPool by lazy {
+        ForkJoinPool(
+            parallelism,
+            { pool ->
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool).apply {
+                    name = "hd-derivation-$poolIndex"
+                    isDaemon = true
+                }
+            },
+            null,
+            false
+        )
+    }
+
+    @JvmStatic
+    fun <T, R> map(items: List<T>, derive: (T) -> R): List<R> {
+        if (items.size < 2 || parallelism < 2) {
+            return items.map(derive)
+        }
+        val task = Callable<List<R>> {
+            items.parallelStream()
+                .map { derive(it) }
+                .collect(Collectors.toList())
+        }
+        return if (Thread.currentThread().isPipelineWorker()) {
+            task.call()
+        } else {
+            pool.invoke(ForkJoinTask.adapt(task))
+        }
+    }
+
+    /**
+     * Derives the accounts [firstIndex] until [firstIndex] + [count] of the wallet with root key [rootKey].
+     */
+    @JvmStatic
+    fun deriveAccounts(
+        params: NetworkParameters,
+        rootKey: DeterministicKey,
+        firstIndex: Int,
+        count: Int
+    ): List<HDAccount> =
+        map((firstIndex until firstIndex + count).toList()) { HDAccount(params, rootKey, it) }
+
+    /**
+     * Restores the watch only accounts of [xpubs], numbered in order from 0.
+     */
+    @JvmStatic
+    fun deriveWatchOnlyAccounts(params: NetworkParameters, xpubs: List<String>): List<HDAccount> =
+        map(xpubs.indices.toList()) { HDAccount(params, xpubs[it], it) }
+
+    private fun Thread.isPipelineWorker() =
+        this is ForkJoinWorkerThread && pool === this@DerivationPipeline.pool
+}
@@ -0,0 +1,285 @@
+package info.blockchain.wallet.bip44
+
+import info.blockchain.wallet.crypto.AESUtil
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import org.bitcoinj.core.Sha256Hash
+import org.slf4j.LoggerFactory
+import org.spongycastle.crypto.digests.SHA256Digest
+import org.spongycastle.crypto.macs.HMac
+import org.spongycastle.crypto.params.KeyParameter
+import org.spongycastle.util.encoders.Hex
+
+data class DerivedAddressKey(
+    // Account level xpub, which differs between the legacy and segwit derivations of an account
+    val xpub: String,
+    val chain: Int,
+    val index: Int,
+    val purpose: Int
+)
+
+/**
+ * Persistent tier of [DerivedAddressCache]. Only formatted addresses are stored, never keys.
+ */
+interface DerivedAddressStore {
+    fun get(key: DerivedAddressKey): String?
+    fun put(key: DerivedAddressKey, address: String)
+    fun clear()
+}
+
+/**
+ * Cache of formatted HD addresses, so that repeatedly looking up the same receive and change addresses
+ * does not have to run the EC point multiplication of the child key derivation each time.
+ *
+ * Lookups go to a bounded in-memory LRU first, then to the optional [diskStore], and only derive the
+ * address when neither has it. [warm] derives a window of addresses ahead of time on [warmingExecutor],
+ * unless the window was already warmed.
+ */
+class DerivedAddressCache @JvmOverloads constructor(
+    private val maxSize: Int = DEFAULT_MAX_SIZE,
+    private val diskStore: DerivedAddressStore? = null,
+    private val warmingExecutor: Executor = defaultWarmingExecutor
+) {
+    private val memory = object : LinkedHashMap<DerivedAddressKey, String>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<DerivedAddressKey, String>?): Boolean =
+            size > maxSize
+    }
+
+    private data class WarmedChain(
+        val xpub: String,
+        val chain: Int,
+        val purpose: Int
+    )
+
+    // The end of the window warmed on each chain, so that a window is only submitted once
+    private val warmedUntil = ConcurrentHashMap<WarmedChain, Int>()
+
+    // Bumped by clear(), so that addresses derived before then are not stored afterwards. Guarded by writeLock,
+    // which also orders the writes to the tiers against clearing them.
+    private val writeLock = Any()
+    @Volatile
+    private var generation = 0
+
+    fun receiveAddress(account: HDAccount, index: Int, purpose: Int): String =
+        address(account, RECEIVE_CHAIN, index, purpose)
+
+    fun changeAddress(account: HDAccount, index: Int, purpose: Int): String =
+        address(account, CHANGE_CHAIN, index, purpose)
+
+    /**
+     * @return the receive addresses of [account] from [startIndex] inclusive to [endIndex] exclusive
+     */
+    fun receiveAddresses(account: HDAccount, startIndex: Int, endIndex: Int, purpose: Int): List<String> =
+        (startIndex until endIndex).map { receiveAddress(account, it, purpose) }
+
+    /**
+     * Derives [count] receive addresses, and change addresses unless [changeIndex] is null, of [account]
+     * in the background, starting at the given indexes. Does nothing when those windows were warmed before.
+     */
+    @JvmOverloads
+    fun warm(
+        account: HDAccount,
+        purpose: Int,
+        receiveIndex: Int,
+        changeIndex: Int?,
+        count: Int = DEFAULT_WARM_COUNT
+    ) {
+        val receiveWarmed = markWarmed(account, RECEIVE_CHAIN, purpose, receiveIndex + count)
+        val changeWarmed = changeIndex == null || markWarmed(account, CHANGE_CHAIN, purpose, changeIndex + count)
+        if (receiveWarmed && changeWarmed) {
+            return
+        }
+        val warmingGeneration = generation
+        warmingExecutor.execute {
+            try {
+                for (index in receiveIndex until receiveIndex + count) {
+                    if (generation != warmingGeneration) return@execute
+                    address(account, RECEIVE_CHAIN, index, purpose, warmingGeneration)
+                }
+                if (changeIndex != null) {
+                    for (index in changeIndex until changeIndex + count) {
+                        if (generation != warmingGeneration) return@execute
+                        address(account, CHANGE_CHAIN, index, purpose, warmingGeneration)
+                    }
+                }
+            } catch (e: RuntimeException) {
+                // Warming is best effort, anything missing is derived when it is looked up
+            }
+        }
+    }
+
+    /**
+     * Drops every address from both tiers. Addresses still being derived, such as by a warming task,
+     * are not stored afterwards.
+     */
+    fun clear() {
+        synchronized(writeLock) {
+            generation++
+            synchronized(memory) {
+                memory.clear()
+            }
+            warmedUntil.clear()
+            diskStore?.clear()
+        }
+    }
+
+    // Records that the chain is warmed up to [end], and returns whether it already was
+    private fun markWarmed(account: HDAccount, chain: Int, purpose: Int, end: Int): Boolean {
+        var warmed = false
+        warmedUntil.compute(WarmedChain(account.xpub, chain, purpose)) { _, previous ->
+            if (previous != null && previous >= end) {
+                warmed = true
+                previous
+            } else {
+                end
+            }
+        }
+        return warmed
+    }
+
+    private fun address(
+        account: HDAccount,
+        chain: Int,
+        index: Int,
+        purpose: Int,
+        lookupGeneration: Int = generation
+    ): String {
+        val key = DerivedAddressKey(account.xpub, chain, index, purpose)
+
+        synchronized(memory) {
+            memory[key]
+        }?.let { return it }
+
+        val stored = diskStore?.get(key)
+        val address = stored ?: account.getChain(chain).getAddressAt(index, purpose).formattedAddress
+
+        synchronized(writeLock) {
+            if (generation == lookupGeneration) {
+                if (stored == null) {
+                    diskStore?.put(key, address)
+                }
+                synchronized(memory) {
+                    memory[key] = address
+                }
+            }
+        }
+        return address
+    }
+
+    companion object {
+        private const val RECEIVE_CHAIN = 0
+        private const val CHANGE_CHAIN = 1
+        const val DEFAULT_MAX_SIZE = 2_000
+        const val DEFAULT_WARM_COUNT = 20
+
+        private val defaultWarmingExecutor: Executor by lazy {
+            Executors.newSingleThreadExecutor { runnable ->
+                Thread(runnable, "derived-address-cache").apply { isDaemon = true }
+            }
+        }
+    }
+}
+
+/**
+ * [DerivedAddressStore] backed by an append-only text file, one `id address` entry per line, read once on
+ * first access.
+ *
+ * Nothing in the file links it to a wallet. The xpub of an entry is never written: its id is an HMAC of
+ * the chain, index and purpose, and its address is AES encrypted, both under keys hashed from the xpub.
+ * Reading an entry back takes the xpub the address can be derived from anyway.
+ *
+ * The store is only a cache, so failing to read or write the file is logged and otherwise ignored.
+ */
+class FileDerivedAddressStore(private val file: File) : DerivedAddressStore {
+
+    private class EntryKeys(
+        val idKey: ByteArray,
+        val encryptionKey: ByteArray
+    )
+
+    // Encrypted addresses by id
+    private var addresses: MutableMap<String, String>? = null
+    private val entryKeys = HashMap<String, EntryKeys>()
+
+    @Synchronized
+    override fun get(key: DerivedAddressKey): String? {
+        val keys = keysFor(key.xpub)
+        val encrypted = load()[id(keys, key)] ?: return null
+        return try {
+            AESUtil.decryptWithKey(keys.encryptionKey, encrypted)
+        } catch (e: Exception) {
+            log.error("Unable to read derived address", e)
+            null
+        }
+    }
+
+    @Synchronized
+    override fun put(key: DerivedAddressKey, address: String) {
+        val keys = keysFor(key.xpub)
+        val id = id(keys, key)
+        val loaded = load()
+        if (loaded.containsKey(id)) return
+
+        val encrypted = String(AESUtil.encryptWithKey(keys.encryptionKey, address), Charsets.UTF_8)
+        loaded[id] = encrypted
+        try {
+            file.appendText("$id $encrypted\n")
+        } catch (e: IOException) {
+            log.error("Unable to store derived address", e)
+        }
+    }
+
+    @Synchronized
+    override fun clear() {
+        addresses = HashMap()
+        entryKeys.clear()
+        if (file.exists() && !file.delete()) {
+            log.error("Unable to delete derived addresses")
+        }
+    }
+
+    private fun keysFor(xpub: String): EntryKeys =
+        entryKeys.getOrPut(xpub) {
+            EntryKeys(
+                idKey = Sha256Hash.hash("$ID_KEY_PREFIX$xpub".toByteArray(Charsets.UTF_8)),
+                encryptionKey = Sha256Hash.hash("$ENCRYPTION_KEY_PREFIX$xpub".toByteArray(Charsets.UTF_8))
+            )
+        }
+
+    private fun id(keys: EntryKeys, key: DerivedAddressKey): String {
+        val mac = HMac(SHA256Digest())
+        mac.init(KeyParameter(keys.idKey))
+        val entry = "${key.chain} ${key.index} ${key.purpose}".toByteArray(Charsets.UTF_8)
+        mac.update(entry, 0, entry.size)
+        return ByteArray(mac.macSize)
+            .also { mac.doFinal(it, 0) }
+            .let { Hex.toHexString(it) }
+    }
+
+    private fun load(): MutableMap<String, String> =
+        addresses ?: HashMap<String, String>().also { loaded ->
+            try {
+                if (file.exists()) {
+                    file.forEachLine { line ->
+                        val fields = line.split(' ')
+                        if (fields.size == 2) {
+                            loaded[fields[0]] = fields[1]
+                        }
+                    }
+                }
+            } catch (e: IOException) {
+                log.error("Unable to read derived addresses", e)
+            }
+            addresses = loaded
+        }
+
+    companion object {
+        private val log = LoggerFactory.getLogger(FileDerivedAddressStore::class.java)
+
+        private const val ID_KEY_PREFIX = "derived-address-id:"
+        private const val ENCRYPTION_KEY_PREFIX = "derived-address-key:"
+    }
+}
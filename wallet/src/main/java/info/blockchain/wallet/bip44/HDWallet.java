@@ -62,10 +62,7 @@ public class HDWallet {
         );
         dkRoot = HDKeyDerivation.deriveChildKey(dKey, ChildNumber.HARDENED_BIT);
 
-        accounts = new ArrayList<>();
-        for (int i = 0; i < nbAccounts; i++) {
-            accounts.add(new HDAccount(params, dkRoot, i));
-        }
+        accounts = new ArrayList<>(DerivationPipeline.deriveAccounts(params, dkRoot, 0, nbAccounts));
 
         if (purpose == Derivation.LEGACY_PURPOSE) {
             stxAccount = new STXAccount(params, dKey);
@@ -84,13 +81,7 @@ public class HDWallet {
     ) throws AddressFormatException {
 
         this.params = params;
-        accounts = new ArrayList<>();
-
-        int i = 0;
-        for (String xpub : xpubs) {
-            accounts.add(new HDAccount(params, xpub, i));
-            i++;
-        }
+        accounts = new ArrayList<>(DerivationPipeline.deriveWatchOnlyAccounts(params, xpubs));
 
         hd_seed = null;
     }
@@ -154,6 +145,18 @@ public class HDWallet {
         return account;
     }
 
+    /**
+     * Add the given number of new accounts, derived in parallel.
+     *
+     * @return the new accounts, in order
+     */
+    public List<HDAccount> addAccounts(int count) {
+        List<HDAccount> added = DerivationPipeline.deriveAccounts(params, dkRoot, accounts.size(), count);
+        accounts.addAll(added);
+
+        return added;
+    }
+
     /**
      * Return BIP44 path for this wallet (m / purpose').
      *
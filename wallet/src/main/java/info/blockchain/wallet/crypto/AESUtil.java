@@ -2,6 +2,8 @@ package info.blockchain.wallet.crypto;
 
 import info.blockchain.wallet.exceptions.DecryptionException;
 import info.blockchain.wallet.exceptions.EncryptionException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
@@ -15,6 +17,7 @@ import org.spongycastle.crypto.PBEParametersGenerator;
 import org.spongycastle.crypto.engines.AESEngine;
 import org.spongycastle.crypto.engines.AESFastEngine;
 import org.spongycastle.crypto.generators.PKCS5S2ParametersGenerator;
+import org.spongycastle.crypto.io.CipherOutputStream;
 import org.spongycastle.crypto.modes.CBCBlockCipher;
 import org.spongycastle.crypto.modes.OFBBlockCipher;
 import org.spongycastle.crypto.paddings.BlockCipherPadding;
@@ -39,6 +42,36 @@ public class AESUtil {
     private static final int AESBlockSize = 4;
     private static final int KEY_BIT_LEN = 256;
 
+    private static final DerivedKeyCache derivedKeyCache = new DerivedKeyCache();
+
+    /**
+     * Zeroes the PBKDF2 keys derived during this session. Call when the wallet is closed.
+     */
+    public static void clearDerivedKeyCache() {
+        derivedKeyCache.clear();
+    }
+
+    public static DerivedKeyCache getDerivedKeyCache() {
+        return derivedKeyCache;
+    }
+
+    private static BufferedBlockCipher newCipher(int mode, @Nullable BlockCipherPadding padding) {
+        BlockCipher cipherMode;
+        if (mode == MODE_CBC) {
+            cipherMode = new CBCBlockCipher(new AESEngine());
+
+        } else {
+            //mode == MODE_OFB
+            cipherMode = new OFBBlockCipher(new AESEngine(), 128);
+        }
+
+        if (padding != null) {
+            return new PaddedBufferedBlockCipher(cipherMode, padding);
+        } else {
+            return new BufferedBlockCipher(cipherMode);
+        }
+    }
+
     private static byte[] copyOfRange(byte[] source, int from, int to) {
         byte[] range = new byte[to - from];
         System.arraycopy(source, from, range, 0, range.length);
@@ -62,28 +95,11 @@ public class AESUtil {
         byte[] iv = copyOfRange(cipherdata, 0, AESBlockSize * 4);
         byte[] input = copyOfRange(cipherdata, AESBlockSize * 4, cipherdata.length);
 
-        PBEParametersGenerator generator = new PKCS5S2ParametersGenerator();
-        generator.init(PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password.toCharArray()), iv, iterations);
-        KeyParameter keyParam = (KeyParameter) generator.generateDerivedParameters(256);
+        KeyParameter keyParam = derivedKeyCache.deriveKey(password, iv, iterations, KEY_BIT_LEN);
 
         CipherParameters params = new ParametersWithIV(keyParam, iv);
 
-        BlockCipher cipherMode;
-        if (mode == MODE_CBC) {
-            cipherMode = new CBCBlockCipher(new AESEngine());
-
-        } else {
-            //mode == MODE_OFB
-            cipherMode = new OFBBlockCipher(new AESEngine(), 128);
-        }
-
-        BufferedBlockCipher cipher;
-        if (padding != null) {
-            cipher = new PaddedBufferedBlockCipher(cipherMode, padding);
-        } else {
-            cipher = new BufferedBlockCipher(cipherMode);
-        }
-
+        BufferedBlockCipher cipher = newCipher(mode, padding);
         cipher.reset();
         cipher.init(false, params);
 
@@ -132,28 +148,11 @@ public class AESUtil {
 
         byte[] clearbytes = cleartext.getBytes(StandardCharsets.UTF_8);
 
-        PBEParametersGenerator generator = new PKCS5S2ParametersGenerator();
-        generator.init(PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password.toCharArray()), iv, iterations);
-        KeyParameter keyParam = (KeyParameter) generator.generateDerivedParameters(256);
+        KeyParameter keyParam = DerivedKeyCache.deriveUncached(password, iv, iterations, KEY_BIT_LEN);
 
         CipherParameters params = new ParametersWithIV(keyParam, iv);
 
-        BlockCipher cipherMode;
-        if (mode == MODE_CBC) {
-            cipherMode = new CBCBlockCipher(new AESEngine());
-
-        } else {
-            //mode == MODE_OFB
-            cipherMode = new OFBBlockCipher(new AESEngine(), 128);
-        }
-
-        BufferedBlockCipher cipher;
-        if (padding != null) {
-            cipher = new PaddedBufferedBlockCipher(cipherMode, padding);
-        } else {
-            cipher = new BufferedBlockCipher(cipherMode);
-        }
-
+        BufferedBlockCipher cipher = newCipher(mode, padding);
         cipher.reset();
         cipher.init(true, params);
 
@@ -171,6 +170,33 @@ public class AESUtil {
         return new String(raw);
     }
 
+    /**
+     * Returns a stream which encrypts everything written to it in the same way as {@link #encrypt}, and
+     * writes the base64 encoded iv and ciphertext to out as it goes. Closing the returned stream completes
+     * the encryption but leaves out open.
+     */
+    public static OutputStream encryptingStream(OutputStream out, String password, int iterations)
+        throws EncryptionException {
+
+        if (password == null) {
+            throw new EncryptionException("Password null");
+        }
+
+        byte[] iv = getSalt();
+        KeyParameter keyParam = DerivedKeyCache.deriveUncached(password, iv, iterations, KEY_BIT_LEN);
+
+        BufferedBlockCipher cipher = newCipher(MODE_CBC, new ISO10126d2Padding());
+        cipher.init(true, new ParametersWithIV(keyParam, iv));
+
+        Base64EncodingOutputStream base64 = new Base64EncodingOutputStream(out);
+        try {
+            base64.write(iv);
+        } catch (IOException e) {
+            throw new EncryptionException(e.getMessage());
+        }
+        return new CipherOutputStream(base64, cipher);
+    }
+
     private static byte[] cipherData(BufferedBlockCipher cipher, byte[] data) {
         int minSize = cipher.getOutputSize(data.length);
         byte[] outBuf = new byte[minSize];
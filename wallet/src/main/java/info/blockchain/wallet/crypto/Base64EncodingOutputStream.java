@@ -0,0 +1,68 @@
+package info.blockchain.wallet.crypto;
+
+import org.spongycastle.util.encoders.Base64Encoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Base64 encodes everything written to it, without line breaks, to the underlying stream. Input is
+ * encoded in whole groups of three bytes so the output is the same as encoding it in one go; closing
+ * the stream encodes the last group with its padding but leaves the underlying stream open.
+ */
+class Base64EncodingOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 3 * 1024;
+
+    private final OutputStream out;
+    private final Base64Encoder encoder = new Base64Encoder();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int buffered = 0;
+    private boolean closed = false;
+
+    Base64EncodingOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (buffered == BUFFER_SIZE) {
+            encodeBuffer();
+        }
+        buffer[buffered++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (buffered == BUFFER_SIZE) {
+                encodeBuffer();
+            }
+            int count = Math.min(length, BUFFER_SIZE - buffered);
+            System.arraycopy(bytes, offset, buffer, buffered, count);
+            buffered += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            encodeBuffer();
+            out.flush();
+        }
+    }
+
+    // BUFFER_SIZE is a multiple of three, so only the final group can be padded
+    private void encodeBuffer() throws IOException {
+        encoder.encode(buffer, 0, buffered, out);
+        buffered = 0;
+    }
+}
@@ -0,0 +1,181 @@
+package info.blockchain.wallet.crypto;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.spongycastle.crypto.PBEParametersGenerator;
+import org.spongycastle.crypto.digests.SHA256Digest;
+import org.spongycastle.crypto.generators.PKCS5S2ParametersGenerator;
+import org.spongycastle.crypto.macs.HMac;
+import org.spongycastle.crypto.params.KeyParameter;
+
+/**
+ * Bounded LRU cache of PBKDF2 derived AES keys, so that decrypting the same secret again does not repeat
+ * the key stretching. Entries are keyed by an HMAC-SHA256 of the password under a random secret of the
+ * cache instance, together with the salt and the iteration count, so that the cache never holds anything
+ * a password could be checked against outside of this process.
+ *
+ * Only keys for decryption are worth caching - encryption uses a new random salt every time, so its
+ * keys are derived with {@link #deriveUncached} instead. By default the cache is not bounded: the secrets
+ * of a wallet are decrypted again in the same order while it is open, so any bound smaller than their
+ * count would evict every key before it is reused. It holds one key per secret of the open wallet, and
+ * is emptied when the wallet is closed.
+ *
+ * Passwords are never held by the cache. Keys are zeroed when they are evicted from a bounded cache and
+ * when the wallet is closed with {@link #clear()}.
+ */
+public final class DerivedKeyCache {
+
+    private static final class Key {
+        private final byte[] passwordMac;
+        private final byte[] salt;
+        private final int iterations;
+        private final int hashCode;
+
+        Key(byte[] passwordMac, byte[] salt, int iterations) {
+            this.passwordMac = passwordMac;
+            this.salt = salt.clone();
+            this.iterations = iterations;
+            this.hashCode = 31 * (31 * Arrays.hashCode(passwordMac) + Arrays.hashCode(salt)) + iterations;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return iterations == key.iterations &&
+                Arrays.equals(passwordMac, key.passwordMac) &&
+                Arrays.equals(salt, key.salt);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final int SECRET_LENGTH = 32;
+
+    private final int maxEntries;
+
+    // Never leaves this instance, so cached entries can't be matched against passwords elsewhere
+    private final byte[] secret = new byte[SECRET_LENGTH];
+
+    private final LinkedHashMap<Key, byte[]> keys = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+            if (size() > maxEntries) {
+                Arrays.fill(eldest.getValue(), (byte) 0);
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private int hits = 0;
+    private int misses = 0;
+
+    public DerivedKeyCache() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public DerivedKeyCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        new SecureRandom().nextBytes(secret);
+    }
+
+    /**
+     * @return the PBKDF2 derived key of the given length, from the cache when it was derived before
+     */
+    public KeyParameter deriveKey(String password, byte[] salt, int iterations, int keyBitLength) {
+        byte[] passwordBytes = PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password.toCharArray());
+        Key key = new Key(mac(passwordBytes, keyBitLength), salt, iterations);
+
+        synchronized (keys) {
+            byte[] cached = keys.get(key);
+            if (cached != null) {
+                hits++;
+                Arrays.fill(passwordBytes, (byte) 0);
+                return new KeyParameter(cached);
+            }
+            misses++;
+        }
+
+        KeyParameter derived = derive(passwordBytes, salt, iterations, keyBitLength);
+
+        synchronized (keys) {
+            keys.put(key, derived.getKey().clone());
+        }
+        return derived;
+    }
+
+    /**
+     * @return the PBKDF2 derived key of the given length, without looking it up in or adding it to a cache
+     */
+    public static KeyParameter deriveUncached(String password, byte[] salt, int iterations, int keyBitLength) {
+        return derive(
+            PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password.toCharArray()),
+            salt,
+            iterations,
+            keyBitLength
+        );
+    }
+
+    // Zeroes passwordBytes
+    private static KeyParameter derive(byte[] passwordBytes, byte[] salt, int iterations, int keyBitLength) {
+        PBEParametersGenerator generator = new PKCS5S2ParametersGenerator();
+        generator.init(passwordBytes, salt, iterations);
+        KeyParameter derived = (KeyParameter) generator.generateDerivedParameters(keyBitLength);
+        Arrays.fill(passwordBytes, (byte) 0);
+        return derived;
+    }
+
+    /**
+     * Zeroes and drops all cached keys.
+     */
+    public void clear() {
+        synchronized (keys) {
+            for (byte[] value : keys.values()) {
+                Arrays.fill(value, (byte) 0);
+            }
+            keys.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    public int getHitCount() {
+        synchronized (keys) {
+            return hits;
+        }
+    }
+
+    public int getMissCount() {
+        synchronized (keys) {
+            return misses;
+        }
+    }
+
+    // The key length is part of the mac so that keys of different lengths never collide. The password is
+    // prefixed with its length, so that no password and key length pair reads as another.
+    private byte[] mac(byte[] passwordBytes, int keyBitLength) {
+        HMac mac = new HMac(new SHA256Digest());
+        mac.init(new KeyParameter(secret));
+        updateInt(mac, passwordBytes.length);
+        mac.update(passwordBytes, 0, passwordBytes.length);
+        updateInt(mac, keyBitLength);
+        byte[] result = new byte[mac.getMacSize()];
+        mac.doFinal(result, 0);
+        return result;
+    }
+
+    private static void updateInt(HMac mac, int value) {
+        mac.update((byte) (value >>> 24));
+        mac.update((byte) (value >>> 16));
+        mac.update((byte) (value >>> 8));
+        mac.update((byte) value);
+    }
+}
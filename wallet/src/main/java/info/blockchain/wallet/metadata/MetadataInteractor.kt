@@ -2,6 +2,7 @@ package info.blockchain.wallet.metadata
 
 import info.blockchain.wallet.crypto.AESUtil
 import info.blockchain.wallet.metadata.data.MetadataBody
+import info.blockchain.wallet.metadata.data.MetadataResponse
 import info.blockchain.wallet.util.FormatsUtil
 import info.blockchain.wallet.util.MetadataUtil
 import io.reactivex.rxjava3.core.Completable
@@ -10,6 +11,7 @@ import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.kotlin.zipWith
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.TimeUnit
 import org.json.JSONException
 import org.spongycastle.crypto.CryptoException
@@ -20,15 +22,16 @@ import retrofit2.HttpException
 class MetadataInteractor(
     private val metadataService: MetadataService
 ) {
+    private class KnownMagic(val hash: ByteArray?)
+
+    // The magic hash of the last payload seen at each address, from the loads and puts made here. A put
+    // has to name it as the previous magic hash, and knowing it saves fetching the whole payload first.
+    // A null hash means there was nothing at the address.
+    private val knownMagic = ConcurrentHashMap<String, KnownMagic>()
+
     fun fetchMagic(address: String): Single<ByteArray> =
         metadataService.getMetadata(address).map {
-            val encryptedPayloadBytes = Base64.decode(it.payload.toByteArray(StandardCharsets.UTF_8))
-            if (it.prevMagicHash != null) {
-                val prevMagicBytes = Hex.decode(it.prevMagicHash)
-                MetadataUtil.magic(encryptedPayloadBytes, prevMagicBytes)
-            } else {
-                MetadataUtil.magic(encryptedPayloadBytes, null)
-            }
+            it.magic()
         }
 
     fun putMetadata(payloadJson: String, metadata: Metadata): Completable {
@@ -38,22 +41,25 @@ class MetadataInteractor(
         val encryptedPayloadBytes: ByteArray =
             Base64.decode(AESUtil.encryptWithKey(metadata.encryptionKey, payloadJson))
 
-        return fetchMagic(metadata.address)
+        return knownMagic[metadata.address]?.let { known ->
+            putMetadata(encryptedPayloadBytes, metadata, known.hash)
+                .onErrorResumeNext { error ->
+                    // Most likely the payload was changed elsewhere, so the magic hash is fetched and it is put again
+                    if (error is HttpException) {
+                        putWithFetchedMagic(encryptedPayloadBytes, metadata)
+                    } else {
+                        Completable.error(error)
+                    }
+                }
+        } ?: putWithFetchedMagic(encryptedPayloadBytes, metadata)
+    }
+
+    private fun putWithFetchedMagic(encryptedPayloadBytes: ByteArray, metadata: Metadata): Completable =
+        fetchMagic(metadata.address)
             .onErrorReturn { ByteArray(0) }
             .flatMapCompletable { m ->
                 val magic = if (m.isEmpty()) null else m
-                val message = MetadataUtil.message(encryptedPayloadBytes, magic)
-                val sig = metadata.node.signMessage(String(Base64.encode(message)))
-                val body = MetadataBody().apply {
-                    version = METADATA_VERSION
-                    payload = String(Base64.encode(encryptedPayloadBytes))
-                    signature = sig
-                    prevMagicHash = magic?.let {
-                        Hex.toHexString(it)
-                    }
-                    typeId = metadata.type
-                }
-                metadataService.putMetadata(metadata.address, body)
+                putMetadata(encryptedPayloadBytes, metadata, magic)
             }.retryWhen { errors ->
                 errors.zipWith(
                     Flowable.range(0, FETCH_MAGIC_HASH_ATTEMPT_LIMIT)
@@ -66,20 +72,54 @@ class MetadataInteractor(
                         }
                     }
             }
+
+    private fun putMetadata(encryptedPayloadBytes: ByteArray, metadata: Metadata, magic: ByteArray?): Completable {
+        val message = MetadataUtil.message(encryptedPayloadBytes, magic)
+        val sig = metadata.node.signMessage(String(Base64.encode(message)))
+        val body = MetadataBody().apply {
+            version = METADATA_VERSION
+            payload = String(Base64.encode(encryptedPayloadBytes))
+            signature = sig
+            prevMagicHash = magic?.let {
+                Hex.toHexString(it)
+            }
+            typeId = metadata.type
+        }
+        return metadataService.putMetadata(metadata.address, body)
+            .doOnComplete {
+                knownMagic[metadata.address] = KnownMagic(MetadataUtil.magic(encryptedPayloadBytes, magic))
+            }.doOnError {
+                // Whether the put was applied is not known
+                knownMagic.remove(metadata.address)
+            }
     }
 
     fun loadRemoteMetadata(metadata: Metadata): Maybe<String> {
         return metadataService.getMetadata(metadata.address)
             .toMaybe()
+            .doOnSuccess {
+                knownMagic[metadata.address] = KnownMagic(it.magic())
+            }
             .map {
                 decryptMetadata(metadata, it.payload)
             }.onErrorResumeNext {
-                if (it is HttpException && it.code() == 404) // haven't been created
+                if (it is HttpException && it.code() == 404) { // haven't been created
+                    knownMagic[metadata.address] = KnownMagic(null)
                     Maybe.empty()
-                else Maybe.error(it)
+                } else Maybe.error(it)
             }
     }
 
+    private fun MetadataResponse.magic(): ByteArray {
+        val encryptedPayloadBytes = Base64.decode(payload.toByteArray(StandardCharsets.UTF_8))
+        return if (prevMagicHash != null) {
+            val prevMagicBytes = Hex.decode(prevMagicHash)
+            MetadataUtil.magic(encryptedPayloadBytes, prevMagicBytes)
+        } else {
+            MetadataUtil.magic(encryptedPayloadBytes, null)
+        }
+    }
+
     private fun decryptMetadata(metadata: Metadata, payload: String): String =
         try {
             AESUtil.decryptWithKey(metadata.encryptionKey, payload).apply {
@@ -0,0 +1,79 @@
+package info.blockchain.wallet.multiaddress
+
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Index of the HD addresses seen in multiaddress responses and of the next unused receive and change
+ * address index per xpub.
+ *
+ * The index is an immutable snapshot behind an atomic reference, so reads from any thread are lock
+ * free and always see a consistent state. Each summarize pass collects its changes in a [Batch], which
+ * is published at once when the pass completes; concurrent publications are merged rather than lost.
+ */
+internal class AddressIndex {
+
+    private class Snapshot(
+        val addressToXpub: Map<String, String>,
+        val nextReceiveIndex: Map<String, Int>,
+        val nextChangeIndex: Map<String, Int>
+    )
+
+    class Batch {
+        internal val addressToXpub = HashMap<String, String>()
+        internal val nextReceiveIndex = HashMap<String, Int>()
+        internal val nextChangeIndex = HashMap<String, Int>()
+
+        fun putAddresses(addresses: Map<String, String>) {
+            addressToXpub.putAll(addresses)
+        }
+
+        fun putNextIndexes(xpub: String, receiveIndex: Int, changeIndex: Int) {
+            nextReceiveIndex[xpub] = receiveIndex
+            nextChangeIndex[xpub] = changeIndex
+        }
+    }
+
+    private val snapshot = AtomicReference(Snapshot(emptyMap(), emptyMap(), emptyMap()))
+
+    fun xpubForAddress(address: String): String? = snapshot.get().addressToXpub[address]
+
+    fun containsAddress(address: String): Boolean = snapshot.get().addressToXpub.containsKey(address)
+
+    fun nextReceiveIndex(xpub: String): Int? = snapshot.get().nextReceiveIndex[xpub]
+
+    fun nextChangeIndex(xpub: String): Int? = snapshot.get().nextChangeIndex[xpub]
+
+    fun publish(batch: Batch) {
+        snapshot.updateAndGet { current ->
+            Snapshot(
+                addressToXpub = current.addressToXpub + batch.addressToXpub,
+                nextReceiveIndex = current.nextReceiveIndex + batch.nextReceiveIndex,
+                nextChangeIndex = current.nextChangeIndex + batch.nextChangeIndex
+            )
+        }
+    }
+
+    /**
+     * Atomically replaces the next receive index of [xpub] with the result of [update], which may be
+     * re-run if another thread publishes concurrently.
+     */
+    fun updateNextReceiveIndex(xpub: String, update: (Int?) -> Int) {
+        snapshot.updateAndGet { current ->
+            Snapshot(
+                addressToXpub = current.addressToXpub,
+                nextReceiveIndex = current.nextReceiveIndex + (xpub to update(current.nextReceiveIndex[xpub])),
+                nextChangeIndex = current.nextChangeIndex
+            )
+        }
+    }
+
+    fun updateNextChangeIndex(xpub: String, update: (Int?) -> Int) {
+        snapshot.updateAndGet { current ->
+            Snapshot(
+                addressToXpub = current.addressToXpub,
+                nextReceiveIndex = current.nextReceiveIndex,
+                nextChangeIndex = current.nextChangeIndex + (xpub to update(current.nextChangeIndex[xpub]))
+            )
+        }
+    }
+}
@@ -10,16 +10,15 @@ import info.blockchain.wallet.payload.data.allAddresses
 import retrofit2.Call
 
 abstract class MultiAddressFactory(
-    internal val bitcoinApi: NonCustodialBitcoinService
+    internal val bitcoinApi: NonCustodialBitcoinService,
+    private val transactionStore: TransactionSummaryStore = InMemoryTransactionSummaryStore()
 ) {
-    private val nextReceiveAddressMap: HashMap<String, Int> = HashMap()
-    private val nextChangeAddressMap: HashMap<String, Int> = HashMap()
-
-    // Field for testing if address belongs to us - Quicker than derivation
-    private val addressToXpubMap: HashMap<String, String> = HashMap()
+    // Next address indexes and the address to xpub map, for testing if address belongs to us - Quicker
+    // than derivation. Read from other threads, so only updated through atomic publication.
+    private val addressIndex = AddressIndex()
 
     fun getXpubFromAddress(address: String): String? {
-        return addressToXpubMap[address]
+        return addressIndex.xpubForAddress(address)
     }
 
     /**
@@ -54,6 +53,69 @@ abstract class MultiAddressFactory(
         }
     }
 
+    /**
+     * Incremental version of [getAccountTransactions] for the first page. Summarized transactions are kept
+     * in the [TransactionSummaryStore]. Once there are any, a refresh starts with a small page and grows
+     * the following ones only until they reach a transaction already stored as confirmed. Those are not
+     * summarized again, only their confirmations are updated from the latest block height, and stored
+     * transactions which were still unconfirmed are re-evaluated from the fetched pages.
+     *
+     * At most [pageSize] transactions are fetched, and returned, so the result lines up with the pages
+     * fetched by [getAccountTransactions] from an offset of [pageSize].
+     *
+     * @param all A list of all xpubs and legacy addresses whose transactions are to
+     * be retrieved from API.
+     * @param onlyShow Xpub or legacy address. Used to fetch transaction only relating to this
+     * address. Set as Null for a consolidated list like 'All Accounts' or 'Imported'.
+     * @param pageSize Amount of transactions in the first page
+     */
+    fun syncAccountTransactions(
+        all: List<XPubs>,
+        onlyShow: List<String>?,
+        pageSize: Int,
+        startingBlockHeight: Int
+    ): List<TransactionSummary> {
+        val key = storeKey(all, onlyShow)
+        val confirmed = transactionStore.get(key).filter { it.isConfirmed }.associateBy { it.summary.hash }
+
+        val fetched = LinkedHashMap<String, StoredTransactionSummary>()
+        var latestBlock = 0
+        var offset = 0
+        var limit = if (confirmed.isEmpty()) pageSize else minOf(SYNC_PROBE_SIZE, pageSize)
+        var reachedStored = false
+        while (offset < pageSize) {
+            val multiAddress = getMultiAddress(all, onlyShow, limit, offset)
+            val txs = multiAddress?.txs ?: break
+            latestBlock = multiAddress.info.latestBlock.height.toInt()
+            summarizeWithBlockHeight(all, multiAddress, startingBlockHeight, confirmed)
+                .forEach { fetched[it.summary.hash] = it }
+            offset += limit
+            // Anything older than a transaction we already hold as confirmed is already stored
+            if (txs.any { it.hash in confirmed }) {
+                reachedStored = true
+                break
+            }
+            if (txs.size < limit) {
+                break
+            }
+            limit = minOf(limit * 2, pageSize - offset)
+        }
+
+        // If the new transactions did not reach the stored ones there would be a gap, so start over
+        val merged = if (reachedStored) {
+            fetched.values + confirmed.values.filterNot { it.summary.hash in fetched }
+        } else {
+            fetched.values.toList()
+        }.take(pageSize)
+            .map { it.atLatestBlock(latestBlock) }
+
+        transactionStore.put(key, merged)
+        return merged.map { it.summary }
+    }
+
+    private fun storeKey(all: List<XPubs>, onlyShow: List<String>?): String =
+        all.allAddresses().sorted().joinToString(",") + "|" + onlyShow.orEmpty().sorted().joinToString(",")
+
     private fun getMultiAddress(
         xpubs: List<XPubs>,
         onlyShow: List<String>?,
@@ -79,76 +141,89 @@ abstract class MultiAddressFactory(
     ): Call<MultiAddress>
 
     fun getNextChangeAddressIndex(xpub: String): Int =
-        if (nextChangeAddressMap.containsKey(xpub)) {
-            nextChangeAddressMap[xpub]!!
-        } else {
-            0
-        }
+        addressIndex.nextChangeIndex(xpub) ?: 0
 
     fun getNextReceiveAddressIndex(xpub: String, reservedAddresses: List<AddressLabel>): Int {
-        if (!nextReceiveAddressMap.containsKey(xpub)) {
-            return 0
-        }
+        val receiveIndex = addressIndex.nextReceiveIndex(xpub) ?: return 0
+        return skipReserved(receiveIndex, reservedAddresses)
+    }
 
-        var receiveIndex: Int? = nextReceiveAddressMap[xpub]
-        // Skip reserved addresses
-        for ((index) in reservedAddresses) {
-            if (index == receiveIndex) {
-                receiveIndex++
+    private fun skipReserved(receiveIndex: Int, reservedAddresses: List<AddressLabel>): Int {
+        var index = receiveIndex
+        for ((reservedIndex) in reservedAddresses) {
+            if (reservedIndex == index) {
+                index++
             }
         }
-
-        return receiveIndex!!
+        return index
     }
 
     fun isOwnHDAddress(address: String): Boolean {
-        return addressToXpubMap.containsKey(address)
+        return addressIndex.containsAddress(address)
     }
 
     @Deprecated("Use the XPub version")
     fun incrementNextReceiveAddress(xpub: XPub, reservedAddresses: List<AddressLabel>) {
-        var receiveIndex = getNextReceiveAddressIndex(xpub.address, reservedAddresses)
-        receiveIndex++
-
-        nextReceiveAddressMap[xpub.address] = receiveIndex
+        incrementNextReceiveAddress(xpub.address, reservedAddresses)
     }
 
     @Deprecated("Use the XPub version")
     fun incrementNextReceiveAddress(xpub: String, reservedAddresses: List<AddressLabel>) {
-        val receiveIndex = getNextReceiveAddressIndex(xpub, reservedAddresses) + 1
-        nextReceiveAddressMap[xpub] = receiveIndex
+        addressIndex.updateNextReceiveIndex(xpub) { current ->
+            (current?.let { skipReserved(it, reservedAddresses) } ?: 0) + 1
+        }
     }
 
     fun incrementNextChangeAddress(xpub: String) {
-        val index = getNextChangeAddressIndex(xpub) + 1
-        nextChangeAddressMap[xpub] = index
+        addressIndex.updateNextChangeIndex(xpub) { current -> (current ?: 0) + 1 }
     }
 
     private fun summarize(
         xpubs: List<XPubs>,
         multiAddress: MultiAddress,
         startingBlockHeight: Int
-    ): List<TransactionSummary> {
-        val ownAddresses = xpubs.allAddresses().toMutableList()
-        val summaryList = ArrayList<TransactionSummary>()
+    ): List<TransactionSummary> =
+        summarizeWithBlockHeight(xpubs, multiAddress, startingBlockHeight).map { it.summary }
+
+    // Transactions in [known] are taken as they are, rather than summarized again
+    private fun summarizeWithBlockHeight(
+        xpubs: List<XPubs>,
+        multiAddress: MultiAddress,
+        startingBlockHeight: Int,
+        known: Map<String, StoredTransactionSummary> = emptyMap()
+    ): List<StoredTransactionSummary> {
+        val ownAddresses = OwnedAddresses(xpubs.allAddresses())
+        val summaryList = ArrayList<StoredTransactionSummary>()
+        val indexUpdate = AddressIndex.Batch()
 
         // Set next address indexes
         for (address in multiAddress.addresses) {
-            nextReceiveAddressMap[address.address] = address.accountIndex
-            nextChangeAddressMap[address.address] = address.changeIndex
+            indexUpdate.putNextIndexes(address.address, address.accountIndex, address.changeIndex)
         }
         val latestBlock = multiAddress.info.latestBlock.height.toInt()
         multiAddress.txs.forEach { tx ->
+            known[tx.hash]?.let { stored ->
+                indexUpdate.putAddresses(stored.summary.inputsXpubMap)
+                indexUpdate.putAddresses(stored.summary.outputsXpubMap)
+                summaryList.add(stored.atLatestBlock(latestBlock))
+                return@forEach
+            }
             tx.toTransactionSummary(
                 ownAddresses = ownAddresses,
                 startingBlockHeight = startingBlockHeight,
                 latestBlock = latestBlock
             )?.let { txSummary ->
-                addressToXpubMap.putAll(txSummary.inputsXpubMap)
-                addressToXpubMap.putAll(txSummary.outputsXpubMap)
-                summaryList.add(txSummary)
+                indexUpdate.putAddresses(txSummary.inputsXpubMap)
+                indexUpdate.putAddresses(txSummary.outputsXpubMap)
+                summaryList.add(StoredTransactionSummary(txSummary, tx.blockHeight))
             }
         }
+        addressIndex.publish(indexUpdate)
         return summaryList
     }
+
+    companion object {
+        // Size of the first page fetched by an incremental sync once anything is stored
+        private const val SYNC_PROBE_SIZE = 5
+    }
 }
@@ -6,7 +6,10 @@ import info.blockchain.wallet.payload.data.XPubs
 import info.blockchain.wallet.payload.data.legacyXpubAddresses
 import retrofit2.Call
 
-class MultiAddressFactoryBch(bitcoinApi: NonCustodialBitcoinService) : MultiAddressFactory(bitcoinApi) {
+class MultiAddressFactoryBch(
+    bitcoinApi: NonCustodialBitcoinService,
+    transactionStore: TransactionSummaryStore = InMemoryTransactionSummaryStore()
+) : MultiAddressFactory(bitcoinApi, transactionStore) {
 
     override fun getMultiAddress(
         xpubs: List<XPubs>,
@@ -7,7 +7,10 @@ import info.blockchain.wallet.payload.data.legacyXpubAddresses
 import info.blockchain.wallet.payload.data.segwitXpubAddresses
 import retrofit2.Call
 
-class MultiAddressFactoryBtc(bitcoinApi: NonCustodialBitcoinService) : MultiAddressFactory(bitcoinApi) {
+class MultiAddressFactoryBtc(
+    bitcoinApi: NonCustodialBitcoinService,
+    transactionStore: TransactionSummaryStore = InMemoryTransactionSummaryStore()
+) : MultiAddressFactory(bitcoinApi, transactionStore) {
 
     override fun getMultiAddress(
         xpubs: List<XPubs>,
@@ -0,0 +1,16 @@
+package info.blockchain.wallet.multiaddress
+
+/**
+ * Addresses known to belong to the wallet, collected while mapping the transactions of a
+ * multiaddress response. Backed by a hash set, so ownership checks are constant time and addresses
+ * seen in many transactions are only stored once.
+ */
+internal class OwnedAddresses(initial: Collection<String> = emptyList()) {
+    private val addresses = HashSet<String>(initial)
+
+    fun add(address: String) {
+        addresses.add(address)
+    }
+
+    operator fun contains(address: String): Boolean = addresses.contains(address)
+}
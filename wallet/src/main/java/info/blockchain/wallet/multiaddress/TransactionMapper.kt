@@ -6,7 +6,7 @@ import info.blockchain.wallet.bip44.HDChain
 import java.math.BigInteger
 
 internal fun Transaction.toTransactionSummary(
-    ownAddresses: MutableList<String>,
+    ownAddresses: OwnedAddresses,
     startingBlockHeight: Int,
     latestBlock: Int
 ): TransactionSummary? {
@@ -38,14 +38,6 @@ internal fun Transaction.toTransactionSummary(
             val inputAddr = prevOut.addr
             val inputValue = prevOut.value
             if (inputAddr != null) {
-                // Transaction from HD account
-                prevOut.xpub?.let {
-                    // xpubBody will only show if it belongs to our account
-                    // inputAddr belongs to our own account - add it, it's a transfer/send
-                    ownAddresses.add(inputAddr)
-                    inputsXpubMap[inputAddr] = it.address
-                }
-
                 // Transaction from HD account
                 val xpubBody = prevOut.xpub
                 if (xpubBody != null) {
@@ -247,7 +239,7 @@ private enum class OutputType {
 
 private fun Output.toTaggedOutput(
     inputsMap: Map<String, BigInteger>,
-    ownAddresses: MutableList<String>,
+    ownAddresses: OwnedAddresses,
     outputsXpubMap: MutableMap<String, String>
 ): TaggedOutput {
     val outputAddr = this.addr
@@ -275,7 +267,7 @@ private fun Output.toTaggedOutput(
         } else {
             // If we own this address and it's not change coming back, it's a transfer
             return when {
-                ownAddresses.contains(outputAddr) && !inputsMap.containsKey(outputAddr) -> {
+                outputAddr in ownAddresses && !inputsMap.containsKey(outputAddr) -> {
                     TaggedOutput(
                         type = OutputType.INTERNAL,
                         address = outputAddr,
@@ -307,7 +299,7 @@ private fun Output.toTaggedOutput(
 }
 
 private fun filterOwnedAddresses(
-    ownAddresses: List<String>,
+    ownAddresses: OwnedAddresses,
     inputsMap: HashMap<String, BigInteger>,
     outputsMap: HashMap<String, BigInteger>,
     transactionType: TransactionSummary.TransactionType
@@ -315,7 +307,7 @@ private fun filterOwnedAddresses(
     var iterator: MutableIterator<Map.Entry<String, BigInteger>> = inputsMap.entries.iterator()
     while (iterator.hasNext()) {
         val item = iterator.next()
-        if (!ownAddresses.contains(item.key) && transactionType == TransactionSummary.TransactionType.SENT) {
+        if (item.key !in ownAddresses && transactionType == TransactionSummary.TransactionType.SENT) {
             iterator.remove()
         }
     }
@@ -323,7 +315,7 @@ private fun filterOwnedAddresses(
     iterator = outputsMap.entries.iterator()
     while (iterator.hasNext()) {
         val item = iterator.next()
-        if (!ownAddresses.contains(item.key) && transactionType == TransactionSummary.TransactionType.RECEIVED) {
+        if (item.key !in ownAddresses && transactionType == TransactionSummary.TransactionType.RECEIVED) {
             iterator.remove()
         }
     }
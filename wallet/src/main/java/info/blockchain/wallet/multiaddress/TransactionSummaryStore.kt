@@ -0,0 +1,66 @@
+package info.blockchain.wallet.multiaddress
+
+/**
+ * A summarized transaction together with the height of the block it was mined in, so the number of
+ * confirmations can be brought up to date without summarizing the transaction again.
+ */
+class StoredTransactionSummary(
+    val summary: TransactionSummary,
+    // Null or 0 while the transaction is unconfirmed
+    val blockHeight: Long?
+) {
+    val isConfirmed: Boolean
+        get() = blockHeight != null && blockHeight > 0
+
+    internal fun atLatestBlock(latestBlock: Int): StoredTransactionSummary {
+        val confirmations = if (blockHeight != null && latestBlock > 0 && blockHeight > 0) {
+            (latestBlock - blockHeight + 1).toInt()
+        } else {
+            0
+        }
+        return if (confirmations == summary.confirmations) {
+            this
+        } else {
+            StoredTransactionSummary(summary.withConfirmations(confirmations), blockHeight)
+        }
+    }
+}
+
+/**
+ * Local store of summarized transactions, keyed by the xpubs (or addresses) they were fetched for and
+ * then by transaction hash. Transactions are kept in the order they are returned by the multiaddress
+ * endpoint, newest first. The store is dropped, rather than cleared, when the wallet is closed.
+ */
+interface TransactionSummaryStore {
+    fun get(key: String): List<StoredTransactionSummary>
+    fun put(key: String, transactions: List<StoredTransactionSummary>)
+}
+
+class InMemoryTransactionSummaryStore : TransactionSummaryStore {
+    private val transactions = HashMap<String, LinkedHashMap<String, StoredTransactionSummary>>()
+
+    @Synchronized
+    override fun get(key: String): List<StoredTransactionSummary> =
+        transactions[key]?.values?.toList() ?: emptyList()
+
+    @Synchronized
+    override fun put(key: String, transactions: List<StoredTransactionSummary>) {
+        this.transactions[key] = transactions.associateByTo(LinkedHashMap()) { it.summary.hash }
+    }
+}
+
+private fun TransactionSummary.withConfirmations(confirmations: Int) =
+    TransactionSummary(
+        transactionType = transactionType,
+        total = total,
+        fee = fee,
+        hash = hash,
+        time = time,
+        confirmations = confirmations,
+        inputsMap = inputsMap,
+        outputsMap = outputsMap,
+        inputsXpubMap = inputsXpubMap,
+        outputsXpubMap = outputsXpubMap,
+        isDoubleSpend = isDoubleSpend,
+        isPending = isPending
+    )
@@ -1,5 +1,6 @@
 package info.blockchain.wallet.payload
 
+import info.blockchain.wallet.bip44.DerivationPipeline
 import info.blockchain.wallet.bip44.HDAccount
 import info.blockchain.wallet.bip44.HDWallet
 import info.blockchain.wallet.bip44.HDWalletFactory
@@ -88,20 +89,17 @@ class HDWalletsContainer {
         val seed = ByteArray(len)
         random.nextBytes(seed)
 
-        legacy = HDWalletFactory.createWallet(
-            language,
-            passphrase,
-            nbAccounts,
-            Derivation.LEGACY_PURPOSE,
-            seed
-        )
-        segwitBech32 = HDWalletFactory.createWallet(
-            language,
-            passphrase,
-            nbAccounts,
-            Derivation.SEGWIT_BECH32_PURPOSE,
-            seed
-        )
+        val (legacyWallet, segwitWallet) = DerivationPipeline.map(PURPOSES) { purpose ->
+            HDWalletFactory.createWallet(
+                language,
+                passphrase,
+                nbAccounts,
+                purpose,
+                seed
+            )
+        }
+        legacy = legacyWallet
+        segwitBech32 = segwitWallet
     }
 
     fun restoreWallets(
@@ -110,20 +108,17 @@ class HDWalletsContainer {
         passphrase: String,
         nbAccounts: Int
     ) {
-        legacy = HDWalletFactory.restoreWallet(
-            language,
-            data,
-            passphrase,
-            nbAccounts,
-            Derivation.LEGACY_PURPOSE
-        )
-        segwitBech32 = HDWalletFactory.restoreWallet(
-            language,
-            data,
-            passphrase,
-            nbAccounts,
-            Derivation.SEGWIT_BECH32_PURPOSE
-        )
+        val (legacyWallet, segwitWallet) = DerivationPipeline.map(PURPOSES) { purpose ->
+            HDWalletFactory.restoreWallet(
+                language,
+                data,
+                passphrase,
+                nbAccounts,
+                purpose
+            )
+        }
+        legacy = legacyWallet
+        segwitBech32 = segwitWallet
     }
 
     fun restoreWatchOnly(
@@ -141,4 +136,9 @@ class HDWalletsContainer {
 
     fun getStxAccount(): STXAccount =
         legacy?.stxAccount ?: throw IllegalStateException("Legacy account hasn't created/restored yet")
+
+    companion object {
+        // Both derivations are created or restored side by side
+        private val PURPOSES = listOf(Derivation.LEGACY_PURPOSE, Derivation.SEGWIT_BECH32_PURPOSE)
+    }
 }
@@ -1,6 +1,5 @@
 package info.blockchain.wallet.payload;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.lang3.tuple.Pair;
 import org.bitcoinj.crypto.MnemonicException.MnemonicChecksumException;
@@ -31,6 +30,8 @@ import com.blockchain.api.bitcoin.data.BalanceDto;
 import info.blockchain.balance.CryptoValue;
 import info.blockchain.wallet.BlockchainFramework;
 import info.blockchain.wallet.api.WalletApi;
+import info.blockchain.wallet.bip44.DerivationPipeline;
+import info.blockchain.wallet.bip44.DerivedAddressCache;
 import info.blockchain.wallet.bip44.HDAccount;
 import info.blockchain.wallet.exceptions.AccountLockedException;
 import info.blockchain.wallet.exceptions.DecryptionException;
@@ -48,6 +49,7 @@ import info.blockchain.wallet.multiaddress.TransactionSummary;
 import info.blockchain.wallet.pairing.Pairing;
 import info.blockchain.wallet.payload.data.Account;
 import info.blockchain.wallet.payload.data.Derivation;
+import info.blockchain.wallet.payload.data.EncryptedWalletPayload;
 import info.blockchain.wallet.payload.data.WalletBody;
 import info.blockchain.wallet.payload.data.ImportedAddress;
 import info.blockchain.wallet.payload.data.Wallet;
@@ -83,12 +85,32 @@ public class PayloadManager {
     // Bitcoin Cash
     private final BalanceManagerBch balanceManagerBch;
 
+    private final DerivedAddressCache derivedAddressCache;
+
     public PayloadManager(
         WalletApi walletApi,
         NonCustodialBitcoinService bitcoinApi,
         MultiAddressFactory multiAddressFactory,
         BalanceManagerBtc balanceManagerBtc,
         BalanceManagerBch balanceManagerBch
+    ) {
+        this(
+            walletApi,
+            bitcoinApi,
+            multiAddressFactory,
+            balanceManagerBtc,
+            balanceManagerBch,
+            new DerivedAddressCache()
+        );
+    }
+
+    public PayloadManager(
+        WalletApi walletApi,
+        NonCustodialBitcoinService bitcoinApi,
+        MultiAddressFactory multiAddressFactory,
+        BalanceManagerBtc balanceManagerBtc,
+        BalanceManagerBch balanceManagerBch,
+        DerivedAddressCache derivedAddressCache
     ) {
         this.walletApi = walletApi;
         this.bitcoinApi = bitcoinApi;
@@ -97,6 +119,7 @@ public class PayloadManager {
         this.balanceManagerBtc = balanceManagerBtc;
         // Bitcoin Cash
         this.balanceManagerBch  = balanceManagerBch;
+        this.derivedAddressCache = derivedAddressCache;
     }
 
     @Nullable
@@ -264,9 +287,7 @@ public class PayloadManager {
         List<Account> upgraded,
         @Nonnull String secondPassword
     ) throws UnsupportedEncodingException, EncryptionException {
-        for (Account a : upgraded) {
-            payload.encryptAccount(a, secondPassword);
-        }
+        payload.encryptAccounts(upgraded, secondPassword);
     }
 
     /**
@@ -408,18 +429,15 @@ public class PayloadManager {
     private void saveNewWallet(String email) throws Exception {
         validateSave();
         // Encrypt and wrap payload
-        ObjectMapper mapper = WalletWrapper.getMapperForVersion(getPayload().getWrapperVersion());
-        Pair pair = walletBase.encryptAndWrapPayload(password);
-        WalletWrapper payloadWrapper = (WalletWrapper) pair.getRight();
-        String newPayloadChecksum = (String) pair.getLeft();
+        EncryptedWalletPayload encryptedPayload = walletBase.encryptPayload(password);
+        String newPayloadChecksum = encryptedPayload.getChecksum();
 
         // Save to server
         Call<ResponseBody> call = walletApi.insertWallet(
             getPayload().getGuid(),
             getPayload().getSharedKey(),
             null,
-            payloadWrapper.toJson(mapper),
-            newPayloadChecksum,
+            encryptedPayload,
             email,
             BlockchainFramework.getDevice()
         );
@@ -472,10 +490,8 @@ public class PayloadManager {
 
         // Encrypt and wrap payload
         int payloadVersion = getPayload().getWrapperVersion();
-        ObjectMapper mapper = WalletWrapper.getMapperForVersion(payloadVersion);
-        Pair pair = walletBase.encryptAndWrapPayload(password);
-        WalletWrapper payloadWrapper = (WalletWrapper) pair.getRight();
-        String newPayloadChecksum = (String) pair.getLeft();
+        EncryptedWalletPayload encryptedPayload = walletBase.encryptPayload(password);
+        String newPayloadChecksum = encryptedPayload.getChecksum();
         String oldPayloadChecksum = walletBase.getPayloadChecksum();
 
         // Save to server
@@ -490,8 +506,7 @@ public class PayloadManager {
             getPayload().getGuid(),
             getPayload().getSharedKey(),
             syncAddresses,
-            payloadWrapper.toJson(mapper),
-            newPayloadChecksum,
+            encryptedPayload,
             oldPayloadChecksum,
             BlockchainFramework.getDevice()
         );
@@ -516,26 +531,31 @@ public class PayloadManager {
         // This matches what iOS is doing, but it seems to be massive overkill for mobile
         // devices. I'm also filtering out archived accounts here because I don't see the point
         // in sending them.
-        int derivationPurpose = (payloadVersion == WalletWrapper.V4)
-            ? Derivation.SEGWIT_BECH32_PURPOSE
-            : Derivation.LEGACY_PURPOSE;
+        int derivationPurpose = pubKeySyncPurpose(payloadVersion);
 
+        final List<Pair<HDAccount, Integer>> windows = new ArrayList<>();
         for (Account account : walletBody.getAccounts()) {
             if (!account.isArchived()) {
                 HDAccount hdAccount = walletBody.getHDAccountFromAccountBody(account).get(0);
                 int nextIndex = getNextReceiveAddressIndexBtc(account);
-
-                syncAddresses.addAll(
-                    Tools.getReceiveAddressList(
-                        hdAccount,
-                        nextIndex,
-                        nextIndex + 20,
-                        derivationPurpose
-                    )
-                );
+                windows.add(Pair.of(hdAccount, nextIndex));
             }
         }
 
+        // Accounts are derived in parallel, the addresses are added in account order
+        List<List<String>> windowAddresses = DerivationPipeline.map(
+            windows,
+            window -> derivedAddressCache.receiveAddresses(
+                window.getLeft(),
+                window.getRight(),
+                window.getRight() + 20,
+                derivationPurpose
+            )
+        );
+        for (List<String> addresses : windowAddresses) {
+            syncAddresses.addAll(addresses);
+        }
+
         syncAddresses.addAll(
             Tools.filterImportedAddress(
                 ImportedAddress.NORMAL_ADDRESS,
@@ -546,6 +566,54 @@ public class PayloadManager {
         return syncAddresses;
     }
 
+    private int pubKeySyncPurpose(int payloadVersion) {
+        return (payloadVersion == WalletWrapper.V4)
+            ? Derivation.SEGWIT_BECH32_PURPOSE
+            : Derivation.LEGACY_PURPOSE;
+    }
+
+    /**
+     * Derives the upcoming receive and change addresses of all active accounts in the background, so
+     * that saves and address lookups find them cached. The next indexes are only known once a
+     * multiaddress sync has published them, so this runs after each sync of the first page. The cache
+     * skips the accounts whose windows are already warm.
+     */
+    private void warmAddressCache() {
+        Wallet payload = getPayload();
+        if (payload == null || payload.getWalletBody() == null) {
+            return;
+        }
+        WalletBody walletBody = payload.getWalletBody();
+        try {
+            for (Account account : walletBody.getAccounts()) {
+                if (account.isArchived()) {
+                    continue;
+                }
+                List<HDAccount> hdAccounts = walletBody.getHDAccountFromAccountBody(account);
+                String derivationType = derivationTypeFromXPub(account.getXpubs().getDefault());
+                int receiveIndex = getNextReceiveAddressIndexBtc(account);
+                derivedAddressCache.warm(
+                    hdAccounts.get(derivationType == Derivation.LEGACY_TYPE ? 0 : 1),
+                    derivationType == Derivation.LEGACY_TYPE ? Derivation.LEGACY_PURPOSE : Derivation.SEGWIT_BECH32_PURPOSE,
+                    receiveIndex,
+                    getNextChangeAddressIndexBtc(account, derivationType)
+                );
+                if (walletBase.isSyncPubkeys()) {
+                    // The window uploaded by makePubKeySyncList
+                    derivedAddressCache.warm(
+                        hdAccounts.get(0),
+                        pubKeySyncPurpose(payload.getWrapperVersion()),
+                        receiveIndex,
+                        null
+                    );
+                }
+            }
+        } catch (Exception e) {
+            // Warming must never fail the wallet load
+            log.warn("Unable to warm address cache", e);
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // ACCOUNT AND IMPORTED HDADDRESS CREATION
     ///////////////////////////////////////////////////////////////////////////
@@ -701,28 +769,41 @@ public class PayloadManager {
         return payloadVersion < WalletWrapper.V4 && isV4Enabled;
     }
 
-    public SigningKey getAddressSigningKey(
-        @Nonnull ImportedAddress importedAddress,
+    /**
+     * Returns the signing keys of the given imported addresses, in order. The second password is
+     * validated once and the private keys are decrypted in parallel.
+     */
+    public List<SigningKey> getAddressSigningKeys(
+        @Nonnull List<ImportedAddress> importedAddresses,
         @Nullable String secondPassword
     ) throws DecryptionException, UnsupportedEncodingException, InvalidCipherTextException {
 
         getPayload().validateSecondPassword(secondPassword);
 
-        String decryptedPrivateKey = importedAddress.getPrivateKey();
+        List<String> decryptedPrivateKeys = new ArrayList<>(importedAddresses.size());
+        for (ImportedAddress importedAddress : importedAddresses) {
+            decryptedPrivateKeys.add(importedAddress.getPrivateKey());
+        }
 
         if (secondPassword != null) {
-            decryptedPrivateKey = DoubleEncryptionFactory
-                .decrypt(
-                    importedAddress.getPrivateKey(),
+            decryptedPrivateKeys = DoubleEncryptionFactory
+                .decryptAll(
+                    decryptedPrivateKeys,
                     getPayload().getSharedKey(),
                     secondPassword,
                     getPayload().getOptions().getPbkdf2Iterations());
         }
 
-        return new SigningKeyImpl(
-            Tools.getECKeyFromKeyAndAddress(
-                decryptedPrivateKey, importedAddress.getAddress())
-        );
+        List<SigningKey> signingKeys = new ArrayList<>(importedAddresses.size());
+        for (int i = 0; i < importedAddresses.size(); i++) {
+            signingKeys.add(
+                new SigningKeyImpl(
+                    Tools.getECKeyFromKeyAndAddress(
+                        decryptedPrivateKeys.get(i), importedAddresses.get(i).getAddress())
+                )
+            );
+        }
+        return signingKeys;
     }
 
     private Balance accountTotalBalance(HashMap<String, Balance> balanceHashMap, String legacyXpub, String segwitXpub) {
@@ -783,13 +864,7 @@ public class PayloadManager {
         ApiException {
 
         List<XPubs> activeXpubs = getPayload().getWalletBody().getActiveXpubs();
-        return multiAddressFactory.getAccountTransactions(
-            activeXpubs,
-            null,
-            limit,
-            offset,
-            0
-            );
+        return getTransactions(activeXpubs, limit, offset);
     }
 
     public MasterKey masterKey() throws HDWalletException {
@@ -817,13 +892,25 @@ public class PayloadManager {
         List<XPubs> activeXpubs = new ArrayList<XPubs>();
         activeXpubs.add(xpubs);
 
-        return multiAddressFactory.getAccountTransactions(
-            activeXpubs,
-            null,
-            limit,
-            offset,
-            0
-        );
+        return getTransactions(activeXpubs, limit, offset);
+    }
+
+    /**
+     * The first page is synced incrementally, only fetching transactions newer than those already
+     * summarized, and the address cache is then warmed from the next indexes it published. Later
+     * pages are always fetched in full.
+     */
+    private List<TransactionSummary> getTransactions(List<XPubs> xpubs, int limit, int offset)
+        throws IOException, ApiException {
+
+        if (offset == 0) {
+            List<TransactionSummary> transactions =
+                multiAddressFactory.syncAccountTransactions(xpubs, null, limit, 0);
+            warmAddressCache();
+            return transactions;
+        } else {
+            return multiAddressFactory.getAccountTransactions(xpubs, null, limit, offset, 0);
+        }
     }
 
     /**
@@ -954,11 +1041,11 @@ public class PayloadManager {
             .getHDAccountFromAccountBody(account)
             .get(derivationType == Derivation.LEGACY_TYPE ? 0 : 1);
 
-        return hdAccount.getReceive()
-            .getAddressAt(
-                position,
-                derivationType == Derivation.LEGACY_TYPE ? Derivation.LEGACY_PURPOSE : Derivation.SEGWIT_BECH32_PURPOSE
-            ).getFormattedAddress();
+        return derivedAddressCache.receiveAddress(
+            hdAccount,
+            position,
+            derivationType == Derivation.LEGACY_TYPE ? Derivation.LEGACY_PURPOSE : Derivation.SEGWIT_BECH32_PURPOSE
+        );
     }
 
     private String getChangeAddress(Account account, int position, String derivationType) throws HDWalletException {
@@ -967,11 +1054,11 @@ public class PayloadManager {
             .getHDAccountFromAccountBody(account)
             .get(derivationType == Derivation.LEGACY_TYPE ? 0 : 1);
 
-        return hdAccount.getChange()
-            .getAddressAt(
-                position,
-                derivationType == Derivation.LEGACY_TYPE ? Derivation.LEGACY_PURPOSE : Derivation.SEGWIT_BECH32_PURPOSE
-            ).getFormattedAddress();
+        return derivedAddressCache.changeAddress(
+            hdAccount,
+            position,
+            derivationType == Derivation.LEGACY_TYPE ? Derivation.LEGACY_PURPOSE : Derivation.SEGWIT_BECH32_PURPOSE
+        );
     }
 
     /**
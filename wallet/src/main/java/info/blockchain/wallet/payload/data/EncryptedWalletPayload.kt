@@ -0,0 +1,69 @@
+package info.blockchain.wallet.payload.data
+
+import com.fasterxml.jackson.core.JsonEncoding
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.databind.ObjectMapper
+import info.blockchain.wallet.crypto.AESUtil
+import info.blockchain.wallet.exceptions.EncryptionException
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.security.DigestOutputStream
+import java.security.MessageDigest
+import org.spongycastle.util.encoders.Hex
+
+/**
+ * The [WalletWrapper] json of an encrypted wallet, as uploaded to the server, and its checksum.
+ *
+ * [encrypt] streams the wallet from the Jackson generator through the cipher and the base64 encoder
+ * straight into the wrapper, so neither the cleartext json nor the ciphertext is held in memory as a
+ * whole. The wrapper json is ASCII, so its length in bytes is also its length in characters.
+ *
+ * [wrapperJson] is a read only view of the buffer the wrapper was written to, rather than a copy of it.
+ */
+class EncryptedWalletPayload private constructor(
+    private val wrapper: ByteBuffer,
+    val checksum: String
+) {
+    val wrapperJson: ByteBuffer
+        get() = wrapper.duplicate()
+
+    val length: Int
+        get() = wrapper.remaining()
+
+    // Exposes the written bytes without the copy made by toByteArray
+    private class WrapperBuffer : ByteArrayOutputStream(INITIAL_BUFFER_SIZE) {
+        fun asReadOnlyBuffer(): ByteBuffer =
+            ByteBuffer.wrap(buf, 0, count).asReadOnlyBuffer()
+    }
+
+    companion object {
+        private const val INITIAL_BUFFER_SIZE = 8 * 1024
+
+        @JvmStatic
+        @Throws(IOException::class, EncryptionException::class)
+        fun encrypt(
+            wallet: Wallet,
+            mapper: ObjectMapper,
+            password: String?,
+            version: Int,
+            iterations: Int
+        ): EncryptedWalletPayload {
+            val digest = MessageDigest.getInstance("SHA-256")
+            val buffer = WrapperBuffer()
+
+            DigestOutputStream(buffer, digest).use { out ->
+                // Same layout as WalletWrapper.toJson; base64 never needs escaping inside a json string
+                out.write("{\"version\":$version,\"pbkdf2_iterations\":$iterations,\"payload\":\"".toByteArray())
+                AESUtil.encryptingStream(out, password, iterations).use { encrypting ->
+                    mapper.factory.createGenerator(encrypting, JsonEncoding.UTF8)
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .use { generator -> mapper.writeValue(generator, wallet) }
+                }
+                out.write("\"}".toByteArray())
+            }
+
+            return EncryptedWalletPayload(buffer.asReadOnlyBuffer(), Hex.toHexString(digest.digest()))
+        }
+    }
+}
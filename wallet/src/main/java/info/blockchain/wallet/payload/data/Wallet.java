@@ -341,27 +341,23 @@ public class Wallet {
             //Double encrypt if need
             if (!StringUtils.isEmpty(secondPassword)) {
 
-                //Double encrypt seedHex
-                String doubleEncryptedSeedHex = DoubleEncryptionFactory.encrypt(
-                    walletBodyBody.getSeedHex(),
+                //Double encrypt seedHex and private keys in one batch
+                List<String> secrets = new ArrayList<>();
+                secrets.add(walletBodyBody.getSeedHex());
+                for (Account account : walletBodyBody.getAccounts()) {
+                    secrets.add(account.getXpriv());
+                }
+
+                List<String> encrypted = DoubleEncryptionFactory.encryptAll(
+                    secrets,
                     getSharedKey(),
                     secondPassword,
                     getOptions().getPbkdf2Iterations()
                 );
-                walletBodyBody.setSeedHex(doubleEncryptedSeedHex);
-
-                //Double encrypt private keys
-                for (Account account : walletBodyBody.getAccounts()) {
-
-                    String encryptedXPriv = DoubleEncryptionFactory.encrypt(
-                        account.getXpriv(),
-                        getSharedKey(),
-                        secondPassword,
-                        getOptions().getPbkdf2Iterations()
-                    );
-
-                    account.setXpriv(encryptedXPriv);
 
+                walletBodyBody.setSeedHex(encrypted.get(0));
+                for (int i = 0; i < walletBodyBody.getAccounts().size(); i++) {
+                    walletBodyBody.getAccounts().get(i).setXpriv(encrypted.get(i + 1));
                 }
             }
 
@@ -424,6 +420,30 @@ public class Wallet {
         }
     }
 
+    /**
+     * Double encrypts the private keys of the given accounts as one batch.
+     */
+    public void encryptAccounts(List<Account> accounts, String secondPassword)
+        throws UnsupportedEncodingException, EncryptionException {
+        if (secondPassword != null) {
+            List<String> xprivs = new ArrayList<>(accounts.size());
+            for (Account account : accounts) {
+                xprivs.add(account.getXpriv());
+            }
+
+            List<String> encrypted = DoubleEncryptionFactory.encryptAll(
+                xprivs,
+                sharedKey,
+                secondPassword,
+                getOptions().getPbkdf2Iterations()
+            );
+
+            for (int i = 0; i < accounts.size(); i++) {
+                accounts.get(i).setXpriv(encrypted.get(i));
+            }
+        }
+    }
+
     public Account addAccount(
         String label,
         @Nullable String secondPassword,
@@ -16,20 +16,14 @@ import info.blockchain.wallet.exceptions.UnsupportedVersionException;
 import info.blockchain.wallet.util.FormatsUtil;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import javax.annotation.Nonnull;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.json.JSONObject;
 import org.spongycastle.crypto.paddings.BlockCipherPadding;
 import org.spongycastle.crypto.paddings.ISO10126d2Padding;
 import org.spongycastle.crypto.paddings.ISO7816d4Padding;
 import org.spongycastle.crypto.paddings.ZeroBytePadding;
-import org.spongycastle.util.encoders.Hex;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -218,23 +212,15 @@ public class WalletBase {
         return mapper.writeValueAsString(this);
     }
 
-    public Pair encryptAndWrapPayload(String password)
-            throws JsonProcessingException, UnsupportedEncodingException, EncryptionException, NoSuchAlgorithmException {
-
+    /**
+     * Encrypts and wraps the payload for upload, streaming the serialized wallet through the cipher
+     * rather than building it as a string first.
+     */
+    public EncryptedWalletPayload encryptPayload(String password) throws IOException, EncryptionException {
         int version = walletBody.getWrapperVersion();
         int iterations = walletBody.getOptions().getPbkdf2Iterations();
         ObjectMapper mapper = WalletWrapper.getMapperForVersion(version);
-        String encryptedPayload = AESUtil.encrypt(walletBody.toJson(mapper), password, iterations);
-        WalletWrapper wrapperBody = WalletWrapper.wrap(encryptedPayload, version, iterations);
-
-        String checkSum = new String(
-            Hex.encode(
-                MessageDigest.getInstance("SHA-256")
-                    .digest(wrapperBody.toJson(mapper).getBytes(StandardCharsets.UTF_8))
-            )
-        );
-
-        return Pair.of(checkSum, wrapperBody);
+        return EncryptedWalletPayload.encrypt(walletBody, mapper, password, version, iterations);
     }
 
     // HDWallet body containing private keys
@@ -481,8 +481,7 @@ public class WalletBody {
 
         LinkedList<String> xpubs = new LinkedList<>();
 
-        for (int i = 0; i < trySize; i++) {
-            HDAccount account = bip44Wallet.addAccount();
+        for (HDAccount account : bip44Wallet.addAccounts(trySize)) {
             xpubs.add(account.getXpub());
         }
 
@@ -0,0 +1,158 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
+
+/**
+ * Depth-first branch and bound search for a set of inputs which pays the target amount without
+ * needing a change output, ie. where the excess over amount and fee is smaller than the dust
+ * threshold of the change output and can be given to the miners instead. Dropping the change output
+ * saves its vbytes and the cost of spending it later.
+ *
+ * The search is bounded both by [maxIterations] and [maxDuration] so it is cheap enough to run on
+ * every fee preview. When no changeless set is found within the budget, selection falls back to the
+ * greedy [LinearCoinSelection].
+ */
+class BranchAndBoundCoinSelection(
+    private val coins: List<Utxo>,
+    private val feePerByte: BigInteger,
+    private val maxIterations: Int = DEFAULT_MAX_ITERATIONS,
+    private val maxDuration: Long = DEFAULT_MAX_DURATION_MS,
+    private val timeUnit: TimeUnit = TimeUnit.MILLISECONDS
+) {
+    fun select(
+        outputAmount: BigInteger,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType,
+        fallbackSortingMethod: CoinSortingMethod = DescentDraw
+    ): SpendableUnspentOutputs =
+        selectChangeless(outputAmount, targetOutputType, changeOutputType)
+            ?: LinearCoinSelection(coins, feePerByte)
+                .select(outputAmount, targetOutputType, changeOutputType, fallbackSortingMethod)
+
+    /**
+     * @return the changeless selection with the smallest excess found within the search budget,
+     * or null if there is none.
+     */
+    fun selectChangeless(
+        outputAmount: BigInteger,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType
+    ): SpendableUnspentOutputs? {
+        // Forced inputs only occur with replay protection, where the input order is significant
+        if (coins.any { it.isForceInclude }) {
+            return null
+        }
+
+        val fee = feePerByte.longValueExact()
+        val candidates = coins
+            .map { it to it.value.longValueExact() - fee * it.inputCost }
+            .filter { (_, effectiveValue) -> effectiveValue > 0 }
+            .sortedByDescending { (_, effectiveValue) -> effectiveValue }
+
+        val effectiveValues = LongArray(candidates.size) { candidates[it].second }
+        val fixedBytes = COST_BASE.toLong() + targetOutputType.cost.toLong()
+        val target = outputAmount.longValueExact() + fixedBytes * fee
+        val dust = when (changeOutputType) {
+            OutputType.P2PKH,
+            OutputType.P2SH -> COST_PER_INPUT_LEGACY.toLong() + changeOutputType.cost.toLong()
+            else -> COST_PER_INPUT_SEGWIT.toLong() + changeOutputType.cost.toLong()
+        } * fee
+
+        val best = search(effectiveValues, target, dust) ?: return null
+        val selected = candidates.filterIndexed { index, _ -> best[index] }.map { it.first }
+        if (selected.isEmpty()) {
+            return null
+        }
+
+        val selectedValue = selected.sumOf { it.value.longValueExact() }
+        val bytes = fixedBytes + selected.sumOf { it.inputCost }
+        val excess = selectedValue - (outputAmount.longValueExact() + bytes * fee)
+
+        return SpendableUnspentOutputs(
+            spendableOutputs = selected,
+            absoluteFee = (bytes * fee + excess).toBigInteger(),
+            consumedAmount = excess.toBigInteger(),
+            isReplayProtected = selected.first().isReplayable.not()
+        )
+    }
+
+    private fun search(effectiveValues: LongArray, target: Long, dust: Long): BooleanArray? {
+        val count = effectiveValues.size
+        val available = LongArray(count + 1)
+        for (i in count - 1 downTo 0) {
+            available[i] = available[i + 1] + effectiveValues[i]
+        }
+        if (available[0] < target) {
+            return null
+        }
+
+        val deadline = System.nanoTime() + timeUnit.toNanos(maxDuration)
+        val included = BooleanArray(count)
+        var best: BooleanArray? = null
+        var bestExcess = Long.MAX_VALUE
+        var current = 0L
+        var depth = 0
+
+        for (iteration in 0 until maxIterations) {
+            if (iteration % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                break
+            }
+
+            val backtrack = when {
+                // Not enough value left in this branch to reach the target
+                current + available[depth] < target -> true
+                // Overshot by enough that a change output would be needed
+                current >= target + dust -> true
+                current >= target -> {
+                    val excess = current - target
+                    if (excess < bestExcess) {
+                        bestExcess = excess
+                        best = included.copyOf()
+                    }
+                    true
+                }
+                else -> false
+            }
+
+            if (bestExcess == 0L) {
+                break
+            }
+
+            if (backtrack) {
+                // Step back to the most recently included input and try the branch without it
+                depth--
+                while (depth >= 0 && !included[depth]) {
+                    depth--
+                }
+                if (depth < 0) {
+                    break
+                }
+                included[depth] = false
+                current -= effectiveValues[depth]
+                depth++
+            } else {
+                // Including an input equal to one just excluded would only repeat the explored branch
+                val isDuplicate = depth > 0 &&
+                    !included[depth - 1] &&
+                    effectiveValues[depth] == effectiveValues[depth - 1]
+                if (!isDuplicate) {
+                    included[depth] = true
+                    current += effectiveValues[depth]
+                }
+                depth++
+            }
+        }
+        return best
+    }
+
+    private val Utxo.inputCost: Long
+        get() = if (isSegwit) COST_PER_INPUT_SEGWIT.toLong() else COST_PER_INPUT_LEGACY.toLong()
+
+    companion object {
+        const val DEFAULT_MAX_ITERATIONS = 100_000
+        const val DEFAULT_MAX_DURATION_MS = 50L
+        private const val DEADLINE_CHECK_INTERVAL = 1024
+    }
+}
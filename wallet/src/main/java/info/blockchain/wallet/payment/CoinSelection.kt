@@ -3,9 +3,9 @@ package info.blockchain.wallet.payment
 import info.blockchain.wallet.payload.model.Utxo
 import java.math.BigInteger
 
-private val COST_BASE: BigInteger = BigInteger.valueOf(10)
-private val COST_PER_INPUT_LEGACY: BigInteger = BigInteger.valueOf(149)
-private val COST_PER_INPUT_SEGWIT: BigInteger = BigInteger.valueOf(68)
+internal val COST_BASE: BigInteger = BigInteger.valueOf(10)
+internal val COST_PER_INPUT_LEGACY: BigInteger = BigInteger.valueOf(149)
+internal val COST_PER_INPUT_SEGWIT: BigInteger = BigInteger.valueOf(68)
 
 class CoinSelection(
     private val coins: List<Utxo>,
@@ -38,7 +38,7 @@ internal object Coins {
             coinSortingMethod = ReplayProtection(placeholderDustInput)
         }
 
-        val selection = CoinSelection(utxoList, feePerKbToFeePerByte(feePerKb))
+        val selection = LinearCoinSelection(utxoList, feePerKbToFeePerByte(feePerKb))
             .selectAll(targetOutputType, coinSortingMethod)
 
         return Pair(selection.spendableBalance, selection.absoluteFee)
@@ -53,6 +53,8 @@ internal object Coins {
      * @param paymentAmount the desired amount to send
      * @param feePerKb he fee per KB
      * @param addReplayProtection whether or no replay protection should be considered
+     * @param preferChangeless whether to search for a set of coins which needs no change output before
+     * falling back to greedy selection. Ignored when replay protection is added.
      * @return a list of spendable coins
      */
     fun getMinimumCoinsForPayment(
@@ -61,19 +63,74 @@ internal object Coins {
         changeOutputType: OutputType,
         paymentAmount: BigInteger,
         feePerKb: BigInteger,
-        addReplayProtection: Boolean
+        addReplayProtection: Boolean,
+        preferChangeless: Boolean = false
     ): SpendableUnspentOutputs {
 
+        if (preferChangeless && !addReplayProtection) {
+            return BranchAndBoundCoinSelection(utxoList, feePerKbToFeePerByte(feePerKb))
+                .select(paymentAmount, targetOutputType, changeOutputType, DescentDraw)
+        }
+
         val coinSortingMethod: CoinSortingMethod = if (addReplayProtection) {
             ReplayProtection(placeholderDustInput)
         } else {
             DescentDraw
         }
 
-        return CoinSelection(utxoList, feePerKbToFeePerByte(feePerKb))
+        return LinearCoinSelection(utxoList, feePerKbToFeePerByte(feePerKb))
             .select(paymentAmount, targetOutputType, changeOutputType, coinSortingMethod)
     }
 
+    /**
+     * Returns the spendable coins for the desired amount to send, and the maximum available amount, at
+     * each of several fees, from a single pass over the coins.
+     *
+     * @param utxoList a list of coins
+     * @param targetOutputType Destination output type
+     * @param changeOutputType Change output type
+     * @param paymentAmount the desired amount to send
+     * @param feesPerKb the fees per KB
+     * @param addReplayProtection whether or no replay protection should be considered
+     * @param preferChangeless whether to search for a set of coins which needs no change output before
+     * falling back to greedy selection. Ignored when replay protection is added.
+     * @return a selection for each of the fees, in the same order
+     */
+    fun getSpendableCoinsForFees(
+        utxoList: List<Utxo>,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType,
+        paymentAmount: BigInteger,
+        feesPerKb: List<BigInteger>,
+        addReplayProtection: Boolean,
+        preferChangeless: Boolean = false
+    ): List<FeeRateSelection> {
+        val feesPerByte = feesPerKb.map { feePerKbToFeePerByte(it) }
+        val distinctFeesPerByte = feesPerByte.distinct()
+
+        val coinSortingMethod: CoinSortingMethod = if (addReplayProtection) {
+            ReplayProtection(placeholderDustInput)
+        } else {
+            DescentDraw
+        }
+
+        val selections = MultiFeeCoinSelection(utxoList, distinctFeesPerByte)
+            .select(paymentAmount, targetOutputType, changeOutputType, coinSortingMethod)
+            .mapIndexed { index, selection ->
+                val feePerByte = distinctFeesPerByte[index]
+                val changeless = if (preferChangeless && !addReplayProtection) {
+                    BranchAndBoundCoinSelection(utxoList, feePerByte)
+                        .selectChangeless(paymentAmount, targetOutputType, changeOutputType)
+                } else null
+
+                feePerByte to if (changeless != null) {
+                    FeeRateSelection(changeless, selection.maxAvailable, selection.feeForMax)
+                } else selection
+            }.toMap()
+
+        return feesPerByte.map { selections.getValue(it) }
+    }
+
     private fun feePerKbToFeePerByte(feePerKb: BigInteger): BigInteger {
         return BigDecimal(feePerKb)
             .divide(BigDecimal.valueOf(1000L), 0, RoundingMode.CEILING)
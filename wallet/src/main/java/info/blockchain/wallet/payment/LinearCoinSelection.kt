@@ -0,0 +1,134 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+
+/**
+ * Coin selection which produces the same results as [CoinSelection], but keeps running totals of the
+ * selected value and input counts on primitive satoshi/vbyte counters. Each coin is visited once, so
+ * selection is linear in the number of UTXOs and does not allocate intermediate [BigInteger]s,
+ * which matters for consolidation wallets holding thousands of dust outputs.
+ */
+class LinearCoinSelection(
+    private val coins: List<Utxo>,
+    feePerByte: BigInteger
+) {
+    private val feePerByte: Long = feePerByte.longValueExact()
+    private val legacyInputFee: Long = COST_PER_INPUT_LEGACY.toLong() * this.feePerByte
+    private val segwitInputFee: Long = COST_PER_INPUT_SEGWIT.toLong() * this.feePerByte
+
+    fun select(
+        outputAmount: BigInteger,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType,
+        coinSortingMethod: CoinSortingMethod
+    ): SpendableUnspentOutputs {
+        val target = outputAmount.longValueExact()
+        val selected = mutableListOf<Utxo>()
+        val totals = InputTotals()
+        val targetOutputCost = targetOutputType.vbytes
+        var accumulatedFee = 0L
+
+        for (coin in coinSortingMethod.sort(coins)) {
+            val value = coin.value.longValueExact()
+            if (!coin.isForceInclude) {
+                if (!isEffective(coin, value) || totals.value >= target + accumulatedFee) {
+                    continue
+                }
+            }
+            selected += coin
+            totals.add(coin, value)
+            accumulatedFee = totals.bytes(outputs = 1, outputCost = targetOutputCost) * feePerByte
+        }
+
+        val dust = dustThreshold(changeOutputType)
+        val remainingValue = totals.value - (target + accumulatedFee)
+        val isReplayProtected = selected.firstOrNull()?.isReplayable != true
+
+        return when {
+            // Either there were no effective coins or we were not able to meet the target value
+            selected.isEmpty() || remainingValue < 0 -> {
+                SpendableUnspentOutputs(isReplayProtected = isReplayProtected)
+            }
+            // Remaining value is worth keeping, add change output
+            remainingValue >= dust -> {
+                accumulatedFee = totals.bytes(outputs = 2, outputCost = changeOutputType.vbytes) * feePerByte
+                SpendableUnspentOutputs(
+                    selected,
+                    accumulatedFee.toBigInteger(),
+                    isReplayProtected = isReplayProtected
+                )
+            }
+            // Remaining value is not worth keeping, consume it as part of the fee
+            else -> {
+                SpendableUnspentOutputs(
+                    selected,
+                    (accumulatedFee + remainingValue).toBigInteger(),
+                    remainingValue.toBigInteger(),
+                    isReplayProtected
+                )
+            }
+        }
+    }
+
+    fun selectAll(
+        targetOutputType: OutputType,
+        coinSortingMethod: CoinSortingMethod? = null
+    ): SpendableUnspentOutputs {
+        val effectiveCoins = mutableListOf<Utxo>()
+        val totals = InputTotals()
+
+        for (coin in coinSortingMethod?.sort(coins) ?: coins) {
+            val value = coin.value.longValueExact()
+            if (coin.isForceInclude || isEffective(coin, value)) {
+                effectiveCoins += coin
+                totals.add(coin, value)
+            }
+        }
+
+        val effectiveBalance =
+            (totals.value - totals.bytes(outputs = 1, outputCost = targetOutputType.vbytes) * feePerByte)
+                .coerceAtLeast(0L)
+
+        return SpendableUnspentOutputs(
+            spendableOutputs = effectiveCoins,
+            absoluteFee = (totals.value - effectiveBalance).toBigInteger(),
+            isReplayProtected = effectiveCoins.firstOrNull()?.isReplayable != true
+        )
+    }
+
+    private fun isEffective(coin: Utxo, value: Long): Boolean =
+        value > if (coin.isSegwit) segwitInputFee else legacyInputFee
+
+    private fun dustThreshold(outputType: OutputType): Long =
+        when (outputType) {
+            OutputType.P2PKH,
+            OutputType.P2SH -> (COST_PER_INPUT_LEGACY.toLong() + outputType.vbytes) * feePerByte
+            else -> (COST_PER_INPUT_SEGWIT.toLong() + outputType.vbytes) * feePerByte
+        }
+}
+
+internal val OutputType.vbytes: Long
+    get() = cost.toLong()
+
+/**
+ * Running totals of the value and input counts of a set of coins, from which the size of a transaction
+ * spending them can be worked out.
+ */
+internal class InputTotals {
+    var value = 0L
+        private set
+    private var legacyInputs = 0L
+    private var segwitInputs = 0L
+
+    fun add(coin: Utxo, coinValue: Long) {
+        value += coinValue
+        if (coin.isSegwit) segwitInputs++ else legacyInputs++
+    }
+
+    fun bytes(outputs: Int, outputCost: Long): Long =
+        COST_BASE.toLong() +
+            COST_PER_INPUT_LEGACY.toLong() * legacyInputs +
+            COST_PER_INPUT_SEGWIT.toLong() * segwitInputs +
+            outputCost * outputs
+}
@@ -0,0 +1,126 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+
+/**
+ * The coins selected for a payment at one fee rate, together with the most that could be sent at that
+ * rate and the fee for sending it.
+ */
+class FeeRateSelection(
+    val spendableCoins: SpendableUnspentOutputs,
+    val maxAvailable: BigInteger,
+    val feeForMax: BigInteger
+)
+
+/**
+ * Coin selection for several fee rates at once, as needed to preview the fee of each fee level. The
+ * coins are sorted once and visited once, with each coin offered to the selection and the max available
+ * totals of every fee rate in turn. The result for each rate is the same as [LinearCoinSelection]
+ * gives for its [LinearCoinSelection.select] and [LinearCoinSelection.selectAll].
+ */
+class MultiFeeCoinSelection(
+    private val coins: List<Utxo>,
+    private val feesPerByte: List<BigInteger>
+) {
+    /**
+     * @return a selection for each of the fee rates, in the same order
+     */
+    fun select(
+        outputAmount: BigInteger,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType,
+        coinSortingMethod: CoinSortingMethod
+    ): List<FeeRateSelection> {
+        val target = outputAmount.longValueExact()
+        val rates = feesPerByte.map { FeeRate(it.longValueExact(), target, targetOutputType.vbytes) }
+
+        for (coin in coinSortingMethod.sort(coins)) {
+            val value = coin.value.longValueExact()
+            for (rate in rates) {
+                rate.offer(coin, value)
+            }
+        }
+
+        return rates.map { rate ->
+            val maxAvailable = rate.maxAvailable()
+            FeeRateSelection(
+                spendableCoins = rate.selection(changeOutputType),
+                maxAvailable = maxAvailable.toBigInteger(),
+                feeForMax = (rate.effectiveValue - maxAvailable).toBigInteger()
+            )
+        }
+    }
+
+    private class FeeRate(
+        private val feePerByte: Long,
+        private val target: Long,
+        private val targetOutputCost: Long
+    ) {
+        private val legacyInputFee = COST_PER_INPUT_LEGACY.toLong() * feePerByte
+        private val segwitInputFee = COST_PER_INPUT_SEGWIT.toLong() * feePerByte
+
+        private val selected = mutableListOf<Utxo>()
+        private val totals = InputTotals()
+        private var accumulatedFee = 0L
+
+        private val allTotals = InputTotals()
+
+        val effectiveValue: Long
+            get() = allTotals.value
+
+        fun offer(coin: Utxo, value: Long) {
+            val isEffective = coin.isForceInclude || value > if (coin.isSegwit) segwitInputFee else legacyInputFee
+            if (!isEffective) {
+                return
+            }
+            allTotals.add(coin, value)
+
+            if (coin.isForceInclude || totals.value < target + accumulatedFee) {
+                selected += coin
+                totals.add(coin, value)
+                accumulatedFee = totals.bytes(outputs = 1, outputCost = targetOutputCost) * feePerByte
+            }
+        }
+
+        fun maxAvailable(): Long =
+            (allTotals.value - allTotals.bytes(outputs = 1, outputCost = targetOutputCost) * feePerByte)
+                .coerceAtLeast(0L)
+
+        fun selection(changeOutputType: OutputType): SpendableUnspentOutputs {
+            val remainingValue = totals.value - (target + accumulatedFee)
+            val isReplayProtected = selected.firstOrNull()?.isReplayable != true
+
+            return when {
+                // Either there were no effective coins or we were not able to meet the target value
+                selected.isEmpty() || remainingValue < 0 -> {
+                    SpendableUnspentOutputs(isReplayProtected = isReplayProtected)
+                }
+                // Remaining value is worth keeping, add change output
+                remainingValue >= dustThreshold(changeOutputType) -> {
+                    SpendableUnspentOutputs(
+                        selected,
+                        (totals.bytes(outputs = 2, outputCost = changeOutputType.vbytes) * feePerByte).toBigInteger(),
+                        isReplayProtected = isReplayProtected
+                    )
+                }
+                // Remaining value is not worth keeping, consume it as part of the fee
+                else -> {
+                    SpendableUnspentOutputs(
+                        selected,
+                        (accumulatedFee + remainingValue).toBigInteger(),
+                        remainingValue.toBigInteger(),
+                        isReplayProtected
+                    )
+                }
+            }
+        }
+
+        private fun dustThreshold(outputType: OutputType): Long =
+            when (outputType) {
+                OutputType.P2PKH,
+                OutputType.P2SH -> (COST_PER_INPUT_LEGACY.toLong() + outputType.vbytes) * feePerByte
+                else -> (COST_PER_INPUT_SEGWIT.toLong() + outputType.vbytes) * feePerByte
+            }
+    }
+}
@@ -74,13 +74,15 @@ class Payment(
         )
     }
 
+    @JvmOverloads
     fun getSpendableCoins(
         @NonNull unspentCoins: List<Utxo>,
         @NonNull targetOutputType: OutputType,
         @NonNull changeOutputType: OutputType,
         @NonNull paymentAmount: BigInteger,
         @NonNull feePerKb: BigInteger,
-        addReplayProtection: Boolean
+        addReplayProtection: Boolean,
+        preferChangeless: Boolean = false
     ): SpendableUnspentOutputs {
         return Coins.getMinimumCoinsForPayment(
             unspentCoins,
@@ -88,7 +90,28 @@ class Payment(
             changeOutputType,
             paymentAmount,
             feePerKb,
-            addReplayProtection
+            addReplayProtection,
+            preferChangeless
+        )
+    }
+
+    fun getSpendableCoinsForFees(
+        @NonNull unspentCoins: List<Utxo>,
+        @NonNull targetOutputType: OutputType,
+        @NonNull changeOutputType: OutputType,
+        @NonNull paymentAmount: BigInteger,
+        @NonNull feesPerKb: List<BigInteger>,
+        addReplayProtection: Boolean,
+        preferChangeless: Boolean = false
+    ): List<FeeRateSelection> {
+        return Coins.getSpendableCoinsForFees(
+            unspentCoins,
+            targetOutputType,
+            changeOutputType,
+            paymentAmount,
+            feesPerKb,
+            addReplayProtection,
+            preferChangeless
         )
     }
 
@@ -1,5 +1,6 @@
 package info.blockchain.wallet.util;
 
+import info.blockchain.wallet.bip44.DerivationPipeline;
 import info.blockchain.wallet.crypto.AESUtil;
 import info.blockchain.wallet.exceptions.DecryptionException;
 import info.blockchain.wallet.exceptions.EncryptionException;
@@ -9,6 +10,7 @@ import org.spongycastle.util.encoders.Hex;
 
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
+import java.util.List;
 
 /**
  * Double encryption uses concatenated sharedKey+second password to encrypt data
@@ -25,6 +27,67 @@ public class DoubleEncryptionFactory {
         return AESUtil.decrypt(encrypted2, sharedKey + password2, iterations);
     }
 
+    /**
+     * Encrypts each of the given secrets, in parallel. The results are in the order of the secrets.
+     */
+    public static List<String> encryptAll(List<String> secrets, String sharedKey, String password2, int iterations)
+            throws UnsupportedEncodingException, EncryptionException {
+        try {
+            return applyAll(secrets, secret -> encrypt(secret, sharedKey, password2, iterations));
+        } catch (UnsupportedEncodingException | EncryptionException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EncryptionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Decrypts each of the given secrets, in parallel. The results are in the order of the secrets.
+     */
+    public static List<String> decryptAll(List<String> encrypted2, String sharedKey, String password2, int iterations)
+            throws UnsupportedEncodingException, DecryptionException, InvalidCipherTextException {
+        try {
+            return applyAll(encrypted2, secret -> decrypt(secret, sharedKey, password2, iterations));
+        } catch (UnsupportedEncodingException | DecryptionException | InvalidCipherTextException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DecryptionException(e);
+        }
+    }
+
+    private interface Operation {
+        String apply(String value) throws Exception;
+    }
+
+    // Carries checked exceptions out of the parallel operations
+    private static class OperationException extends RuntimeException {
+        OperationException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private static List<String> applyAll(List<String> values, Operation operation) throws Exception {
+        try {
+            return DerivationPipeline.map(values, value -> {
+                try {
+                    return operation.apply(value);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new OperationException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The pool may rethrow a copy of the exception, wrapping the original
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof OperationException) {
+                    throw (Exception) cause.getCause();
+                }
+            }
+            throw e;
+        }
+    }
+
     public static String getHash(String sharedKey, String password2, int iterations) {
         byte[] data = null;
 
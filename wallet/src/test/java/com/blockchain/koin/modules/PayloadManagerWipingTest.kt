@@ -6,6 +6,8 @@ import com.blockchain.koin.walletModule
 import com.blockchain.logging.CrashLogger
 import com.nhaarman.mockitokotlin2.mock
 import info.blockchain.wallet.api.WalletApi
+import info.blockchain.wallet.bip44.DerivedAddressCache
+import info.blockchain.wallet.multiaddress.TransactionSummaryStore
 import info.blockchain.wallet.payload.PayloadManager
 import info.blockchain.wallet.payload.PayloadManagerWiper
 import org.amshove.kluent.`should be`
@@ -26,18 +28,7 @@ class PayloadManagerWipingTest : KoinTest {
 
     @Test
     fun `After wiping the payload manager, a new request for a payload manager gets a distinct instance`() {
-        startKoin {
-            modules(
-                listOf(
-                    walletModule,
-                    module {
-                        single { mock<WalletApi>() }
-                        single { mock<CrashLogger>() }
-                        single { mock<NonCustodialBitcoinService>() }
-                    }
-                )
-            )
-        }
+        startWalletKoin()
 
         val firstPayloadManager: PayloadManager = payloadScope.get()
         val secondPayloadManager: PayloadManager = payloadScope.get()
@@ -52,4 +43,45 @@ class PayloadManagerWipingTest : KoinTest {
 
         thirdPayloadManager `should not be` secondPayloadManager
     }
+
+    @Test
+    fun `After wiping the payload manager, stored transactions are not kept`() {
+        startWalletKoin()
+
+        val firstStore: TransactionSummaryStore = payloadScope.get()
+
+        firstStore `should be` payloadScope.get<TransactionSummaryStore>()
+
+        payloadScope.get<PayloadManagerWiper>().wipe()
+
+        payloadScope.get<TransactionSummaryStore>() `should not be` firstStore
+    }
+
+    @Test
+    fun `After wiping the payload manager, derived addresses are not kept`() {
+        startWalletKoin()
+
+        val firstCache: DerivedAddressCache = payloadScope.get()
+
+        firstCache `should be` payloadScope.get<DerivedAddressCache>()
+
+        payloadScope.get<PayloadManagerWiper>().wipe()
+
+        payloadScope.get<DerivedAddressCache>() `should not be` firstCache
+    }
+
+    private fun startWalletKoin() {
+        startKoin {
+            modules(
+                listOf(
+                    walletModule,
+                    module {
+                        single { mock<WalletApi>() }
+                        single { mock<CrashLogger>() }
+                        single { mock<NonCustodialBitcoinService>() }
+                    }
+                )
+            )
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package info.blockchain.wallet.api
+
+import java.net.URLDecoder
+import java.net.URLEncoder
+import java.nio.ByteBuffer
+import okio.Buffer
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class StreamingFormBodyTest {
+
+    @Test
+    fun `fields are url encoded in order and null fields are left out`() {
+        val payload = "{\"version\":4,\"payload\":\"ab+/cd==\"}"
+        val subject = StreamingFormBody(
+            listOf(
+                "method" to "update",
+                "email" to null,
+                "payload" to payload.toByteArray(),
+                "length" to payload.length,
+                "device" to "android phone"
+            )
+        )
+
+        val written = Buffer().also { subject.writeTo(it) }.readUtf8()
+
+        written `should be equal to` listOf(
+            "method" to "update",
+            "payload" to payload,
+            "length" to payload.length.toString(),
+            "device" to "android phone"
+        ).joinToString("&") { (name, value) -> "$name=${URLEncoder.encode(value, "UTF-8")}" }
+
+        written.split("&").map { URLDecoder.decode(it.substringAfter("="), "UTF-8") }[1] `should be equal to` payload
+        subject.contentLength() `should be equal to` written.length.toLong()
+    }
+
+    @Test
+    fun `byte buffer fields are written from their position every time`() {
+        val value = ByteBuffer.wrap("xxa b".toByteArray()).apply { position(2) }.asReadOnlyBuffer()
+        val subject = StreamingFormBody(listOf("value" to value))
+
+        Buffer().also { subject.writeTo(it) }.readUtf8() `should be equal to` "value=a+b"
+        Buffer().also { subject.writeTo(it) }.readUtf8() `should be equal to` "value=a+b"
+        subject.contentLength() `should be equal to` 9L
+    }
+}
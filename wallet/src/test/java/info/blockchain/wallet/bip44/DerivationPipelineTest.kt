@@ -0,0 +1,61 @@
+package info.blockchain.wallet.bip44
+
+import info.blockchain.wallet.payload.data.Derivation
+import org.bitcoinj.crypto.HDKeyDerivation
+import org.bitcoinj.params.MainNetParams
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class DerivationPipelineTest {
+
+    private val params = MainNetParams.get()
+    private val rootKey = HDKeyDerivation.createMasterPrivateKey("15e23aa73d25994f1921a1256f93f72c".toByteArray())
+
+    @Test
+    fun `accounts are derived in order`() {
+        val accounts = DerivationPipeline.deriveAccounts(params, rootKey, 2, 8)
+
+        assertEquals(
+            (2 until 10).map { HDAccount(params, rootKey, it).xpub },
+            accounts.map { it.xpub }
+        )
+        assertEquals((2 until 10).toList(), accounts.map { it.id })
+    }
+
+    @Test
+    fun `watch only accounts keep the order of their xpubs`() {
+        val xpubs = (0 until 6).map { HDAccount(params, rootKey, it).xpub }.reversed()
+
+        val accounts = DerivationPipeline.deriveWatchOnlyAccounts(params, xpubs)
+
+        assertEquals(xpubs, accounts.map { it.xpub })
+        assertEquals((0 until 6).toList(), accounts.map { it.id })
+    }
+
+    @Test
+    fun `nested derivations complete in order`() {
+        val accounts = DerivationPipeline.deriveAccounts(params, rootKey, 0, 4)
+
+        val addresses = DerivationPipeline.map(accounts) { account ->
+            DerivationPipeline.map((0 until 5).toList()) {
+                account.receive.getAddressAt(it, Derivation.SEGWIT_BECH32_PURPOSE).formattedAddress
+            }
+        }
+
+        assertEquals(
+            accounts.map { account ->
+                (0 until 5).map {
+                    account.receive.getAddressAt(it, Derivation.SEGWIT_BECH32_PURPOSE).formattedAddress
+                }
+            },
+            addresses
+        )
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun `failures are rethrown to the caller`() {
+        DerivationPipeline.map((0 until 10).toList()) {
+            if (it == 7) throw IllegalStateException() else it
+        }
+    }
+}
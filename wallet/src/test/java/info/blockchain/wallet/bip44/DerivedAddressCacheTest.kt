@@ -0,0 +1,157 @@
+package info.blockchain.wallet.bip44
+
+import info.blockchain.wallet.payload.data.Derivation
+import java.io.File
+import java.util.concurrent.Executor
+import org.bitcoinj.crypto.HDKeyDerivation
+import org.bitcoinj.params.MainNetParams
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DerivedAddressCacheTest {
+
+    private val account = HDAccount(
+        MainNetParams.get(),
+        HDKeyDerivation.createMasterPrivateKey("15e23aa73d25994f1921a1256f93f72c".toByteArray()),
+        0
+    )
+
+    private val store = object : DerivedAddressStore {
+        val addresses = HashMap<DerivedAddressKey, String>()
+        override fun get(key: DerivedAddressKey): String? = addresses[key]
+        override fun put(key: DerivedAddressKey, address: String) {
+            addresses[key] = address
+        }
+        override fun clear() = addresses.clear()
+    }
+
+    private val subject = DerivedAddressCache(
+        maxSize = 2,
+        diskStore = store,
+        warmingExecutor = Executor { it.run() }
+    )
+
+    @Test
+    fun `derives the same addresses as the account chains`() {
+        assertEquals(
+            "1GfNtDKUu9KZt8ae7c9UM6NUD1uViZcsEA",
+            subject.receiveAddress(account, 0, Derivation.LEGACY_PURPOSE)
+        )
+        assertEquals(
+            "12boKefnALjsXoQXyHg79aU7qSAFfg5Nze",
+            subject.changeAddress(account, 0, Derivation.LEGACY_PURPOSE)
+        )
+        assertEquals(
+            "bc1qzxxwlrs88fmjr79hk8vavc2e68ml0q22n9enkm",
+            subject.changeAddress(account, 0, Derivation.SEGWIT_BECH32_PURPOSE)
+        )
+        assertEquals(
+            (3 until 6).map { account.receive.getAddressAt(it, Derivation.LEGACY_PURPOSE).formattedAddress },
+            subject.receiveAddresses(account, 3, 6, Derivation.LEGACY_PURPOSE)
+        )
+    }
+
+    @Test
+    fun `lookups read memory then the disk tier before deriving`() {
+        val key = DerivedAddressKey(account.xpub, 0, 7, Derivation.LEGACY_PURPOSE)
+        store.addresses[key] = "stored"
+
+        assertEquals("stored", subject.receiveAddress(account, 7, Derivation.LEGACY_PURPOSE))
+
+        store.clear()
+        assertEquals("stored", subject.receiveAddress(account, 7, Derivation.LEGACY_PURPOSE))
+    }
+
+    @Test
+    fun `warming derives receive and change windows`() {
+        subject.warm(account, Derivation.SEGWIT_BECH32_PURPOSE, receiveIndex = 2, changeIndex = 5, count = 3)
+
+        assertEquals(6, store.addresses.size)
+        assertEquals(
+            account.change.getAddressAt(7, Derivation.SEGWIT_BECH32_PURPOSE).formattedAddress,
+            store.addresses[DerivedAddressKey(account.xpub, 1, 7, Derivation.SEGWIT_BECH32_PURPOSE)]
+        )
+    }
+
+    @Test
+    fun `a window that was already warmed is not submitted again`() {
+        var submitted = 0
+        val cache = DerivedAddressCache(
+            diskStore = store,
+            warmingExecutor = Executor {
+                submitted++
+                it.run()
+            }
+        )
+
+        cache.warm(account, Derivation.LEGACY_PURPOSE, receiveIndex = 2, changeIndex = 5, count = 3)
+        cache.warm(account, Derivation.LEGACY_PURPOSE, receiveIndex = 2, changeIndex = 5, count = 3)
+        cache.warm(account, Derivation.LEGACY_PURPOSE, receiveIndex = 1, changeIndex = null, count = 3)
+        assertEquals(1, submitted)
+
+        cache.warm(account, Derivation.LEGACY_PURPOSE, receiveIndex = 3, changeIndex = 5, count = 3)
+        assertEquals(2, submitted)
+
+        cache.clear()
+        cache.warm(account, Derivation.LEGACY_PURPOSE, receiveIndex = 3, changeIndex = 5, count = 3)
+        assertEquals(3, submitted)
+    }
+
+    @Test
+    fun `addresses warming when the cache is cleared are not stored`() {
+        val pending = mutableListOf<Runnable>()
+        val cache = DerivedAddressCache(
+            diskStore = store,
+            warmingExecutor = Executor { pending += it }
+        )
+
+        cache.warm(account, Derivation.LEGACY_PURPOSE, receiveIndex = 0, changeIndex = 0, count = 3)
+        cache.clear()
+        pending.forEach { it.run() }
+
+        assertTrue(store.addresses.isEmpty())
+    }
+
+    @Test
+    fun `file store keeps neither the xpub nor the address in plaintext`() {
+        val file = File.createTempFile("addresses", ".txt").apply { deleteOnExit() }
+        val key = DerivedAddressKey(account.xpub, 0, 1, Derivation.LEGACY_PURPOSE)
+        val address = account.receive.getAddressAt(1, Derivation.LEGACY_PURPOSE).formattedAddress
+
+        FileDerivedAddressStore(file).put(key, address)
+
+        val contents = file.readText()
+        assertFalse(contents.contains(account.xpub))
+        assertFalse(contents.contains(address))
+        assertEquals(address, FileDerivedAddressStore(file).get(key))
+        assertNull(FileDerivedAddressStore(file).get(key.copy(xpub = "other")))
+    }
+
+    @Test
+    fun `file store that cannot be written still serves lookups`() {
+        val directory = File.createTempFile("addresses", "").apply { delete() }
+        val store = FileDerivedAddressStore(File(directory, "missing/addresses.txt"))
+        val cache = DerivedAddressCache(diskStore = store, warmingExecutor = Executor { it.run() })
+
+        assertEquals(
+            "1GfNtDKUu9KZt8ae7c9UM6NUD1uViZcsEA",
+            cache.receiveAddress(account, 0, Derivation.LEGACY_PURPOSE)
+        )
+    }
+
+    @Test
+    fun `file store survives reload and clear removes it`() {
+        val file = File.createTempFile("addresses", ".txt").apply { delete() }
+        val key = DerivedAddressKey(account.xpub, 0, 1, Derivation.LEGACY_PURPOSE)
+
+        FileDerivedAddressStore(file).put(key, "address")
+        val reloaded = FileDerivedAddressStore(file)
+        assertEquals("address", reloaded.get(key))
+
+        reloaded.clear()
+        assertNull(FileDerivedAddressStore(file).get(key))
+    }
+}
@@ -0,0 +1,121 @@
+package info.blockchain.wallet.crypto;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spongycastle.crypto.PBEParametersGenerator;
+import org.spongycastle.crypto.generators.PKCS5S2ParametersGenerator;
+import org.spongycastle.crypto.params.KeyParameter;
+
+public class DerivedKeyCacheTest {
+
+    // More secrets than the 256 entry bound the cache used to have
+    private static final int SEQUENTIAL_PASS_LENGTH = 500;
+
+    private final byte[] salt = "0123456789abcdef".getBytes();
+    private final byte[] otherSalt = "fedcba9876543210".getBytes();
+
+    @Test
+    public void derivesTheSameKeyAsPbkdf2() {
+        DerivedKeyCache cache = new DerivedKeyCache();
+
+        PBEParametersGenerator generator = new PKCS5S2ParametersGenerator();
+        generator.init(PBEParametersGenerator.PKCS5PasswordToUTF8Bytes("password".toCharArray()), salt, 10);
+        byte[] expected = ((KeyParameter) generator.generateDerivedParameters(256)).getKey();
+
+        Assert.assertArrayEquals(expected, cache.deriveKey("password", salt, 10, 256).getKey());
+        Assert.assertArrayEquals(expected, cache.deriveKey("password", salt, 10, 256).getKey());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void keysAreSeparatedByPasswordSaltAndIterations() {
+        DerivedKeyCache cache = new DerivedKeyCache();
+
+        cache.deriveKey("password", salt, 10, 256);
+        cache.deriveKey("other", salt, 10, 256);
+        cache.deriveKey("password", otherSalt, 10, 256);
+        cache.deriveKey("password", salt, 11, 256);
+
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void passwordAndKeyLengthCannotRunTogether() {
+        DerivedKeyCache cache = new DerivedKeyCache();
+
+        cache.deriveKey("a1", salt, 10, 28);
+        cache.deriveKey("a", salt, 10, 128);
+
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void clearAndEvictionDropKeys() {
+        DerivedKeyCache cache = new DerivedKeyCache(1);
+
+        cache.deriveKey("password", salt, 10, 256);
+        cache.deriveKey("password", otherSalt, 10, 256);
+        cache.deriveKey("password", salt, 10, 256);
+        Assert.assertEquals(0, cache.getHitCount());
+
+        byte[] key = cache.deriveKey("password", salt, 10, 256).getKey();
+        Assert.assertEquals(1, cache.getHitCount());
+
+        cache.clear();
+        Assert.assertArrayEquals(key, cache.deriveKey("password", salt, 10, 256).getKey());
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void defaultCacheKeepsEveryKeyOfASequentialPass() {
+        DerivedKeyCache cache = new DerivedKeyCache();
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < SEQUENTIAL_PASS_LENGTH; i++) {
+                cache.deriveKey("password " + i, salt, 1, 256);
+            }
+        }
+
+        Assert.assertEquals(SEQUENTIAL_PASS_LENGTH, cache.getHitCount());
+        Assert.assertEquals(SEQUENTIAL_PASS_LENGTH, cache.getMissCount());
+    }
+
+    @Test
+    public void sequentialPassOverMoreKeysThanTheBoundNeverHits() {
+        DerivedKeyCache cache = new DerivedKeyCache(SEQUENTIAL_PASS_LENGTH - 1);
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < SEQUENTIAL_PASS_LENGTH; i++) {
+                cache.deriveKey("password " + i, salt, 1, 256);
+            }
+        }
+
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(2 * SEQUENTIAL_PASS_LENGTH, cache.getMissCount());
+    }
+
+    @Test
+    public void repeatedDecryptionReusesTheDerivedKey() throws Exception {
+        AESUtil.clearDerivedKeyCache();
+        String encrypted = AESUtil.encrypt("test data", "password", AESUtil.QR_CODE_PBKDF_2ITERATIONS);
+
+        Assert.assertEquals("test data", AESUtil.decrypt(encrypted, "password", AESUtil.QR_CODE_PBKDF_2ITERATIONS));
+        Assert.assertEquals("test data", AESUtil.decrypt(encrypted, "password", AESUtil.QR_CODE_PBKDF_2ITERATIONS));
+        Assert.assertEquals(1, AESUtil.getDerivedKeyCache().getHitCount());
+        Assert.assertEquals(1, AESUtil.getDerivedKeyCache().getMissCount());
+    }
+
+    @Test
+    public void encryptionKeysAreNotCached() throws Exception {
+        AESUtil.clearDerivedKeyCache();
+        AESUtil.encrypt("test data", "password", AESUtil.QR_CODE_PBKDF_2ITERATIONS);
+        AESUtil.encrypt("test data", "password", AESUtil.QR_CODE_PBKDF_2ITERATIONS);
+
+        Assert.assertEquals(0, AESUtil.getDerivedKeyCache().getHitCount());
+        Assert.assertEquals(0, AESUtil.getDerivedKeyCache().getMissCount());
+    }
+}
@@ -2,12 +2,21 @@ package info.blockchain.wallet.metadata
 
 import com.blockchain.testutils.FakeHttpExceptionFactory
 import com.blockchain.testutils.waitForCompletionWithoutErrors
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.argumentCaptor
+import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
+import info.blockchain.wallet.metadata.data.MetadataBody
 import info.blockchain.wallet.metadata.data.MetadataResponse
+import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Single
+import org.amshove.kluent.`should be equal to`
 import org.junit.Before
 import org.junit.Test
+import org.spongycastle.util.encoders.Hex
 import retrofit2.HttpException
 
 class MetadataInteractorTest {
@@ -114,4 +123,52 @@ class MetadataInteractorTest {
 
         test.assertValueAt(0, "{\"trades\":[]}")
     }
+
+    @Test
+    fun `put after a load uses the magic hash that was loaded`() {
+        whenever(metadataService.getMetadata(fakeMetadata.address)).thenReturn(Single.just(fakeMetadataResponse))
+        whenever(metadataService.putMetadata(eq(fakeMetadata.address), any())).thenReturn(Completable.complete())
+
+        metadataInteractor.loadRemoteMetadata(fakeMetadata).test()
+        metadataInteractor.putMetadata(PAYLOAD, fakeMetadata).test().assertComplete()
+
+        verify(metadataService, times(1)).getMetadata(fakeMetadata.address)
+        argumentCaptor<MetadataBody>().apply {
+            verify(metadataService).putMetadata(eq(fakeMetadata.address), capture())
+            firstValue.prevMagicHash `should be equal to` Hex.toHexString(
+                metadataInteractor.fetchMagic(fakeMetadata.address).blockingGet()
+            )
+        }
+    }
+
+    @Test
+    fun `consecutive puts only fetch the magic hash once`() {
+        whenever(metadataService.getMetadata(fakeMetadata.address)).thenReturn(Single.just(fakeMetadataResponse))
+        whenever(metadataService.putMetadata(eq(fakeMetadata.address), any())).thenReturn(Completable.complete())
+
+        metadataInteractor.putMetadata(PAYLOAD, fakeMetadata).test().assertComplete()
+        metadataInteractor.putMetadata(PAYLOAD, fakeMetadata).test().assertComplete()
+
+        verify(metadataService, times(1)).getMetadata(fakeMetadata.address)
+        verify(metadataService, times(2)).putMetadata(eq(fakeMetadata.address), any())
+    }
+
+    @Test
+    fun `a rejected put fetches the magic hash and puts again`() {
+        whenever(metadataService.getMetadata(fakeMetadata.address)).thenReturn(Single.just(fakeMetadataResponse))
+        whenever(metadataService.putMetadata(eq(fakeMetadata.address), any())).thenReturn(
+            Completable.error(FakeHttpExceptionFactory.httpExceptionWith(409)),
+            Completable.complete()
+        )
+
+        metadataInteractor.loadRemoteMetadata(fakeMetadata).test()
+        metadataInteractor.putMetadata(PAYLOAD, fakeMetadata).test().assertComplete()
+
+        verify(metadataService, times(2)).getMetadata(fakeMetadata.address)
+        verify(metadataService, times(2)).putMetadata(eq(fakeMetadata.address), any())
+    }
+
+    companion object {
+        private const val PAYLOAD = "{\"trades\":[]}"
+    }
 }
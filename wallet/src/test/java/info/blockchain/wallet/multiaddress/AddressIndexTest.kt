@@ -0,0 +1,63 @@
+package info.blockchain.wallet.multiaddress
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class AddressIndexTest {
+
+    private val subject = AddressIndex()
+
+    @Test
+    fun `batch is not visible until published`() {
+        val batch = AddressIndex.Batch()
+        batch.putAddresses(mapOf("address" to "xpub"))
+        batch.putNextIndexes("xpub", receiveIndex = 3, changeIndex = 2)
+
+        assertFalse(subject.containsAddress("address"))
+        assertNull(subject.nextReceiveIndex("xpub"))
+
+        subject.publish(batch)
+
+        assertEquals("xpub", subject.xpubForAddress("address"))
+        assertEquals(3, subject.nextReceiveIndex("xpub"))
+        assertEquals(2, subject.nextChangeIndex("xpub"))
+    }
+
+    @Test
+    fun `concurrent publications and increments are not lost`() {
+        val threads = 8
+        val iterations = 200
+        val executor = Executors.newFixedThreadPool(threads)
+        val start = CountDownLatch(1)
+
+        repeat(threads) { thread ->
+            executor.execute {
+                start.await()
+                repeat(iterations) { i ->
+                    subject.publish(
+                        AddressIndex.Batch().apply {
+                            putAddresses(mapOf("address-$thread-$i" to "xpub-$thread"))
+                        }
+                    )
+                    subject.updateNextChangeIndex("shared") { (it ?: 0) + 1 }
+                }
+            }
+        }
+        start.countDown()
+        executor.shutdown()
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS))
+
+        repeat(threads) { thread ->
+            repeat(iterations) { i ->
+                assertEquals("xpub-$thread", subject.xpubForAddress("address-$thread-$i"))
+            }
+        }
+        assertEquals(threads * iterations, subject.nextChangeIndex("shared"))
+    }
+}
@@ -1,11 +1,20 @@
 package info.blockchain.wallet.multiaddress
 
+import com.blockchain.api.bitcoin.data.Info
+import com.blockchain.api.bitcoin.data.Input
+import com.blockchain.api.bitcoin.data.MultiAddress
+import com.blockchain.api.bitcoin.data.MultiAddressBalance
+import com.blockchain.api.bitcoin.data.Output
+import com.blockchain.api.bitcoin.data.RawBlock
+import com.blockchain.api.bitcoin.data.Transaction
 import com.blockchain.api.services.NonCustodialBitcoinService
 import com.blockchain.testutils.FakeHttpExceptionFactory
 import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.anyOrNull
 import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
 import info.blockchain.wallet.MockedResponseTest
 import info.blockchain.wallet.multiaddress.TransactionSummary.TransactionType
@@ -14,6 +23,7 @@ import info.blockchain.wallet.payload.data.XPubs
 import info.blockchain.wallet.util.parseMultiAddressResponse
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
+import org.junit.Assert.assertSame
 import org.junit.Assert.assertTrue
 import org.junit.Test
 
@@ -372,4 +382,150 @@ class MultiAddressFactoryTest : MockedResponseTest() {
             summary.outputsMap.keys.contains("17ijgwpGsVQRzMjsdAfdmeP53kpw9yvXur")
         ) // My Bitcoin Wallet
     }
+
+    @Test
+    fun syncAccountTransactions_firstSyncFetchesOnlyFirstPage() {
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "b", blockHeight = 99),
+            received(hash = "a", blockHeight = 98)
+        )
+
+        val summary = subject.syncAccountTransactions(listOf(syncXpubs), null, 2, 0)
+
+        assertEquals(listOf("b", "a"), summary.map { it.hash })
+        assertEquals(listOf(2, 3), summary.map { it.confirmations })
+        verify(bitcoinApi, times(1)).getMultiAddress(any(), any(), any(), anyOrNull(), any(), any(), any())
+    }
+
+    @Test
+    fun syncAccountTransactions_mergesNewTransactionsWithStored() {
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "pending", blockHeight = null),
+            received(hash = "b", blockHeight = 99),
+            received(hash = "a", blockHeight = 98)
+        )
+        subject.syncAccountTransactions(listOf(syncXpubs), null, 3, 0)
+
+        mockMultiAddress(
+            latestBlock = 101,
+            received(hash = "c", blockHeight = null),
+            received(hash = "pending", blockHeight = 101),
+            received(hash = "b", blockHeight = 99)
+        )
+        val summary = subject.syncAccountTransactions(listOf(syncXpubs), null, 4, 0)
+
+        assertEquals(listOf("c", "pending", "b", "a"), summary.map { it.hash })
+        assertEquals(listOf(0, 1, 3, 4), summary.map { it.confirmations })
+        verify(bitcoinApi, times(2)).getMultiAddress(any(), any(), any(), anyOrNull(), any(), any(), any())
+    }
+
+    @Test
+    fun syncAccountTransactions_returnsNoMoreThanPageSize() {
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "b", blockHeight = 99),
+            received(hash = "a", blockHeight = 98)
+        )
+        subject.syncAccountTransactions(listOf(syncXpubs), null, 2, 0)
+
+        mockMultiAddress(
+            latestBlock = 101,
+            received(hash = "c", blockHeight = 101),
+            received(hash = "b", blockHeight = 99),
+            received(hash = "a", blockHeight = 98)
+        )
+        val summary = subject.syncAccountTransactions(listOf(syncXpubs), null, 2, 0)
+
+        assertEquals(listOf("c", "b"), summary.map { it.hash })
+    }
+
+    @Test
+    fun syncAccountTransactions_growsPagesOnlyUntilStoredTransactionIsReached() {
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "a", blockHeight = 98)
+        )
+        subject.syncAccountTransactions(listOf(syncXpubs), null, 20, 0)
+
+        val newer = (1..6).map { received(hash = "new$it", blockHeight = null) }
+        mockMultiAddress(
+            latestBlock = 100,
+            *(newer + received(hash = "a", blockHeight = 98)).toTypedArray()
+        )
+        val summary = subject.syncAccountTransactions(listOf(syncXpubs), null, 20, 0)
+
+        assertEquals(newer.map { it.hash } + "a", summary.map { it.hash })
+        verify(bitcoinApi).getMultiAddress(any(), any(), any(), anyOrNull(), any(), eq(5), eq(0))
+        verify(bitcoinApi).getMultiAddress(any(), any(), any(), anyOrNull(), any(), eq(10), eq(5))
+        verify(bitcoinApi, times(3)).getMultiAddress(any(), any(), any(), anyOrNull(), any(), any(), any())
+    }
+
+    @Test
+    fun syncAccountTransactions_doesNotSummarizeStoredConfirmedTransactionsAgain() {
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "a", blockHeight = 98)
+        )
+        val first = subject.syncAccountTransactions(listOf(syncXpubs), null, 2, 0).single()
+
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "a", blockHeight = 98)
+        )
+        val second = subject.syncAccountTransactions(listOf(syncXpubs), null, 2, 0).single()
+
+        assertSame(first, second)
+    }
+
+    @Test
+    fun syncAccountTransactions_dropsStoredUnconfirmedTransactionsNoLongerReturned() {
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "dropped", blockHeight = null),
+            received(hash = "a", blockHeight = 98)
+        )
+        subject.syncAccountTransactions(listOf(syncXpubs), null, 2, 0)
+
+        mockMultiAddress(
+            latestBlock = 100,
+            received(hash = "a", blockHeight = 98)
+        )
+        val summary = subject.syncAccountTransactions(listOf(syncXpubs), null, 2, 0)
+
+        assertEquals(listOf("a"), summary.map { it.hash })
+    }
+
+    private val syncXpubs = XPubs(XPub(address = dormantXpub, derivation = XPub.Format.LEGACY))
+
+    private fun received(hash: String, blockHeight: Long?) = Transaction(
+        hash = hash,
+        blockHeight = blockHeight,
+        result = 10000.toBigInteger(),
+        fee = 1000.toBigInteger(),
+        inputs = listOf(
+            Input(prevOut = Output(addr = "1PPNN4psDFyAgdjQcKBJ8GSgE4ES4GHP9c", value = 11000.toBigInteger()))
+        ),
+        out = listOf(Output(addr = dormantAddress, value = 10000.toBigInteger()))
+    )
+
+    // Answers each request with the transactions in its limit and offset
+    private fun mockMultiAddress(latestBlock: Long, vararg txs: Transaction) {
+        fun body(page: List<Transaction>) = MultiAddress(
+            multiAddressBalance = MultiAddressBalance(
+                totalReceived = 0.toBigInteger(),
+                totalSent = 0.toBigInteger(),
+                finalBalance = 0.toBigInteger()
+            ),
+            txs = page,
+            info = Info(latestBlock = RawBlock(height = latestBlock))
+        )
+        whenever(bitcoinApi.getMultiAddress(any(), any(), any(), anyOrNull(), any(), any(), any()))
+            .thenAnswer {
+                val limit = it.getArgument<Int>(5)
+                val offset = it.getArgument<Int>(6)
+                FakeHttpExceptionFactory.mockApiCall(body(txs.drop(offset).take(limit)))
+            }
+    }
 }
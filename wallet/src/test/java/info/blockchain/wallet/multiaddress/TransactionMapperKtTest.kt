@@ -70,7 +70,7 @@ class TransactionMapperKtTest {
 
         // Act
         val result = tx.toTransactionSummary(
-            ownAddresses = xpubs.toMutableList(),
+            ownAddresses = OwnedAddresses(xpubs),
             startingBlockHeight = startingBlockHeight,
             latestBlock = latestBlock
         )
@@ -5,6 +5,9 @@ import com.blockchain.api.bitcoin.data.BalanceDto;
 import com.blockchain.api.bitcoin.data.MultiAddress;
 import info.blockchain.wallet.ImportedAddressHelper;
 import info.blockchain.wallet.WalletApiMockedResponseTest;
+import info.blockchain.wallet.bip44.DerivedAddressCache;
+import info.blockchain.wallet.bip44.DerivedAddressKey;
+import info.blockchain.wallet.bip44.DerivedAddressStore;
 import info.blockchain.wallet.exceptions.HDWalletException;
 import info.blockchain.wallet.exceptions.InvalidCredentialsException;
 import info.blockchain.wallet.exceptions.ServerConnectionException;
@@ -15,6 +18,7 @@ import info.blockchain.wallet.multiaddress.MultiAddressFactoryBtc;
 import info.blockchain.wallet.multiaddress.TransactionSummary;
 import info.blockchain.wallet.multiaddress.TransactionSummary.TransactionType;
 import info.blockchain.wallet.payload.data.Account;
+import info.blockchain.wallet.payload.data.Derivation;
 import info.blockchain.wallet.payload.data.ImportedAddress;
 import info.blockchain.wallet.payload.data.Wallet;
 import info.blockchain.wallet.payload.data.XPub;
@@ -30,6 +34,7 @@ import org.junit.Test;
 import org.mockito.MockitoAnnotations;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +43,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -579,6 +585,67 @@ public final class PayloadManagerTest extends WalletApiMockedResponseTest {
         assertEquals("1NzpLHV6LLVFCYdYA5woYL9pHJ48KQJc9K", nextChangeAddress);
     }
 
+    @Test
+    public void addressCache_warmedFromSyncedIndexes_v3() throws Exception {
+
+        String walletBase = loadResourceContent("wallet_v3_5.txt");
+
+        LinkedList<String> responseList = new LinkedList<>();
+        responseList.add(walletBase);
+        mockInterceptor.setResponseStringList(responseList);
+        mockEmptyBalance(bitcoinApi);
+        mockMultiAddress(bitcoinApi, "multiaddress/wallet_v3_5_m1.txt");
+
+        List<DerivedAddressKey> warmed = new ArrayList<>();
+        DerivedAddressStore store = new DerivedAddressStore() {
+            @Override
+            public String get(DerivedAddressKey key) {
+                return null;
+            }
+
+            @Override
+            public void put(DerivedAddressKey key, String address) {
+                warmed.add(key);
+            }
+
+            @Override
+            public void clear() {
+            }
+        };
+        payloadManager = new PayloadManager(
+            walletApi,
+            bitcoinApi,
+            new MultiAddressFactoryBtc(bitcoinApi),
+            new BalanceManagerBtc(bitcoinApi),
+            new BalanceManagerBch(bitcoinApi),
+            new DerivedAddressCache(DerivedAddressCache.DEFAULT_MAX_SIZE, store, Runnable::run)
+        );
+
+        payloadManager.initializeAndDecrypt(
+            "06f6fa9c-d0fe-403d-815a-111ee26888e2",
+            "4750d125-5344-4b79-9cf9-6e3c97bc9523",
+            "MyTestWallet",
+            false
+        );
+
+        // Nothing is known about the indexes before the first sync
+        assertTrue(warmed.isEmpty());
+
+        Account account = payloadManager.getPayload().getWalletBody().getAccounts().get(0);
+        payloadManager.getAccountTransactions(account.getXpubs(), 50, 0);
+
+        // The next receive index published by the sync is 1
+        assertEquals(
+            new DerivedAddressKey(account.getXpubs().getDefault().getAddress(), 0, 1, Derivation.LEGACY_PURPOSE),
+            warmed.get(0)
+        );
+        for (DerivedAddressKey key : warmed) {
+            if (key.getChain() == 0) {
+                assertNotEquals(0, key.getIndex());
+            }
+        }
+    }
+
      @Test
      public void balance() throws Exception {
         String walletBase = loadResourceContent("wallet_v3_6.txt");
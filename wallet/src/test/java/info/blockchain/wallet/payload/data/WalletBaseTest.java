@@ -3,15 +3,16 @@ package info.blockchain.wallet.payload.data;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import info.blockchain.wallet.MockedResponseTest;
-import org.apache.commons.lang3.tuple.Pair;
 import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
 
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 
 public class WalletBaseTest extends MockedResponseTest {
 
@@ -149,57 +150,74 @@ public class WalletBaseTest extends MockedResponseTest {
     }
 
     @Test
-    public void encryptAndWrapPayload() throws Exception {
+    public void encryptPayload() throws Exception {
 
         URI uri = getClass().getClassLoader().getResource("wallet_v3_1.txt").toURI();
         String walletBase = new String(Files.readAllBytes(Paths.get(uri)), StandardCharsets.UTF_8);
 
-        /////////////
-        //Decrypt
         WalletBase walletBaseBody = WalletBase.fromJson(walletBase);
         walletBaseBody.decryptPayload("MyTestWallet");
 
         //Encrypt
-        Pair pair = walletBaseBody.encryptAndWrapPayload("MyTestWallet");
+        EncryptedWalletPayload encryptedPayload = walletBaseBody.encryptPayload("MyTestWallet");
+        String wrapperJson = StandardCharsets.US_ASCII.decode(encryptedPayload.getWrapperJson()).toString();
 
-        //Check wallet wrapper
-        WalletWrapper encryptedwalletWrapper = (WalletWrapper) pair.getRight();
+        //Check wallet wrapper, in the same layout as WalletWrapper.toJson
+        WalletWrapper encryptedwalletWrapper = WalletWrapper.fromJson(wrapperJson);
         Assert.assertEquals(5000, encryptedwalletWrapper.getPbkdf2Iterations());
         Assert.assertEquals(3, encryptedwalletWrapper.getVersion());
+        Assert.assertEquals(encryptedwalletWrapper.toJson(WalletWrapper.getMapperForVersion(3)), wrapperJson);
+        Assert.assertEquals(wrapperJson.length(), encryptedPayload.getLength());
+
+        //Check checksum
+        Assert.assertEquals(
+            new String(Hex.encode(MessageDigest.getInstance("SHA-256").digest(wrapperJson.getBytes(StandardCharsets.US_ASCII)))),
+            encryptedPayload.getChecksum()
+        );
 
         //Decrypt again to check payload intact
         Wallet walletBody = encryptedwalletWrapper.decryptPayload("MyTestWallet");
         Assert.assertEquals("a09910d9-1906-4ea1-a956-2508c3fe0661", walletBody.getGuid());
+        Assert.assertEquals(
+            walletBaseBody.getWalletBody().toJson(WalletWrapper.getMapperForVersion(3)),
+            walletBody.toJson(WalletWrapper.getMapperForVersion(3))
+        );
+    }
+
+    @Test
+    public void encryptPayload_iterationsAndPassword() throws Exception {
+
+        URI uri = getClass().getClassLoader().getResource("wallet_v3_1.txt").toURI();
+        String walletBase = new String(Files.readAllBytes(Paths.get(uri)), StandardCharsets.UTF_8);
 
         ///////Encrypt with different iterations//////
         //Decrypt
-        walletBaseBody = WalletBase.fromJson(walletBase);
+        WalletBase walletBaseBody = WalletBase.fromJson(walletBase);
         walletBaseBody.decryptPayload("MyTestWallet");
         walletBaseBody.getWalletBody().getOptions().setPbkdf2Iterations(7500);
 
         //Encrypt
-        pair = walletBaseBody.encryptAndWrapPayload("MyTestWallet");
+        EncryptedWalletPayload encryptedPayload = walletBaseBody.encryptPayload("MyTestWallet");
 
         //Check wallet wrapper
-        encryptedwalletWrapper = (WalletWrapper) pair.getRight();
+        WalletWrapper encryptedwalletWrapper = WalletWrapper.fromJson(
+            StandardCharsets.US_ASCII.decode(encryptedPayload.getWrapperJson()).toString()
+        );
         Assert.assertEquals(7500, encryptedwalletWrapper.getPbkdf2Iterations());
         Assert.assertEquals(3, encryptedwalletWrapper.getVersion());
 
         //Decrypt again to check payload intact
-        walletBody = encryptedwalletWrapper.decryptPayload("MyTestWallet");
+        Wallet walletBody = encryptedwalletWrapper.decryptPayload("MyTestWallet");
         Assert.assertEquals("a09910d9-1906-4ea1-a956-2508c3fe0661", walletBody.getGuid());
 
         ///////Encrypt with different password//////
-        //Decrypt
-        walletBaseBody = WalletBase.fromJson(walletBase);
-        walletBaseBody.decryptPayload("MyTestWallet");
-        walletBaseBody.getWalletBody().getOptions().setPbkdf2Iterations(7500);
-
         //Encrypt
-        pair = walletBaseBody.encryptAndWrapPayload("MyNewTestWallet");
+        encryptedPayload = walletBaseBody.encryptPayload("MyNewTestWallet");
 
         //Check wallet wrapper
-        encryptedwalletWrapper = (WalletWrapper) pair.getRight();
+        encryptedwalletWrapper = WalletWrapper.fromJson(
+            StandardCharsets.US_ASCII.decode(encryptedPayload.getWrapperJson()).toString()
+        );
         Assert.assertEquals(7500, encryptedwalletWrapper.getPbkdf2Iterations());
         Assert.assertEquals(3, encryptedwalletWrapper.getVersion());
 
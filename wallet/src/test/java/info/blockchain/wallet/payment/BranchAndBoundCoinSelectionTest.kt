@@ -0,0 +1,99 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class BranchAndBoundCoinSelectionTest {
+    private fun unspent(value: Int) = Utxo(value = value.toBigInteger())
+
+    private fun unspents(vararg unspents: Int) = unspents.map { unspent(it) }
+
+    private fun List<Utxo>.values() = map { it.value }
+
+    private val feePerByte = BigInteger.ONE
+
+    @Test
+    fun `finds changeless selection where greedy selection needs change`() {
+        val coins = unspents(100000, 30000, 20000)
+        val outputAmount = 49658.toBigInteger()
+
+        CoinSelection(coins, feePerByte)
+            .select(outputAmount, OutputType.P2PKH, OutputType.P2PKH, DescentDraw)
+            .also {
+                it.spendableOutputs.values() `should be equal to` unspents(100000).values()
+            }
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .select(outputAmount, OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it.spendableOutputs.values() `should be equal to` unspents(30000, 20000).values()
+                it.absoluteFee `should be equal to` 342.toBigInteger()
+                it.consumedAmount `should be equal to` BigInteger.ZERO
+            }
+    }
+
+    @Test
+    fun `consumes excess below the change dust threshold as fee`() {
+        val coins = unspents(100000, 30000, 20000)
+        val outputAmount = 49600.toBigInteger()
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .select(outputAmount, OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it.spendableOutputs.values() `should be equal to` unspents(30000, 20000).values()
+                it.absoluteFee `should be equal to` 400.toBigInteger()
+                it.consumedAmount `should be equal to` 58.toBigInteger()
+            }
+    }
+
+    @Test
+    fun `falls back to greedy selection when there is no changeless selection`() {
+        val coins = unspents(100000, 30000, 20000)
+        val outputAmount = 10000.toBigInteger()
+
+        val greedy = CoinSelection(coins, feePerByte)
+            .select(outputAmount, OutputType.P2PKH, OutputType.P2PKH, DescentDraw)
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .select(outputAmount, OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it.spendableOutputs `should be equal to` greedy.spendableOutputs
+                it.absoluteFee `should be equal to` greedy.absoluteFee
+                it.consumedAmount `should be equal to` greedy.consumedAmount
+            }
+    }
+
+    @Test
+    fun `falls back to greedy selection when the search budget is exhausted`() {
+        val coins = unspents(100000, 30000, 20000)
+        val outputAmount = 49658.toBigInteger()
+
+        BranchAndBoundCoinSelection(coins, feePerByte, maxIterations = 1)
+            .select(outputAmount, OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it.spendableOutputs.values() `should be equal to` unspents(100000).values()
+            }
+    }
+
+    @Test
+    fun `no changeless selection when coins are insufficient`() {
+        BranchAndBoundCoinSelection(unspents(1000, 2000), feePerByte)
+            .selectChangeless(10000.toBigInteger(), OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it `should be equal to` null
+            }
+    }
+
+    @Test
+    fun `no changeless selection with forced inputs`() {
+        val coins = unspents(30000, 20000) + Utxo(value = Payment.DUST, isForceInclude = true)
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .selectChangeless(49658.toBigInteger(), OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it `should be equal to` null
+            }
+    }
+}
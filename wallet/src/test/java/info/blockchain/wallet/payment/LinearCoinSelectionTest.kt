@@ -0,0 +1,76 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+import kotlin.random.Random
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class LinearCoinSelectionTest {
+
+    private val random = Random(42)
+
+    private fun randomCoins(count: Int) = List(count) {
+        Utxo(
+            value = random.nextLong(1, 2_000_000).toBigInteger(),
+            txHash = "tx$it",
+            isReplayable = random.nextBoolean(),
+            isSegwit = random.nextBoolean()
+        )
+    }
+
+    private val placeholderDustInput = Utxo(value = Payment.DUST, isForceInclude = true)
+
+    private val sortingMethods = listOf(AscentDraw, DescentDraw, ReplayProtection(placeholderDustInput))
+
+    private fun SpendableUnspentOutputs.shouldMatch(expected: SpendableUnspentOutputs) {
+        spendableOutputs `should be equal to` expected.spendableOutputs
+        absoluteFee `should be equal to` expected.absoluteFee
+        consumedAmount `should be equal to` expected.consumedAmount
+        isReplayProtected `should be equal to` expected.isReplayProtected
+    }
+
+    @Test
+    fun `select matches greedy coin selection`() {
+        repeat(50) {
+            val coins = randomCoins(random.nextInt(0, 200))
+            val feePerByte = random.nextLong(1, 300).toBigInteger()
+            val outputAmount = random.nextLong(1, 50_000_000).toBigInteger()
+
+            for (method in sortingMethods) {
+                for (target in OutputType.values()) {
+                    LinearCoinSelection(coins, feePerByte)
+                        .select(outputAmount, target, OutputType.P2WPKH, method)
+                        .shouldMatch(
+                            CoinSelection(coins, feePerByte)
+                                .select(outputAmount, target, OutputType.P2WPKH, method)
+                        )
+                }
+            }
+        }
+    }
+
+    @Test
+    fun `select all matches greedy coin selection`() {
+        repeat(50) {
+            val coins = randomCoins(random.nextInt(0, 200))
+            val feePerByte = random.nextLong(1, 300).toBigInteger()
+
+            for (method in sortingMethods + null) {
+                LinearCoinSelection(coins, feePerByte)
+                    .selectAll(OutputType.P2PKH, method)
+                    .shouldMatch(CoinSelection(coins, feePerByte).selectAll(OutputType.P2PKH, method))
+            }
+        }
+    }
+
+    @Test
+    fun `select with no coins`() {
+        LinearCoinSelection(emptyList(), 55.toBigInteger())
+            .select(100000.toBigInteger(), OutputType.P2PKH, OutputType.P2PKH, DescentDraw)
+            .also {
+                it.spendableOutputs `should be equal to` emptyList()
+                it.absoluteFee `should be equal to` BigInteger.ZERO
+            }
+    }
+}
@@ -0,0 +1,114 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+import kotlin.random.Random
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class MultiFeeCoinSelectionTest {
+
+    private val random = Random(7)
+
+    private fun randomCoins(count: Int) = List(count) {
+        Utxo(
+            value = random.nextLong(1, 2_000_000).toBigInteger(),
+            txHash = "tx$it",
+            isReplayable = random.nextBoolean(),
+            isSegwit = random.nextBoolean()
+        )
+    }
+
+    private val placeholderDustInput = Utxo(value = Payment.DUST, isForceInclude = true)
+
+    private val sortingMethods = listOf(AscentDraw, DescentDraw, ReplayProtection(placeholderDustInput))
+
+    private fun SpendableUnspentOutputs.shouldMatch(expected: SpendableUnspentOutputs) {
+        spendableOutputs `should be equal to` expected.spendableOutputs
+        absoluteFee `should be equal to` expected.absoluteFee
+        consumedAmount `should be equal to` expected.consumedAmount
+        isReplayProtected `should be equal to` expected.isReplayProtected
+    }
+
+    @Test
+    fun `each fee rate matches linear coin selection`() {
+        repeat(50) {
+            val coins = randomCoins(random.nextInt(0, 200))
+            val feesPerByte = List(3) { random.nextLong(0, 300).toBigInteger() }
+            val outputAmount = random.nextLong(1, 50_000_000).toBigInteger()
+
+            for (method in sortingMethods) {
+                for (target in OutputType.values()) {
+                    val selections = MultiFeeCoinSelection(coins, feesPerByte)
+                        .select(outputAmount, target, OutputType.P2WPKH, method)
+
+                    selections.size `should be equal to` feesPerByte.size
+                    selections.forEachIndexed { index, selection ->
+                        val linear = LinearCoinSelection(coins, feesPerByte[index])
+                        val all = linear.selectAll(target, method)
+
+                        selection.spendableCoins.shouldMatch(
+                            linear.select(outputAmount, target, OutputType.P2WPKH, method)
+                        )
+                        selection.maxAvailable `should be equal to` all.spendableBalance
+                        selection.feeForMax `should be equal to` all.absoluteFee
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun `coins for fees match separate selections`() {
+        repeat(20) {
+            val coins = randomCoins(random.nextInt(1, 60))
+            val feesPerKb = listOf(12_000L, 12_000L, 40_500L, 0L).map { it.toBigInteger() }
+            val outputAmount = random.nextLong(1, 20_000_000).toBigInteger()
+
+            for (replayProtection in listOf(false, true)) {
+                for (preferChangeless in listOf(false, true)) {
+                    val selections = Coins.getSpendableCoinsForFees(
+                        coins,
+                        OutputType.P2WPKH,
+                        OutputType.P2PKH,
+                        outputAmount,
+                        feesPerKb,
+                        replayProtection,
+                        preferChangeless
+                    )
+
+                    selections.size `should be equal to` feesPerKb.size
+                    selections.forEachIndexed { index, selection ->
+                        selection.spendableCoins.shouldMatch(
+                            Coins.getMinimumCoinsForPayment(
+                                coins,
+                                OutputType.P2WPKH,
+                                OutputType.P2PKH,
+                                outputAmount,
+                                feesPerKb[index],
+                                replayProtection,
+                                preferChangeless
+                            )
+                        )
+                        Coins.getMaximumAvailable(coins, OutputType.P2WPKH, feesPerKb[index], replayProtection)
+                            .also { (maxAvailable, feeForMax) ->
+                                selection.maxAvailable `should be equal to` maxAvailable
+                                selection.feeForMax `should be equal to` feeForMax
+                            }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun `select with no coins`() {
+        MultiFeeCoinSelection(emptyList(), listOf(55.toBigInteger(), 80.toBigInteger()))
+            .select(100000.toBigInteger(), OutputType.P2PKH, OutputType.P2PKH, DescentDraw)
+            .forEach {
+                it.spendableCoins.spendableOutputs `should be equal to` emptyList()
+                it.spendableCoins.absoluteFee `should be equal to` BigInteger.ZERO
+                it.maxAvailable `should be equal to` BigInteger.ZERO
+            }
+    }
+}
@@ -6,6 +6,10 @@ import info.blockchain.wallet.crypto.AESUtil;
 import info.blockchain.wallet.exceptions.DecryptionException;
 import org.junit.Assert;
 import org.junit.Test;
+import org.spongycastle.crypto.InvalidCipherTextException;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by riaanvos on 20/04/16.
@@ -75,4 +79,33 @@ public class DoubleEncryptionFactoryTest {
             Assert.assertTrue("Double decryption failed", true);
         }
     }
+
+    @Test
+    public void batchEncryptionRoundTripKeepsOrderTest() throws Exception {
+        List<String> secrets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            secrets.add(cleartext + i);
+        }
+
+        List<String> encrypted = DoubleEncryptionFactory.encryptAll(secrets, sharedKey, pw, iterations);
+        Assert.assertEquals(secrets.size(), encrypted.size());
+        Assert.assertEquals(secrets.get(3), DoubleEncryptionFactory.decrypt(encrypted.get(3), sharedKey, pw, iterations));
+
+        Assert.assertEquals(secrets, DoubleEncryptionFactory.decryptAll(encrypted, sharedKey, pw, iterations));
+    }
+
+    @Test
+    public void batchDecryptionFailPasswordTest() throws Exception {
+        List<String> secrets = new ArrayList<>();
+        secrets.add(cleartext);
+        secrets.add(cleartext);
+
+        List<String> encrypted = DoubleEncryptionFactory.encryptAll(secrets, sharedKey, pw, iterations);
+        try {
+            List<String> decrypted = DoubleEncryptionFactory.decryptAll(encrypted, sharedKey, "bogus", iterations);
+            Assert.assertNotEquals(secrets, decrypted);
+        } catch (DecryptionException | InvalidCipherTextException e) {
+            Assert.assertTrue("Double decryption failed", true);
+        }
+    }
 }